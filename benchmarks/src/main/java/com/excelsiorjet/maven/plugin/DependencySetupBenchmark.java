@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.JetHomeException;
+import com.excelsiorjet.api.tasks.JetProject;
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import com.excelsiorjet.api.tasks.config.dependencies.ProjectDependency;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Maven-side setup of an Excelsior JET build for projects with large dependency graphs:
+ * conversion of the project artifacts to {@link ProjectDependency}s, creation of the {@link JetProject}
+ * and its validation, where dependency settings are matched against the dependencies.
+ * <p>
+ * Validation requires an Excelsior JET installation (set the {@code jet.home} system property or
+ * the {@code JET_HOME} environment variable), without it only the first two benchmarks are run.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DependencySetupBenchmark {
+
+    @Param({"500", "1500", "5000"})
+    public int artifacts;
+
+    @Param({"100", "400"})
+    public int settings;
+
+    private BuildMojo mojo;
+
+    private ExcelsiorJet excelsiorJet;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "jet-benchmark-" + artifacts);
+        mojo = SyntheticProject.createMojo(dir, artifacts, settings);
+        try {
+            excelsiorJet = new ExcelsiorJet(null);
+        } catch (JetHomeException e) {
+            excelsiorJet = null;
+        }
+    }
+
+    @Benchmark
+    public List<ProjectDependency> getDependencies() {
+        return mojo.getDependencies();
+    }
+
+    @Benchmark
+    public JetProject getJetProject() throws JetTaskFailureException {
+        return mojo.getJetProject();
+    }
+
+    @Benchmark
+    public JetProject getAndValidateJetProject() throws JetTaskFailureException {
+        if (excelsiorJet == null) {
+            throw new IllegalStateException("Excelsior JET installation is required to validate the project");
+        }
+        JetProject project = mojo.getJetProject();
+        project.validate(excelsiorJet, true);
+        return project;
+    }
+}
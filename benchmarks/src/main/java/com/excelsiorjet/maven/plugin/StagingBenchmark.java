@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.maven.plugin.packaging.FileStager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures staging of a directory tree into an empty target directory: a plain {@link Files#copy} walk
+ * versus {@link FileStager} copying (or cloning large files where the file system supports reflinks)
+ * and hard linking the files, and a restaging of the unchanged tree, where all files are skipped.
+ * <p>
+ * The {@code small} layout resembles the unpacked dependencies of a large project (5000 files of 4 KB),
+ * the {@code large} one resembles native executables and their data files (8 files of 32 MB).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StagingBenchmark {
+
+    @Param({"small", "large"})
+    public String layout;
+
+    @Param({"files-copy", "copy", "link", "restage"})
+    public String method;
+
+    private Path source;
+
+    private Path target;
+
+    private FileStager stager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"), "jet-staging-benchmark-" + layout);
+        source = dir.resolve("source");
+        target = dir.resolve("target");
+        if (!Files.isDirectory(source)) {
+            boolean small = layout.equals("small");
+            createTree(source, small ? 5000 : 8, small ? 4 * 1024 : 32 * 1024 * 1024);
+        }
+        stager = new FileStager(method.equals("link"), Runtime.getRuntime().availableProcessors());
+        delete(target);
+        if (method.equals("restage")) {
+            stager.stageTree(source, target);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void cleanTarget() throws IOException {
+        if (!method.equals("restage")) {
+            delete(target);
+        }
+    }
+
+    @Benchmark
+    public Object stage() throws IOException {
+        if (method.equals("files-copy")) {
+            copyTree(source, target);
+            return target;
+        }
+        return stager.stageTree(source, target);
+    }
+
+    private static void createTree(Path dir, int files, int size) throws IOException {
+        Random random = new Random(files);
+        byte[] content = new byte[size];
+        for (int i = 0; i < files; i++) {
+            // spread the files over subdirectories as a dependency tree would
+            Path file = dir.resolve("d" + (i % 50)).resolve("f" + i + ".bin");
+            Files.createDirectories(file.getParent());
+            random.nextBytes(content);
+            Files.write(file, content);
+        }
+    }
+
+    private static void copyTree(Path sourceDir, Path targetDir) throws IOException {
+        try (Stream<Path> paths = Files.walk(sourceDir)) {
+            paths.forEach(path -> {
+                Path copy = targetDir.resolve(sourceDir.relativize(path).toString());
+                try {
+                    if (Files.isDirectory(path)) {
+                        Files.createDirectories(copy);
+                    } else {
+                        Files.copy(path, copy, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
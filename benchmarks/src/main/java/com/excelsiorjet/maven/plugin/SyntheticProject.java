@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.tasks.config.OSXAppBundleConfig;
+import com.excelsiorjet.api.tasks.config.PDBConfig;
+import com.excelsiorjet.api.tasks.config.TomcatConfig;
+import com.excelsiorjet.api.tasks.config.compiler.ExecProfilesConfig;
+import com.excelsiorjet.api.tasks.config.compiler.TrialVersionConfig;
+import com.excelsiorjet.api.tasks.config.compiler.WindowsVersionInfoConfig;
+import com.excelsiorjet.api.tasks.config.dependencies.DependencySettings;
+import com.excelsiorjet.api.tasks.config.excelsiorinstaller.ExcelsiorInstallerConfig;
+import com.excelsiorjet.api.tasks.config.runtime.RuntimeConfig;
+import com.excelsiorjet.api.tasks.config.runtime.SlimDownConfig;
+import com.excelsiorjet.api.tasks.config.windowsservice.WindowsServiceConfig;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Synthetic Maven project with a large dependency graph, configured the way Maven configures the mojos.
+ */
+class SyntheticProject {
+
+    static final int GROUPS = 50;
+
+    /**
+     * Creates a {@link BuildMojo} for a project with the given number of dependencies and dependency settings.
+     * <p>
+     * Dependencies are spread over {@link #GROUPS} groups. Up to a fifth of the settings address whole groups,
+     * and the rest address individual artifacts, as in real projects that configure a few vendor groups
+     * and many individual libraries.
+     * </p>
+     *
+     * @param dir directory for the dependency jars, reused between invocations
+     */
+    static BuildMojo createMojo(File dir, int artifacts, int settings) throws Exception {
+        if (settings > artifacts) {
+            throw new IllegalArgumentException("Too many settings: " + settings + " > " + artifacts);
+        }
+        DefaultArtifactHandler jar = new DefaultArtifactHandler("jar");
+        Set<Artifact> deps = new LinkedHashSet<>();
+        for (int i = 0; i < artifacts; i++) {
+            String groupId = groupId(i);
+            String version = "1." + (i % 10);
+            Artifact artifact = new DefaultArtifact(groupId, artifactId(i), VersionRange.createFromVersion(version),
+                    Artifact.SCOPE_COMPILE, "jar", null, jar);
+            artifact.setFile(emptyJar(new File(dir, "repo/" + groupId + "/" + artifactId(i) + "-" + version + ".jar")));
+            deps.add(artifact);
+        }
+
+        MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("app");
+        project.setVersion("1.0");
+        project.setPackaging("jar");
+        project.setName("app");
+        project.setArtifacts(deps);
+
+        DependencySettings[] dependencies = new DependencySettings[settings];
+        int groupSettings = Math.min(settings / 5, GROUPS);
+        for (int i = 0; i < settings; i++) {
+            DependencySettings s = new DependencySettings();
+            if (i < groupSettings) {
+                s.groupId = groupId(i);
+                s.optimize = "all";
+            } else {
+                // distinct artifacts, spread over the whole graph
+                int a = (int) ((long) (i - groupSettings) * artifacts / (settings - groupSettings));
+                s.groupId = groupId(a);
+                s.artifactId = artifactId(a);
+                s.protect = "all";
+            }
+            dependencies[i] = s;
+        }
+
+        BuildMojo mojo = new BuildMojo();
+        mojo.project = project;
+        mojo.setTargetDir(new File(dir, "target"));
+        mojo.artifactName = "app";
+        mojo.mainJar = emptyJar(new File(dir, "target/app.jar"));
+        mojo.mainClass = "com.example.Main";
+        mojo.jetResourcesDir = new File(dir, "src/main/jetresources");
+        mojo.dependencies = dependencies;
+        mojo.tomcatConfiguration = new TomcatConfig();
+        mojo.execProfilesConfig = new ExecProfilesConfig();
+        mojo.runtimeConfiguration = new RuntimeConfig();
+        mojo.runtimeConfiguration.slimDown = new SlimDownConfig();
+        mojo.setJavaRuntimeSlimDown(new SlimDownConfig());
+        mojo.trialVersion = new TrialVersionConfig();
+        mojo.windowsVersionInfoConfiguration = new WindowsVersionInfoConfig();
+        mojo.excelsiorInstallerConfiguration = new ExcelsiorInstallerConfig();
+        mojo.windowsServiceConfiguration = new WindowsServiceConfig();
+        mojo.osxBundleConfiguration = new OSXAppBundleConfig();
+        mojo.pdbConfiguration = new PDBConfig();
+        mojo.optimizationPreset = "typical";
+        mojo.stackAllocation = true;
+        mojo.profileStartup = true;
+        mojo.profileStartupTimeout = 20;
+        mojo.version = project.getVersion();
+        mojo.product = project.getName();
+        return mojo;
+    }
+
+    private static String groupId(int i) {
+        return "com.example.group" + (i % GROUPS);
+    }
+
+    private static String artifactId(int i) {
+        return "lib" + i;
+    }
+
+    private static File emptyJar(File file) throws IOException {
+        if (!file.exists()) {
+            file.getParentFile().mkdirs();
+            try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+                zip.setComment("empty");
+            }
+        }
+        return file;
+    }
+}
@@ -21,22 +21,48 @@
 */
 package com.excelsiorjet.maven.plugin;
 
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.cmd.CmdLineToolException;
 import com.excelsiorjet.api.tasks.JetBuildTask;
 import com.excelsiorjet.api.tasks.JetProject;
 import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import com.excelsiorjet.api.tasks.config.ApplicationType;
 import com.excelsiorjet.api.tasks.config.OSXAppBundleConfig;
 import com.excelsiorjet.api.tasks.config.PDBConfig;
 import com.excelsiorjet.api.tasks.config.compiler.TrialVersionConfig;
 import com.excelsiorjet.api.tasks.config.compiler.WindowsVersionInfoConfig;
 import com.excelsiorjet.api.tasks.config.dependencies.DependencySettings;
 import com.excelsiorjet.api.tasks.config.excelsiorinstaller.ExcelsiorInstallerConfig;
+import com.excelsiorjet.api.tasks.config.packagefile.PackageFile;
 import com.excelsiorjet.api.tasks.config.runtime.RuntimeConfig;
 import com.excelsiorjet.api.tasks.config.runtime.SlimDownConfig;
 import com.excelsiorjet.api.tasks.config.windowsservice.WindowsServiceConfig;
 import com.excelsiorjet.api.util.Utils;
+import com.excelsiorjet.maven.plugin.cache.BuildCacheConfig;
+import com.excelsiorjet.maven.plugin.delta.DeltaPackageConfig;
+import com.excelsiorjet.maven.plugin.delta.DeltaPackager;
+import com.excelsiorjet.maven.plugin.packaging.Deduplicator;
+import com.excelsiorjet.maven.plugin.packaging.FileStager;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.versioning.ArtifactVersion;
+import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
 
 import static com.excelsiorjet.api.log.Log.logger;
 import static com.excelsiorjet.api.util.Txt.s;
@@ -167,6 +193,22 @@ public abstract class AbstractBuildMojo extends AbstractJetMojo {
 
     /**
      * Runtime configuration parameters.
+     * <p>
+     * {@code components}, {@code locales} and {@code detachComponents} of {@code slimDown} accept the {@code auto}
+     * value, possibly along with explicitly listed values. It is replaced with the optional components and
+     * locales the application used during the Test Run, and with the Java SE components it did not use,
+     * respectively. The size saved by each decision is printed. Locales or components used in production
+     * but not during the Test Run must be listed explicitly.
+     * </p>
+     * <p>
+     * {@code profile} accepts the {@code auto} value as well. It is replaced with the smallest compact profile
+     * containing all Java SE classes referenced by the bytecode of the main artifact and its dependencies,
+     * and the classes that prevent the use of a smaller profile are printed.
+     * </p>
+     * <p>
+     * The {@code auto} values are resolved by {@code jet:build} and {@code jet:tune} right before the build,
+     * once the profiles are resolved and re-collected. The other goals use the defaults instead.
+     * </p>
      *
      * @see RuntimeConfig#flavor
      * @see RuntimeConfig#profile
@@ -432,9 +474,262 @@ public abstract class AbstractBuildMojo extends AbstractJetMojo {
     @Parameter(property = "pdbConfiguration", alias = "pdb")
     protected PDBConfig pdbConfiguration;
 
+    /**
+     * If set to {@code true}, the build is skipped when none of its inputs has changed since the previous
+     * successful build, and the existing contents of {@link #jetAppDir} and the zip or tar.gz archive are reused.
+     * <p>
+     * The inputs are compared by content, not by timestamps: the main application jar or war,
+     * the project dependencies, all plugin parameters including the files they refer to
+     * (e.g. the contents of {@link #jetResourcesDir} and the execution profiles),
+     * and the Excelsior JET installation used for the build.
+     * Their fingerprint is stored in {@link #jetBuildDir}, so {@code mvn clean} always results in a full build.
+     * </p>
+     * <p>
+     * The check is only performed for the {@code zip}, {@code tar-gz} and {@code none} {@link #packaging} types.
+     * It is disabled by default, as inputs that the plugin does not know of, such as the environment
+     * of the build, are not fingerprinted.
+     * </p>
+     */
+    @Parameter(property = "upToDateCheck", defaultValue = "false")
+    protected boolean upToDateCheck;
+
+    /**
+     * Build cache configuration. If configured, the results of {@code jet:build} are stored in a cache
+     * keyed by the fingerprint of all build inputs (see {@link #upToDateCheck}) and subsequent builds
+     * with the same inputs, on this or any other machine sharing the cache, restore them instead of building.
+     *
+     * @see BuildCacheConfig#directory
+     * @see BuildCacheConfig#url
+     * @see BuildCacheConfig#maxSize
+     * @see BuildCacheConfig#push
+     * @see BuildCacheConfig#timeout
+     */
+    @Parameter(property = "buildCache")
+    protected BuildCacheConfig buildCache;
+
+    /**
+     * Maximum number of Excelsior JET compilations that may run concurrently in a parallel reactor build
+     * ({@code mvn -T}). The limit is shared by all modules of the build.
+     * By default, it is equal to the number of available processors.
+     *
+     * @see #compileMemory
+     */
+    @Parameter(property = "jet.maxParallelCompiles", defaultValue = "0")
+    protected int maxParallelCompiles;
+
+    /**
+     * Amount of memory in megabytes that the compilation of this module is expected to take.
+     * In a parallel reactor build, a compilation is not started until enough memory is available
+     * with respect to the amounts taken by the compilations that are already running.
+     * By default, it is 4096 if the {@link #globalOptimizer} is enabled, and 1024 otherwise.
+     *
+     * @see #maxParallelCompiles
+     */
+    @Parameter(property = "jet.compileMemory", defaultValue = "0")
+    protected int compileMemory;
+
+    /**
+     * If set to {@code true}, the wall-clock time, CPU time and peak memory usage of each stage of the build
+     * (preparation of dependencies, compilation, startup profiling, runtime assembly, packaging)
+     * are saved to {@code build-metrics.json} in {@link #jetOutputDir} and printed as a table.
+     * <p>
+     * Compiler and packager processes can be sampled on Linux only.
+     * On other systems, only the total build time is reported.
+     * </p>
+     * <p>
+     * Excelsior JET does not report its stages, so they are recovered from the processes that the build runs.
+     * The stages whose boundaries are inferred by heuristics (preparation, startup profiling and packaging)
+     * are marked with {@code "inferred": true} in the file and with an asterisk in the table.
+     * </p>
+     */
+    @Parameter(property = "jet.buildMetrics", defaultValue = "false")
+    protected boolean buildMetrics;
+
+    /**
+     * If set to {@code true}, identical files of {@link #jetAppDir} (e.g. the Excelsior JET runtime files)
+     * are replaced with hard links to a single copy, also shared with the other application directories
+     * deduplicated against the same {@link #deduplicationStore} on this host.
+     * This saves disk space and page cache when many applications built with Excelsior JET run on one host.
+     * <p>
+     * Hard linked files share their contents, so they must not be modified in place.
+     * Files smaller than 16 KB, such as configuration files, are never deduplicated.
+     * </p>
+     */
+    @Parameter(property = "jet.deduplicate", defaultValue = "false")
+    protected boolean deduplicate;
+
+    /**
+     * Directory keeping a hard link to each distinct file deduplicated on this host, if {@link #deduplicate} is enabled.
+     * It must reside on the same file system as {@link #jetAppDir}, otherwise files are only deduplicated
+     * within the application directory.
+     */
+    @Parameter(property = "jet.deduplicationStore", defaultValue = "${user.home}/.m2/jet-deduplication-store")
+    protected File deduplicationStore;
+
+    /**
+     * If set to {@code true}, the size of {@link #jetAppDir} is attributed to the executables, the Excelsior JET
+     * Runtime components, the package files, and the classpath elements and their Java packages, and saved
+     * to {@code size-report.json} in {@link #jetOutputDir} along with the changes since the previous build.
+     * The compiler does not report the contribution of each class to the executables, so the shares
+     * of the classpath elements and Java packages in them are estimates.
+     *
+     * @see SizeReport
+     */
+    @Parameter(property = "jet.sizeReport", defaultValue = "false")
+    protected boolean sizeReport;
+
+    /**
+     * Reachability-based pruning of the project dependencies performed by {@code jet:build}. Permitted values are:
+     * <dl>
+     * <dt>off</dt>
+     * <dd>the reachability is not analyzed</dd>
+     * <dt>report</dt>
+     * <dd>the dependencies and classes unreachable from the entry points of the application are reported
+     * to {@code reachability.json} in {@link #jetOutputDir}</dd>
+     * <dt>exclude</dt>
+     * <dd>the unreachable dependencies are also excluded from the application</dd>
+     * <dt>pack-none</dt>
+     * <dd>the unreachable dependencies are also not compiled and not packed into the executable,
+     * but copied to the package, so the classes loaded in a way the analysis cannot see still run on the JIT</dd>
+     * </dl>
+     * The entry points are the main class, the servlets, filters and listeners of {@code web.xml},
+     * the Spring components and configurations, and the classes matched by {@link #keepRules}.
+     * The classes loaded during the Test Run are kept as well, so {@code exclude} and {@code pack-none}
+     * fall back to {@code report} if the usage list of {@code jet:testrun} is not found,
+     * unless {@link #pruneWithoutUsageList} is set. The dependencies that have {@link #dependencies} settings are not pruned,
+     * and the dependencies of Tomcat and Spring Boot applications are only reported, as they are packed
+     * into the main artifact.
+     *
+     * @see ReachabilityAnalyzer
+     */
+    @Parameter(property = "jet.pruneDependencies", defaultValue = "off")
+    protected String pruneDependencies;
+
+    /**
+     * If set, {@link #pruneDependencies} prunes the unreachable dependencies even if there is no usage list
+     * collected by {@code jet:testrun}, so the dependencies loaded only by the names computed at run time,
+     * such as the service providers and the JDBC drivers, may be pruned.
+     */
+    @Parameter(property = "jet.pruneWithoutUsageList", defaultValue = "false")
+    protected boolean pruneWithoutUsageList;
+
+    /**
+     * Classes and dependencies kept reachable by {@link #pruneDependencies}: a class name, {@code pkg.*}
+     * for the classes of a package, {@code pkg.**} for the classes of a package and its subpackages,
+     * or {@code groupId:artifactId} for all classes of a dependency.
+     */
+    @Parameter(property = "keepRules")
+    protected String[] keepRules;
+
+    /**
+     * Delta package configuration. If configured, {@code jet:build} also creates {@code <artifactName>-delta.zip}
+     * in {@link #jetOutputDir} next to the full package. The delta package transforms the application
+     * of a previous release into the one being built: it contains binary patches for the changed files,
+     * the added files, and a manifest listing all files with their checksums.
+     * It is applied to an installed application with the {@code apply-delta.sh} script placed next to it,
+     * that requires a POSIX shell, {@code unzip} and {@code bspatch}.
+     *
+     * @see DeltaPackageConfig#baseline
+     * @see DeltaPackageConfig#baselineArtifact
+     * @see DeltaPackageConfig#maxPatchedFileSize
+     */
+    @Parameter(property = "deltaPackage")
+    protected DeltaPackageConfig deltaPackage;
+
+    /**
+     * Minimum share of the main artifact code, in percent, that must be unchanged since a startup or execution
+     * profile was collected for {@code jet:build} to consider the profile up-to-date.
+     * <p>
+     * {@code jet:testrun} and {@code jet:profile} save a fingerprint of every class of the main artifact
+     * and the dependencies next to the profiles they collect. {@code jet:build} compares it with the current code,
+     * weighting the classes by size, so changed, removed and added classes all lower the coverage.
+     * The coverage is computed for each classpath element, and the threshold applies to the main artifact,
+     * as its changes would be hidden by the much larger dependencies in the coverage of the whole application.
+     * The coverage of the whole application and of the changed dependencies is reported as well.
+     * Profiles without a fingerprint are not checked.
+     * </p>
+     *
+     * @see #staleProfileAction
+     */
+    @Parameter(property = "jet.profileCoverageThreshold", defaultValue = "80")
+    protected double profileCoverageThreshold;
+
+    /**
+     * What {@code jet:build} does with a profile below the {@link #profileCoverageThreshold}:
+     * {@code warn}, {@code fail}, {@code recollect} it with the Test Run or the profiling run before the build,
+     * or {@code ignore} it. Automatic re-collection requires the application to terminate by itself or
+     * {@code testRunTimeout} and {@code profileRunTimeout} of {@link #execProfilesConfig} to be set.
+     */
+    @Parameter(property = "jet.staleProfileAction", defaultValue = "warn")
+    protected String staleProfileAction;
+
+    /**
+     * Version range of the project artifacts (e.g. {@code [1.0,2.0)}) to take the startup and execution profiles from.
+     * <p>
+     * If set, {@code jet:build} looks up the profiles attached by {@code jet:testrun} and {@code jet:profile}
+     * (see {@link #attachProfiles}) to the project artifacts with the same groupId and artifactId in the local
+     * Maven repository, takes them from the highest version within the range that has them,
+     * and copies them into the {@code outputDir} of {@link #execProfilesConfig} before the build.
+     * A single version, such as {@code 1.0}, matches the versions equal to it by Maven rules,
+     * e.g. {@code 1.0.0}.
+     * </p>
+     */
+    @Parameter(property = "jet.profilesVersionRange")
+    protected String profilesVersionRange;
+
+    /**
+     * Number of the classes preventing the use of a smaller compact profile printed by the {@code auto} profile.
+     */
+    private static final int MAX_REPORTED_BLOCKERS = 20;
+
+    private static final String REACHABILITY_REPORT = "reachability.json";
+
+    /**
+     * Build fingerprint component of the startup and execution profiles, that the build may update.
+     */
+    private static final String PROFILES_COMPONENT = "profiles";
+
+    /**
+     * Dependencies excluded from the application by {@link #pruneDependencies}.
+     */
+    private final Set<File> prunedDependencies = new HashSet<>();
+
+    /**
+     * Settings of the dependencies that {@link #pruneDependencies} leaves unpacked.
+     */
+    private final List<DependencySettings> unpackedDependencies = new ArrayList<>();
+
+    /**
+     * Parameters that do not contribute to the build fingerprint: the output directories
+     * (their contents are the build results, not inputs), the Excelsior JET location
+     * (the installation is fingerprinted separately), parameters that do not affect the build results,
+     * and the results of the dependency pruning that is fingerprinted by its parameters.
+     */
+    private static final Set<String> NON_FINGERPRINTED_PARAMETERS = new HashSet<>(Arrays.asList(
+            "project", "session", "targetDir", "jetOutputDir", "jetBuildDir", "jetAppDir", "jetHome", "upToDateCheck",
+            "buildCache", "maxParallelCompiles", "compileMemory",
+            "buildMetrics", "deduplicate", "deduplicationStore", "sizeReport",
+            "telemetry", "telemetryInterval", "telemetryFormat", "profilingScenarios", "mergeProfilesCommand",
+            "profileCoverageThreshold", "staleProfileAction", "projectHelper", "attachProfiles", "profilesVersionRange",
+            "prunedDependencies", "unpackedDependencies"
+    ));
+
     @Override
     protected JetProject getJetProject() throws JetTaskFailureException {
         checkDeprecated();
+        if (!Arrays.asList("warn", "fail", "recollect", "ignore").contains(staleProfileAction)) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.ProfileCoverage.BadAction.Failure",
+                    staleProfileAction));
+        }
+        if (!Arrays.asList("off", "report", "exclude", "pack-none").contains(pruneDependencies)) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.Reachability.BadMode.Failure", pruneDependencies));
+        }
+        if (isDeltaPackageEnabled()) {
+            File baseline = getDeltaBaseline();
+            if (!baseline.exists()) {
+                throw new JetTaskFailureException(s("JetMavenPlugin.DeltaPackage.BaselineNotFound.Failure", baseline));
+            }
+        }
         return super.getJetProject().addWindowsVersionInfo(addWindowsVersionInfo)
                 .excelsiorJetPackaging(packaging)
                 .vendor(vendor)
@@ -443,7 +738,7 @@ public abstract class AbstractBuildMojo extends AbstractJetMojo {
                 .inceptionYear(project.getInceptionYear())
                 .optimizationPreset(optimizationPreset)
                 .globalOptimizer(globalOptimizer)
-                .runtimeConfiguration(runtimeConfiguration)
+                .runtimeConfiguration(withoutAuto(copyOf(runtimeConfiguration)))
                 .trialVersion(trialVersion)
                 .excelsiorInstallerConfiguration(excelsiorInstallerConfiguration)
                 .windowsServiceConfiguration(windowsServiceConfiguration)
@@ -466,6 +761,668 @@ public abstract class AbstractBuildMojo extends AbstractJetMojo {
                 .pdbConfiguration(pdbConfiguration);
     }
 
+    /**
+     * Copies the profiles of the highest version within {@link #profilesVersionRange} found in the local repository
+     * into the {@code outputDir} of {@link #execProfilesConfig}.
+     */
+    protected void resolveProfileArtifacts() throws JetTaskFailureException, IOException {
+        if (Utils.isEmpty(profilesVersionRange)) {
+            return;
+        }
+        VersionRange range;
+        try {
+            range = VersionRange.createFromVersionSpec(profilesVersionRange);
+        } catch (InvalidVersionSpecificationException e) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.ProfileArtifacts.BadVersionRange.Failure",
+                    profilesVersionRange, e.getMessage()));
+        }
+        List<String> types = new ArrayList<>();
+        for (String extension : TEST_RUN_PROFILES) {
+            types.add(extension.substring(1));
+        }
+        types.add(ProfileMerger.EXTENSION.substring(1));
+        ArtifactRepository repository = session.getLocalRepository();
+        File artifactDir = new File(repository.getBasedir(),
+                repository.pathOf(profileArtifact(project.getVersion(), "pom", null))).getParentFile().getParentFile();
+        String[] versions = artifactDir.list();
+        if (versions == null) {
+            versions = new String[0];
+        }
+        ArtifactVersion recommended = range.getRecommendedVersion();
+        List<String> candidates = new ArrayList<>();
+        for (String version : versions) {
+            ArtifactVersion artifactVersion = new DefaultArtifactVersion(version);
+            // a soft requirement, i.e. a single version, has no restrictions and matches any version,
+            // so the versions equal to it by Maven rules are taken
+            boolean matches = (recommended != null) ? recommended.equals(artifactVersion)
+                    : range.containsVersion(artifactVersion);
+            if (matches) {
+                candidates.add(version);
+            }
+        }
+        if (candidates.isEmpty()) {
+            logger.warn(s("JetMavenPlugin.ProfileArtifacts.NoVersion.Warning", project.getGroupId(),
+                    project.getArtifactId(), profilesVersionRange, artifactDir,
+                    (versions.length == 0) ? "-" : String.join(", ", versions)));
+            return;
+        }
+        candidates.sort(Comparator.comparing(ComparableVersion::new).reversed());
+        for (String version : candidates) {
+            Map<File, File> found = new LinkedHashMap<>();
+            for (String type : types) {
+                File profile = new File(repository.getBasedir(),
+                        repository.pathOf(profileArtifact(version, type, type)));
+                if (profile.isFile()) {
+                    File target = new File(getExecProfilesDir(), getExecProfilesName() + "." + type);
+                    found.put(profile, target);
+                    File fingerprint = new File(repository.getBasedir(), repository.pathOf(
+                            profileArtifact(version, ProfileFingerprint.SUFFIX.substring(1), type)));
+                    found.put(fingerprint, ProfileFingerprint.fileOf(target));
+                }
+            }
+            if (found.isEmpty()) {
+                continue;
+            }
+            FileStager stager = new FileStager(false, 1);
+            for (Map.Entry<File, File> e : found.entrySet()) {
+                File target = e.getValue();
+                if (e.getKey().isFile()) {
+                    // the profiles are not linked, as the Test Run rewrites them in place;
+                    // the age of the profile is that of the published one
+                    stager.stage(e.getKey().toPath(), target.toPath());
+                } else {
+                    // a stale fingerprint must not be mistaken for the one of the resolved profile
+                    Files.deleteIfExists(target.toPath());
+                }
+            }
+            logger.info(s("JetMavenPlugin.ProfileArtifacts.Resolved.Info", version, getExecProfilesDir()));
+            return;
+        }
+        logger.warn(s("JetMavenPlugin.ProfileArtifacts.NotFound.Warning", project.getGroupId(), project.getArtifactId(),
+                profilesVersionRange, repository.getBasedir()));
+    }
+
+    private DefaultArtifact profileArtifact(String version, String type, String classifier) {
+        return new DefaultArtifact(project.getGroupId(), project.getArtifactId(), version, null, type, classifier,
+                new DefaultArtifactHandler(type));
+    }
+
+    /**
+     * Builds the application for profiling and runs it, or runs the {@link #profilingScenarios},
+     * and saves the fingerprint of the application code along with the collected execution profile.
+     */
+    protected void profileRun(ExcelsiorJet excelsiorJet, JetProject jetProject)
+            throws JetTaskFailureException, IOException, CmdLineToolException, MojoExecutionException, MojoFailureException
+    {
+        long start = System.currentTimeMillis();
+        if (hasProfilingScenarios()) {
+            runProfilingScenarios((scenario, dir, scenarioProject) -> {
+                // concurrent compilations cannot share the project database
+                PDBConfig pdb = new PDBConfig();
+                pdb.specificLocation = new File(dir, "pdb");
+                try (JetCompileScheduler.Permit ignored = acquireCompilePermit()) {
+                    new JetBuildTask(excelsiorJet, scenarioProject.pdbConfiguration(pdb), true).execute();
+                }
+            });
+        } else {
+            try (JetCompileScheduler.Permit ignored = acquireCompilePermit()) {
+                new JetBuildTask(excelsiorJet, jetProject, true).execute();
+            }
+        }
+        saveCollectedProfiles(start, ProfileMerger.EXTENSION);
+    }
+
+    /**
+     * Waits until the reactor-wide compile scheduler permits running Excelsior JET compiler for this module.
+     *
+     * @return the permit to be closed when the compilation is over
+     * @see JetCompileScheduler
+     */
+    protected JetCompileScheduler.Permit acquireCompilePermit() throws MojoExecutionException {
+        return acquireCompilePermit(globalOptimizer);
+    }
+
+    /**
+     * @param globalOptimizer whether the Global Optimizer is enabled for the compilation
+     */
+    protected JetCompileScheduler.Permit acquireCompilePermit(boolean globalOptimizer) throws MojoExecutionException {
+        int maxParallel = (maxParallelCompiles > 0) ? maxParallelCompiles : Runtime.getRuntime().availableProcessors();
+        long memory = compileMemory;
+        if (memory <= 0) {
+            // Java Runtime Slim-Down enables the Global Optimizer,
+            // deprecated javaRuntimeSlimDown is already moved to runtimeConfiguration by getJetProject()
+            boolean global = globalOptimizer || ((runtimeConfiguration != null) &&
+                    (runtimeConfiguration.slimDown != null) && runtimeConfiguration.slimDown.isDefined());
+            memory = global ? 4096 : 1024;
+        }
+        try {
+            return JetCompileScheduler.getInstance().acquire(maxParallel, memory);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return {@code true} if the {@link #packaging} type is supported by the {@link #upToDateCheck}
+     */
+    protected boolean isUpToDateCheckSupported() {
+        return Utils.isEmpty(packaging) || packaging.equals("zip") || packaging.equals("tar-gz") ||
+                packaging.equals("none");
+    }
+
+    /**
+     * @return the archive created by the {@code zip} or {@code tar-gz} packaging, {@code null} for other packaging types
+     */
+    protected File getPackageArchive() {
+        if (Utils.isEmpty(packaging) || packaging.equals("zip")) {
+            return new File(getJetOutputDir(), artifactName + ".zip");
+        } else if (packaging.equals("tar-gz")) {
+            return new File(getJetOutputDir(), artifactName + ".tar.gz");
+        }
+        return null;
+    }
+
+    /**
+     * Replaces identical files of {@link #jetAppDir} with hard links if {@link #deduplicate} is enabled.
+     */
+    protected void deduplicateAppDir() throws IOException {
+        if (!deduplicate) {
+            return;
+        }
+        Deduplicator.Summary summary = new Deduplicator(deduplicationStore).deduplicate(getJetAppDir());
+        logger.info(s("JetMavenPlugin.Deduplication.Info", summary.linked, summary.savedBytes / (1024 * 1024),
+                getJetAppDir()));
+    }
+
+    /**
+     * Creates the size report of {@link #jetAppDir} if {@link #sizeReport} is enabled.
+     * A failure to create the report does not fail the build.
+     */
+    protected void reportSize() {
+        if (!sizeReport) {
+            return;
+        }
+        File file = new File(getJetOutputDir(), SizeReport.FILE_NAME);
+        try {
+            Set<String> packageFilePaths = new HashSet<>();
+            if ((packageFilesDir != null) && packageFilesDir.isDirectory()) {
+                Path root = packageFilesDir.toPath();
+                try (Stream<Path> files = Files.walk(root)) {
+                    files.filter(Files::isRegularFile).forEach(f ->
+                            packageFilePaths.add(root.relativize(f).toString().replace(File.separatorChar, '/')));
+                }
+            }
+            if (packageFiles != null) {
+                for (PackageFile packageFile : packageFiles) {
+                    if (packageFile.path == null) {
+                        continue;
+                    }
+                    String dir = (packageFile.packagePath != null) ?
+                            packageFile.packagePath.replace('\\', '/').replaceAll("^/+|/+$", "") : "";
+                    packageFilePaths.add((dir.isEmpty() ? "" : dir + "/") + packageFile.path.getName());
+                }
+            }
+            SizeReport report = SizeReport.compute(getJetAppDir(), getProfiledClasspath(),
+                    Arrays.asList(dependencies), packageFilePaths);
+            List<Map<String, Object>> changes = report.save(file,
+                    new File(getJetBuildDir(), SizeReport.STATE_FILE_NAME), project.getId());
+            report.logSummary(file, changes);
+        } catch (IOException e) {
+            logger.warn(s("JetMavenPlugin.SizeReport.Failed.Warning", file, e.getMessage()), e);
+        }
+    }
+
+    protected boolean isDeltaPackageEnabled() {
+        return (deltaPackage != null) && deltaPackage.isEnabled();
+    }
+
+    /**
+     * @return the delta package created by {@link #createDeltaPackage()}
+     */
+    protected File getDeltaPackage() {
+        return new File(getJetOutputDir(), artifactName + "-delta.zip");
+    }
+
+    /**
+     * @return the package of the previous release the delta package is created against
+     */
+    protected File getDeltaBaseline() throws JetTaskFailureException {
+        if (deltaPackage.baseline != null) {
+            return deltaPackage.baseline;
+        }
+        String[] coords = deltaPackage.baselineArtifact.split(":");
+        if ((coords.length < 3) || (coords.length > 5)) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.DeltaPackage.BadBaselineArtifact.Failure",
+                    deltaPackage.baselineArtifact));
+        }
+        String type = (coords.length > 3) ? coords[3] : "zip";
+        String classifier = (coords.length > 4) ? coords[4] : null;
+        DefaultArtifact artifact = new DefaultArtifact(coords[0], coords[1], coords[2], null, type, classifier,
+                new DefaultArtifactHandler(type));
+        return new File(session.getLocalRepository().getBasedir(), session.getLocalRepository().pathOf(artifact));
+    }
+
+    /**
+     * Creates the delta package against the previous release from {@link #jetAppDir}.
+     */
+    protected void createDeltaPackage() throws IOException, JetTaskFailureException {
+        File baseline = getDeltaBaseline();
+        File delta = getDeltaPackage();
+        logger.info(s("JetMavenPlugin.DeltaPackage.Creating.Info", delta, baseline));
+        DeltaPackager.Summary summary = new DeltaPackager(deltaPackage.maxPatchedFileSize * 1024 * 1024)
+                .create(baseline, getJetAppDir(), getJetBuildDir(), delta);
+        Path script = new File(getJetOutputDir(), DeltaPackager.APPLY_SCRIPT).toPath();
+        Files.write(script, DeltaPackager.applyScript());
+        FileModes.setMode(script, 0755);
+        logger.info(s("JetMavenPlugin.DeltaPackage.Created.Info", delta, summary.size / 1024,
+                summary.unchanged, summary.patched, summary.added, summary.removed));
+    }
+
+    /**
+     * Computes the fingerprint of the build inputs.
+     *
+     * @param previous fingerprint of the previous build used as a cache of file digests, may be {@code null}
+     */
+    BuildFingerprint computeBuildFingerprint(BuildFingerprint previous) throws IOException {
+        List<File> profiles = getProfileFiles();
+        BuildFingerprint fingerprint = BuildFingerprint.basedOn(previous)
+                .exclude(profiles)
+                .add(PROFILES_COMPONENT, profiles)
+                .add("plugin", PLUGIN_NAME)
+                .add("jet", jetInstallation())
+                .add("mainArtifact", getMainArtifact());
+        Map<String, File> dependencyFiles = new TreeMap<>();
+        if (!ignoreProjectDependencies) {
+            project.getArtifacts().forEach(artifact -> dependencyFiles.put(artifact.getId(), artifact.getFile()));
+        }
+        fingerprint.add("dependencies", dependencyFiles);
+        for (Field field : BuildFingerprint.fieldsOf(getClass())) {
+            if (AbstractJetMojo.class.isAssignableFrom(field.getDeclaringClass()) &&
+                    !NON_FINGERPRINTED_PARAMETERS.contains(field.getName()))
+            {
+                fingerprint.add("parameter." + field.getName(), BuildFingerprint.readField(field, this));
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Updates the fingerprint taken before the build with the inputs the build itself may change, that is,
+     * the profiles. The other inputs keep their fingerprints taken before the build, so that the inputs
+     * modified while the build was running are not considered built.
+     */
+    void refreshBuildFingerprint(BuildFingerprint fingerprint) throws IOException {
+        fingerprint.add(PROFILES_COMPONENT, getProfileFiles());
+    }
+
+    private List<File> getProfileFiles() {
+        List<String> extensions = new ArrayList<>(Arrays.asList(TEST_RUN_PROFILES));
+        extensions.add(ProfileMerger.EXTENSION);
+        List<File> profiles = new ArrayList<>();
+        for (String extension : extensions) {
+            profiles.add(new File(getExecProfilesDir(), getExecProfilesName() + extension));
+        }
+        return profiles;
+    }
+
+    /**
+     * @return build cache key for the given build fingerprint, that also takes the host platform into account
+     */
+    protected String buildCacheKey(BuildFingerprint fingerprint) {
+        return Digests.sha256(fingerprint.getHash() + ":" + System.getProperty("os.name") + ":" +
+                System.getProperty("os.arch"));
+    }
+
+    /**
+     * Identifies the Excelsior JET installation by the contents of its {@code bin} directory,
+     * that holds the compiler, the packager ({@code xpack}) and the other tools and libraries of the installation,
+     * so that installing an update or another edition of Excelsior JET into the same directory
+     * invalidates previous builds, while identical installations on different machines are considered the same.
+     */
+    private Object jetInstallation() {
+        File home = locateJetHome();
+        return home == null ? "unknown" : new File(home, "bin");
+    }
+
+    /**
+     * Resolves the {@code auto} values of {@link #runtimeConfiguration} from the profiles and the application code
+     * as they are now, leaving the parameter itself intact. Only the goals building the application call it,
+     * once the profiles are resolved and re-collected, the other goals use the defaults instead of {@code auto}.
+     *
+     * @return the runtime configuration to pass to {@link JetProject#runtimeConfiguration}
+     */
+    protected RuntimeConfig resolveRuntimeConfiguration() throws JetTaskFailureException {
+        RuntimeConfig runtime = copyOf(runtimeConfiguration);
+        resolveAutoProfile(runtime);
+        resolveAutoRuntime(runtime);
+        return runtime;
+    }
+
+    /**
+     * Sets {@link #javaRuntimeSlimDown} for the mojos configured outside of Maven, such as the benchmark fixtures.
+     */
+    @Deprecated
+    void setJavaRuntimeSlimDown(SlimDownConfig javaRuntimeSlimDown) {
+        this.javaRuntimeSlimDown = javaRuntimeSlimDown;
+    }
+
+    /**
+     * @return the runtime configuration with the {@code auto} values removed, so that the defaults are used
+     */
+    private static RuntimeConfig withoutAuto(RuntimeConfig runtime) {
+        if (CompactProfileAnalyzer.AUTO.equals(runtime.profile)) {
+            runtime.profile = null;
+        }
+        if (isAuto(runtime.components)) {
+            runtime.components = resolveAuto(runtime.components, Collections.emptySet(), null);
+        }
+        if (isAuto(runtime.locales)) {
+            runtime.locales = resolveAuto(runtime.locales, Collections.emptySet(), null);
+        }
+        if ((runtime.slimDown != null) && isAuto(runtime.slimDown.detachComponents)) {
+            runtime.slimDown.detachComponents = resolveAuto(runtime.slimDown.detachComponents,
+                    Collections.emptySet(), null);
+        }
+        return runtime;
+    }
+
+    /**
+     * @return a copy of the runtime configuration, that the {@code auto} values can be resolved in
+     */
+    private static RuntimeConfig copyOf(RuntimeConfig runtime) {
+        RuntimeConfig copy = shallowCopyOf(runtime);
+        if (runtime.slimDown != null) {
+            copy.slimDown = shallowCopyOf(runtime.slimDown);
+        }
+        return copy;
+    }
+
+    /**
+     * Copies a configuration object of Excelsior JET API, that has a public no-argument constructor.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T shallowCopyOf(T config) {
+        try {
+            T copy = (T) config.getClass().newInstance();
+            for (Field field : BuildFingerprint.fieldsOf(config.getClass())) {
+                field.setAccessible(true);
+                field.set(copy, field.get(config));
+            }
+            return copy;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot copy " + config.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Replaces the {@code auto} value of {@link RuntimeConfig#components}, {@link RuntimeConfig#locales}
+     * and {@link SlimDownConfig#detachComponents} with the components and locales chosen
+     * from the usage list collected by the Test Run, keeping the values listed explicitly along with it.
+     *
+     * @see RuntimeUsage
+     */
+    private void resolveAutoRuntime(RuntimeConfig runtime) throws JetTaskFailureException {
+        boolean components = isAuto(runtime.components);
+        boolean locales = isAuto(runtime.locales);
+        boolean slimDown = (runtime.slimDown != null) &&
+                isAuto(runtime.slimDown.detachComponents);
+        if (!components && !locales && !slimDown) {
+            return;
+        }
+        File usageList = new File(getExecProfilesDir(), getExecProfilesName() + ".usg");
+        if (!usageList.isFile()) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.AutoRuntime.NoUsageList.Failure", usageList));
+        }
+        RuntimeUsage usage;
+        Map<String, Long> sizes = Collections.emptyMap();
+        try {
+            usage = RuntimeUsage.load(usageList);
+        } catch (IOException e) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.AutoRuntime.ReadFailed.Failure", usageList,
+                    e.getMessage()));
+        }
+        File jetHome = locateJetHome();
+        if (jetHome != null) {
+            try {
+                sizes = RuntimeUsage.runtimeSizes(new File(jetHome, "jre"));
+            } catch (IOException e) {
+                logger.debug("Failed to estimate the runtime component sizes", e);
+            }
+        }
+        long saved = 0;
+        if (components) {
+            Set<String> used = usage.usedComponents();
+            for (String component : RuntimeUsage.COMPONENTS.keySet()) {
+                long size = sizes.getOrDefault(component, 0L);
+                String sizeText = sizes.isEmpty() ? "size unknown" : formatSize(size);
+                if (used.contains(component)) {
+                    logger.info(s("JetMavenPlugin.AutoRuntime.ComponentIncluded.Info", component, sizeText));
+                } else {
+                    logger.info(s("JetMavenPlugin.AutoRuntime.ComponentExcluded.Info", component, sizeText));
+                    saved += size;
+                }
+            }
+            runtime.components = resolveAuto(runtime.components, used, "none");
+        }
+        if (locales) {
+            Set<String> used = usage.usedLocales();
+            Set<String> groups = new TreeSet<>(used);
+            sizes.keySet().stream().filter(name -> !RuntimeUsage.COMPONENTS.containsKey(name) &&
+                    !RuntimeUsage.DETACHABLE.containsKey(name)).forEach(groups::add);
+            for (String group : groups) {
+                long size = sizes.getOrDefault(group, 0L);
+                String sizeText = sizes.isEmpty() ? "size unknown" : formatSize(size);
+                if (used.contains(group)) {
+                    logger.info(s("JetMavenPlugin.AutoRuntime.LocaleIncluded.Info", group, sizeText));
+                } else {
+                    logger.info(s("JetMavenPlugin.AutoRuntime.LocaleExcluded.Info", group, sizeText));
+                    saved += size;
+                }
+            }
+            // English is always included
+            runtime.locales = resolveAuto(runtime.locales, used, null);
+        }
+        if (slimDown) {
+            Set<String> unused = usage.unusedDetachable();
+            for (String component : RuntimeUsage.DETACHABLE.keySet()) {
+                long size = sizes.getOrDefault(component, 0L);
+                String sizeText = sizes.isEmpty() ? "size unknown" : formatSize(size);
+                if (unused.contains(component)) {
+                    logger.info(s("JetMavenPlugin.AutoRuntime.Detached.Info", component, sizeText));
+                    saved += size;
+                } else {
+                    logger.info(s("JetMavenPlugin.AutoRuntime.NotDetached.Info", component, sizeText));
+                }
+            }
+            String[] detach = resolveAuto(runtime.slimDown.detachComponents, unused, null);
+            if (detach == null) {
+                logger.warn(s("JetMavenPlugin.AutoRuntime.NothingToDetach.Warning"));
+                runtime.slimDown = new SlimDownConfig();
+            } else {
+                runtime.slimDown.detachComponents = detach;
+            }
+        }
+        if (!sizes.isEmpty()) {
+            logger.info(s("JetMavenPlugin.AutoRuntime.Saved.Info", formatSize(saved)));
+        }
+    }
+
+    /**
+     * Replaces the {@code auto} value of {@link RuntimeConfig#profile} with the smallest compact profile
+     * the application code can run on.
+     *
+     * @see CompactProfileAnalyzer
+     */
+    private void resolveAutoProfile(RuntimeConfig runtime) throws JetTaskFailureException {
+        if (!CompactProfileAnalyzer.AUTO.equals(runtime.profile)) {
+            return;
+        }
+        if (getAppType() == ApplicationType.TOMCAT) {
+            // Tomcat itself is not a project dependency, so its own requirements are unknown
+            logger.info(s("JetMavenPlugin.CompactProfile.Tomcat.Info"));
+            runtime.profile = "full";
+            return;
+        }
+        long start = System.currentTimeMillis();
+        CompactProfileAnalyzer.Result result;
+        try {
+            result = new CompactProfileAnalyzer(Runtime.getRuntime().availableProcessors())
+                    .analyze(getProfiledClasspath().values());
+        } catch (IOException e) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.CompactProfile.ScanFailed.Failure", e.getMessage()));
+        }
+        logger.info(s("JetMavenPlugin.CompactProfile.Info", result.profile(), result.classes, result.jars,
+                System.currentTimeMillis() - start));
+        List<CompactProfileAnalyzer.Reference> blockers = result.blockers();
+        if (!blockers.isEmpty()) {
+            logger.info(s("JetMavenPlugin.CompactProfile.Blockers.Info",
+                    CompactProfileAnalyzer.PROFILES[result.level - 1], blockers.size()));
+            for (CompactProfileAnalyzer.Reference blocker : blockers.subList(0,
+                    Math.min(blockers.size(), MAX_REPORTED_BLOCKERS)))
+            {
+                logger.info(s(blocker.reflective ? "JetMavenPlugin.CompactProfile.ReflectiveBlocker.Info" :
+                        "JetMavenPlugin.CompactProfile.Blocker.Info", blocker.target, blocker.from));
+            }
+        }
+        runtime.profile = result.profile();
+    }
+
+    /**
+     * Analyzes the reachability of the project dependencies if {@link #pruneDependencies} is enabled,
+     * and excludes the unreachable dependencies from the application or sets their {@code pack} to {@code none}.
+     * The caller must pass the changed {@link #getDependencies()} and {@link #getDependencySettings()}
+     * to the project.
+     *
+     * @return whether any dependency is pruned
+     * @see ReachabilityAnalyzer
+     */
+    protected boolean pruneUnreachableDependencies() throws JetTaskFailureException {
+        if (pruneDependencies.equals("off")) {
+            return false;
+        }
+        String mode = pruneDependencies;
+        File usageList = new File(getExecProfilesDir(), getExecProfilesName() + ".usg");
+        Set<String> loadedClasses = Collections.emptySet();
+        if (usageList.isFile()) {
+            try {
+                loadedClasses = RuntimeUsage.load(usageList).dottedNames();
+            } catch (IOException e) {
+                throw new JetTaskFailureException(s("JetMavenPlugin.AutoRuntime.ReadFailed.Failure", usageList,
+                        e.getMessage()));
+            }
+        } else if (!mode.equals("report")) {
+            if (pruneWithoutUsageList) {
+                logger.warn(s("JetMavenPlugin.Reachability.NoUsageList.Warning", usageList));
+            } else {
+                logger.warn(s("JetMavenPlugin.Reachability.ReportWithoutUsageList.Warning", usageList, mode));
+                mode = "report";
+            }
+        }
+        long start = System.currentTimeMillis();
+        Map<String, File> classpath = getProfiledClasspath();
+        ReachabilityAnalyzer.Result result;
+        try {
+            result = new ReachabilityAnalyzer(Runtime.getRuntime().availableProcessors(),
+                    (mainClass != null) ? Collections.singletonList(mainClass) : Collections.emptyList(),
+                    (keepRules != null) ? Arrays.asList(keepRules) : Collections.emptyList(), loadedClasses)
+                    .analyze(classpath);
+        } catch (IOException e) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.Reachability.ScanFailed.Failure", e.getMessage()));
+        }
+        File report = new File(getJetOutputDir(), REACHABILITY_REPORT);
+        logger.info(s("JetMavenPlugin.Reachability.Info", result.reachableClasses, result.classes, classpath.size(),
+                result.entryPoints, System.currentTimeMillis() - start, report));
+
+        boolean prune = !mode.equals("report");
+        if (prune && ((getAppType() == ApplicationType.TOMCAT) || (getAppType() == ApplicationType.SPRING_BOOT))) {
+            logger.info(s("JetMavenPlugin.Reachability.ReportOnly.Info", getAppType()));
+            prune = false;
+        }
+        Map<File, Artifact> artifacts = new HashMap<>();
+        project.getArtifacts().forEach(a -> artifacts.put(a.getFile(), a));
+        List<String> pruned = new ArrayList<>();
+        for (ReachabilityAnalyzer.Element element : result.unreachable()) {
+            Artifact artifact = artifacts.get(element.file);
+            if (!prune || (artifact == null) ||
+                    (dependencySettingsOf(element.id, element.file, Arrays.asList(dependencies)) != null))
+            {
+                logger.info(s("JetMavenPlugin.Reachability.Unreachable.Info", element.id, element.classes));
+                continue;
+            }
+            if (mode.equals("exclude")) {
+                prunedDependencies.add(artifact.getFile());
+            } else {
+                DependencySettings dependency = new DependencySettings();
+                dependency.groupId = artifact.getGroupId();
+                dependency.artifactId = artifact.getArtifactId();
+                dependency.version = artifact.getVersion();
+                // only the dependencies that are not compiled may be left unpacked
+                dependency.optimize = "auto-detect";
+                dependency.pack = "none";
+                unpackedDependencies.add(dependency);
+            }
+            pruned.add(element.id);
+            logger.info(s("JetMavenPlugin.Reachability.Pruned.Info", element.id, element.classes, mode));
+        }
+        for (ReachabilityAnalyzer.Element element : result.elements) {
+            if (element.keptByTestRun) {
+                logger.info(s("JetMavenPlugin.Reachability.KeptByTestRun.Info", element.id));
+            }
+        }
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("mode", mode);
+        json.put("pruned", pruned);
+        json.putAll(result.toJson());
+        try {
+            Json.write(report, json);
+        } catch (IOException e) {
+            logger.warn(s("JetMavenPlugin.Reachability.SaveFailed.Warning", report, e.getMessage()), e);
+        }
+        return !pruned.isEmpty();
+    }
+
+    @Override
+    protected boolean isExcludedDependency(Artifact artifact) {
+        return prunedDependencies.contains(artifact.getFile());
+    }
+
+    /**
+     * @return {@link #dependencies} followed by the settings of the dependencies left unpacked by the pruning
+     */
+    protected List<DependencySettings> getDependencySettings() {
+        List<DependencySettings> settings = new ArrayList<>(Arrays.asList(dependencies));
+        settings.addAll(unpackedDependencies);
+        return settings;
+    }
+
+    private static boolean isAuto(String[] values) {
+        return (values != null) && Arrays.asList(values).contains(RuntimeUsage.AUTO);
+    }
+
+    /**
+     * @param none value to use if nothing is chosen, {@code null} to leave the parameter unset
+     * @return the explicit values followed by the chosen ones
+     */
+    private static String[] resolveAuto(String[] values, Set<String> chosen, String none) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String value : values) {
+            if (!value.equals(RuntimeUsage.AUTO)) {
+                result.add(value);
+            }
+        }
+        result.addAll(chosen);
+        if (result.isEmpty()) {
+            return (none != null) ? new String[]{none} : null;
+        }
+        return result.toArray(new String[0]);
+    }
+
+    private static String formatSize(long bytes) {
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024));
+    }
+
     private void checkDeprecated() {
         if (winVIVersion != null) {
             logger.warn(s("JetBuildTask.WinVIDeprecated.Warning", "winVIVersion", "version"));
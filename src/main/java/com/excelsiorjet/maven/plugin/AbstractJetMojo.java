@@ -21,24 +21,41 @@
 */
 package com.excelsiorjet.maven.plugin;
 
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.JetHomeException;
+import com.excelsiorjet.api.cmd.CmdLineToolException;
 import com.excelsiorjet.api.tasks.config.compiler.ExecProfilesConfig;
 import com.excelsiorjet.api.tasks.config.packagefile.PackageFile;
 import com.excelsiorjet.api.tasks.config.ApplicationType;
 import com.excelsiorjet.api.tasks.JetProject;
 import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import com.excelsiorjet.api.tasks.TestRunTask;
 import com.excelsiorjet.api.tasks.config.dependencies.DependencySettings;
 import com.excelsiorjet.api.tasks.config.dependencies.ProjectDependency;
 import com.excelsiorjet.api.tasks.config.TomcatConfig;
 import com.excelsiorjet.api.util.Txt;
 import com.excelsiorjet.api.util.Utils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+import org.codehaus.plexus.util.FileUtils;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
+import static com.excelsiorjet.api.log.Log.logger;
 import static com.excelsiorjet.api.util.Txt.s;
 
 /**
@@ -52,7 +69,7 @@ public abstract class AbstractJetMojo extends AbstractMojo {
      * The plugin name. Must be synchronized with the actual version of the plugin.
      * TODO: retrieve plugin version from binary meta-data if possible.
     */
-    static private final String PLUGIN_NAME = "Excelsior JET Maven plugin v1.3.1";
+    static final String PLUGIN_NAME = "Excelsior JET Maven plugin v1.3.1";
 
     /**
      * The Maven Project Object.
@@ -60,6 +77,12 @@ public abstract class AbstractJetMojo extends AbstractMojo {
     @Parameter(defaultValue="${project}", readonly=true, required=true)
     protected MavenProject project;
 
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    protected MavenSession session;
+
+    @Component
+    protected MavenProjectHelper projectHelper;
+
     @Parameter(defaultValue = "${project.build.directory}", readonly = true, required = true)
     private File targetDir;
 
@@ -278,6 +301,114 @@ public abstract class AbstractJetMojo extends AbstractMojo {
     @Parameter(property = "terminationPolicy")
     protected String terminationPolicy;
 
+    /**
+     * If set to {@code true}, resource usage of the application run by {@code jet:testrun} and {@code jet:run}
+     * (CPU time, RSS, peak RSS, threads, open file descriptors and I/O bytes) is sampled every
+     * {@link #telemetryInterval} milliseconds. The time series is saved to the {@code telemetry} subdirectory
+     * of {@link #jetOutputDir} in the {@link #telemetryFormat} format, and the peak and average values are printed
+     * once the application exits. Use them to choose the heap size in {@link #jvmArgs} and the container limits.
+     * <p>
+     * Only Linux is supported.
+     * </p>
+     */
+    @Parameter(property = "jet.telemetry", defaultValue = "false")
+    protected boolean telemetry;
+
+    /**
+     * Sampling interval of the {@link #telemetry} in milliseconds.
+     */
+    @Parameter(property = "jet.telemetry.interval", defaultValue = "500")
+    protected int telemetryInterval;
+
+    /**
+     * Format of the {@link #telemetry} time series: {@code csv} or {@code json}.
+     */
+    @Parameter(property = "jet.telemetry.format", defaultValue = "csv")
+    protected String telemetryFormat;
+
+    /**
+     * Workloads to run the application with during the Test Run ({@code jet:testrun})
+     * and the profiling ({@code jet:profile}) instead of a single run with {@link #runArgs}.
+     * <p>
+     * All scenarios run in parallel, each in its own subdirectory of {@code scenarios} in {@link #jetOutputDir}.
+     * Once they are over, the profiles of the same kind produced by the scenarios are combined with
+     * {@link #mergeProfilesCommand} weighted by the scenario weights and saved to the {@code outputDir}
+     * of {@link #execProfilesConfig}. The usage lists ({@code .usg}) are merged by the plugin itself,
+     * while the other profiles produced by more than one scenario require the merge command:
+     * without it, the profile of the first scenario that produced it is kept and a warning is printed.
+     * </p>
+     *
+     * @see ProfilingScenario#name
+     * @see ProfilingScenario#runArgs
+     * @see ProfilingScenario#jvmArgs
+     * @see ProfilingScenario#systemProperties
+     * @see ProfilingScenario#timeout
+     * @see ProfilingScenario#weight
+     */
+    @Parameter
+    protected ProfilingScenario[] profilingScenarios;
+
+    /**
+     * Command merging execution profiles: an executable followed by its arguments.
+     * It is used by {@code jet:merge-profiles} and to merge the profiles of {@link #profilingScenarios},
+     * where it is invoked for each kind of profile except for the usage lists ({@code .jprof}, {@code .startup}).
+     * <p>
+     * The arguments may contain the following placeholders:
+     * </p>
+     * <ul>
+     * <li>{@code {output}} - the file to write the merged profile to</li>
+     * <li>{@code {inputs}} - a separate argument that expands to the paths of the input profiles,
+     *     ordered by decreasing effective weight</li>
+     * <li>{@code {weights}} - comma separated effective weights of the inputs in the same order,
+     *     normalized to sum up to 1</li>
+     * </ul>
+     * <p>
+     * The command runs in the project base directory and shares the console of the build. It must exit with code 0
+     * and create the output file, that then replaces the profile. A non-zero exit code or a missing output file
+     * fails the goal and leaves the previous profile intact. The input files may include the profile being replaced,
+     * so the command must not modify its inputs.
+     * </p>
+     * <p>
+     * The format of the execution profiles is private to Excelsior JET, so two or more profiles of the same kind
+     * cannot be merged without the command.
+     * </p>
+     *
+     * @see ProfileMerger
+     */
+    @Parameter(property = "jet.mergeProfiles.command")
+    protected String[] mergeProfilesCommand;
+
+    /**
+     * If set, {@code jet:testrun} and {@code jet:profile} attach the collected profiles to the project
+     * as artifacts with the {@code usg}, {@code startup} and {@code jprof} classifiers and types,
+     * along with their fingerprints of the application code (type {@code fingerprint}),
+     * so that {@code install} and {@code deploy} publish them.
+     * Bind the {@code jet-testrun} or {@code jet-profile} goal to the {@code package} phase for that,
+     * as the {@code jet:testrun} and {@code jet:profile} invoked from the command line run after the lifecycle.
+     *
+     * @see AbstractBuildMojo#profilesVersionRange
+     */
+    @Parameter(property = "jet.attachProfiles", defaultValue = "false")
+    protected boolean attachProfiles;
+
+    static final String SCENARIOS_DIR = "scenarios";
+
+    /**
+     * Extensions of the profiles collected by the Test Run: the usage list and the startup profile.
+     */
+    static final String[] TEST_RUN_PROFILES = {".usg", ".startup"};
+
+    /**
+     * Task run for each of the {@link #profilingScenarios}.
+     */
+    protected interface ScenarioTask {
+        /**
+         * @param dir directory of the scenario
+         * @param jetProject project configured for the scenario
+         */
+        void run(ProfilingScenario scenario, File dir, JetProject jetProject) throws Exception;
+    }
+
     public List<ProjectDependency> getDependencies() {
         if (ignoreProjectDependencies) {
             return Collections.emptyList();
@@ -291,11 +422,19 @@ public abstract class AbstractJetMojo extends AbstractMojo {
                                 return res;
                             }
                     ).
+                    filter(a -> !isExcludedDependency(a)).
                     map(artifact -> new ProjectDependency(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), artifact.getFile(), false)).
                     collect(Collectors.toList());
         }
     }
 
+    /**
+     * @return whether the dependency is excluded from the application
+     */
+    protected boolean isExcludedDependency(Artifact artifact) {
+        return false;
+    }
+
     protected JetProject getJetProject() throws JetTaskFailureException {
         validateSettings();
 
@@ -319,6 +458,386 @@ public abstract class AbstractJetMojo extends AbstractMojo {
                         .dependencies(Arrays.asList(dependencies));
     }
 
+    /**
+     * Sets {@link #targetDir} for the mojos configured outside of Maven, such as the benchmark fixtures.
+     */
+    void setTargetDir(File targetDir) {
+        this.targetDir = targetDir;
+    }
+
+    /**
+     * @return {@link #jetOutputDir} or its default value if the parameter is not set
+     */
+    protected File getJetOutputDir() {
+        return jetOutputDir != null ? jetOutputDir : new File(targetDir, "jet");
+    }
+
+    /**
+     * @return {@link #jetBuildDir} or its default value if the parameter is not set
+     */
+    protected File getJetBuildDir() {
+        return jetBuildDir != null ? jetBuildDir : new File(getJetOutputDir(), "build");
+    }
+
+    /**
+     * @return {@link #jetAppDir} or its default value if the parameter is not set
+     */
+    protected File getJetAppDir() {
+        return jetAppDir != null ? jetAppDir : new File(getJetOutputDir(), "app");
+    }
+
+    /**
+     * @return the main application jar or war file, explicitly configured or the default one
+     */
+    protected File getMainArtifact() {
+        if (mainJar != null) {
+            return mainJar;
+        } else if (mainWar != null) {
+            return mainWar;
+        }
+        String ext = "war".equals(project.getPackaging()) ? ".war" : ".jar";
+        return new File(targetDir, artifactName + ext);
+    }
+
+    /**
+     * Locates the Excelsior JET installation the same way {@link com.excelsiorjet.api.ExcelsiorJet} does:
+     * {@link #jetHome} parameter, the "jet.home" system property, the "JET_HOME" environment variable,
+     * then the executable search path.
+     *
+     * @return Excelsior JET installation directory or {@code null} if it cannot be found
+     */
+    protected File locateJetHome() {
+        String home = !Utils.isEmpty(jetHome) ? jetHome : System.getProperty("jet.home");
+        if (Utils.isEmpty(home)) {
+            home = System.getenv("JET_HOME");
+        }
+        if (!Utils.isEmpty(home)) {
+            return new File(home);
+        }
+        String path = System.getenv("PATH");
+        if (path != null) {
+            for (String dir : path.split(File.pathSeparator)) {
+                File candidate = new File(dir).getParentFile();
+                if (candidate != null && jetTool(candidate, "jc").exists() && jetTool(candidate, "xpack").exists()) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the executable of the given Excelsior JET tool within the {@code bin} directory of {@code jetHome}
+     */
+    protected static File jetTool(File jetHome, String tool) {
+        String ext = System.getProperty("os.name").startsWith("Windows") ? ".exe" : "";
+        return new File(new File(jetHome, "bin"), tool + ext);
+    }
+
+    /**
+     * @param id {@code groupId:artifactId:version} of the classpath element
+     * @return the settings of the classpath element, {@code null} if it has none
+     */
+    static DependencySettings dependencySettingsOf(String id, File file, List<DependencySettings> settings) {
+        for (DependencySettings dependency : settings) {
+            if ((dependency.path != null) && dependency.path.getAbsoluteFile().equals(file.getAbsoluteFile())) {
+                return dependency;
+            }
+            String prefix = dependency.groupId + ":" +
+                    ((dependency.artifactId != null) ? dependency.artifactId + ":" : "");
+            if ((dependency.groupId != null) && id.startsWith(prefix)) {
+                return dependency;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code outputDir} of {@link #execProfilesConfig} or its default value if the parameter is not set
+     */
+    protected File getExecProfilesDir() {
+        if ((execProfilesConfig != null) && (execProfilesConfig.outputDir != null)) {
+            return execProfilesConfig.outputDir;
+        }
+        return (execProfilesDir != null) ? execProfilesDir : jetResourcesDir;
+    }
+
+    /**
+     * @return {@code outputName} of {@link #execProfilesConfig} or its default value if the parameter is not set
+     */
+    protected String getExecProfilesName() {
+        if ((execProfilesConfig != null) && !Utils.isEmpty(execProfilesConfig.outputName)) {
+            return execProfilesConfig.outputName;
+        }
+        return !Utils.isEmpty(execProfilesName) ? execProfilesName : project.getArtifactId();
+    }
+
+    protected boolean hasProfilingScenarios() {
+        return (profilingScenarios != null) && (profilingScenarios.length > 0);
+    }
+
+    /**
+     * Runs the task for each of the {@link #profilingScenarios} in parallel and merges the profiles they produce.
+     * The scenario project writes its profiles to the {@code profiles} subdirectory of the scenario directory.
+     */
+    protected void runProfilingScenarios(ScenarioTask task) throws MojoExecutionException, MojoFailureException {
+        File baseDir = new File(getJetOutputDir(), SCENARIOS_DIR);
+        Map<ProfilingScenario, File> dirs = new LinkedHashMap<>();
+        Map<ProfilingScenario, JetProject> projects = new LinkedHashMap<>();
+        try {
+            for (ProfilingScenario scenario : profilingScenarios) {
+                if (Utils.isEmpty(scenario.name) || !scenario.name.matches("[A-Za-z0-9._-]+") ||
+                        dirs.keySet().stream().anyMatch(sc -> sc.name.equals(scenario.name)))
+                {
+                    throw new JetTaskFailureException(s("JetMavenPlugin.ProfilingScenarios.BadName.Failure",
+                            scenario.name));
+                }
+                File dir = new File(baseDir, scenario.name);
+                File profilesDir = new File(dir, "profiles");
+                // profiles of the previous runs must not get merged
+                FileUtils.deleteDirectory(profilesDir);
+                dirs.put(scenario, dir);
+                projects.put(scenario, getJetProject()
+                        .jetOutputDir(dir)
+                        .jetBuildDir(new File(dir, "build"))
+                        .jetAppDir(new File(dir, "app"))
+                        .execProfiles(scenarioExecProfiles(scenario, profilesDir))
+                        .jvmArgs(scenarioJvmArgs(scenario))
+                        .runArgs((scenario.runArgs != null) ? scenario.runArgs : runArgs));
+            }
+        } catch (JetTaskFailureException e) {
+            throw new MojoFailureException(e.getMessage());
+        } catch (IOException e) {
+            logger.debug("JetTask execution error", e);
+            logger.error(e.getMessage());
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+
+        logger.info(s("JetMavenPlugin.ProfilingScenarios.Info", projects.size(),
+                dirs.keySet().stream().map(sc -> sc.name).collect(Collectors.joining(", "))));
+        ExecutorService executor = Executors.newFixedThreadPool(projects.size());
+        try {
+            Map<ProfilingScenario, Future<?>> futures = new LinkedHashMap<>();
+            for (ProfilingScenario scenario : projects.keySet()) {
+                futures.put(scenario, executor.submit(MavenLog.bound("[" + scenario.name + "] ", () -> {
+                    task.run(scenario, dirs.get(scenario), projects.get(scenario));
+                    return null;
+                })));
+            }
+            // all scenarios are waited for, and the first failure is reported
+            Exception failure = null;
+            for (Map.Entry<ProfilingScenario, Future<?>> e : futures.entrySet()) {
+                try {
+                    e.getValue().get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    logger.error(s("JetMavenPlugin.ProfilingScenarios.Failed.Failure", e.getKey().name,
+                            cause.getMessage()));
+                    if (failure == null) {
+                        failure = (Exception) cause;
+                    }
+                }
+            }
+            if (failure instanceof MojoExecutionException) {
+                throw (MojoExecutionException) failure;
+            } else if (failure instanceof MojoFailureException) {
+                throw (MojoFailureException) failure;
+            } else if ((failure instanceof JetTaskFailureException) || (failure instanceof JetHomeException)) {
+                throw new MojoFailureException(failure.getMessage());
+            } else if (failure != null) {
+                logger.debug("JetTask execution error", failure);
+                throw new MojoExecutionException(failure.getMessage(), failure);
+            }
+            mergeScenarioProfiles(dirs);
+        } catch (JetTaskFailureException e) {
+            throw new MojoFailureException(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (IOException e) {
+            logger.debug("JetTask execution error", e);
+            logger.error(e.getMessage());
+            throw new MojoExecutionException(e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Performs the Test Run, or runs the {@link #profilingScenarios}, and saves the fingerprints
+     * of the application code along with the collected profiles.
+     */
+    protected void testRun(ExcelsiorJet excelsiorJet, JetProject jetProject)
+            throws JetTaskFailureException, IOException, CmdLineToolException, MojoExecutionException, MojoFailureException
+    {
+        long start = System.currentTimeMillis();
+        if (hasProfilingScenarios()) {
+            runProfilingScenarios((scenario, dir, scenarioProject) ->
+                    new TestRunTask(excelsiorJet, scenarioProject).execute());
+        } else {
+            new TestRunTask(excelsiorJet, jetProject).execute();
+        }
+        saveCollectedProfiles(start, TEST_RUN_PROFILES);
+    }
+
+    /**
+     * @return the main artifact and the dependencies by their ids, that is the code profiles are collected for
+     */
+    protected Map<String, File> getProfiledClasspath() {
+        Map<String, File> classpath = new LinkedHashMap<>();
+        classpath.put(ProfileFingerprint.MAIN_ELEMENT, getMainArtifact());
+        if (!ignoreProjectDependencies) {
+            project.getArtifacts().stream()
+                    .filter(a -> a.getType().equals("jar") && (a.getFile() != null))
+                    .forEach(a -> classpath.put(a.getDependencyConflictId(), a.getFile()));
+        }
+        return classpath;
+    }
+
+    /**
+     * Saves the fingerprint of the application code next to each profile written since the given moment,
+     * and attaches the profiles to the project if {@link #attachProfiles} is enabled.
+     *
+     * @param extensions extensions of the profiles
+     * @see ProfileFingerprint
+     */
+    protected void saveCollectedProfiles(long sinceMillis, String... extensions) throws IOException {
+        ProfileFingerprint fingerprint = null;
+        for (String extension : extensions) {
+            File profile = new File(getExecProfilesDir(), getExecProfilesName() + extension);
+            // allow for the coarse modification time granularity of some file systems
+            if (!profile.isFile() || (profile.lastModified() < sinceMillis - 2000)) {
+                continue;
+            }
+            if (fingerprint == null) {
+                fingerprint = ProfileFingerprint.compute(getProfiledClasspath(), Collections.emptyList());
+            }
+            File fingerprintFile = ProfileFingerprint.fileOf(profile);
+            fingerprint.save(fingerprintFile);
+            if (attachProfiles) {
+                // e.g. app-1.0-jprof.jprof and app-1.0-jprof.fingerprint
+                String type = extension.substring(1);
+                projectHelper.attachArtifact(project, type, type, profile);
+                projectHelper.attachArtifact(project, ProfileFingerprint.SUFFIX.substring(1), type, fingerprintFile);
+                logger.info(s("JetMavenPlugin.ProfileArtifacts.Attached.Info", profile, type));
+            }
+        }
+    }
+
+    private ExecProfilesConfig scenarioExecProfiles(ProfilingScenario scenario, File profilesDir) {
+        ExecProfilesConfig config = new ExecProfilesConfig();
+        if (execProfilesConfig != null) {
+            config.profileLocally = execProfilesConfig.profileLocally;
+            config.daysToWarnAboutOutdatedProfiles = execProfilesConfig.daysToWarnAboutOutdatedProfiles;
+            config.checkExistence = execProfilesConfig.checkExistence;
+            config.testRunTimeout = execProfilesConfig.testRunTimeout;
+            config.profileRunTimeout = execProfilesConfig.profileRunTimeout;
+        }
+        config.outputDir = profilesDir;
+        config.outputName = getExecProfilesName();
+        if (scenario.timeout > 0) {
+            config.testRunTimeout = scenario.timeout;
+            config.profileRunTimeout = scenario.timeout;
+        }
+        return config;
+    }
+
+    private String[] scenarioJvmArgs(ProfilingScenario scenario) {
+        List<String> args = new ArrayList<>();
+        if (jvmArgs != null) {
+            args.addAll(Arrays.asList(jvmArgs));
+        }
+        if (scenario.jvmArgs != null) {
+            args.addAll(Arrays.asList(scenario.jvmArgs));
+        }
+        if (scenario.systemProperties != null) {
+            scenario.systemProperties.forEach((name, value) -> args.add("-D" + name + "=" + value));
+        }
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * Merges the profiles of the same name produced by the scenarios into {@link #getExecProfilesDir()}.
+     */
+    private void mergeScenarioProfiles(Map<ProfilingScenario, File> dirs)
+            throws IOException, InterruptedException, JetTaskFailureException
+    {
+        Map<String, List<ProfileMerger.Input>> profiles = new TreeMap<>();
+        for (Map.Entry<ProfilingScenario, File> e : dirs.entrySet()) {
+            File[] files = new File(e.getValue(), "profiles").listFiles(File::isFile);
+            if ((files == null) || (files.length == 0)) {
+                logger.warn(s("JetMavenPlugin.ProfilingScenarios.NoProfiles.Warning", e.getKey().name));
+                continue;
+            }
+            for (File file : files) {
+                ProfileMerger.Input input = new ProfileMerger.Input(file, 0, e.getKey().weight);
+                input.effectiveWeight = input.weight;
+                profiles.computeIfAbsent(file.getName(), name -> new ArrayList<>()).add(input);
+            }
+        }
+        boolean external = (mergeProfilesCommand != null) && (mergeProfilesCommand.length > 0);
+        ProfileMerger merger = new ProfileMerger(0, 0);
+        for (Map.Entry<String, List<ProfileMerger.Input>> e : profiles.entrySet()) {
+            List<ProfileMerger.Input> scenarioInputs = e.getValue();
+            if (!external && (scenarioInputs.size() > 1) && !e.getKey().endsWith(ProfileMerger.USAGE_EXTENSION)) {
+                // usage lists are the only profiles merged without the command
+                ProfileMerger.Input first = scenarioInputs.get(0);
+                logger.warn(s("JetMavenPlugin.ProfilingScenarios.FirstKept.Warning", e.getKey(),
+                        first.file.getParentFile().getParentFile().getName(), scenarioInputs.size() - 1));
+                scenarioInputs = Collections.singletonList(first);
+            }
+            List<ProfileMerger.Input> inputs = ProfileMerger.normalize(scenarioInputs);
+            if (inputs.isEmpty()) {
+                continue;
+            }
+            File output = new File(getExecProfilesDir(), e.getKey());
+            merger.merge(inputs, output, external ? Arrays.asList(mergeProfilesCommand) : null, project.getBasedir());
+            logger.info(s("JetMavenPlugin.ProfilingScenarios.Merged.Info", output, inputs.size()));
+        }
+    }
+
+    /**
+     * Starts sampling resource usage of the processes run by the current goal, if {@link #telemetry} is enabled.
+     *
+     * @return the telemetry to be passed to {@link #finishTelemetry}, or {@code null} if disabled
+     */
+    protected ResourceTelemetry startTelemetry() throws JetTaskFailureException {
+        if (!telemetry) {
+            return null;
+        }
+        if (!"csv".equals(telemetryFormat) && !"json".equals(telemetryFormat)) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.Telemetry.BadFormat.Failure", telemetryFormat));
+        }
+        if (!ProcessTreeSampler.isSupported()) {
+            logger.warn(s("JetMavenPlugin.Telemetry.Unsupported.Warning"));
+            return null;
+        }
+        // in a parallel build, processes of other modules are told apart by their working directory
+        File scope = ((session != null) && session.isParallel()) ? project.getBasedir() : null;
+        return ResourceTelemetry.start(scope, Math.max(10, telemetryInterval));
+    }
+
+    /**
+     * Stops sampling, saves and prints the results.
+     *
+     * @param name name of the goal
+     */
+    protected void finishTelemetry(ResourceTelemetry telemetry, String name) {
+        if (telemetry == null) {
+            return;
+        }
+        telemetry.finish();
+        File dir = new File(getJetOutputDir(), ResourceTelemetry.DIR_NAME);
+        try {
+            telemetry.logSummary(telemetry.save(dir, name, telemetryFormat));
+        } catch (IOException e) {
+            logger.warn(s("JetMavenPlugin.Telemetry.SaveFailed.Warning", dir, e.getMessage()), e);
+        }
+    }
+
     protected boolean isSupportedPackaging() {
         switch (project.getPackaging()) {
             case "jar":
@@ -330,7 +849,7 @@ public abstract class AbstractJetMojo extends AbstractMojo {
         }
     }
 
-    private ApplicationType getAppType() throws JetTaskFailureException {
+    protected ApplicationType getAppType() throws JetTaskFailureException {
         if (!Utils.isEmpty(appType)) {
             return JetProject.checkAndGetAppType(appType);
         }
@@ -357,6 +876,11 @@ public abstract class AbstractJetMojo extends AbstractMojo {
     }
 
     protected void init() {
-        JetProject.configureEnvironment(new MavenLog(getLog()), ResourceBundle.getBundle("MavenStrings", Locale.ENGLISH));
+        MavenLog.bind(getLog(), logPrefix());
+    }
+
+    protected String logPrefix() {
+        // in a parallel build, the output of the concurrently built modules is interleaved
+        return ((session != null) && session.isParallel()) ? "[" + project.getArtifactId() + "] " : "";
     }
 }
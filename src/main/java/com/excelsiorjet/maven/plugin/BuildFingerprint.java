@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Content fingerprint of the inputs of an Excelsior JET build.
+ * <p>
+ * The fingerprint consists of named components (the main artifact, the dependencies, each plugin parameter,
+ * the Excelsior JET installation, etc.), each represented by a SHA-256 hash of its content.
+ * Files are hashed by content, directories by the relative paths and contents of all files they contain,
+ * configuration objects by the values of all their fields.
+ * Comparing two fingerprints component by component tells not only whether the build inputs have changed,
+ * but also which of them.
+ * </p>
+ * <p>
+ * The fingerprint does not depend on the absolute locations of the inputs,
+ * so it identifies the same build on different machines and can be used as a build cache key.
+ * File digests are cached in the fingerprint file by path, size and modification time,
+ * so unchanged multi-megabyte dependencies are not re-read on every build.
+ * </p>
+ */
+class BuildFingerprint {
+
+    static final String FILE_NAME = "jet-build.fingerprint";
+
+    private static final String COMPONENT_PREFIX = "component.";
+    private static final String DIGEST_PREFIX = "digest.";
+
+    private final SortedMap<String, String> components = new TreeMap<>();
+
+    private final Map<String, String> knownDigests;
+
+    private final SortedMap<String, String> usedDigests = new TreeMap<>();
+
+    private final Set<Path> excluded = new HashSet<>();
+
+    BuildFingerprint() {
+        this(Collections.emptyMap());
+    }
+
+    private BuildFingerprint(Map<String, String> knownDigests) {
+        this.knownDigests = knownDigests;
+    }
+
+    /**
+     * Creates an empty fingerprint that reuses the file digests cached in {@code previous}.
+     */
+    static BuildFingerprint basedOn(BuildFingerprint previous) {
+        return previous == null ? new BuildFingerprint() : new BuildFingerprint(previous.usedDigests);
+    }
+
+    /**
+     * Excludes the files from the directories added as components afterwards,
+     * so that the files can be fingerprinted as a separate component, e.g. the files the build itself updates.
+     */
+    BuildFingerprint exclude(Collection<File> files) {
+        files.forEach(file -> excluded.add(file.toPath().toAbsolutePath().normalize()));
+        return this;
+    }
+
+    /**
+     * Adds a component to the fingerprint, replacing the one of the same name, if any.
+     *
+     * @param name component name
+     * @param value component value: a file or a directory, a string, a primitive wrapper, an enum,
+     *              an array, a collection, a map, or an arbitrary configuration object whose fields are
+     *              fingerprinted recursively
+     */
+    BuildFingerprint add(String name, Object value) throws IOException {
+        MessageDigest md = Digests.sha256();
+        digest(md, value, Collections.newSetFromMap(new IdentityHashMap<>()));
+        components.put(name, Digests.toHex(md.digest()));
+        return this;
+    }
+
+    Map<String, String> getComponents() {
+        return Collections.unmodifiableMap(components);
+    }
+
+    /**
+     * @return the hash of all components of the fingerprint
+     */
+    String getHash() {
+        MessageDigest md = Digests.sha256();
+        components.forEach((name, hash) -> {
+            Digests.update(md, name);
+            Digests.update(md, hash);
+        });
+        return Digests.toHex(md.digest());
+    }
+
+    /**
+     * @return names of the components that were added, removed or changed compared with {@code previous}
+     */
+    List<String> changedComponents(BuildFingerprint previous) {
+        SortedSet<String> names = new TreeSet<>(components.keySet());
+        names.addAll(previous.components.keySet());
+        return names.stream()
+                .filter(name -> !Objects.equals(components.get(name), previous.components.get(name)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the fingerprint stored in {@code file}, or {@code null} if the file does not exist or is corrupted
+     */
+    static BuildFingerprint load(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            props.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        Map<String, String> digests = new HashMap<>();
+        BuildFingerprint fingerprint = new BuildFingerprint(digests);
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith(COMPONENT_PREFIX)) {
+                fingerprint.components.put(key.substring(COMPONENT_PREFIX.length()), props.getProperty(key));
+            } else if (key.startsWith(DIGEST_PREFIX)) {
+                digests.put(key.substring(DIGEST_PREFIX.length()), props.getProperty(key));
+            }
+        }
+        fingerprint.usedDigests.putAll(digests);
+        return fingerprint;
+    }
+
+    void save(File file) throws IOException {
+        Properties props = new Properties();
+        components.forEach((name, hash) -> props.setProperty(COMPONENT_PREFIX + name, hash));
+        usedDigests.forEach((path, digest) -> props.setProperty(DIGEST_PREFIX + path, digest));
+        file.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(file)) {
+            props.store(out, "Excelsior JET build fingerprint. Do not edit.");
+        }
+    }
+
+    private void digest(MessageDigest md, Object value, Set<Object> visiting) throws IOException {
+        if (value == null) {
+            Digests.update(md, "null");
+        } else if (value instanceof File) {
+            digestFile(md, (File) value);
+        } else if (value instanceof CharSequence || value instanceof Number || value instanceof Boolean ||
+                value instanceof Character || value instanceof Enum)
+        {
+            Digests.update(md, value.getClass().getSimpleName() + ":" + value);
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Digests.update(md, "array:" + length);
+            for (int i = 0; i < length; i++) {
+                digest(md, Array.get(value, i), visiting);
+            }
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            Digests.update(md, "collection:" + collection.size());
+            for (Object element : collection) {
+                digest(md, element, visiting);
+            }
+        } else if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            ((Map<?, ?>) value).forEach((k, v) -> sorted.put(String.valueOf(k), v));
+            Digests.update(md, "map:" + sorted.size());
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                Digests.update(md, entry.getKey());
+                digest(md, entry.getValue(), visiting);
+            }
+        } else if (value.getClass().getName().startsWith("java")) {
+            // JDK classes other than the above are not expected in plugin parameters,
+            // and their internals are not accessible for reflection anyway
+            Digests.update(md, value.getClass().getName() + ":" + value);
+        } else {
+            if (!visiting.add(value)) {
+                Digests.update(md, "cycle");
+                return;
+            }
+            Digests.update(md, value.getClass().getName());
+            for (Field field : fieldsOf(value.getClass())) {
+                Digests.update(md, field.getName());
+                digest(md, readField(field, value), visiting);
+            }
+            visiting.remove(value);
+        }
+    }
+
+    private void digestFile(MessageDigest md, File file) throws IOException {
+        if (file.isFile()) {
+            Digests.update(md, "file:" + file.getName());
+            Digests.update(md, fileDigest(file));
+        } else if (file.isDirectory()) {
+            Path root = file.toPath();
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(root)) {
+                files = walk.filter(Files::isRegularFile)
+                        .filter(path -> !excluded.contains(path.toAbsolutePath().normalize()))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            Digests.update(md, "dir:" + files.size());
+            for (Path path : files) {
+                Digests.update(md, root.relativize(path).toString().replace(File.separatorChar, '/'));
+                Digests.update(md, fileDigest(path.toFile()));
+            }
+        } else {
+            Digests.update(md, "missing:" + file.getName());
+        }
+    }
+
+    private String fileDigest(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        String stamp = file.length() + ":" + file.lastModified() + ":";
+        String known = knownDigests.get(path);
+        String digest;
+        if (known != null && known.startsWith(stamp)) {
+            digest = known.substring(stamp.length());
+        } else if (isArchive(file)) {
+            digest = archiveDigest(file);
+        } else {
+            digest = Digests.sha256(file);
+        }
+        usedDigests.put(path, stamp + digest);
+        return digest;
+    }
+
+    private static boolean isArchive(File file) {
+        String name = file.getName().toLowerCase();
+        return name.endsWith(".jar") || name.endsWith(".war");
+    }
+
+    /**
+     * Jar and war files are digested by the names and contents of their entries,
+     * ignoring entry timestamps and order, as well as the manifest attributes and the comments
+     * in Maven properties files that depend on the machine where the archive was built.
+     * This way, the same sources built on different machines yield the same fingerprint.
+     */
+    private static String archiveDigest(File file) throws IOException {
+        SortedMap<String, String> entries = new TreeMap<>();
+        try (ZipFile zip = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry entry = zipEntries.nextElement();
+                if (!entry.isDirectory()) {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        entries.put(entry.getName(), entryDigest(entry.getName(), in));
+                    }
+                }
+            }
+        } catch (ZipException e) {
+            return Digests.sha256(file);
+        }
+        MessageDigest md = Digests.sha256();
+        entries.forEach((name, digest) -> {
+            Digests.update(md, name);
+            Digests.update(md, digest);
+        });
+        return Digests.toHex(md.digest());
+    }
+
+    private static String entryDigest(String name, InputStream in) throws IOException {
+        if (name.equalsIgnoreCase(JarFile.MANIFEST_NAME)) {
+            Manifest manifest = new Manifest(in);
+            Attributes main = manifest.getMainAttributes();
+            for (String attr : MACHINE_SPECIFIC_MANIFEST_ATTRIBUTES) {
+                main.remove(new Attributes.Name(attr));
+            }
+            SortedMap<String, String> attrs = new TreeMap<>();
+            main.forEach((key, value) -> attrs.put(String.valueOf(key), String.valueOf(value)));
+            manifest.getEntries().forEach((entry, entryAttrs) -> entryAttrs.forEach((key, value) ->
+                    attrs.put(entry + "/" + key, String.valueOf(value))));
+            return Digests.sha256(attrs.toString());
+        } else if (name.startsWith("META-INF/maven/") && name.endsWith("/pom.properties")) {
+            Properties props = new Properties();
+            props.load(in);
+            return Digests.sha256(new TreeMap<>(props).toString());
+        }
+        return Digests.sha256(in);
+    }
+
+    private static final String[] MACHINE_SPECIFIC_MANIFEST_ATTRIBUTES = {
+            "Built-By", "Build-Jdk", "Build-Jdk-Spec", "Created-By", "Bnd-LastModified", "Build-Time"
+    };
+
+    /**
+     * @return non-static fields of the class and its superclasses in a stable order
+     */
+    static List<Field> fieldsOf(Class<?> clazz) {
+        List<Field> result = new ArrayList<>();
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            Field[] fields = c.getDeclaredFields();
+            Arrays.sort(fields, Comparator.comparing(Field::getName));
+            for (Field field : fields) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                    result.add(field);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @throws IOException if the field cannot be read, as its changes would not invalidate the build otherwise
+     */
+    static Object readField(Field field, Object target) throws IOException {
+        try {
+            field.setAccessible(true);
+            return field.get(target);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IOException("Cannot fingerprint " + field.getDeclaringClass().getName() + "." +
+                    field.getName() + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.maven.plugin.ProcessTreeSampler.ProcessInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Wall-clock time, CPU time and peak memory usage of the stages of an Excelsior JET build.
+ * <p>
+ * The stages are recovered from the processes that the build runs:
+ * </p>
+ * <ul>
+ * <li>{@code prepare} - from the start of the build till the first process: copying and unpacking
+ *      of the dependencies, Spring Boot and WAR applications, done by the plugin itself</li>
+ * <li>{@code compile} - the {@code jc} compiler</li>
+ * <li>{@code startupProfiling} - the run of the compiled application collecting the startup profile</li>
+ * <li>{@code xpack} - runtime assembly and creation of the installer or OS X bundle, if any</li>
+ * <li>{@code package} - from the end of the last process till the end of the build: zip or tar.gz packaging
+ *      done by the plugin itself</li>
+ * </ul>
+ * Other processes, if any, form the stages named after their commands.
+ * The boundaries of the {@code prepare} and {@code package} stages and the {@code startupProfiling} stage itself
+ * are inferred from the processes rather than reported by Excelsior JET, so they are marked as inferred.
+ * The CPU time of the {@code prepare} and {@code package} stages is that of the thread running the build,
+ * and the CPU time of the other stages includes all descendant processes.
+ * The peak RSS of a stage is the peak of its largest process.
+ * If the processes cannot be sampled on the host OS, only the whole build is reported.
+ */
+class BuildMetrics {
+
+    static final String FILE_NAME = "build-metrics.json";
+
+    private static final long SAMPLING_INTERVAL_MILLIS = 200;
+
+    /**
+     * Metrics of a single stage. {@code peakRssKB} is {@code null} for the stages performed by the plugin itself.
+     * {@code inferred} is set for the stages recovered by heuristics.
+     */
+    static class Stage {
+        final String name;
+        boolean inferred;
+        long startMillis;
+        long endMillis;
+        long cpuMillis;
+        Long peakRssKB;
+        int processes;
+
+        Stage(String name, long startMillis, long endMillis) {
+            this.name = name;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        long wallMillis() {
+            return endMillis - startMillis;
+        }
+    }
+
+    private final File scope;
+    private final ProcessTreeSampler sampler;
+    private final long startMillis;
+    private long endMillis;
+
+    private BuildMetrics(File scope) {
+        this.scope = scope;
+        this.startMillis = System.currentTimeMillis();
+        this.sampler = new ProcessTreeSampler(scope, SAMPLING_INTERVAL_MILLIS).start();
+    }
+
+    /**
+     * Starts collecting metrics of a build running in the current thread.
+     *
+     * @param scope directory where the build runs its processes
+     */
+    static BuildMetrics start(File scope) {
+        return new BuildMetrics(scope);
+    }
+
+    /**
+     * Stops collecting metrics.
+     */
+    void finish() {
+        sampler.close();
+        endMillis = System.currentTimeMillis();
+    }
+
+    List<Stage> getStages() {
+        return computeStages(sampler.getProcesses(), startMillis, endMillis, scope, sampler::ownerCpuMillisAt);
+    }
+
+    interface CpuClock {
+        long cpuMillisAt(long millis);
+    }
+
+    static List<Stage> computeStages(List<ProcessInfo> processes, long start, long end, File scope, CpuClock ownerCpu) {
+        Map<Integer, ProcessInfo> byPid = new HashMap<>();
+        for (ProcessInfo p : processes) {
+            byPid.put(p.pid, p);
+        }
+        Map<String, Stage> stages = new LinkedHashMap<>();
+        long firstStart = end;
+        long lastEnd = start;
+        for (ProcessInfo p : processes) {
+            ProcessInfo root = p;
+            while (byPid.containsKey(root.ppid)) {
+                root = byPid.get(root.ppid);
+            }
+            String name = stageOf(root, scope);
+            Stage stage = stages.get(name);
+            if (stage == null) {
+                stage = new Stage(name, p.startMillis, p.endMillis);
+                stage.peakRssKB = 0L;
+                // the application is recognized only by the location of its executable
+                stage.inferred = name.equals("startupProfiling");
+                stages.put(name, stage);
+            }
+            stage.startMillis = Math.min(stage.startMillis, p.startMillis);
+            stage.endMillis = Math.max(stage.endMillis, p.endMillis);
+            stage.cpuMillis += p.cpuMillis;
+            stage.peakRssKB = Math.max(stage.peakRssKB, p.peakRssKB);
+            stage.processes++;
+            firstStart = Math.min(firstStart, p.startMillis);
+            lastEnd = Math.max(lastEnd, p.endMillis);
+        }
+        List<Stage> result = new ArrayList<>();
+        if (stages.isEmpty()) {
+            result.add(javaStage("build", start, end, ownerCpu, false));
+            return result;
+        }
+        result.add(javaStage("prepare", start, firstStart, ownerCpu, true));
+        List<Stage> toolStages = new ArrayList<>(stages.values());
+        toolStages.sort(Comparator.comparingLong(st -> st.startMillis));
+        result.addAll(toolStages);
+        result.add(javaStage("package", lastEnd, end, ownerCpu, true));
+        return result;
+    }
+
+    private static String stageOf(ProcessInfo root, File scope) {
+        if ("jc".equals(root.command)) {
+            return "compile";
+        } else if ("xpack".equals(root.command)) {
+            return "xpack";
+        } else if ((root.executable != null) &&
+                Paths.get(root.executable).startsWith(scope.toPath().toAbsolutePath().normalize())) {
+            return "startupProfiling";
+        }
+        return root.command;
+    }
+
+    private static Stage javaStage(String name, long start, long end, CpuClock ownerCpu, boolean inferred) {
+        Stage stage = new Stage(name, start, Math.max(start, end));
+        stage.inferred = inferred;
+        stage.cpuMillis = Math.max(0, ownerCpu.cpuMillisAt(end) - ownerCpu.cpuMillisAt(start));
+        return stage;
+    }
+
+    /**
+     * Saves the metrics in JSON format.
+     *
+     * @param module identifier of the module
+     * @param succeeded whether the build succeeded
+     */
+    void save(File file, String module, String packaging, boolean succeeded) throws IOException {
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.ROOT);
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("module", module);
+        root.put("timestamp", iso.format(new Date(startMillis)));
+        root.put("packaging", packaging);
+        root.put("succeeded", succeeded);
+        root.put("processSampling", ProcessTreeSampler.isSupported());
+        root.put("wallMillis", endMillis - startMillis);
+        List<Object> stages = new ArrayList<>();
+        for (Stage stage : getStages()) {
+            Map<String, Object> st = new LinkedHashMap<>();
+            st.put("name", stage.name);
+            st.put("inferred", stage.inferred);
+            st.put("startOffsetMillis", stage.startMillis - startMillis);
+            st.put("wallMillis", stage.wallMillis());
+            st.put("cpuMillis", stage.cpuMillis);
+            st.put("peakRssKB", stage.peakRssKB);
+            st.put("processes", stage.processes);
+            stages.add(st);
+        }
+        root.put("stages", stages);
+        List<Object> processes = new ArrayList<>();
+        for (ProcessInfo p : sampler.getProcesses()) {
+            Map<String, Object> pr = new LinkedHashMap<>();
+            pr.put("pid", p.pid);
+            pr.put("ppid", p.ppid);
+            pr.put("command", p.command);
+            pr.put("executable", p.executable);
+            pr.put("startOffsetMillis", p.startMillis - startMillis);
+            pr.put("wallMillis", p.wallMillis());
+            pr.put("cpuMillis", p.cpuMillis);
+            pr.put("peakRssKB", p.peakRssKB);
+            processes.add(pr);
+        }
+        root.put("processes", processes);
+        Json.write(file, root);
+    }
+
+    /**
+     * Prints the metrics as a table.
+     */
+    void logSummary(File file) {
+        logger.info(s("JetMavenPlugin.BuildMetrics.Summary.Info", file));
+        logger.info(String.format("  %-18s %10s %10s %14s", "Stage", "Wall, s", "CPU, s", "Peak RSS, MB"));
+        boolean inferred = false;
+        for (Stage stage : getStages()) {
+            String name = stage.inferred ? stage.name + "*" : stage.name;
+            logger.info(String.format(Locale.ROOT, "  %-18s %10.1f %10.1f %14s", name,
+                    stage.wallMillis() / 1000.0, stage.cpuMillis / 1000.0,
+                    (stage.peakRssKB != null) ? String.valueOf(stage.peakRssKB / 1024) : "-"));
+            inferred |= stage.inferred;
+        }
+        logger.info(String.format(Locale.ROOT, "  %-18s %10.1f", "total", (endMillis - startMillis) / 1000.0));
+        if (inferred) {
+            logger.info(s("JetMavenPlugin.BuildMetrics.Inferred.Info"));
+        }
+    }
+}
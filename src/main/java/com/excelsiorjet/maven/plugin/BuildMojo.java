@@ -28,11 +28,14 @@ import com.excelsiorjet.api.tasks.JetBuildTask;
 import com.excelsiorjet.api.tasks.JetProject;
 import com.excelsiorjet.api.tasks.JetTaskFailureException;
 import com.excelsiorjet.api.util.Txt;
+import com.excelsiorjet.maven.plugin.cache.BuildCache;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.*;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.*;
 
 import static com.excelsiorjet.api.log.Log.logger;
 import static com.excelsiorjet.api.util.Txt.s;
@@ -44,7 +47,8 @@ import static com.excelsiorjet.api.util.Txt.s;
  *
  * @author Nikita Lipsky
  */
-@Mojo(name = "jet-build", defaultPhase = LifecyclePhase.PACKAGE, requiresDependencyResolution = ResolutionScope.RUNTIME)
+@Mojo(name = "jet-build", defaultPhase = LifecyclePhase.PACKAGE, requiresDependencyResolution = ResolutionScope.RUNTIME,
+        threadSafe = true)
 public class BuildMojo extends AbstractBuildMojo {
 
     @Override
@@ -56,8 +60,68 @@ public class BuildMojo extends AbstractBuildMojo {
         }
         try {
             JetProject jetProject = getJetProject();
+            resolveProfileArtifacts();
+            checkProfileCoverage(jetProject);
+            File fingerprintFile = new File(getJetBuildDir(), BuildFingerprint.FILE_NAME);
+            BuildFingerprint fingerprint = null;
+            BuildCache cache = null;
+            if ((buildCache != null) && buildCache.isEnabled() && isUpToDateCheckSupported()) {
+                cache = new BuildCache(buildCache, getJetBuildDir());
+            }
+            if (upToDateCheck || (cache != null)) {
+                BuildFingerprint previous = BuildFingerprint.load(fingerprintFile);
+                fingerprint = computeBuildFingerprint(previous);
+                if (upToDateCheck && isUpToDate(fingerprint, previous)) {
+                    if (isDeltaPackageEnabled() && !getDeltaPackage().exists()) {
+                        createDeltaPackage();
+                    }
+                    return;
+                }
+                // an interrupted build must not be considered up-to-date later
+                fingerprintFile.delete();
+                if ((cache != null) && cache.restore(buildCacheKey(fingerprint), getJetAppDir(), getPackageArchive())) {
+                    deduplicateAppDir();
+                    if (isDeltaPackageEnabled()) {
+                        createDeltaPackage();
+                    }
+                    fingerprint.save(fingerprintFile);
+                    return;
+                }
+            }
+            // auto runtime settings are resolved from the profiles resolved and re-collected above
+            jetProject.runtimeConfiguration(resolveRuntimeConfiguration());
+            if (pruneUnreachableDependencies()) {
+                // the dependencies are pruned only now, as the Test Run re-collecting the profiles needs them all
+                jetProject.projectDependencies(getDependencies()).dependencies(getDependencySettings());
+            }
             ExcelsiorJet excelsiorJet = new ExcelsiorJet(jetHome);
-            new JetBuildTask(excelsiorJet, jetProject, false).execute();
+            try (JetCompileScheduler.Permit ignored = acquireCompilePermit()) {
+                BuildMetrics metrics = buildMetrics ? BuildMetrics.start(getJetOutputDir()) : null;
+                boolean succeeded = false;
+                try {
+                    new JetBuildTask(excelsiorJet, jetProject, false).execute();
+                    deduplicateAppDir();
+                    succeeded = true;
+                } finally {
+                    if (metrics != null) {
+                        reportBuildMetrics(metrics, succeeded);
+                    }
+                }
+            }
+            reportSize();
+            if (isDeltaPackageEnabled()) {
+                createDeltaPackage();
+            }
+            if (cache != null) {
+                // the cache key is computed before the build, as other machines will look the results up
+                // by the fingerprint of the same inputs
+                cache.store(buildCacheKey(fingerprint), getJetAppDir(), getPackageArchive());
+            }
+            if (upToDateCheck) {
+                // the build itself may update some of its inputs (e.g. startup profile)
+                refreshBuildFingerprint(fingerprint);
+                fingerprint.save(fingerprintFile);
+            }
         } catch (JetTaskFailureException | JetHomeException  e) {
             throw new MojoFailureException(e.getMessage());
         } catch (CmdLineToolException | IOException e) {
@@ -67,4 +131,122 @@ public class BuildMojo extends AbstractBuildMojo {
         }
     }
 
+    /**
+     * Compares the fingerprints saved with the profiles with the current application code,
+     * and handles the profiles below the {@link #profileCoverageThreshold} according to {@link #staleProfileAction}.
+     */
+    private void checkProfileCoverage(JetProject jetProject)
+            throws JetTaskFailureException, JetHomeException, IOException, CmdLineToolException,
+            MojoExecutionException, MojoFailureException
+    {
+        if (staleProfileAction.equals("ignore")) {
+            return;
+        }
+        Map<File, ProfileFingerprint> fingerprints = new LinkedHashMap<>();
+        List<String> extensions = new ArrayList<>(Arrays.asList(TEST_RUN_PROFILES));
+        extensions.add(ProfileMerger.EXTENSION);
+        for (String extension : extensions) {
+            File profile = new File(getExecProfilesDir(), getExecProfilesName() + extension);
+            if (!profile.isFile()) {
+                continue;
+            }
+            ProfileFingerprint fingerprint = ProfileFingerprint.load(ProfileFingerprint.fileOf(profile));
+            if (fingerprint == null) {
+                logger.info(s("JetMavenPlugin.ProfileCoverage.NoFingerprint.Info", profile));
+            } else {
+                fingerprints.put(profile, fingerprint);
+            }
+        }
+        if (fingerprints.isEmpty()) {
+            return;
+        }
+        // the classes of the unchanged jars are taken from the saved fingerprints
+        ProfileFingerprint current = ProfileFingerprint.compute(getProfiledClasspath(), fingerprints.values());
+        boolean testRun = false;
+        boolean profileRun = false;
+        for (Map.Entry<File, ProfileFingerprint> e : fingerprints.entrySet()) {
+            String profile = e.getKey().getName();
+            ProfileFingerprint.Match match = e.getValue().match(current);
+            double mainCoverage = match.coverageOf(ProfileFingerprint.MAIN_ELEMENT);
+            String coverage = String.format(Locale.ROOT, "%.1f", mainCoverage * 100);
+            String totalCoverage = String.format(Locale.ROOT, "%.1f", match.coverage * 100);
+            for (String element : match.elements()) {
+                if (!element.equals(ProfileFingerprint.MAIN_ELEMENT) && (match.coverageOf(element) < 1.0)) {
+                    logger.info(s("JetMavenPlugin.ProfileCoverage.Element.Info", profile, element,
+                            String.format(Locale.ROOT, "%.1f", match.coverageOf(element) * 100)));
+                }
+            }
+            if (mainCoverage * 100 >= profileCoverageThreshold) {
+                logger.info(s("JetMavenPlugin.ProfileCoverage.Info", profile, coverage, totalCoverage));
+                continue;
+            }
+            switch (staleProfileAction) {
+                case "fail":
+                    throw new JetTaskFailureException(s("JetMavenPlugin.ProfileCoverage.Stale.Failure", profile,
+                            coverage, match.changed, match.removed, match.added, profileCoverageThreshold,
+                            totalCoverage));
+                case "recollect":
+                    logger.info(s("JetMavenPlugin.ProfileCoverage.Recollecting.Info", profile, coverage));
+                    if (profile.endsWith(ProfileMerger.EXTENSION)) {
+                        profileRun = true;
+                    } else {
+                        testRun = true;
+                    }
+                    break;
+                default:
+                    logger.warn(s("JetMavenPlugin.ProfileCoverage.Stale.Warning", profile,
+                            coverage, match.changed, match.removed, match.added, profileCoverageThreshold,
+                            totalCoverage));
+            }
+        }
+        if (testRun || profileRun) {
+            ExcelsiorJet excelsiorJet = new ExcelsiorJet(jetHome);
+            if (testRun) {
+                testRun(excelsiorJet, jetProject);
+            }
+            if (profileRun) {
+                profileRun(excelsiorJet, jetProject);
+            }
+        }
+    }
+
+    private void reportBuildMetrics(BuildMetrics metrics, boolean succeeded) {
+        metrics.finish();
+        File file = new File(getJetOutputDir(), BuildMetrics.FILE_NAME);
+        try {
+            metrics.save(file, project.getId(), packaging, succeeded);
+            metrics.logSummary(file);
+        } catch (IOException e) {
+            logger.warn(s("JetMavenPlugin.BuildMetrics.SaveFailed.Warning", file, e.getMessage()), e);
+        }
+    }
+
+    private boolean isUpToDate(BuildFingerprint fingerprint, BuildFingerprint previous) {
+        if (previous == null) {
+            logger.info(s("JetMavenPlugin.UpToDateCheck.NoFingerprint.Info"));
+            return false;
+        }
+        List<String> changed = fingerprint.changedComponents(previous);
+        if (!changed.isEmpty()) {
+            logger.info(s("JetMavenPlugin.UpToDateCheck.InputsChanged.Info", String.join(", ", changed)));
+            return false;
+        }
+        if (!isUpToDateCheckSupported()) {
+            logger.info(s("JetMavenPlugin.UpToDateCheck.UnsupportedPackaging.Info", packaging));
+            return false;
+        }
+        String[] appFiles = getJetAppDir().list();
+        if (appFiles == null || appFiles.length == 0) {
+            logger.info(s("JetMavenPlugin.UpToDateCheck.OutputMissing.Info", getJetAppDir()));
+            return false;
+        }
+        File archive = getPackageArchive();
+        if ((archive != null) && !archive.exists()) {
+            logger.info(s("JetMavenPlugin.UpToDateCheck.OutputMissing.Info", archive));
+            return false;
+        }
+        logger.info(s("JetMavenPlugin.UpToDateCheck.UpToDate.Info", getJetAppDir()));
+        return true;
+    }
+
 }
@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the entries of jars (including the jars nested into them, such as {@code WEB-INF/lib}
+ * or {@code BOOT-INF/lib}) and class directories, and the classes referenced by class files.
+ * <p>
+ * Each jar is mapped into memory and its central directory is read directly,
+ * so that only the entries of interest are inflated. ZIP64 archives are left to {@link ZipFile}.
+ * </p>
+ */
+class BytecodeScanner {
+
+    /**
+     * String constants that may name a class, such constants are usually passed to {@link Class#forName}.
+     */
+    private static final Pattern CLASS_NAME = Pattern.compile("[A-Za-z_$][\\w$]*(\\.[A-Za-z_$][\\w$]*)+");
+
+    /**
+     * Receives the entries of a jar or a class directory.
+     */
+    interface EntryVisitor {
+        /**
+         * @param name entry name, the entries of a nested jar are prefixed with the jar name followed by {@code !/}
+         */
+        void visit(String name, ByteBuffer content) throws IOException;
+    }
+
+    /**
+     * Receives the classes referenced by a class file.
+     */
+    interface ReferenceVisitor {
+        /**
+         * @param from name of the referencing class
+         * @param target name of the referenced class
+         * @param reflective whether the class is referenced by a string constant rather than directly
+         */
+        void reference(String from, String target, boolean reflective);
+    }
+
+    /**
+     * Scanned class file.
+     */
+    static class ClassInfo {
+        static final int ACC_ANNOTATION = 0x2000;
+
+        final String name;
+        final int access;
+
+        ClassInfo(String name, int access) {
+            this.name = name;
+            this.access = access;
+        }
+
+        boolean isAnnotation() {
+            return (access & ACC_ANNOTATION) != 0;
+        }
+    }
+
+    private BytecodeScanner() {
+    }
+
+    /**
+     * Visits the entries of a jar or a class directory accepted by the filter.
+     * Nested jars are scanned in turn rather than visited, class directories are not searched for jars.
+     */
+    static void scan(File file, Predicate<String> filter, EntryVisitor visitor) throws IOException {
+        if (file.isDirectory()) {
+            Path root = file.toPath();
+            try (Stream<Path> files = Files.walk(root)) {
+                for (Path path : (Iterable<Path>) files::iterator) {
+                    String name = root.relativize(path).toString().replace(File.separatorChar, '/');
+                    if (filter.test(name) && Files.isRegularFile(path)) {
+                        visitor.visit(name, ByteBuffer.wrap(Files.readAllBytes(path)));
+                    }
+                }
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if ((size <= Integer.MAX_VALUE) &&
+                    scanArchive(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), "", filter, visitor))
+            {
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+        // ZIP64 archives are left to the JDK
+        try (ZipFile zip = new ZipFile(file)) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                String name = entry.getName();
+                boolean isJar = name.endsWith(".jar");
+                if (!isJar && !filter.test(name)) {
+                    continue;
+                }
+                ByteBuffer content;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    content = ByteBuffer.wrap(IOUtil.toByteArray(in));
+                }
+                if (!isJar) {
+                    visitor.visit(name, content);
+                } else if (!scanArchive(content, name + "!/", filter, visitor)) {
+                    throw new IOException(name + ": ZIP64 nested archives are not supported");
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits the entries of a zip archive and of the archives nested into it.
+     *
+     * @param prefix prefix of the entry names
+     * @return {@code false} if the archive is in the ZIP64 format, which is not supported,
+     *         no entries are visited then
+     */
+    private static boolean scanArchive(ByteBuffer zip, String prefix, Predicate<String> filter,
+                                       EntryVisitor visitor) throws IOException
+    {
+        zip.order(ByteOrder.LITTLE_ENDIAN);
+        int end = findEndOfCentralDirectory(zip);
+        if (end < 0) {
+            throw new IOException("not a zip archive");
+        }
+        int entries = zip.getShort(end + 10) & 0xFFFF;
+        long directory = zip.getInt(end + 16) & 0xFFFFFFFFL;
+        if ((entries == 0xFFFF) || (directory == 0xFFFFFFFFL)) {
+            return false;
+        }
+        // the ZIP64 entries are looked for first, so that the archive is either visited in whole or not at all
+        int[] headers = new int[entries];
+        int pos = (int) directory;
+        for (int i = 0; i < entries; i++) {
+            if (zip.getInt(pos) != 0x02014b50) {
+                throw new IOException("corrupted central directory");
+            }
+            if ((zip.getInt(pos + 20) == 0xFFFFFFFF) || (zip.getInt(pos + 24) == 0xFFFFFFFF) ||
+                    (zip.getInt(pos + 42) == 0xFFFFFFFF))
+            {
+                return false;
+            }
+            headers[i] = pos;
+            pos += 46 + (zip.getShort(pos + 28) & 0xFFFF) + (zip.getShort(pos + 30) & 0xFFFF) +
+                    (zip.getShort(pos + 32) & 0xFFFF);
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            for (int header : headers) {
+                int method = zip.getShort(header + 10) & 0xFFFF;
+                int compressedSize = zip.getInt(header + 20);
+                int size = zip.getInt(header + 24);
+                int local = zip.getInt(header + 42);
+                String name = string(zip, header + 46, zip.getShort(header + 28) & 0xFFFF);
+                boolean isJar = name.endsWith(".jar");
+                if (!isJar && !filter.test(name)) {
+                    continue;
+                }
+                // the sizes in the local header may be absent, so they are taken from the central directory
+                int data = local + 30 + (zip.getShort(local + 26) & 0xFFFF) + (zip.getShort(local + 28) & 0xFFFF);
+                ByteBuffer content = content(zip, data, compressedSize, size, method, inflater);
+                if (content == null) {
+                    continue;
+                }
+                if (!isJar) {
+                    visitor.visit(prefix + name, content);
+                } else if (!scanArchive(content, prefix + name + "!/", filter, visitor)) {
+                    throw new IOException(name + ": ZIP64 nested archives are not supported");
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        return true;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer zip) {
+        // the end record is 22 bytes long followed by a comment of up to 64K
+        int min = Math.max(0, zip.limit() - 22 - 0xFFFF);
+        for (int pos = zip.limit() - 22; pos >= min; pos--) {
+            if (zip.getInt(pos) == 0x06054b50) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return contents of the entry, {@code null} if it is compressed with an unsupported method
+     */
+    private static ByteBuffer content(ByteBuffer zip, int data, int compressedSize, int size, int method,
+                                      Inflater inflater) throws IOException
+    {
+        ByteBuffer compressed = zip.duplicate();
+        compressed.limit(data + compressedSize).position(data);
+        if (method == ZipEntry.STORED) {
+            return compressed.slice();
+        }
+        if (method != ZipEntry.DEFLATED) {
+            return null;
+        }
+        byte[] input = new byte[compressedSize];
+        compressed.get(input);
+        byte[] output = new byte[size];
+        inflater.reset();
+        inflater.setInput(input);
+        try {
+            int n = 0;
+            while ((n < size) && !inflater.finished()) {
+                int inflated = inflater.inflate(output, n, size - n);
+                if ((inflated == 0) && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        return ByteBuffer.wrap(output);
+    }
+
+    private static String string(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reports the classes referenced from the constant pool of a class file: the classes referenced directly,
+     * the types in field and method descriptors, generic signatures and annotations,
+     * and the string constants that look like class names.
+     * Array types and the classes of the unnamed package referenced only by descriptors are not reported.
+     *
+     * @return the class, {@code null} if the contents is not a class file
+     */
+    static ClassInfo scanClass(ByteBuffer b, ReferenceVisitor visitor) {
+        b.order(ByteOrder.BIG_ENDIAN);
+        int start = b.position();
+        if ((b.remaining() < 10) || (b.getInt(start) != 0xCAFEBABE)) {
+            return null;
+        }
+        int count = b.getShort(start + 8) & 0xFFFF;
+        byte[] tags = new byte[count];
+        int[] offsets = new int[count];
+        int pos = start + 10;
+        try {
+            for (int i = 1; i < count; i++) {
+                int tag = b.get(pos) & 0xFF;
+                tags[i] = (byte) tag;
+                offsets[i] = pos + 1;
+                switch (tag) {
+                    case 1: // Utf8
+                        pos += 3 + (b.getShort(pos + 1) & 0xFFFF);
+                        break;
+                    case 7: // Class
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        pos += 3;
+                        break;
+                    case 15: // MethodHandle
+                        pos += 4;
+                        break;
+                    case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+                        pos += 5;
+                        break;
+                    case 5: // Long and Double take two entries
+                    case 6:
+                        pos += 9;
+                        i++;
+                        break;
+                    default:
+                        return null;
+                }
+            }
+            int access = b.getShort(pos) & 0xFFFF;
+            String self = className(b, tags, offsets, b.getShort(pos + 2) & 0xFFFF);
+            if (self == null) {
+                return null;
+            }
+            for (int i = 1; i < count; i++) {
+                if (tags[i] == 1) {
+                    scanDescriptors(utf8(b, offsets[i]), self, visitor);
+                } else if (tags[i] == 8) {
+                    String value = utf8(b, offsets[b.getShort(offsets[i]) & 0xFFFF]);
+                    if (CLASS_NAME.matcher(value).matches()) {
+                        visitor.reference(self, value, true);
+                    }
+                } else if (tags[i] == 7) {
+                    String name = utf8(b, offsets[b.getShort(offsets[i]) & 0xFFFF]);
+                    if (!name.startsWith("[")) {
+                        visitor.reference(self, name.replace('/', '.'), false);
+                    }
+                }
+            }
+            return new ClassInfo(self, access);
+        } catch (IndexOutOfBoundsException e) {
+            // truncated or malformed class file, not loadable anyway
+            return null;
+        }
+    }
+
+    private static String className(ByteBuffer b, byte[] tags, int[] offsets, int index) {
+        if ((index >= tags.length) || (tags[index] != 7)) {
+            return null;
+        }
+        return utf8(b, offsets[b.getShort(offsets[index]) & 0xFFFF]).replace('/', '.');
+    }
+
+    /**
+     * Decodes a constant pool string. Non-ASCII characters are not decoded exactly,
+     * but consistently, so the same class gets the same name wherever it is referenced.
+     */
+    private static String utf8(ByteBuffer b, int offset) {
+        int length = b.getShort(offset) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = b.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Reports the class types ({@code Lpkg/Name;}) of field and method descriptors and generic signatures.
+     */
+    private static void scanDescriptors(String value, String from, ReferenceVisitor visitor) {
+        if (value.indexOf(';') < 0) {
+            return;
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if ((value.charAt(i) != 'L') || ((i > 0) && "([;<>)^+-*:".indexOf(value.charAt(i - 1)) < 0)) {
+                continue;
+            }
+            int end = i + 1;
+            while ((end < length) && (value.charAt(end) != ';') && (value.charAt(end) != '<')) {
+                end++;
+            }
+            if (end == length) {
+                return;
+            }
+            String name = value.substring(i + 1, end);
+            if (name.indexOf('/') > 0) {
+                visitor.reference(from, name.replace('/', '.'), false);
+            }
+            i = end;
+        }
+    }
+}
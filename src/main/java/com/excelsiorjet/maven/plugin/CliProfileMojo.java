@@ -36,6 +36,7 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
  * @author Nikita Lipsky
  */
 @Execute(phase = LifecyclePhase.PACKAGE)
-@Mojo(name = "profile", defaultPhase = LifecyclePhase.PACKAGE, requiresDependencyResolution = ResolutionScope.RUNTIME)
+@Mojo(name = "profile", defaultPhase = LifecyclePhase.PACKAGE, requiresDependencyResolution = ResolutionScope.RUNTIME,
+        threadSafe = true)
 public class CliProfileMojo extends ProfileMojo {
 }
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the smallest Java SE 8 compact profile the application code can run on.
+ * <p>
+ * The analyzer reads the constant pools of all classes in the given jars (including the jars nested into them,
+ * such as {@code WEB-INF/lib} or {@code BOOT-INF/lib}), and collects the referenced Java SE classes:
+ * the classes referenced directly, the types in field and method descriptors and generic signatures,
+ * and the string constants that look like Java SE class names, as such constants are usually passed
+ * to {@link Class#forName}. Java SE classes defined by the scanned jars themselves
+ * (e.g. {@code javax.annotation} of JSR-250) are not counted, and other unknown {@code javax} packages
+ * are considered third-party.
+ * </p>
+ * <p>
+ * The jars are scanned in parallel with {@link BytecodeScanner}, so that only the class files are inflated.
+ * </p>
+ * <p>
+ * The analysis cannot see the classes loaded by names computed at run time,
+ * so a Test Run of the compiled application is still recommended.
+ * </p>
+ */
+class CompactProfileAnalyzer {
+
+    static final String AUTO = "auto";
+
+    static final String[] PROFILES = {"compact1", "compact2", "compact3", "full"};
+
+    private static final int FULL = 3;
+
+    /**
+     * Java SE packages by profile, "pkg.*" stands for the package and its subpackages.
+     * Packages of {@code java} not listed here belong to the full profile.
+     */
+    private static final String[][] PACKAGES = {
+            {
+                    "java.io", "java.lang", "java.lang.annotation", "java.lang.invoke", "java.lang.ref",
+                    "java.lang.reflect", "java.math", "java.net", "java.nio.*", "java.security",
+                    "java.security.cert", "java.security.interfaces", "java.security.spec", "java.text",
+                    "java.text.spi", "java.time.*", "java.util", "java.util.concurrent.*", "java.util.function",
+                    "java.util.jar", "java.util.logging", "java.util.regex", "java.util.spi", "java.util.stream",
+                    "java.util.zip", "javax.crypto.*", "javax.net.*", "javax.script", "javax.security.auth",
+                    "javax.security.auth.callback", "javax.security.auth.login", "javax.security.auth.spi",
+                    "javax.security.auth.x500", "javax.security.cert",
+            },
+            {
+                    "java.rmi.*", "java.sql", "javax.rmi.ssl", "javax.sql", "javax.transaction.xa", "javax.xml",
+                    "javax.xml.datatype", "javax.xml.namespace", "javax.xml.parsers", "javax.xml.stream.*",
+                    "javax.xml.transform.*", "javax.xml.validation", "javax.xml.xpath", "org.w3c.dom",
+                    "org.w3c.dom.bootstrap", "org.w3c.dom.events", "org.w3c.dom.ls", "org.xml.sax.*",
+            },
+            {
+                    "java.lang.instrument", "java.lang.management", "java.security.acl", "java.util.prefs",
+                    "javax.annotation.processing", "javax.lang.model.*", "javax.management.*", "javax.naming.*",
+                    "javax.security.auth.kerberos", "javax.security.sasl", "javax.smartcardio", "javax.sql.rowset.*",
+                    "javax.tools", "javax.xml.crypto.*", "org.ietf.jgss",
+            },
+            {
+                    "javax.accessibility", "javax.activation", "javax.activity", "javax.annotation",
+                    "javax.imageio.*", "javax.jws.*", "javax.print.*", "javax.rmi", "javax.rmi.CORBA",
+                    "javax.sound.*", "javax.swing.*", "javax.transaction", "javax.xml.bind.*", "javax.xml.soap",
+                    "javax.xml.ws.*", "org.omg.*", "org.w3c.dom.*",
+            },
+    };
+
+    private static final Map<String, Integer> LEVELS = new HashMap<>();
+
+    static {
+        for (int level = 0; level < PACKAGES.length; level++) {
+            for (String pkg : PACKAGES[level]) {
+                LEVELS.put(pkg, level);
+            }
+        }
+    }
+
+    private static final String[] ROOTS = {"java.", "javax.", "org.w3c.", "org.xml.", "org.omg.", "org.ietf."};
+
+    private static final Pattern CLASS_NAME = Pattern.compile(
+            "(java|javax|org\\.w3c|org\\.xml|org\\.omg|org\\.ietf)(\\.[a-z][a-z0-9_]*)*\\.[A-Z][A-Za-z0-9_$]*");
+
+    /**
+     * Reference from the application code to a Java SE class.
+     */
+    static class Reference implements Comparable<Reference> {
+        final String target;
+        final String from;
+        final boolean reflective;
+        final int level;
+
+        Reference(String target, String from, boolean reflective, int level) {
+            this.target = target;
+            this.from = from;
+            this.reflective = reflective;
+            this.level = level;
+        }
+
+        String profile() {
+            return PROFILES[level];
+        }
+
+        @Override
+        public int compareTo(Reference o) {
+            return target.compareTo(o.target);
+        }
+    }
+
+    /**
+     * Result of the analysis.
+     */
+    static class Result {
+        final List<Reference> references;
+        final int level;
+        final int jars;
+        final int classes;
+
+        Result(List<Reference> references, int jars, int classes) {
+            this.references = references;
+            this.level = references.stream().mapToInt(r -> r.level).max().orElse(0);
+            this.jars = jars;
+            this.classes = classes;
+        }
+
+        /**
+         * @return the smallest profile that contains all referenced Java SE classes
+         */
+        String profile() {
+            return PROFILES[level];
+        }
+
+        /**
+         * @return the references that prevent the use of a smaller profile
+         */
+        List<Reference> blockers() {
+            if (level == 0) {
+                return Collections.emptyList();
+            }
+            return references.stream().filter(r -> r.level == level).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Classes defined and referenced by a single jar.
+     */
+    private static class Scan {
+        final Set<String> defined = new HashSet<>();
+        final Map<String, Reference> references = new HashMap<>();
+        int classes;
+
+        void reference(String target, String from, boolean reflective) {
+            if (references.containsKey(target)) {
+                return;
+            }
+            int level = levelOf(target);
+            if (level >= 0) {
+                references.put(target, new Reference(target, from, reflective, level));
+            }
+        }
+    }
+
+    private final int threads;
+
+    /**
+     * @param threads number of scanning threads
+     */
+    CompactProfileAnalyzer(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @return the index of the smallest profile containing the given class in {@link #PROFILES},
+     *         or -1 if the class does not belong to Java SE
+     */
+    static int levelOf(String className) {
+        if (!isJavaSeName(className)) {
+            return -1;
+        }
+        int dot = className.lastIndexOf('.');
+        String pkg = className.substring(0, dot);
+        Integer level = LEVELS.get(pkg);
+        for (String p = pkg; (level == null) && (p.indexOf('.') > 0); p = p.substring(0, p.lastIndexOf('.'))) {
+            level = LEVELS.get(p + ".*");
+        }
+        if (level != null) {
+            return level;
+        }
+        return className.startsWith("java.") ? FULL : -1;
+    }
+
+    private static boolean isJavaSeName(String className) {
+        for (String root : ROOTS) {
+            if (className.startsWith(root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scans the given jars or class directories.
+     */
+    Result analyze(Collection<File> classpath) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "JET profile analyzer " + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            List<Future<Scan>> futures = new ArrayList<>();
+            for (File file : classpath) {
+                futures.add(executor.submit(() -> scan(file)));
+            }
+            Set<String> defined = new HashSet<>();
+            Map<String, Reference> references = new HashMap<>();
+            int classes = 0;
+            // merge in the classpath order, so the same reference is reported regardless of the scanning order
+            for (Future<Scan> future : futures) {
+                Scan scan = await(future);
+                defined.addAll(scan.defined);
+                scan.references.forEach(references::putIfAbsent);
+                classes += scan.classes;
+            }
+            List<Reference> result = references.values().stream()
+                    .filter(r -> !defined.contains(r.target))
+                    .sorted()
+                    .collect(Collectors.toList());
+            return new Result(result, classpath.size(), classes);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Scan await(Future<Scan> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static Scan scan(File file) throws IOException {
+        Scan scan = new Scan();
+        BytecodeScanner.scan(file, name -> name.endsWith(".class"), (name, content) -> {
+            BytecodeScanner.ClassInfo info = BytecodeScanner.scanClass(content, (from, target, reflective) -> {
+                if (!reflective || CLASS_NAME.matcher(target).matches()) {
+                    scan.reference(target, from, reflective);
+                }
+            });
+            if (info != null) {
+                scan.classes++;
+                if (isJavaSeName(info.name)) {
+                    scan.defined.add(info.name);
+                }
+            }
+        });
+        return scan;
+    }
+}
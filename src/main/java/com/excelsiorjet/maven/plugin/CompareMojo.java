@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import com.excelsiorjet.api.tasks.config.ApplicationType;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Mojo comparing the application run on a regular JVM with the executable built with Excelsior JET.
+ * <p>
+ * The same entry point, {@link #runArgs} and {@link #jvmArgs} are used for both: the JVM runs the main artifact
+ * with {@link #getDependencies()} on the classpath (or the Spring Boot jar as is), and the executable is run
+ * from {@link #jetAppDir}. For each, the startup is measured as in {@code jet:startup-bench}, and if
+ * {@link #compareWorkload} is set, the application is run once more under the workload (see
+ * {@link WorkloadBenchmark}) to measure the time to the steady state, the throughput and the peak RSS.
+ * The on-disk size of the application with its runtime is reported as well.
+ * </p>
+ * <p>
+ * The results are saved to {@code compare.json} and {@code compare.md} in {@link #jetOutputDir}.
+ * The application must have been built before, e.g. with {@code jet:build}.
+ * </p>
+ */
+@Mojo(name = "compare", defaultPhase = LifecyclePhase.INTEGRATION_TEST,
+        requiresDependencyResolution = ResolutionScope.RUNTIME, threadSafe = true)
+public class CompareMojo extends StartupBenchMojo {
+
+    static final String REPORT_FILE_NAME = "compare.json";
+
+    static final String MARKDOWN_FILE_NAME = "compare.md";
+
+    /**
+     * Workload command run against the application, an executable followed by its arguments,
+     * e.g. an HTTP load generator or a script driving the application. It is run from the project base directory.
+     * If not set, only the startup, the startup memory and the on-disk size are compared.
+     */
+    @Parameter(property = "jet.compare.workload")
+    protected String[] compareWorkload;
+
+    /**
+     * Number of the workload command runs against each application.
+     */
+    @Parameter(property = "jet.compare.iterations", defaultValue = "10")
+    protected int compareIterations;
+
+    /**
+     * Maximum slowdown in percent of a workload iteration against the median of the last half of the iterations
+     * for the application to be considered in the steady state.
+     */
+    @Parameter(property = "jet.compare.tolerance", defaultValue = "5")
+    protected double compareTolerance;
+
+    /**
+     * Java installation to run the application on. Default value is the one running Maven.
+     */
+    @Parameter(property = "jet.compare.javaHome")
+    protected File compareJavaHome;
+
+    /**
+     * Conditions for the application to be considered ready for the workload.
+     * If not set, the application is considered ready once it prints the first line.
+     *
+     * @see ReadinessConfig#port
+     * @see ReadinessConfig#url
+     * @see ReadinessConfig#logPattern
+     */
+    @Parameter
+    protected ReadinessConfig readiness;
+
+    /**
+     * Measurements of the application on one of the runtimes.
+     */
+    static class Variant {
+        final String id;
+        final String name;
+        final List<String> command;
+        final List<StartupBenchmark.Run> startup = new ArrayList<>();
+        WorkloadBenchmark.Result workload;
+        final Map<String, Long> sizeBytes = new LinkedHashMap<>();
+
+        Variant(String id, String name, List<String> command) {
+            this.id = id;
+            this.name = name;
+            this.command = command;
+        }
+
+        long totalSizeBytes() {
+            return sizeBytes.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        init();
+        if (!isSupportedPackaging()) {
+            logger.warn(s("JetMavenPlugin.UnsupportedPackaging.Mojo.Warning", project.getPackaging(), project.getName()));
+            return;
+        }
+        try {
+            if (getAppType() == ApplicationType.TOMCAT) {
+                throw new JetTaskFailureException(s("JetMavenPlugin.Compare.Tomcat.Failure"));
+            }
+            boolean untilFirstLine = checkStartupBenchSettings();
+            File javaHome = (compareJavaHome != null) ? compareJavaHome : new File(System.getProperty("java.home"));
+            // the main artifact followed by the jar dependencies
+            List<File> classpath = new ArrayList<>(getProfiledClasspath().values());
+            Variant jvm = new Variant("jvm", "HotSpot", jvmCommand(javaHome, classpath));
+            for (File jar : classpath) {
+                jvm.sizeBytes.merge("application", jar.length(), Long::sum);
+            }
+            jvm.sizeBytes.put("runtime", sizeOf(javaHome));
+            File jvmDir = new File(getJetBuildDir(), "compare-jvm");
+            jvmDir.mkdirs();
+
+            File executable = findExecutable(getJetAppDir());
+            Map<String, String> environment = new HashMap<>();
+            List<String> nativeCommand = new ArrayList<>();
+            nativeCommand.add(executable.getAbsolutePath());
+            nativeCommand.addAll(executableArguments(environment));
+            Variant jet = new Variant("native", "Excelsior JET", nativeCommand);
+            jet.sizeBytes.put("application", sizeOf(getJetAppDir()));
+
+            measure(jvm, Collections.emptyMap(), jvmDir, untilFirstLine);
+            measure(jet, environment, getJetAppDir(), untilFirstLine);
+
+            File report = new File(getJetOutputDir(), REPORT_FILE_NAME);
+            Map<String, Object> root = new LinkedHashMap<>();
+            root.put("module", project.getId());
+            root.put("until", startupBenchUntil);
+            root.put("workload", (compareWorkload != null) ? Arrays.asList(compareWorkload) : null);
+            root.put("iterations", compareIterations);
+            root.put("tolerancePercent", compareTolerance);
+            root.put(jvm.id, toJson(jvm, Collections.emptyMap()));
+            root.put(jet.id, toJson(jet, new TreeMap<>(environment)));
+            Json.write(report, root);
+            File markdown = new File(getJetOutputDir(), MARKDOWN_FILE_NAME);
+            List<String> table = markdown(jvm, jet);
+            Files.write(markdown.toPath(), table, StandardCharsets.UTF_8);
+            logger.info(s("JetMavenPlugin.Compare.Summary.Info", report, markdown));
+            for (String line : table.subList(2, table.size())) {
+                logger.info("  " + line);
+            }
+        } catch (JetTaskFailureException e) {
+            throw new MojoFailureException(e.getMessage());
+        } catch (IOException e) {
+            logger.debug("JetTask execution error", e);
+            logger.error(e.getMessage());
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    private List<String> jvmCommand(File javaHome, List<File> classpath) throws JetTaskFailureException, IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(javaHome, "bin"), "java").getAbsolutePath());
+        if (jvmArgs != null) {
+            command.addAll(Arrays.asList(jvmArgs));
+        }
+        if (getAppType() == ApplicationType.SPRING_BOOT) {
+            // Spring Boot jars carry their dependencies and launcher
+            command.add("-jar");
+            command.add(getMainArtifact().getAbsolutePath());
+        } else {
+            command.add("-cp");
+            command.add(classpath.stream().map(File::getAbsolutePath).collect(Collectors.joining(File.pathSeparator)));
+            command.add(mainClassOf(getMainArtifact()));
+        }
+        if (runArgs != null) {
+            command.addAll(Arrays.asList(runArgs));
+        }
+        return command;
+    }
+
+    private String mainClassOf(File jar) throws JetTaskFailureException, IOException {
+        if (mainClass != null) {
+            return mainClass;
+        }
+        if (jar.isFile()) {
+            try (JarFile jarFile = new JarFile(jar)) {
+                Manifest manifest = jarFile.getManifest();
+                String main = (manifest != null) ? manifest.getMainAttributes().getValue("Main-Class") : null;
+                if (main != null) {
+                    return main;
+                }
+            }
+        }
+        throw new JetTaskFailureException(s("JetMavenPlugin.Compare.NoMainClass.Failure", jar));
+    }
+
+    /**
+     * Measures the startup of the application and, if {@link #compareWorkload} is set,
+     * the application under the workload.
+     *
+     * @param workDir working directory of the application
+     */
+    protected void measure(Variant variant, Map<String, String> environment, File workDir, boolean untilFirstLine)
+            throws IOException, InterruptedException, JetTaskFailureException
+    {
+        logger.info(s("JetMavenPlugin.Compare.Startup.Info", variant.name, startupBenchWarmupRuns, startupBenchRuns));
+        StartupBenchmark benchmark = new StartupBenchmark(variant.command, environment, untilFirstLine,
+                startupBenchTimeout * 1000L);
+        try {
+            for (int i = 0; i < startupBenchWarmupRuns + startupBenchRuns; i++) {
+                StartupBenchmark.Run run = benchmark.run(workDir);
+                if ((run.exitCode != null) && (run.exitCode != 0)) {
+                    throw new JetTaskFailureException(s("JetMavenPlugin.Compare.NonZeroExitCode.Failure",
+                            variant.name, run.exitCode, String.join(" ", variant.command)));
+                }
+                if (i >= startupBenchWarmupRuns) {
+                    variant.startup.add(run);
+                }
+            }
+        } catch (TimeoutException e) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.StartupBench.Timeout.Failure", startupBenchTimeout));
+        }
+        if ((compareWorkload == null) || (compareWorkload.length == 0)) {
+            return;
+        }
+        ReadinessConfig ready = readiness;
+        if ((ready == null) || !ready.isEnabled()) {
+            ready = new ReadinessConfig();
+            // matches any line
+            ready.logPattern = "^";
+        }
+        logger.info(s("JetMavenPlugin.Compare.Workload.Info", variant.name, compareIterations));
+        WorkloadBenchmark workload = new WorkloadBenchmark(Arrays.asList(compareWorkload), project.getBasedir(),
+                compareIterations, compareTolerance / 100, ready, startupBenchTimeout * 1000L);
+        File log = new File(getJetBuildDir(), "workload-" + variant.id + ".log");
+        log.getParentFile().mkdirs();
+        try {
+            variant.workload = workload.run(variant.command, environment, workDir, log);
+        } catch (TimeoutException e) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.Compare.WorkloadTimeout.Failure", startupBenchTimeout));
+        }
+    }
+
+    private Map<String, Object> toJson(Variant variant, Map<String, String> environment) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("command", variant.command);
+        result.put("environment", environment);
+        result.put("startupMillis", median(variant.startup, r -> r.millis));
+        result.put("startupPeakRssKB", median(variant.startup, r -> r.peakRssKB));
+        result.put("startupRunsMillis", variant.startup.stream().map(r -> round(r.millis)).collect(Collectors.toList()));
+        WorkloadBenchmark.Result workload = variant.workload;
+        if (workload != null) {
+            Map<String, Object> w = new LinkedHashMap<>();
+            w.put("readyMillis", workload.readyMillis);
+            w.put("timeToSteadyStateMillis", workload.timeToSteadyStateMillis);
+            w.put("steadyIteration", (workload.steadyIteration >= 0) ? workload.steadyIteration : null);
+            w.put("iterationsPerSecond", (workload.throughput != null) ? round(workload.throughput) : null);
+            w.put("peakRssKB", workload.peakRssKB);
+            w.put("iterationMillis", workload.iterationMillis.stream().map(CompareMojo::round)
+                    .collect(Collectors.toList()));
+            result.put("workload", w);
+        }
+        result.put("sizeBytes", variant.sizeBytes);
+        result.put("totalSizeBytes", variant.totalSizeBytes());
+        return result;
+    }
+
+    static Double median(List<StartupBenchmark.Run> runs, Function<StartupBenchmark.Run, Number> metric) {
+        double[] values = new double[runs.size()];
+        for (int i = 0; i < values.length; i++) {
+            Number value = metric.apply(runs.get(i));
+            if (value == null) {
+                return null;
+            }
+            values[i] = value.doubleValue();
+        }
+        return (values.length > 0) ? round(new SampleStatistics(values).percentile(50)) : null;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private List<String> markdown(Variant jvm, Variant jet) {
+        List<String> lines = new ArrayList<>();
+        lines.add("# " + jvm.name + " vs " + jet.name + ": " + project.getId());
+        lines.add("");
+        lines.add("| Metric | " + jvm.name + " | " + jet.name + " | " + jet.name + " / " + jvm.name + " |");
+        lines.add("|---|---:|---:|---:|");
+        row(lines, "Startup time, ms (median)", median(jvm.startup, r -> r.millis), median(jet.startup, r -> r.millis));
+        row(lines, "Startup peak RSS, MB (median)", median(jvm.startup, r -> megabytes(r.peakRssKB, 1024)),
+                median(jet.startup, r -> megabytes(r.peakRssKB, 1024)));
+        if ((jvm.workload != null) && (jet.workload != null)) {
+            row(lines, "Time to ready, ms", (double) jvm.workload.readyMillis, (double) jet.workload.readyMillis);
+            row(lines, "Time to steady state, ms", number(jvm.workload.timeToSteadyStateMillis),
+                    number(jet.workload.timeToSteadyStateMillis));
+            row(lines, "Throughput, workload runs/s", jvm.workload.throughput, jet.workload.throughput);
+            row(lines, "Peak RSS under workload, MB", megabytes(jvm.workload.peakRssKB, 1024),
+                    megabytes(jet.workload.peakRssKB, 1024));
+        }
+        row(lines, "On-disk size with runtime, MB", megabytes(jvm.totalSizeBytes(), 1024 * 1024),
+                megabytes(jet.totalSizeBytes(), 1024 * 1024));
+        return lines;
+    }
+
+    private static Double number(Long value) {
+        return (value != null) ? value.doubleValue() : null;
+    }
+
+    private static Double megabytes(Long value, long unitsPerMegabyte) {
+        return (value != null) ? (double) value / unitsPerMegabyte : null;
+    }
+
+    private static void row(List<String> lines, String metric, Double jvm, Double jet) {
+        String ratio = ((jvm != null) && (jet != null) && (jvm != 0)) ?
+                String.format(Locale.ROOT, "%.2f", jet / jvm) : "n/a";
+        lines.add("| " + metric + " | " + cell(jvm) + " | " + cell(jet) + " | " + ratio + " |");
+    }
+
+    private static String cell(Double value) {
+        return (value != null) ? String.format(Locale.ROOT, "%.1f", value) : "n/a";
+    }
+
+    static long sizeOf(File dir) throws IOException {
+        if (!dir.exists()) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(dir.toPath())) {
+            return files.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches directory trees for changes and reports them in bursts.
+ * <p>
+ * A build tool or an IDE usually writes many files at once, so the changes are collected until
+ * no more changes happen within the debounce interval. Subdirectories created in the watched trees are
+ * watched as well, and the directories that do not exist yet are picked up once they appear.
+ * </p>
+ */
+class DirectoryWatcher implements AutoCloseable {
+
+    private final WatchService service;
+    private final List<Path> roots;
+    private final Set<Path> pendingRoots = new LinkedHashSet<>();
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+    private final Map<Path, Long> ignored = new HashMap<>();
+
+    /**
+     * @param roots directories to watch, that may not exist yet
+     */
+    DirectoryWatcher(Collection<Path> roots) throws IOException {
+        this.service = FileSystems.getDefault().newWatchService();
+        this.roots = new ArrayList<>();
+        for (Path root : roots) {
+            this.roots.add(root.toAbsolutePath().normalize());
+        }
+        for (Path root : this.roots) {
+            if (Files.isDirectory(root)) {
+                register(root, null);
+            } else {
+                pendingRoots.add(root);
+            }
+        }
+    }
+
+    private void register(Path dir, Set<Path> created) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+                keys.put(d.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), d);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                // files created along with a new directory may be written before it is watched
+                if (created != null) {
+                    created.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Suppresses the next change of the given file if it still has the given modification time,
+     * so that the files written by the watching code itself do not trigger another burst.
+     */
+    synchronized void ignore(Path file, long lastModified) {
+        ignored.put(file.toAbsolutePath().normalize(), lastModified);
+    }
+
+    /**
+     * Waits for changes and returns them once the watched directories have been quiet for the given interval.
+     *
+     * @param debounceMillis quiet interval that ends a burst of changes
+     * @return changed, created and deleted files and directories
+     */
+    Set<Path> await(long debounceMillis) throws IOException, InterruptedException {
+        Set<Path> changed = new TreeSet<>();
+        while (true) {
+            // while idle, the same interval is used to look for the roots that do not exist yet
+            WatchKey key = service.poll(debounceMillis, TimeUnit.MILLISECONDS);
+            if (key == null) {
+                checkPendingRoots(changed);
+                if (!changed.isEmpty()) {
+                    return changed;
+                }
+                continue;
+            }
+            collect(key, changed);
+            // take the events already queued without waiting
+            while ((key = service.poll()) != null) {
+                collect(key, changed);
+            }
+        }
+    }
+
+    private void checkPendingRoots(Set<Path> changed) throws IOException {
+        for (Iterator<Path> it = pendingRoots.iterator(); it.hasNext(); ) {
+            Path root = it.next();
+            if (Files.isDirectory(root)) {
+                it.remove();
+                changed.add(root);
+                register(root, changed);
+            }
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) throws IOException {
+        Path dir = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // events were lost, so report all watched roots
+                changed.addAll(roots);
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (isIgnored(path)) {
+                continue;
+            }
+            changed.add(path);
+            if ((event.kind() == ENTRY_CREATE) && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                register(path, changed);
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+            if (roots.contains(dir)) {
+                // the root itself was deleted, wait for it to be recreated
+                pendingRoots.add(dir);
+            }
+        }
+    }
+
+    private synchronized boolean isIgnored(Path path) {
+        Long lastModified = ignored.get(path);
+        if (lastModified == null) {
+            return false;
+        }
+        try {
+            if (Files.getLastModifiedTime(path).toMillis() == lastModified) {
+                return true;
+            }
+        } catch (IOException e) {
+            // deleted since, so it is a real change
+        }
+        ignored.remove(path);
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        service.close();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Unix file mode helpers for archives produced by the plugin.
+ * On file systems without POSIX permissions, the mode is derived from the executable flag.
+ */
+public class FileModes {
+
+    /**
+     * @return permission bits of the file (not including the file type)
+     */
+    public static int modeOf(Path path) throws IOException {
+        try {
+            int mode = 0;
+            for (PosixFilePermission perm : Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS)) {
+                mode |= 0400 >> perm.ordinal();
+            }
+            return mode;
+        } catch (UnsupportedOperationException e) {
+            return (Files.isDirectory(path) || path.toFile().canExecute()) ? 0755 : 0644;
+        }
+    }
+
+    /**
+     * Sets permission bits of the file.
+     */
+    public static void setMode(Path path, int mode) throws IOException {
+        Set<PosixFilePermission> perms = EnumSet.noneOf(PosixFilePermission.class);
+        for (PosixFilePermission perm : PosixFilePermission.values()) {
+            if ((mode & (0400 >> perm.ordinal())) != 0) {
+                perms.add(perm);
+            }
+        }
+        try {
+            Files.setPosixFilePermissions(path, perms);
+        } catch (UnsupportedOperationException e) {
+            path.toFile().setExecutable((mode & 0100) != 0);
+        }
+    }
+}
@@ -0,0 +1,597 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP/1.1 load generator driving a fixed number of keep-alive connections from a single thread
+ * with non-blocking I/O.
+ * <p>
+ * Without a rate, each connection sends the next request as soon as it receives the response to the previous one
+ * (closed model). With a rate, requests are sent on schedule (open model), and the latency of a request is measured
+ * from the moment it was scheduled at, so the time it waited for a free connection is included.
+ * </p>
+ * <p>
+ * Responses with 4xx and 5xx status codes, timeouts and connection failures during a request are counted as errors.
+ * Only plain HTTP is supported.
+ * </p>
+ */
+class HttpLoadDriver {
+
+    static final long REQUEST_TIMEOUT_MILLIS = 10000;
+
+    private static final long RECONNECT_DELAY_MILLIS = 100;
+
+    /**
+     * A request of the workload.
+     */
+    static class Request {
+        final String name;
+        final byte[] bytes;
+        final boolean head;
+        final double weight;
+
+        Request(String method, URI uri, Map<String, String> headers, byte[] body, double weight) {
+            StringBuilder request = new StringBuilder();
+            String path = (uri.getRawPath() == null || uri.getRawPath().isEmpty()) ? "/" : uri.getRawPath();
+            if (uri.getRawQuery() != null) {
+                path += "?" + uri.getRawQuery();
+            }
+            request.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+            request.append("Host: ").append(uri.getHost()).append(':').append(port(uri)).append("\r\n");
+            boolean hasAccept = false;
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                request.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+                hasAccept |= header.getKey().equalsIgnoreCase("Accept");
+            }
+            if (!hasAccept) {
+                request.append("Accept: */*\r\n");
+            }
+            if ((body != null) || method.equals("POST") || method.equals("PUT")) {
+                request.append("Content-Length: ").append((body != null) ? body.length : 0).append("\r\n");
+            }
+            request.append("\r\n");
+            byte[] head = request.toString().getBytes(StandardCharsets.ISO_8859_1);
+            this.bytes = (body == null) ? head : Arrays.copyOf(head, head.length + body.length);
+            if (body != null) {
+                System.arraycopy(body, 0, bytes, head.length, body.length);
+            }
+            this.name = method + " " + uri;
+            this.head = method.equals("HEAD");
+            this.weight = weight;
+        }
+
+        static int port(URI uri) {
+            return (uri.getPort() > 0) ? uri.getPort() : 80;
+        }
+    }
+
+    /**
+     * Results of a load test.
+     */
+    static class Result {
+        final long requests;
+        final long errors;
+        final Map<String, Long> errorKinds;
+        final long durationMillis;
+        /**
+         * Latencies of the successful requests in microseconds, sorted.
+         */
+        final int[] latencies;
+        /**
+         * Number of requests completed in each second of the test.
+         */
+        final long[] perSecond;
+
+        Result(long requests, long errors, Map<String, Long> errorKinds, long durationMillis, int[] latencies,
+               long[] perSecond)
+        {
+            this.requests = requests;
+            this.errors = errors;
+            this.errorKinds = errorKinds;
+            this.durationMillis = durationMillis;
+            this.latencies = latencies;
+            this.perSecond = perSecond;
+        }
+
+        double throughput() {
+            return (durationMillis > 0) ? requests * 1000.0 / durationMillis : 0;
+        }
+
+        double errorRate() {
+            return (requests > 0) ? (double) errors / requests : 0;
+        }
+
+        /**
+         * @param p percentile, e.g. 0.99
+         * @return latency in milliseconds
+         */
+        double latencyMillis(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = Math.min(latencies.length - 1, Math.max(0, (int) Math.ceil(p * latencies.length) - 1));
+            return latencies[index] / 1000.0;
+        }
+
+        /**
+         * @return time since the start of the test until the throughput first reached 90% of its peak,
+         *         the last (incomplete) second not counted
+         */
+        long timeToPeakMillis() {
+            int seconds = Math.max(1, perSecond.length - 1);
+            long peak = 0;
+            for (int i = 0; i < seconds && i < perSecond.length; i++) {
+                peak = Math.max(peak, perSecond[i]);
+            }
+            for (int i = 0; i < seconds && i < perSecond.length; i++) {
+                if (perSecond[i] >= peak * 0.9) {
+                    return (i + 1) * 1000L;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private final List<Request> requests;
+    private final InetSocketAddress address;
+    private final int concurrency;
+    private final long durationNanos;
+    private final double rate;
+    private final double totalWeight;
+    private final Random random = new Random(42);
+
+    private long completed;
+    private long errors;
+    private final Map<String, Long> errorKinds = new TreeMap<>();
+    private int[] latencies = new int[1024];
+    private int latencyCount;
+    private long[] perSecond;
+    private long startNanos;
+
+    /**
+     * @param requests requests of the workload, all to the same host and port
+     * @param concurrency number of connections
+     * @param durationMillis duration of the test
+     * @param rate requests per second, 0 to send requests as fast as the connections permit
+     */
+    HttpLoadDriver(List<Request> requests, InetSocketAddress address, int concurrency, long durationMillis,
+                   double rate)
+    {
+        this.requests = requests;
+        this.address = address;
+        this.concurrency = concurrency;
+        this.durationNanos = TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        this.rate = rate;
+        this.totalWeight = requests.stream().mapToDouble(r -> r.weight).sum();
+        this.perSecond = new long[(int) (durationMillis / 1000) + 2];
+    }
+
+    private Request nextRequest() {
+        double point = random.nextDouble() * totalWeight;
+        for (Request request : requests) {
+            point -= request.weight;
+            if (point < 0) {
+                return request;
+            }
+        }
+        return requests.get(requests.size() - 1);
+    }
+
+    /**
+     * Runs the test in the calling thread.
+     */
+    Result run() throws IOException {
+        try (Selector selector = Selector.open()) {
+            startNanos = System.nanoTime();
+            long endNanos = startNanos + durationNanos;
+            long intervalNanos = (rate > 0) ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+            long scheduled = 0;
+            List<Connection> connections = new ArrayList<>();
+            Deque<Connection> idle = new ArrayDeque<>();
+            for (int i = 0; i < concurrency; i++) {
+                Connection connection = new Connection();
+                connections.add(connection);
+                connection.open(selector, startNanos);
+            }
+            while (true) {
+                long now = System.nanoTime();
+                for (Connection connection : connections) {
+                    if ((connection.channel == null) && (now >= connection.reconnectNanos) && (now < endNanos)) {
+                        connection.open(selector, now);
+                    } else if ((connection.request != null) &&
+                            (now - connection.sentNanos > TimeUnit.MILLISECONDS.toNanos(REQUEST_TIMEOUT_MILLIS)))
+                    {
+                        connection.fail("timeout", now);
+                    }
+                    if (connection.isIdle() && !connection.queued) {
+                        connection.queued = true;
+                        idle.add(connection);
+                    }
+                }
+                long waitNanos = TimeUnit.MILLISECONDS.toNanos(10);
+                while ((now < endNanos) && !idle.isEmpty()) {
+                    Connection connection = idle.poll();
+                    connection.queued = false;
+                    if (!connection.isIdle()) {
+                        continue;
+                    }
+                    if (intervalNanos > 0) {
+                        long intended = startNanos + scheduled * intervalNanos;
+                        if (intended > now) {
+                            connection.queued = true;
+                            idle.addFirst(connection);
+                            waitNanos = Math.min(waitNanos, intended - now);
+                            break;
+                        }
+                        scheduled++;
+                        connection.send(nextRequest(), intended);
+                    } else {
+                        connection.send(nextRequest(), now);
+                    }
+                }
+                if ((now >= endNanos) && connections.stream().noneMatch(c -> c.request != null)) {
+                    break;
+                }
+                selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+                now = System.nanoTime();
+                for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    ((Connection) key.attachment()).handle(key, now);
+                }
+            }
+            for (Connection connection : connections) {
+                connection.close();
+            }
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(Math.min(System.nanoTime(), endNanos) - startNanos);
+            int[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            int seconds = (int) Math.min(perSecond.length, (durationMillis + 999) / 1000);
+            return new Result(completed, errors, errorKinds, durationMillis, sorted, Arrays.copyOf(perSecond, seconds));
+        }
+    }
+
+    private void record(Request request, long intendedNanos, long now) {
+        completed++;
+        int second = (int) ((now - startNanos) / TimeUnit.SECONDS.toNanos(1));
+        if (second < perSecond.length) {
+            perSecond[second]++;
+        }
+        if (latencyCount == latencies.length) {
+            latencies = Arrays.copyOf(latencies, latencies.length * 2);
+        }
+        latencies[latencyCount++] = (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMicros(now - intendedNanos));
+    }
+
+    private void error(String kind, boolean duringRequest) {
+        if (duringRequest) {
+            completed++;
+            errors++;
+        }
+        errorKinds.merge(kind, 1L, Long::sum);
+    }
+
+    /**
+     * A keep-alive connection, that is idle, connecting or running a request.
+     */
+    private class Connection {
+        Selector selector;
+        SocketChannel channel;
+        SelectionKey key;
+        boolean connected;
+        boolean queued;
+        long reconnectNanos;
+        /**
+         * Number of responses received over the current connection.
+         */
+        int served;
+        Request request;
+        long intendedNanos;
+        long sentNanos;
+        boolean received;
+        ByteBuffer out;
+        final ByteBuffer in = ByteBuffer.allocate(16 * 1024);
+        final ResponseParser parser = new ResponseParser();
+
+        void open(Selector selector, long now) {
+            this.selector = selector;
+            served = 0;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                connected = channel.connect(address);
+                key = channel.register(selector, connected ? 0 : SelectionKey.OP_CONNECT, this);
+                if (connected && (request != null)) {
+                    write();
+                }
+            } catch (IOException e) {
+                fail("connect: " + e.getMessage(), now);
+            }
+        }
+
+        boolean isIdle() {
+            return connected && (request == null);
+        }
+
+        void send(Request request, long intendedNanos) {
+            this.request = request;
+            this.intendedNanos = intendedNanos;
+            this.sentNanos = System.nanoTime();
+            write();
+        }
+
+        private void write() {
+            out = ByteBuffer.wrap(request.bytes);
+            received = false;
+            parser.reset(request.head);
+            in.clear();
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+
+        void handle(SelectionKey key, long now) {
+            try {
+                if (key.isConnectable()) {
+                    channel.finishConnect();
+                    connected = true;
+                    key.interestOps(0);
+                    if (request != null) {
+                        write();
+                    }
+                    return;
+                }
+                if (key.isWritable()) {
+                    channel.write(out);
+                    if (!out.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                    return;
+                }
+                if (key.isReadable()) {
+                    int n = channel.read(in);
+                    received |= (n > 0);
+                    in.flip();
+                    boolean done = (n < 0) ? parser.eof() : parser.feed(in);
+                    in.clear();
+                    if (done) {
+                        complete(now);
+                        if (parser.close || (n < 0)) {
+                            close();
+                            reconnectNanos = now;
+                        }
+                    } else if (n < 0) {
+                        fail("connection closed", now);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(connected ? "I/O: " + e.getMessage() : "connect: " + e.getMessage(), now);
+            }
+        }
+
+        private void complete(long now) {
+            if (parser.status >= 400) {
+                error("HTTP " + parser.status, true);
+            } else {
+                record(request, intendedNanos, now);
+            }
+            served++;
+            request = null;
+            key.interestOps(0);
+        }
+
+        void fail(String kind, long now) {
+            if ((request != null) && (served > 0) && !received) {
+                // the server has closed the keep-alive connection without notice,
+                // so the request has not been processed and is resent over a new connection
+                close();
+                open(selector, now);
+                return;
+            }
+            error(kind, request != null);
+            request = null;
+            close();
+            reconnectNanos = now + TimeUnit.MILLISECONDS.toNanos(RECONNECT_DELAY_MILLIS);
+        }
+
+        void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignore) {
+                }
+            }
+            channel = null;
+            key = null;
+            connected = false;
+        }
+    }
+
+    /**
+     * Incremental parser of HTTP/1.1 responses that skips the bodies.
+     */
+    static class ResponseParser {
+        private static final int HEADERS = 0;
+        private static final int BODY = 1;
+        private static final int CHUNK_SIZE = 2;
+        private static final int CHUNK_DATA = 3;
+        private static final int CHUNK_END = 4;
+        private static final int TRAILERS = 5;
+        private static final int UNTIL_CLOSE = 6;
+
+        private final StringBuilder line = new StringBuilder();
+        private int state;
+        private boolean head;
+        private long remaining;
+        private long contentLength;
+        private boolean chunked;
+        int status;
+        boolean close;
+
+        void reset(boolean head) {
+            this.head = head;
+            line.setLength(0);
+            state = HEADERS;
+            status = 0;
+            contentLength = -1;
+            chunked = false;
+            close = false;
+        }
+
+        /**
+         * @return {@code true} if the response is complete
+         */
+        boolean feed(ByteBuffer in) {
+            while (in.hasRemaining()) {
+                switch (state) {
+                    case HEADERS: {
+                        String header = readLine(in);
+                        if (header == null) {
+                            return false;
+                        }
+                        if (status == 0) {
+                            status = Integer.parseInt(header.split(" ")[1]);
+                        } else if (!header.isEmpty()) {
+                            parseHeader(header);
+                        } else if (status < 200) {
+                            // an interim response, such as 100 Continue, is followed by the final one
+                            reset(head);
+                        } else if (head || (status == 204) || (status == 304)) {
+                            return true;
+                        } else if (chunked) {
+                            state = CHUNK_SIZE;
+                        } else if (contentLength >= 0) {
+                            if (contentLength == 0) {
+                                return true;
+                            }
+                            remaining = contentLength;
+                            state = BODY;
+                        } else {
+                            close = true;
+                            state = UNTIL_CLOSE;
+                        }
+                        break;
+                    }
+                    case BODY:
+                        skip(in);
+                        if (remaining == 0) {
+                            return true;
+                        }
+                        break;
+                    case CHUNK_SIZE: {
+                        String size = readLine(in);
+                        if (size == null) {
+                            return false;
+                        }
+                        int semicolon = size.indexOf(';');
+                        remaining = Long.parseLong((semicolon >= 0 ? size.substring(0, semicolon) : size).trim(), 16);
+                        state = (remaining == 0) ? TRAILERS : CHUNK_DATA;
+                        break;
+                    }
+                    case CHUNK_DATA:
+                        skip(in);
+                        if (remaining == 0) {
+                            state = CHUNK_END;
+                        }
+                        break;
+                    case CHUNK_END:
+                        if (readLine(in) == null) {
+                            return false;
+                        }
+                        state = CHUNK_SIZE;
+                        break;
+                    case TRAILERS: {
+                        String trailer = readLine(in);
+                        if (trailer == null) {
+                            return false;
+                        }
+                        if (trailer.isEmpty()) {
+                            return true;
+                        }
+                        break;
+                    }
+                    default:
+                        in.position(in.limit());
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return {@code true} if the end of the stream completes the response
+         */
+        boolean eof() {
+            return state == UNTIL_CLOSE;
+        }
+
+        private void parseHeader(String header) {
+            int colon = header.indexOf(':');
+            if (colon < 0) {
+                return;
+            }
+            String name = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = header.substring(colon + 1).trim().toLowerCase(Locale.ROOT);
+            switch (name) {
+                case "content-length":
+                    contentLength = Long.parseLong(value);
+                    break;
+                case "transfer-encoding":
+                    chunked = value.contains("chunked");
+                    break;
+                case "connection":
+                    close = value.contains("close");
+                    break;
+            }
+        }
+
+        private void skip(ByteBuffer in) {
+            int n = (int) Math.min(remaining, in.remaining());
+            in.position(in.position() + n);
+            remaining -= n;
+        }
+
+        private String readLine(ByteBuffer in) {
+            while (in.hasRemaining()) {
+                char c = (char) (in.get() & 0xFF);
+                if (c == '\n') {
+                    int length = line.length();
+                    String result = line.substring(0, (length > 0) && (line.charAt(length - 1) == '\r') ?
+                            length - 1 : length);
+                    line.setLength(0);
+                    return result;
+                }
+                line.append(c);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Limits the number of Excelsior JET compilations running concurrently within a reactor build.
+ * <p>
+ * Plugin classes are shared by all modules of a Maven session, so a single scheduler instance
+ * serves all mojos built in parallel with {@code mvn -T}.
+ * A compilation is admitted if fewer than the given number of compilations are running,
+ * and the memory reserved by the running compilations along with the memory requested
+ * by the new one fits into the memory budget.
+ * One compilation is always admitted, however much memory it needs.
+ * The budget is the memory available when the scheduler admits a compilation while none is running.
+ * It is not sampled while compilations run, as the memory they take is already reserved.
+ * So a budget may get stale if other processes start or exit during a long series of compilations.
+ * Compilations are admitted in the order of their requests, so a compilation requesting much memory
+ * is not starved by the smaller ones.
+ * </p>
+ */
+class JetCompileScheduler {
+
+    private static JetCompileScheduler instance;
+
+    private final LongSupplier availableMemoryMB;
+    private long memoryBudgetMB;
+
+    private final Deque<Permit> queue = new ArrayDeque<>();
+    private int running;
+    private long reservedMB;
+
+    /**
+     * @param availableMemoryMB supplier of the physical memory available to new processes in megabytes
+     */
+    JetCompileScheduler(LongSupplier availableMemoryMB) {
+        this.availableMemoryMB = availableMemoryMB;
+        this.memoryBudgetMB = availableMemoryMB.getAsLong();
+    }
+
+    static synchronized JetCompileScheduler getInstance() {
+        if (instance == null) {
+            instance = new JetCompileScheduler(JetCompileScheduler::availableMemoryMB);
+        }
+        return instance;
+    }
+
+    /**
+     * Admission to run a compilation. Must be closed once the compilation is over.
+     */
+    class Permit implements AutoCloseable {
+        private final int maxParallel;
+        private final long memoryMB;
+        private boolean admitted;
+
+        private Permit(int maxParallel, long memoryMB) {
+            this.maxParallel = maxParallel;
+            this.memoryMB = memoryMB;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    /**
+     * Waits until a compilation may be started.
+     *
+     * @param maxParallel maximum number of concurrent compilations
+     * @param memoryMB memory the compilation is expected to take, in megabytes
+     */
+    synchronized Permit acquire(int maxParallel, long memoryMB) throws InterruptedException {
+        Permit permit = new Permit(Math.max(1, maxParallel), memoryMB);
+        queue.addLast(permit);
+        try {
+            boolean reported = false;
+            while (!canAdmit(permit)) {
+                if (!reported) {
+                    logger.info(s("JetMavenPlugin.CompileScheduler.Waiting.Info", running, reservedMB, memoryBudgetMB));
+                    reported = true;
+                }
+                wait();
+            }
+        } catch (InterruptedException e) {
+            queue.remove(permit);
+            notifyAll();
+            throw e;
+        }
+        queue.removeFirst();
+        if (running == 0) {
+            memoryBudgetMB = availableMemoryMB.getAsLong();
+        }
+        permit.admitted = true;
+        running++;
+        reservedMB += permit.memoryMB;
+        // the next request in the queue may fit too
+        notifyAll();
+        return permit;
+    }
+
+    private boolean canAdmit(Permit permit) {
+        if (queue.peekFirst() != permit) {
+            return false;
+        }
+        return (running == 0) ||
+                ((running < permit.maxParallel) && (reservedMB + permit.memoryMB <= memoryBudgetMB));
+    }
+
+    private synchronized void release(Permit permit) {
+        if (permit.admitted) {
+            permit.admitted = false;
+            running--;
+            reservedMB -= permit.memoryMB;
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return physical memory available to new processes in megabytes
+     */
+    static long availableMemoryMB() {
+        // MemAvailable also accounts the page cache that can be reclaimed, unlike the free memory
+        // reported by the JVM, and the page cache is usually large on build machines
+        try {
+            List<String> lines = Files.readAllLines(Paths.get("/proc/meminfo"));
+            for (String line : lines) {
+                if (line.startsWith("MemAvailable:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) / 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ignore) {
+        }
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize() / (1024 * 1024);
+        }
+        return Long.MAX_VALUE;
+    }
+}
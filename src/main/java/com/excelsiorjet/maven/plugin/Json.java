@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Minimal JSON writer for the reports produced by the plugin.
+ * <p>
+ * Values are represented with {@link Map}s (objects), {@link Collection}s (arrays),
+ * {@link String}s, {@link Number}s, {@link Boolean}s and {@code null}.
+ * Use {@link java.util.LinkedHashMap} to keep the order of object members.
+ * </p>
+ */
+class Json {
+
+    static String toJson(Object value) {
+        StringBuilder out = new StringBuilder();
+        write(out, value, "");
+        return out.append('\n').toString();
+    }
+
+    static void write(File file, Object value) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), toJson(value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void write(StringBuilder out, Object value, String indent) {
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            if (map.isEmpty()) {
+                out.append("{}");
+                return;
+            }
+            String inner = indent + "  ";
+            out.append("{\n");
+            boolean first = true;
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                if (!first) {
+                    out.append(",\n");
+                }
+                first = false;
+                out.append(inner);
+                quote(out, String.valueOf(e.getKey()));
+                out.append(": ");
+                write(out, e.getValue(), inner);
+            }
+            out.append('\n').append(indent).append('}');
+        } else if (value instanceof Collection) {
+            Collection<?> items = (Collection<?>) value;
+            if (items.isEmpty()) {
+                out.append("[]");
+                return;
+            }
+            String inner = indent + "  ";
+            out.append("[\n");
+            boolean first = true;
+            for (Object item : items) {
+                if (!first) {
+                    out.append(",\n");
+                }
+                first = false;
+                out.append(inner);
+                write(out, item, inner);
+            }
+            out.append('\n').append(indent).append(']');
+        } else if ((value instanceof Number) || (value instanceof Boolean) || (value == null)) {
+            out.append(value);
+        } else {
+            quote(out, value.toString());
+        }
+    }
+
+    private static void quote(StringBuilder out, String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
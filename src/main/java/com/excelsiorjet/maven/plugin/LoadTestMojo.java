@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.JetHomeException;
+import com.excelsiorjet.api.cmd.CmdLineToolException;
+import com.excelsiorjet.api.tasks.JetProject;
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import com.excelsiorjet.api.tasks.StopTask;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Mojo for load testing HTTP applications, such as Tomcat and Spring Boot ones, built with Excelsior JET.
+ * <p>
+ * The goal runs the application, waits for it to become ready, drives the configured HTTP workload against it
+ * for the given time, and stops the application. The throughput, the latency percentiles, the error rate
+ * and the throughput of each second of the test are printed and saved to {@code loadtest.json}
+ * in {@link #jetOutputDir}.
+ * </p>
+ */
+@Mojo(name = "loadtest", defaultPhase = LifecyclePhase.INTEGRATION_TEST, requiresDependencyResolution = ResolutionScope.RUNTIME,
+        threadSafe = true)
+public class LoadTestMojo extends RunMojo {
+
+    static final String REPORT_FILE_NAME = "loadtest.json";
+
+    /**
+     * URL to send {@code GET} requests to, a shortcut for a single element of {@link #loadTestRequests}.
+     */
+    @Parameter(property = "jet.loadtest.url")
+    protected String loadTestUrl;
+
+    /**
+     * Requests of the workload, chosen at random according to their weights.
+     *
+     * @see LoadTestRequest#url
+     * @see LoadTestRequest#method
+     * @see LoadTestRequest#body
+     * @see LoadTestRequest#weight
+     */
+    @Parameter
+    protected List<LoadTestRequest> loadTestRequests;
+
+    /**
+     * Number of concurrent connections.
+     */
+    @Parameter(property = "jet.loadtest.concurrency", defaultValue = "16")
+    protected int loadTestConcurrency;
+
+    /**
+     * Duration of the test in seconds.
+     */
+    @Parameter(property = "jet.loadtest.duration", defaultValue = "30")
+    protected int loadTestDuration;
+
+    /**
+     * Requests per second to send. If not set, each connection sends the next request
+     * as soon as it receives the response to the previous one, finding out the maximum throughput.
+     */
+    @Parameter(property = "jet.loadtest.rate", defaultValue = "0")
+    protected double loadTestRate;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        init();
+        if (!isSupportedPackaging()) {
+            logger.warn(s("JetMavenPlugin.UnsupportedPackaging.Mojo.Warning", project.getPackaging(), project.getName()));
+            return;
+        }
+        try {
+            List<LoadTestRequest> configured = new ArrayList<>();
+            if (loadTestUrl != null) {
+                LoadTestRequest request = new LoadTestRequest();
+                request.url = loadTestUrl;
+                configured.add(request);
+            }
+            if (loadTestRequests != null) {
+                configured.addAll(loadTestRequests);
+            }
+            if (configured.isEmpty()) {
+                throw new JetTaskFailureException(s("JetMavenPlugin.LoadTest.NoRequests.Failure"));
+            }
+            List<HttpLoadDriver.Request> requests = new ArrayList<>();
+            URI target = null;
+            for (LoadTestRequest request : configured) {
+                URI uri = parseUrl(request.url);
+                if (target == null) {
+                    target = uri;
+                } else if (!uri.getHost().equalsIgnoreCase(target.getHost()) ||
+                        (HttpLoadDriver.Request.port(uri) != HttpLoadDriver.Request.port(target)))
+                {
+                    throw new JetTaskFailureException(s("JetMavenPlugin.LoadTest.MultipleHosts.Failure", uri, target));
+                }
+                Map<String, String> headers = new LinkedHashMap<>();
+                if (request.contentType != null) {
+                    headers.put("Content-Type", request.contentType);
+                }
+                if (request.headers != null) {
+                    headers.putAll(request.headers);
+                }
+                byte[] body = (request.body != null) ? request.body.getBytes(StandardCharsets.UTF_8) : null;
+                requests.add(new HttpLoadDriver.Request(request.method.toUpperCase(Locale.ROOT), uri, headers, body,
+                        request.weight));
+            }
+            if ((readiness == null) || !readiness.isEnabled()) {
+                // without explicit conditions, wait until the application accepts connections
+                readiness = new ReadinessConfig();
+                readiness.host = target.getHost();
+                readiness.port = HttpLoadDriver.Request.port(target);
+            }
+            JetProject jetProject = getJetProject();
+            ExcelsiorJet excelsiorJet = new ExcelsiorJet(jetHome);
+            Thread app = runUntilReady(excelsiorJet, jetProject);
+            HttpLoadDriver.Result result;
+            try {
+                if (loadTestRate > 0) {
+                    logger.info(s("JetMavenPlugin.LoadTest.Rate.Info", loadTestConcurrency, loadTestDuration,
+                            loadTestRate));
+                } else {
+                    logger.info(s("JetMavenPlugin.LoadTest.Start.Info", loadTestConcurrency, loadTestDuration));
+                }
+                InetSocketAddress address = new InetSocketAddress(target.getHost(), HttpLoadDriver.Request.port(target));
+                result = new HttpLoadDriver(requests, address, loadTestConcurrency, loadTestDuration * 1000L,
+                        loadTestRate).run();
+            } finally {
+                new StopTask(excelsiorJet, jetProject).execute();
+                app.join(HttpLoadDriver.REQUEST_TIMEOUT_MILLIS);
+            }
+            report(result);
+        } catch (JetTaskFailureException | JetHomeException  e) {
+            throw new MojoFailureException(e.getMessage());
+        } catch (CmdLineToolException | IOException e) {
+            logger.debug("JetTask execution error", e);
+            logger.error(e.getMessage());
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    private static URI parseUrl(String url) throws JetTaskFailureException {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException | NullPointerException e) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.LoadTest.BadUrl.Failure", url, e.getMessage()));
+        }
+        if (!"http".equalsIgnoreCase(uri.getScheme()) || (uri.getHost() == null)) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.LoadTest.UnsupportedUrl.Failure", url));
+        }
+        return uri;
+    }
+
+    private void report(HttpLoadDriver.Result result) throws IOException {
+        logger.info(s("JetMavenPlugin.LoadTest.Summary.Info", result.requests, result.durationMillis,
+                format(result.throughput()), format(result.latencyMillis(0.5)), format(result.latencyMillis(0.99)),
+                format(result.latencyMillis(0.999)), result.errors, format(result.errorRate() * 100)));
+        for (Map.Entry<String, Long> error : result.errorKinds.entrySet()) {
+            logger.info(s("JetMavenPlugin.LoadTest.Error.Info", error.getKey(), error.getValue()));
+        }
+        String curve = Arrays.stream(result.perSecond).mapToObj(String::valueOf).collect(Collectors.joining(" "));
+        logger.info(s("JetMavenPlugin.LoadTest.Curve.Info", curve, result.timeToPeakMillis()));
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", result.latencyMillis(0.5));
+        latency.put("p99", result.latencyMillis(0.99));
+        latency.put("p999", result.latencyMillis(0.999));
+        latency.put("max", result.latencyMillis(1));
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("concurrency", loadTestConcurrency);
+        report.put("rate", (loadTestRate > 0) ? loadTestRate : null);
+        report.put("durationMillis", result.durationMillis);
+        report.put("requests", result.requests);
+        report.put("requestsPerSecond", result.throughput());
+        report.put("latencyMillis", latency);
+        report.put("errors", result.errors);
+        report.put("errorRate", result.errorRate());
+        report.put("errorKinds", result.errorKinds);
+        List<Long> perSecond = new ArrayList<>();
+        for (long count : result.perSecond) {
+            perSecond.add(count);
+        }
+        report.put("requestsPerSecondCurve", perSecond);
+        report.put("timeToPeakMillis", result.timeToPeakMillis());
+        Json.write(new File(getJetOutputDir(), REPORT_FILE_NAME), report);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A request of the HTTP workload driven by {@code jet:loadtest}.
+ */
+public class LoadTestRequest {
+
+    /**
+     * Plain HTTP URL of the request, e.g. {@code http://localhost:8080/api/items?page=1}.
+     */
+    public String url;
+
+    /**
+     * HTTP method. Default value is {@code GET}.
+     */
+    public String method = "GET";
+
+    /**
+     * Request body, sent in UTF-8.
+     */
+    public String body;
+
+    /**
+     * Value of the {@code Content-Type} header sent with the {@link #body}.
+     */
+    public String contentType;
+
+    /**
+     * Additional request headers.
+     */
+    public Map<String, String> headers = new LinkedHashMap<>();
+
+    /**
+     * Relative frequency of the request in the workload. Default value is 1.
+     */
+    public double weight = 1;
+}
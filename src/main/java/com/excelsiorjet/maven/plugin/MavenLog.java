@@ -1,39 +1,169 @@
 package com.excelsiorjet.maven.plugin;
 
 import com.excelsiorjet.api.log.Log;
+import com.excelsiorjet.api.tasks.JetProject;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 /**
- * Implementation of {@code Log} that redirects logs into maven logging system
+ * Implementation of {@code Log} that redirects logs into maven logging system.
+ * <p>
+ * Excelsior JET API uses a single global logger, while mojos of a parallel reactor build ({@code mvn -T})
+ * are executed concurrently in different threads. So a single instance of this class is installed
+ * as the global logger, and it dispatches messages to the Maven log of the mojo bound to the current thread.
+ * The threads the plugin starts are bound explicitly for the time of their task, see {@link #bound(Runnable)}.
+ * The threads started by Excelsior JET API itself, such as the ones reading the output of Excelsior JET tools,
+ * cannot be bound, so they log to the mojo that was bound most recently. In parallel builds their output
+ * may thus carry the prefix of another module.
+ * </p>
  */
 class MavenLog extends Log {
 
-    private final org.apache.maven.plugin.logging.Log mavenLog;
+    private static final MavenLog INSTANCE = new MavenLog();
+
+    private static final ThreadLocal<Context> context = new ThreadLocal<>();
+
+    private static boolean installed;
+
+    private static class Context {
+        private final org.apache.maven.plugin.logging.Log mavenLog;
+        private final String prefix;
+        private final Consumer<String> listener;
+
+        private Context(org.apache.maven.plugin.logging.Log mavenLog, String prefix, Consumer<String> listener) {
+            this.mavenLog = mavenLog;
+            this.prefix = prefix;
+            this.listener = listener;
+        }
+    }
+
+    private static final Context FALLBACK = new Context(new SystemStreamLog(), "", null);
+
+    /**
+     * Context of the threads that are not bound.
+     */
+    private static volatile Context unboundContext = FALLBACK;
+
+    private MavenLog() {
+    }
+
+    /**
+     * Binds the given Maven log to the current thread, installing the global logger if necessary.
+     *
+     * @param mavenLog Maven log of the executing mojo
+     * @param prefix prefix of every message, to tell apart the output of concurrently built modules
+     */
+    static void bind(org.apache.maven.plugin.logging.Log mavenLog, String prefix) {
+        Context c = new Context(mavenLog, prefix, null);
+        context.set(c);
+        unboundContext = c;
+        synchronized (MavenLog.class) {
+            if (!installed) {
+                JetProject.configureEnvironment(INSTANCE, ResourceBundle.getBundle("MavenStrings", Locale.ENGLISH));
+                installed = true;
+            }
+        }
+    }
+
+    /**
+     * Passes the info, warning and error messages logged by the current thread and the threads that are not bound
+     * (such as the readers of the output of the processes run by Excelsior JET API) to the given listener,
+     * in addition to the bound Maven log. The listener is removed when the task the current thread runs
+     * with {@link #bound(Runnable)} completes.
+     */
+    static void listen(Consumer<String> listener) {
+        Context c = current();
+        Context listening = new Context(c.mavenLog, c.prefix, listener);
+        context.set(listening);
+        unboundContext = listening;
+    }
 
-    MavenLog(org.apache.maven.plugin.logging.Log mavenLog) {
-        this.mavenLog = mavenLog;
+    /**
+     * Wraps the given task to log to the Maven log bound to the current thread, whichever thread runs it.
+     */
+    static Runnable bound(Runnable task) {
+        Context c = current();
+        return () -> {
+            context.set(c);
+            try {
+                task.run();
+            } finally {
+                unbind(c);
+            }
+        };
+    }
+
+    /**
+     * Wraps the given task to log to the Maven log bound to the current thread, whichever thread runs it,
+     * with the given prefix added to every message.
+     */
+    static <T> Callable<T> bound(String prefix, Callable<T> task) {
+        Context parent = current();
+        Context c = new Context(parent.mavenLog, parent.prefix + prefix, parent.listener);
+        return () -> {
+            context.set(c);
+            try {
+                return task.call();
+            } finally {
+                unbind(c);
+            }
+        };
+    }
+
+    private static void unbind(Context bound) {
+        synchronized (MavenLog.class) {
+            if (unboundContext == context.get()) {
+                unboundContext = bound;
+            }
+        }
+        context.remove();
+    }
+
+    private static Context current() {
+        Context c = context.get();
+        return (c != null) ? c : unboundContext;
     }
 
     @Override public void debug(String msg, Throwable t) {
-       mavenLog.debug(msg, t);
+        Context c = current();
+        c.mavenLog.debug(c.prefix + msg, t);
     }
 
     @Override
     public void info(String msg) {
-        mavenLog.info(msg);
+        Context c = current();
+        c.mavenLog.info(c.prefix + msg);
+        notifyListener(c, msg);
     }
 
     @Override
     public void warn(String msg) {
-        mavenLog.warn(msg);
+        Context c = current();
+        c.mavenLog.warn(c.prefix + msg);
+        notifyListener(c, msg);
     }
 
     @Override
     public void warn(String msg, Throwable t) {
-        mavenLog.warn(msg, t);
+        Context c = current();
+        c.mavenLog.warn(c.prefix + msg, t);
+        notifyListener(c, msg);
     }
 
     @Override
     public void error(String msg) {
-        mavenLog.error(msg);
+        Context c = current();
+        c.mavenLog.error(c.prefix + msg);
+        notifyListener(c, msg);
+    }
+
+    private static void notifyListener(Context c, String msg) {
+        if (c.listener != null) {
+            c.listener.accept(msg);
+        }
     }
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Mojo for combining execution profiles collected on many machines into the execution profile
+ * used by the subsequent {@code jet:build}.
+ * <p>
+ * All {@code .jprof} files of {@link #mergeProfilesInputDir} are weighted by {@link #mergeProfilesWeights}
+ * and their age (see {@link #mergeProfilesHalfLife}) and merged into the execution profile
+ * at the location configured with {@link #execProfilesConfig}.
+ * </p>
+ *
+ * @see ProfileMerger
+ */
+@Mojo(name = "merge-profiles", defaultPhase = LifecyclePhase.PREPARE_PACKAGE, threadSafe = true)
+public class MergeProfilesMojo extends AbstractJetMojo {
+
+    static final String REPORT_FILE_NAME = "merged-profile.json";
+
+    /**
+     * Name of the optional file in {@link #mergeProfilesInputDir} with the base weights of the profiles
+     * in the {@code <profile file name>=<weight>} format.
+     */
+    static final String WEIGHTS_FILE_NAME = "weights.properties";
+
+    /**
+     * Directory with the execution profiles ({@code .jprof} files) collected on production machines.
+     * Keep the modification times of the files when copying them there (e.g. {@code rsync -t} or {@code cp -p}),
+     * as the weight of a profile decays with its age.
+     */
+    @Parameter(property = "jet.mergeProfiles.inputDir", defaultValue = "${project.basedir}/src/main/jetresources/profiles")
+    protected File mergeProfilesInputDir;
+
+    /**
+     * Base weights of the profiles by their file names, e.g. the traffic share of the nodes they were collected on.
+     * The profiles not listed here or in {@code weights.properties} of {@link #mergeProfilesInputDir}
+     * get the weight of 1.
+     */
+    @Parameter
+    protected Map<String, String> mergeProfilesWeights;
+
+    /**
+     * Age in days at which the weight of a profile halves. Set to 0 to disable the decay.
+     */
+    @Parameter(property = "jet.mergeProfiles.halfLife", defaultValue = "14")
+    protected double mergeProfilesHalfLife;
+
+    /**
+     * Age in days after which a profile is ignored. Set to 0 to use the profiles of any age.
+     */
+    @Parameter(property = "jet.mergeProfiles.maxAge", defaultValue = "0")
+    protected int mergeProfilesMaxAge;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        init();
+        try {
+            Map<String, Double> weights = readWeights();
+            ProfileMerger merger = new ProfileMerger(mergeProfilesHalfLife, mergeProfilesMaxAge);
+            List<ProfileMerger.Input> inputs = merger.collect(mergeProfilesInputDir, weights, System.currentTimeMillis());
+            if (inputs.isEmpty()) {
+                throw new JetTaskFailureException(s("JetMavenPlugin.MergeProfiles.NoProfiles.Failure",
+                        mergeProfilesInputDir));
+            }
+            File output = new File(getExecProfilesDir(), getExecProfilesName() + ProfileMerger.EXTENSION);
+            boolean external = (mergeProfilesCommand != null) && (mergeProfilesCommand.length > 0);
+            logger.info(s("JetMavenPlugin.MergeProfiles.Info", inputs.size(), output));
+            logger.info(String.format("  %-40s %8s %8s %10s %7s", "Profile", "age, d", "weight", "effective", "share"));
+            for (ProfileMerger.Input input : inputs) {
+                logger.info(String.format(Locale.ROOT, "  %-40s %8.1f %8.2f %10.3f %6.1f%%", input.file.getName(),
+                        input.ageDays, input.weight, input.effectiveWeight, input.share * 100));
+            }
+            merger.merge(inputs, output, external ? Arrays.asList(mergeProfilesCommand) : null, project.getBasedir());
+            Json.write(new File(getJetOutputDir(), REPORT_FILE_NAME), report(inputs, output, external));
+        } catch (JetTaskFailureException e) {
+            throw new MojoFailureException(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (IOException e) {
+            logger.debug("JetTask execution error", e);
+            logger.error(e.getMessage());
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    private Map<String, Double> readWeights() throws IOException, JetTaskFailureException {
+        Map<String, String> raw = new HashMap<>();
+        File file = new File(mergeProfilesInputDir, WEIGHTS_FILE_NAME);
+        if (file.isFile()) {
+            Properties props = new Properties();
+            try (InputStream in = new FileInputStream(file)) {
+                props.load(in);
+            }
+            props.stringPropertyNames().forEach(name -> raw.put(name, props.getProperty(name)));
+        }
+        if (mergeProfilesWeights != null) {
+            raw.putAll(mergeProfilesWeights);
+        }
+        Map<String, Double> weights = new HashMap<>();
+        for (Map.Entry<String, String> e : raw.entrySet()) {
+            try {
+                double weight = Double.parseDouble(e.getValue().trim());
+                if (weight < 0) {
+                    throw new NumberFormatException();
+                }
+                weights.put(e.getKey(), weight);
+            } catch (NumberFormatException ex) {
+                throw new JetTaskFailureException(s("JetMavenPlugin.MergeProfiles.BadWeight.Failure",
+                        e.getValue(), e.getKey()));
+            }
+        }
+        return weights;
+    }
+
+    private Map<String, Object> report(List<ProfileMerger.Input> inputs, File output, boolean external) {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("output", output.getAbsolutePath());
+        root.put("merged", external);
+        root.put("halfLifeDays", mergeProfilesHalfLife);
+        List<Object> list = new ArrayList<>();
+        for (ProfileMerger.Input input : inputs) {
+            Map<String, Object> in = new LinkedHashMap<>();
+            in.put("file", input.file.getName());
+            in.put("ageDays", Math.round(input.ageDays * 100) / 100.0);
+            in.put("weight", input.weight);
+            in.put("effectiveWeight", input.effectiveWeight);
+            in.put("share", input.share);
+            list.add(in);
+        }
+        root.put("inputs", list);
+        return root;
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Samples resource usage of the processes started by Excelsior JET tasks.
+ * <p>
+ * Excelsior JET API runs the compiler, the packager and the application itself as child processes of the Maven JVM
+ * without exposing them, so the sampler periodically scans the process table for descendants of this JVM
+ * that run in the given directory (or whose executable resides there), along with their own descendants.
+ * In a parallel reactor build, that tells the processes of one module from those of the others.
+ * </p>
+ * <p>
+ * If a {@link SampleListener} is given, thread counts, open file descriptors and I/O counters
+ * of the processes are sampled as well, and the listener is notified after each sample.
+ * </p>
+ * <p>
+ * Process information is taken from {@code /proc}, so only Linux is supported:
+ * on other systems {@link #isSupported()} returns {@code false} and no processes are reported.
+ * </p>
+ */
+class ProcessTreeSampler implements AutoCloseable {
+
+    /**
+     * Linux reports process CPU times in clock ticks, that are 1/100 of a second on all supported architectures.
+     */
+    private static final long MILLIS_PER_TICK = 10;
+
+    /**
+     * Resource usage of a sampled process.
+     */
+    static class ProcessInfo {
+        final int pid;
+        final int ppid;
+        final String command;
+        final String executable;
+        final long startMillis;
+        long endMillis;
+        long cpuMillis;
+        long peakRssKB;
+        long rssKB;
+        int threads;
+        int fds;
+        long readBytes;
+        long writeBytes;
+
+        ProcessInfo(int pid, int ppid, String command, String executable, long startMillis) {
+            this.pid = pid;
+            this.ppid = ppid;
+            this.command = command;
+            this.executable = executable;
+            this.startMillis = startMillis;
+            this.endMillis = startMillis;
+        }
+
+        long wallMillis() {
+            return endMillis - startMillis;
+        }
+    }
+
+    /**
+     * Receives the results of each sample.
+     */
+    interface SampleListener {
+        /**
+         * @param millis time of the sample
+         * @param processes all processes sampled so far, the running ones have {@code endMillis} equal to {@code millis}
+         */
+        void sampled(long millis, Collection<ProcessInfo> processes);
+    }
+
+    private final Path scope;
+    private final long intervalMillis;
+    private final SampleListener listener;
+    private final Thread owner;
+    private final int selfPid;
+    private final String selfExe;
+
+    private final Map<Integer, ProcessInfo> processes = new LinkedHashMap<>();
+    private final Set<Integer> foreign = new HashSet<>();
+    private final NavigableMap<Long, Long> ownerCpu = new TreeMap<>();
+
+    private Thread thread;
+    private volatile boolean stopped;
+
+    /**
+     * @param scope directory where the processes of interest run
+     * @param intervalMillis sampling interval
+     */
+    ProcessTreeSampler(File scope, long intervalMillis) {
+        this(scope, intervalMillis, null);
+    }
+
+    /**
+     * @param scope directory where the processes of interest run, {@code null} to sample all descendant processes
+     * @param intervalMillis sampling interval
+     * @param listener listener of detailed samples, may be {@code null}
+     */
+    ProcessTreeSampler(File scope, long intervalMillis, SampleListener listener) {
+        this.scope = (scope != null) ? scope.toPath().toAbsolutePath().normalize() : null;
+        this.intervalMillis = intervalMillis;
+        this.listener = listener;
+        this.owner = Thread.currentThread();
+        this.selfPid = selfPid();
+        this.selfExe = readLink("self", "exe");
+    }
+
+    static boolean isSupported() {
+        return new File("/proc/self/stat").exists();
+    }
+
+    private static int selfPid() {
+        try {
+            return Integer.parseInt(new File("/proc/self").getCanonicalFile().getName());
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Starts sampling in a background thread.
+     */
+    ProcessTreeSampler start() {
+        sample();
+        thread = new Thread(() -> {
+            while (!stopped) {
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                sample();
+            }
+        }, "JET process sampler");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Takes a single sample without starting the sampling thread.
+     *
+     * @return the processes running at the moment
+     */
+    List<ProcessInfo> snapshot() {
+        sample();
+        return getProcesses();
+    }
+
+    /**
+     * @return {@code false} if the process has exited, including the exited processes not reaped by their parents yet
+     */
+    static boolean isRunning(int pid) {
+        try {
+            String stat = new String(Files.readAllBytes(Paths.get("/proc", String.valueOf(pid), "stat")),
+                    StandardCharsets.US_ASCII);
+            // the state follows the command name enclosed in parentheses
+            char state = stat.charAt(stat.lastIndexOf(')') + 2);
+            return (state != 'Z') && (state != 'X');
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stops sampling and takes the final sample.
+     */
+    @Override
+    public void close() {
+        stopped = true;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sample();
+    }
+
+    /**
+     * @return the sampled processes in the order of their appearance
+     */
+    synchronized List<ProcessInfo> getProcesses() {
+        return new ArrayList<>(processes.values());
+    }
+
+    /**
+     * @return CPU time consumed by the thread that created the sampler up to the given moment,
+     *         as of the latest sample taken before it
+     */
+    synchronized long ownerCpuMillisAt(long millis) {
+        Map.Entry<Long, Long> e = ownerCpu.floorEntry(millis);
+        return (e != null) ? e.getValue() : 0;
+    }
+
+    private synchronized void sample() {
+        long now = System.currentTimeMillis();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads.isThreadCpuTimeSupported()) {
+            long cpu = threads.getThreadCpuTime(owner.getId());
+            if (cpu >= 0) {
+                ownerCpu.put(now, cpu / 1000000);
+            }
+        }
+        if (selfPid < 0) {
+            return;
+        }
+        File[] entries = new File("/proc").listFiles((dir, name) -> Character.isDigit(name.charAt(0)));
+        if (entries == null) {
+            return;
+        }
+        Map<Integer, String[]> stats = new HashMap<>();
+        for (File entry : entries) {
+            int pid = Integer.parseInt(entry.getName());
+            if (pid == selfPid || foreign.contains(pid)) {
+                continue;
+            }
+            String[] stat = readStat(pid);
+            if (stat != null) {
+                stats.put(pid, stat);
+            }
+        }
+        // parents are discovered before their children, as a child may only be attributed via its parent
+        List<Integer> pending = new ArrayList<>(stats.keySet());
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (Iterator<Integer> it = pending.iterator(); it.hasNext(); ) {
+                int pid = it.next();
+                String[] stat = stats.get(pid);
+                int ppid = Integer.parseInt(stat[1]);
+                ProcessInfo info = processes.get(pid);
+                if (info == null) {
+                    if (ppid == selfPid) {
+                        String exe = readLink(pid, "exe");
+                        if ((exe == null) || exe.equals(selfExe)) {
+                            // forked but not yet executed the tool, so its working directory may be not set yet
+                            it.remove();
+                            continue;
+                        }
+                        if (!isInScope(pid, exe)) {
+                            foreign.add(pid);
+                            it.remove();
+                            continue;
+                        }
+                    } else if (!processes.containsKey(ppid) || (processes.get(ppid).endMillis < now)) {
+                        if (!stats.containsKey(ppid) || foreign.contains(ppid)) {
+                            // neither ours nor a descendant of a process that may be ours
+                            it.remove();
+                        }
+                        continue;
+                    }
+                    info = new ProcessInfo(pid, ppid, stat[0], readLink(pid, "exe"), now);
+                    processes.put(pid, info);
+                }
+                info.endMillis = now;
+                info.cpuMillis = (Long.parseLong(stat[11]) + Long.parseLong(stat[12])) * MILLIS_PER_TICK;
+                long[] rss = readRss(pid);
+                info.rssKB = rss[0];
+                info.peakRssKB = Math.max(info.peakRssKB, rss[1]);
+                if (listener != null) {
+                    // num_threads is the 20th field
+                    info.threads = Integer.parseInt(stat[17]);
+                    String[] fds = new File("/proc/" + pid + "/fd").list();
+                    info.fds = (fds != null) ? fds.length : 0;
+                    long[] io = readIo(pid);
+                    info.readBytes = Math.max(info.readBytes, io[0]);
+                    info.writeBytes = Math.max(info.writeBytes, io[1]);
+                }
+                it.remove();
+                progress = true;
+            }
+        }
+        if (listener != null) {
+            listener.sampled(now, Collections.unmodifiableCollection(processes.values()));
+        }
+    }
+
+    private boolean isInScope(int pid, String exe) {
+        if (scope == null) {
+            return true;
+        }
+        String cwd = readLink(pid, "cwd");
+        return ((cwd != null) && Paths.get(cwd).startsWith(scope)) || ((exe != null) && Paths.get(exe).startsWith(scope));
+    }
+
+    /**
+     * @return the command name followed by the fields of {@code /proc/pid/stat} starting from the parent pid,
+     *         or {@code null} if the process has gone
+     */
+    private static String[] readStat(int pid) {
+        try {
+            String stat = new String(Files.readAllBytes(Paths.get("/proc", String.valueOf(pid), "stat")),
+                    StandardCharsets.US_ASCII);
+            // the command name is enclosed in parentheses and may contain spaces and parentheses itself
+            int open = stat.indexOf('(');
+            int close = stat.lastIndexOf(')');
+            String[] fields = stat.substring(close + 2).trim().split(" ");
+            // fields[0] is the state, not needed: the parent pid is fields[1], utime and stime are fields[11..12]
+            fields[0] = stat.substring(open + 1, close);
+            return fields;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return current and peak resident set size of the process in kilobytes
+     */
+    private static long[] readRss(int pid) {
+        long[] rss = new long[2];
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc", String.valueOf(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    rss[0] = Long.parseLong(line.replaceAll("[^0-9]", ""));
+                } else if (line.startsWith("VmHWM:")) {
+                    rss[1] = Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException ignore) {
+        }
+        rss[1] = Math.max(rss[0], rss[1]);
+        return rss;
+    }
+
+    /**
+     * @return bytes read and written by the process, including the I/O served from the page cache
+     */
+    private static long[] readIo(int pid) {
+        long[] io = new long[2];
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc", String.valueOf(pid), "io"))) {
+                if (line.startsWith("rchar:")) {
+                    io[0] = Long.parseLong(line.replaceAll("[^0-9]", ""));
+                } else if (line.startsWith("wchar:")) {
+                    io[1] = Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException ignore) {
+        }
+        return io;
+    }
+
+    private static String readLink(int pid, String link) {
+        return readLink(String.valueOf(pid), link);
+    }
+
+    private static String readLink(String pid, String link) {
+        try {
+            return Files.readSymbolicLink(Paths.get("/proc", pid, link)).toString();
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Fingerprint of the application code an execution or startup profile was collected for.
+ * <p>
+ * The fingerprint holds a SHA-256 hash of every classpath element (the main artifact and the dependencies)
+ * and of every class file they contain, including the classes of the jars nested into WAR and Spring Boot
+ * archives. Comparing the fingerprint of a profile with that of the current code tells how much of the code
+ * is still the same, which is a better staleness criterion than the age of the profile.
+ * The share is computed for each classpath element, as the main artifact usually changes far more often
+ * than the dependencies and would be hidden by them in a share computed over all classes.
+ * </p>
+ * <p>
+ * The fingerprint is saved next to the profile, with the {@code .fingerprint} suffix appended to its name.
+ * </p>
+ */
+class ProfileFingerprint {
+
+    static final String SUFFIX = ".fingerprint";
+
+    /**
+     * Name of the main artifact in the classpath the fingerprint is computed for.
+     */
+    static final String MAIN_ELEMENT = "main";
+
+    private static final String[] CLASS_DIRS = {"WEB-INF/classes/", "BOOT-INF/classes/"};
+
+    /**
+     * A class file of the application.
+     */
+    static class ClassRecord {
+        final String hash;
+        final long size;
+        final String element;
+
+        ClassRecord(String hash, long size, String element) {
+            this.hash = hash;
+            this.size = size;
+            this.element = element;
+        }
+    }
+
+    /**
+     * Result of comparing a profile fingerprint with the current one.
+     */
+    static class Match {
+        /**
+         * Share of the size of the unchanged classes in the size of all classes of both fingerprints.
+         */
+        double coverage;
+        int changed;
+        int removed;
+        int added;
+        private final Map<String, long[]> elementSizes = new TreeMap<>();
+
+        /**
+         * @return the coverage of the classes of the given element (for removed classes, the element they were in),
+         *         1.0 if the element has no classes
+         */
+        double coverageOf(String element) {
+            long[] sizes = elementSizes.get(element);
+            return ((sizes == null) || (sizes[1] == 0)) ? 1.0 : (double) sizes[0] / sizes[1];
+        }
+
+        /**
+         * @return names of the elements having classes in either fingerprint
+         */
+        Set<String> elements() {
+            return Collections.unmodifiableSet(elementSizes.keySet());
+        }
+
+        private void add(String element, long matched, long total) {
+            long[] sizes = elementSizes.computeIfAbsent(element, e -> new long[2]);
+            sizes[0] += matched;
+            sizes[1] += total;
+        }
+    }
+
+    private final Map<String, String> elements = new TreeMap<>();
+    private final Map<String, ClassRecord> classes = new TreeMap<>();
+
+    private ProfileFingerprint() {
+    }
+
+    /**
+     * @return the fingerprint file of the given profile
+     */
+    static File fileOf(File profile) {
+        return new File(profile.getParentFile(), profile.getName() + SUFFIX);
+    }
+
+    /**
+     * Computes the fingerprint of the classpath.
+     *
+     * @param classpath jar, war files or class directories by their names (e.g. Maven artifact ids)
+     * @param known fingerprints to take the classes of unchanged classpath elements from, instead of reading them
+     */
+    static ProfileFingerprint compute(Map<String, File> classpath, Collection<ProfileFingerprint> known)
+            throws IOException
+    {
+        ProfileFingerprint fingerprint = new ProfileFingerprint();
+        for (Map.Entry<String, File> e : classpath.entrySet()) {
+            String name = e.getKey();
+            File file = e.getValue();
+            if (file.isDirectory()) {
+                fingerprint.addDirectory(name, file);
+                continue;
+            }
+            if (!file.isFile()) {
+                continue;
+            }
+            String hash = Digests.sha256(file);
+            fingerprint.elements.put(name, hash);
+            if (!fingerprint.reuse(name, hash, known)) {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                    fingerprint.addArchive(name, in);
+                }
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Takes the classes of an element from a known fingerprint having an element with the same hash.
+     */
+    private boolean reuse(String name, String hash, Collection<ProfileFingerprint> known) {
+        for (ProfileFingerprint other : known) {
+            for (Map.Entry<String, String> e : other.elements.entrySet()) {
+                if (e.getValue().equals(hash)) {
+                    String otherName = e.getKey();
+                    other.classes.forEach((cls, record) -> {
+                        if (record.element.equals(otherName)) {
+                            classes.putIfAbsent(cls, new ClassRecord(record.hash, record.size, name));
+                        }
+                    });
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void addArchive(String element, InputStream in) throws IOException {
+        ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            String name = entry.getName();
+            if (name.endsWith(".class")) {
+                addClass(element, className(name), zip);
+            } else if (name.endsWith(".jar")) {
+                // the nested stream must not be closed
+                addArchive(element, new FilterInputStream(zip) {
+                    @Override
+                    public void close() {
+                    }
+                });
+            }
+        }
+    }
+
+    private void addDirectory(String element, File dir) throws IOException {
+        Path root = dir.toPath();
+        MessageDigest md = Digests.sha256();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path path : files.filter(p -> p.toString().endsWith(".class")).sorted().collect(Collectors.toList())) {
+                String name = root.relativize(path).toString().replace(File.separatorChar, '/');
+                String hash;
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+                    hash = addClass(element, name, in);
+                }
+                // a class shadowed by an earlier element is not in the classes, but still changes this element
+                Digests.update(md, name + " " + hash + "\n");
+            }
+        }
+        elements.put(element, Digests.toHex(md.digest()));
+    }
+
+    /**
+     * @return the hash of the class file
+     */
+    private String addClass(String element, String name, InputStream in) throws IOException {
+        CountingInputStream counting = new CountingInputStream(in);
+        String hash = Digests.sha256(counting);
+        // the first class on the classpath wins
+        classes.putIfAbsent(name, new ClassRecord(hash, counting.count, element));
+        return hash;
+    }
+
+    private static String className(String entry) {
+        for (String dir : CLASS_DIRS) {
+            if (entry.startsWith(dir)) {
+                return entry.substring(dir.length());
+            }
+        }
+        return entry;
+    }
+
+    Map<String, ClassRecord> getClasses() {
+        return Collections.unmodifiableMap(classes);
+    }
+
+    Map<String, String> getElements() {
+        return Collections.unmodifiableMap(elements);
+    }
+
+    /**
+     * Compares the fingerprint of a profile with the fingerprint of the current code.
+     */
+    Match match(ProfileFingerprint current) {
+        Match match = new Match();
+        long matched = 0;
+        long total = 0;
+        for (Map.Entry<String, ClassRecord> e : classes.entrySet()) {
+            ClassRecord then = e.getValue();
+            ClassRecord now = current.classes.get(e.getKey());
+            if (now == null) {
+                match.removed++;
+                total += then.size;
+                match.add(then.element, 0, then.size);
+            } else if (now.hash.equals(then.hash)) {
+                matched += now.size;
+                total += now.size;
+                match.add(now.element, now.size, now.size);
+            } else {
+                match.changed++;
+                total += Math.max(now.size, then.size);
+                match.add(now.element, 0, Math.max(now.size, then.size));
+            }
+        }
+        for (Map.Entry<String, ClassRecord> e : current.classes.entrySet()) {
+            if (!classes.containsKey(e.getKey())) {
+                match.added++;
+                total += e.getValue().size;
+                match.add(e.getValue().element, 0, e.getValue().size);
+            }
+        }
+        match.coverage = (total > 0) ? (double) matched / total : 1.0;
+        return match;
+    }
+
+    /**
+     * Saves the fingerprint as lines {@code element <hash> <name>} and {@code class <hash> <size> <element> <name>}.
+     */
+    void save(File file) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, String> e : elements.entrySet()) {
+                out.write("element " + e.getValue() + " " + e.getKey() + "\n");
+            }
+            for (Map.Entry<String, ClassRecord> e : classes.entrySet()) {
+                ClassRecord record = e.getValue();
+                out.write("class " + record.hash + " " + record.size + " " + record.element + " " + e.getKey() + "\n");
+            }
+        }
+    }
+
+    /**
+     * @return the saved fingerprint, or {@code null} if the file does not exist or is malformed
+     */
+    static ProfileFingerprint load(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        ProfileFingerprint fingerprint = new ProfileFingerprint();
+        try {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                if (line.startsWith("element ")) {
+                    String[] fields = line.split(" ", 3);
+                    fingerprint.elements.put(fields[2], fields[1]);
+                } else if (line.startsWith("class ")) {
+                    String[] fields = line.split(" ", 5);
+                    fingerprint.classes.put(fields[4],
+                            new ClassRecord(fields[1], Long.parseLong(fields[2]), fields[3]));
+                }
+            }
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            return null;
+        }
+        return fingerprint;
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
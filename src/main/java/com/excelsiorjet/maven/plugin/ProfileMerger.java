@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Combines execution profiles ({@code .jprof}) gathered on several machines into one.
+ * <p>
+ * Each profile gets an effective weight: its base weight (e.g. the traffic share of the node that
+ * collected it) halved every {@code halfLifeDays} since the profile was last modified, so that the
+ * resulting profile follows the current production load. Profiles older than {@code maxAgeDays} are dropped.
+ * </p>
+ * <p>
+ * The format of the execution profiles is private to Excelsior JET, so the profiles themselves
+ * are combined by an external merge command, that is required to merge two or more profiles.
+ * Its arguments may contain the placeholders
+ * {@code {output}} (the merged profile), {@code {inputs}} (expands to the paths of the input profiles)
+ * and {@code {weights}} (comma separated effective weights of the inputs, normalized to sum up to 1,
+ * in the same order). Usage lists ({@code .usg}) are plain lists of classes and resources,
+ * so they are merged by the plugin itself (see {@link RuntimeUsage#merge}).
+ * </p>
+ */
+class ProfileMerger {
+
+    static final String EXTENSION = ".jprof";
+    static final String USAGE_EXTENSION = ".usg";
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    /**
+     * An input profile with its weights.
+     */
+    static class Input {
+        final File file;
+        final double ageDays;
+        final double weight;
+        double effectiveWeight;
+        /**
+         * Share of the effective weight in the total one.
+         */
+        double share;
+
+        Input(File file, double ageDays, double weight) {
+            this.file = file;
+            this.ageDays = ageDays;
+            this.weight = weight;
+        }
+    }
+
+    private final double halfLifeDays;
+    private final int maxAgeDays;
+
+    /**
+     * @param halfLifeDays age in days at which the weight of a profile halves, 0 for no decay
+     * @param maxAgeDays age in days after which a profile is dropped, 0 for no limit
+     */
+    ProfileMerger(double halfLifeDays, int maxAgeDays) {
+        this.halfLifeDays = halfLifeDays;
+        this.maxAgeDays = maxAgeDays;
+    }
+
+    /**
+     * Lists the profiles of the directory with their weights.
+     *
+     * @param weights base weights by profile file name, the profiles not listed get the weight of 1
+     * @param nowMillis current time
+     * @return the profiles to merge, ordered by decreasing effective weight
+     */
+    List<Input> collect(File dir, Map<String, Double> weights, long nowMillis) {
+        File[] files = dir.listFiles(f -> f.isFile() && f.getName().endsWith(EXTENSION));
+        List<Input> inputs = new ArrayList<>();
+        if (files == null) {
+            return inputs;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            double age = Math.max(0, nowMillis - file.lastModified()) / (double) MILLIS_PER_DAY;
+            if ((maxAgeDays > 0) && (age > maxAgeDays)) {
+                continue;
+            }
+            Input input = new Input(file, age, weights.getOrDefault(file.getName(), 1.0));
+            input.effectiveWeight = (halfLifeDays > 0) ? input.weight * Math.pow(0.5, age / halfLifeDays) : input.weight;
+            inputs.add(input);
+        }
+        return normalize(inputs);
+    }
+
+    /**
+     * Drops the inputs of zero effective weight and computes the shares of the rest.
+     *
+     * @return the inputs ordered by decreasing effective weight
+     */
+    static List<Input> normalize(List<Input> inputs) {
+        List<Input> result = inputs.stream().filter(i -> i.effectiveWeight > 0).collect(Collectors.toList());
+        double total = result.stream().mapToDouble(i -> i.effectiveWeight).sum();
+        for (Input input : result) {
+            input.share = input.effectiveWeight / total;
+        }
+        // the order of equally weighted inputs is kept
+        result.sort(Comparator.comparingDouble((Input i) -> -i.effectiveWeight));
+        return result;
+    }
+
+    /**
+     * Merges the profiles into the output file.
+     *
+     * @param command merge command with placeholders, {@code null} or empty to copy a single input,
+     *                usage lists are merged without it
+     * @param workDir working directory of the merge command
+     * @throws JetTaskFailureException if two or more profiles need the merge command, but it is not given
+     */
+    void merge(List<Input> inputs, File output, List<String> command, File workDir)
+            throws IOException, InterruptedException, JetTaskFailureException
+    {
+        output.getAbsoluteFile().getParentFile().mkdirs();
+        if ((inputs.size() == 1) && ((command == null) || command.isEmpty())) {
+            File input = inputs.get(0).file;
+            if (!input.getAbsoluteFile().equals(output.getAbsoluteFile())) {
+                Files.copy(input.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return;
+        }
+        if (output.getName().endsWith(USAGE_EXTENSION)) {
+            RuntimeUsage.merge(inputs.stream().map(i -> i.file).collect(Collectors.toList()), output);
+            return;
+        }
+        if ((command == null) || command.isEmpty()) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.MergeProfiles.NoMergeCommand.Failure",
+                    inputs.size(), output.getName()));
+        }
+        // the output may be one of the inputs
+        File tmp = new File(output.getAbsoluteFile().getParentFile(), output.getName() + ".merging");
+        List<String> args = new ArrayList<>();
+        for (String arg : command) {
+            if (arg.equals("{inputs}")) {
+                for (Input input : inputs) {
+                    args.add(input.file.getAbsolutePath());
+                }
+            } else {
+                args.add(arg.replace("{output}", tmp.getAbsolutePath())
+                        .replace("{weights}", inputs.stream()
+                                .map(i -> String.format(Locale.ROOT, "%.6f", i.share))
+                                .collect(Collectors.joining(","))));
+            }
+        }
+        try {
+            Process process = new ProcessBuilder(args).directory(workDir).inheritIO().start();
+            int exitCode = process.waitFor();
+            if ((exitCode != 0) || !tmp.isFile()) {
+                throw new IOException("Profile merge command " + args.get(0) + " failed with exit code " + exitCode);
+            }
+            Files.move(tmp.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+}
@@ -24,7 +24,6 @@ package com.excelsiorjet.maven.plugin;
 import com.excelsiorjet.api.ExcelsiorJet;
 import com.excelsiorjet.api.JetHomeException;
 import com.excelsiorjet.api.cmd.CmdLineToolException;
-import com.excelsiorjet.api.tasks.JetBuildTask;
 import com.excelsiorjet.api.tasks.JetProject;
 import com.excelsiorjet.api.tasks.JetTaskFailureException;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -46,7 +45,8 @@ import static com.excelsiorjet.api.util.Txt.s;
  *
  * @author Nikita Lipsky
  */
-@Mojo(name = "jet-profile", defaultPhase = LifecyclePhase.PACKAGE, requiresDependencyResolution = ResolutionScope.RUNTIME)
+@Mojo(name = "jet-profile", defaultPhase = LifecyclePhase.PACKAGE, requiresDependencyResolution = ResolutionScope.RUNTIME,
+        threadSafe = true)
 public class ProfileMojo extends AbstractBuildMojo {
 
     @Override
@@ -59,7 +59,7 @@ public class ProfileMojo extends AbstractBuildMojo {
         try {
             JetProject jetProject = getJetProject();
             ExcelsiorJet excelsiorJet = new ExcelsiorJet(jetHome);
-            new JetBuildTask(excelsiorJet, jetProject, true).execute();
+            profileRun(excelsiorJet, jetProject);
         } catch (JetTaskFailureException | JetHomeException  e) {
             throw new MojoFailureException(e.getMessage());
         } catch (CmdLineToolException | IOException e) {
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.util.Map;
+
+/**
+ * A named workload the application is run with to collect execution and startup profiles.
+ * <p>
+ * Each scenario of {@code <profilingScenarios>} runs in its own directory with its own arguments,
+ * all scenarios run in parallel, and the profiles they produce are merged into the ones used by the build.
+ * The parameters not set for a scenario are taken from the plugin configuration.
+ * </p>
+ */
+public class ProfilingScenario {
+
+    /**
+     * Name of the scenario, also the name of its directory, so it may only contain
+     * letters, digits, dots, dashes and underscores.
+     */
+    public String name;
+
+    /**
+     * Command line arguments of the application. If not set, {@code <runArgs>} are used.
+     */
+    public String[] runArgs;
+
+    /**
+     * JVM arguments added to {@code <jvmArgs>}.
+     */
+    public String[] jvmArgs;
+
+    /**
+     * System properties passed to the application in addition to {@code <jvmArgs>}.
+     */
+    public Map<String, String> systemProperties;
+
+    /**
+     * Time in seconds after which the application is stopped. If not set, {@code <testRunTimeout>}
+     * or {@code <profileRunTimeout>} of {@code <execProfiles>} is used.
+     */
+    public int timeout;
+
+    /**
+     * Weight of the scenario profiles in the merged ones, e.g. the share of the workload in production.
+     * Default value is 1.
+     */
+    public double weight = 1;
+}
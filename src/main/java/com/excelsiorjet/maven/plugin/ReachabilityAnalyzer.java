@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the classpath elements and classes that cannot be reached from the entry points of the application.
+ * <p>
+ * The analyzer builds the graph of the class references read by {@link BytecodeScanner}, including the string
+ * constants naming the classes of the classpath, and walks it from the entry points:
+ * </p>
+ * <ul>
+ *     <li>the given classes, and {@code Main-Class} and {@code Start-Class} of the main artifact manifest</li>
+ *     <li>the servlets, filters and listeners declared in {@code web.xml} and {@code web-fragment.xml}
+ *     or annotated with {@code @WebServlet}, {@code @WebFilter} and {@code @WebListener}</li>
+ *     <li>the Spring components and configurations, that is the classes annotated with Spring stereotypes
+ *     and {@code @Configuration} directly or via meta-annotations, and the classes listed
+ *     in {@code META-INF/spring.factories} and {@code META-INF/spring/*.imports}</li>
+ *     <li>the classes matched by the keep rules</li>
+ * </ul>
+ * <p>
+ * If none of them is found, e.g. for dynamic libraries, all classes of the main artifact are the entry points.
+ * Service providers listed in {@code META-INF/services} are reached along with their service,
+ * and are entry points themselves if the service is not on the classpath (e.g. {@code java.sql.Driver}).
+ * </p>
+ * <p>
+ * The static analysis cannot see the classes loaded by names computed at run time, so the classes loaded
+ * during the Test Run are walked from afterwards, and the elements reached only then are reported as kept
+ * by the Test Run.
+ * </p>
+ */
+class ReachabilityAnalyzer {
+
+    /**
+     * Annotations (and packages of annotations) that make the annotated classes entry points.
+     */
+    private static final String[] ENTRY_ANNOTATIONS = {
+            "org.springframework.stereotype.",
+            "org.springframework.context.annotation.Configuration",
+            "org.springframework.boot.SpringBootConfiguration",
+            "javax.servlet.annotation.WebServlet",
+            "javax.servlet.annotation.WebFilter",
+            "javax.servlet.annotation.WebListener",
+            "jakarta.servlet.annotation.WebServlet",
+            "jakarta.servlet.annotation.WebFilter",
+            "jakarta.servlet.annotation.WebListener",
+    };
+
+    private static final Pattern WEB_XML_CLASS = Pattern.compile(
+            "<\\s*(?:[\\w-]+:)?(?:servlet|filter|listener)-class\\s*>\\s*([^<\\s]+)\\s*<");
+
+    private static final String SERVICES = "META-INF/services/";
+
+    /**
+     * Classpath element and its classes.
+     */
+    static class Element {
+        final String id;
+        final File file;
+        final int classes;
+        final int reachableClasses;
+        final boolean keptByTestRun;
+        final List<String> unreachableClasses;
+
+        Element(String id, File file, int classes, int reachableClasses, boolean keptByTestRun,
+                List<String> unreachableClasses)
+        {
+            this.id = id;
+            this.file = file;
+            this.classes = classes;
+            this.reachableClasses = reachableClasses;
+            this.keptByTestRun = keptByTestRun;
+            this.unreachableClasses = unreachableClasses;
+        }
+
+        /**
+         * @return whether none of the classes of the element is reachable.
+         *         Elements without classes (e.g. resource jars) are never unreachable.
+         */
+        boolean isUnreachable() {
+            return (classes > 0) && (reachableClasses == 0);
+        }
+    }
+
+    /**
+     * Result of the analysis.
+     */
+    static class Result {
+        final List<Element> elements;
+        final int entryPoints;
+        final int classes;
+        final int reachableClasses;
+
+        Result(List<Element> elements, int entryPoints, int classes, int reachableClasses) {
+            this.elements = elements;
+            this.entryPoints = entryPoints;
+            this.classes = classes;
+            this.reachableClasses = reachableClasses;
+        }
+
+        /**
+         * @return the unreachable elements except for the main artifact
+         */
+        List<Element> unreachable() {
+            return elements.subList(1, elements.size()).stream()
+                    .filter(Element::isUnreachable)
+                    .collect(Collectors.toList());
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("entryPoints", entryPoints);
+            json.put("classes", classes);
+            json.put("reachableClasses", reachableClasses);
+            List<Object> list = new ArrayList<>();
+            for (Element element : elements) {
+                Map<String, Object> el = new LinkedHashMap<>();
+                el.put("id", element.id);
+                el.put("path", element.file.getAbsolutePath());
+                el.put("classes", element.classes);
+                el.put("reachableClasses", element.reachableClasses);
+                el.put("unreachable", element.isUnreachable());
+                el.put("keptByTestRun", element.keptByTestRun);
+                el.put("unreachableClasses", element.unreachableClasses);
+                list.add(el);
+            }
+            json.put("elements", list);
+            return json;
+        }
+    }
+
+    /**
+     * Classes, entry points and services of a single classpath element.
+     */
+    private static class Scan {
+        final Map<String, Set<String>> references = new LinkedHashMap<>();
+        final Set<String> annotations = new HashSet<>();
+        final Set<String> entryPoints = new LinkedHashSet<>();
+        final Map<String, List<String>> services = new HashMap<>();
+    }
+
+    private final int threads;
+    private final Collection<String> entryPoints;
+    private final Collection<String> keepRules;
+    private final Collection<String> loadedClasses;
+
+    /**
+     * @param threads number of scanning threads
+     * @param entryPoints names of the entry point classes, such as the main class
+     * @param keepRules rules keeping classes reachable: a class name, {@code pkg.*} for the classes of a package,
+     *                  {@code pkg.**} for the classes of a package and its subpackages,
+     *                  or {@code groupId:artifactId} for all classes of a dependency
+     * @param loadedClasses names of the classes loaded during the Test Run
+     */
+    ReachabilityAnalyzer(int threads, Collection<String> entryPoints, Collection<String> keepRules,
+                         Collection<String> loadedClasses)
+    {
+        this.threads = Math.max(1, threads);
+        this.entryPoints = entryPoints;
+        this.keepRules = keepRules;
+        this.loadedClasses = loadedClasses;
+    }
+
+    /**
+     * @param classpath classpath elements by their ids, the main artifact goes first
+     */
+    Result analyze(Map<String, File> classpath) throws IOException {
+        List<String> ids = new ArrayList<>(classpath.keySet());
+        List<Scan> scans = scanAll(classpath.values(), ids.isEmpty() ? null : classpath.get(ids.get(0)));
+
+        // a class may be defined by several elements, e.g. by both a Spring Boot jar and a dependency
+        Map<String, Set<String>> references = new HashMap<>();
+        Map<String, List<Integer>> definedBy = new HashMap<>();
+        Map<String, List<String>> providers = new HashMap<>();
+        Set<String> annotations = new HashSet<>();
+        for (int i = 0; i < scans.size(); i++) {
+            Scan scan = scans.get(i);
+            for (Map.Entry<String, Set<String>> e : scan.references.entrySet()) {
+                references.computeIfAbsent(e.getKey(), k -> new HashSet<>()).addAll(e.getValue());
+                definedBy.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).add(i);
+            }
+            annotations.addAll(scan.annotations);
+            scan.services.forEach((service, list) ->
+                    providers.computeIfAbsent(service, k -> new ArrayList<>()).addAll(list));
+        }
+
+        Set<String> roots = new LinkedHashSet<>(entryPoints);
+        scans.forEach(scan -> roots.addAll(scan.entryPoints));
+        Set<String> entryAnnotations = entryAnnotations(annotations, references);
+        references.forEach((name, refs) -> {
+            if (!annotations.contains(name) && refs.stream().anyMatch(entryAnnotations::contains)) {
+                roots.add(name);
+            }
+        });
+        roots.retainAll(references.keySet());
+        if (roots.isEmpty() && !scans.isEmpty()) {
+            roots.addAll(scans.get(0).references.keySet());
+        }
+        for (String name : references.keySet()) {
+            if (isKept(name, definedBy.get(name), ids)) {
+                roots.add(name);
+            }
+        }
+        // providers of the services not defined on the classpath are looked up by the Java runtime or a container
+        providers.forEach((service, list) -> {
+            if (!references.containsKey(service)) {
+                roots.addAll(list);
+            }
+        });
+
+        Set<String> reached = new HashSet<>();
+        walk(roots, references, providers, reached);
+        Set<Integer> reachedStatically = elementsOf(reached, definedBy);
+        walk(loadedClasses, references, providers, reached);
+        Set<Integer> reachedByTestRun = elementsOf(reached, definedBy);
+        reachedByTestRun.removeAll(reachedStatically);
+
+        List<Element> elements = new ArrayList<>();
+        for (int i = 0; i < scans.size(); i++) {
+            Set<String> classes = scans.get(i).references.keySet();
+            List<String> unreachable = classes.stream()
+                    .filter(name -> !reached.contains(name))
+                    .sorted()
+                    .collect(Collectors.toList());
+            elements.add(new Element(ids.get(i), classpath.get(ids.get(i)), classes.size(),
+                    classes.size() - unreachable.size(), reachedByTestRun.contains(i), unreachable));
+        }
+        return new Result(elements, roots.size(), references.size(), reached.size());
+    }
+
+    /**
+     * @return the entry annotations defined or referenced by the application, including the annotations
+     *         meta-annotated with them
+     */
+    private static Set<String> entryAnnotations(Set<String> annotations, Map<String, Set<String>> references) {
+        Set<String> result = new HashSet<>();
+        references.values().forEach(refs -> refs.stream().filter(ReachabilityAnalyzer::isEntryAnnotation)
+                .forEach(result::add));
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (String annotation : annotations) {
+                if (!result.contains(annotation) &&
+                        references.get(annotation).stream().anyMatch(result::contains))
+                {
+                    result.add(annotation);
+                    changed = true;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean isEntryAnnotation(String name) {
+        for (String annotation : ENTRY_ANNOTATIONS) {
+            if (annotation.endsWith(".") ? name.startsWith(annotation) : name.equals(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isKept(String className, List<Integer> elements, List<String> ids) {
+        for (String rule : keepRules) {
+            if (rule.indexOf(':') > 0) {
+                for (int element : elements) {
+                    String id = ids.get(element);
+                    if (id.equals(rule) || id.startsWith(rule + ":")) {
+                        return true;
+                    }
+                }
+            } else if (rule.endsWith(".**")) {
+                if (className.startsWith(rule.substring(0, rule.length() - 2))) {
+                    return true;
+                }
+            } else if (rule.endsWith(".*")) {
+                String pkg = rule.substring(0, rule.length() - 1);
+                if (className.startsWith(pkg) && (className.indexOf('.', pkg.length()) < 0)) {
+                    return true;
+                }
+            } else if (className.equals(rule)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void walk(Collection<String> roots, Map<String, Set<String>> references,
+                             Map<String, List<String>> providers, Set<String> reached)
+    {
+        Deque<String> queue = new ArrayDeque<>();
+        for (String root : roots) {
+            if (references.containsKey(root) && reached.add(root)) {
+                queue.add(root);
+            }
+        }
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            List<String> next = new ArrayList<>(references.get(name));
+            next.addAll(providers.getOrDefault(name, Collections.emptyList()));
+            for (String target : next) {
+                if (references.containsKey(target) && reached.add(target)) {
+                    queue.add(target);
+                }
+            }
+        }
+    }
+
+    private static Set<Integer> elementsOf(Set<String> classes, Map<String, List<Integer>> definedBy) {
+        Set<Integer> elements = new HashSet<>();
+        classes.forEach(name -> elements.addAll(definedBy.get(name)));
+        return elements;
+    }
+
+    private List<Scan> scanAll(Collection<File> classpath, File mainArtifact) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "JET reachability analyzer " + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            List<Future<Scan>> futures = new ArrayList<>();
+            for (File file : classpath) {
+                boolean main = (file == mainArtifact);
+                futures.add(executor.submit(() -> scan(file, main)));
+            }
+            List<Scan> scans = new ArrayList<>();
+            for (Future<Scan> future : futures) {
+                scans.add(await(future));
+            }
+            return scans;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Scan await(Future<Scan> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static Scan scan(File file, boolean mainArtifact) throws IOException {
+        Scan scan = new Scan();
+        BytecodeScanner.scan(file, name -> name.endsWith(".class") || isDescriptor(name, mainArtifact),
+                (name, content) -> {
+                    if (name.endsWith(".class")) {
+                        scanClass(content, scan);
+                    } else {
+                        scanDescriptor(name, bytes(content), scan);
+                    }
+                });
+        return scan;
+    }
+
+    /**
+     * @return whether the entry is a descriptor declaring entry points or services
+     */
+    private static boolean isDescriptor(String name, boolean mainArtifact) {
+        if (name.equals("META-INF/MANIFEST.MF")) {
+            return mainArtifact;
+        }
+        if (name.endsWith("/")) {
+            return false;
+        }
+        int services = name.lastIndexOf(SERVICES);
+        return name.endsWith("WEB-INF/web.xml") || name.endsWith("META-INF/web-fragment.xml") ||
+                name.endsWith("META-INF/spring.factories") ||
+                (name.contains("META-INF/spring/") && name.endsWith(".imports")) ||
+                ((services >= 0) && (name.indexOf('/', services + SERVICES.length()) < 0));
+    }
+
+    private static void scanClass(ByteBuffer content, Scan scan) {
+        Set<String> references = new HashSet<>();
+        BytecodeScanner.ClassInfo info = BytecodeScanner.scanClass(content,
+                (from, target, reflective) -> references.add(target));
+        if (info == null) {
+            return;
+        }
+        references.remove(info.name);
+        scan.references.computeIfAbsent(info.name, k -> new HashSet<>()).addAll(references);
+        if (info.isAnnotation()) {
+            scan.annotations.add(info.name);
+        }
+    }
+
+    private static void scanDescriptor(String name, byte[] bytes, Scan scan) throws IOException {
+        if (name.endsWith("MANIFEST.MF")) {
+            Attributes attributes = new Manifest(new ByteArrayInputStream(bytes)).getMainAttributes();
+            for (String attribute : new String[]{"Main-Class", "Start-Class"}) {
+                String value = attributes.getValue(attribute);
+                if (value != null) {
+                    scan.entryPoints.add(value.trim());
+                }
+            }
+            return;
+        }
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        if (name.endsWith(".xml")) {
+            Matcher m = WEB_XML_CLASS.matcher(text);
+            while (m.find()) {
+                scan.entryPoints.add(m.group(1));
+            }
+        } else if (name.endsWith("spring.factories")) {
+            Properties factories = new Properties();
+            factories.load(new StringReader(text));
+            for (String key : factories.stringPropertyNames()) {
+                for (String className : factories.getProperty(key).split(",")) {
+                    if (!className.trim().isEmpty()) {
+                        scan.entryPoints.add(className.trim());
+                    }
+                }
+            }
+        } else {
+            List<String> classes = new ArrayList<>();
+            for (String line : text.split("\\r?\\n")) {
+                int comment = line.indexOf('#');
+                String className = ((comment >= 0) ? line.substring(0, comment) : line).trim();
+                if (!className.isEmpty()) {
+                    classes.add(className);
+                }
+            }
+            if (name.endsWith(".imports")) {
+                scan.entryPoints.addAll(classes);
+            } else {
+                String service = name.substring(name.lastIndexOf(SERVICES) + SERVICES.length());
+                scan.services.computeIfAbsent(service, k -> new ArrayList<>()).addAll(classes);
+            }
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer content) {
+        byte[] bytes = new byte[content.remaining()];
+        content.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+/**
+ * Conditions for considering the application started by {@code jet:run} ready, e.g. to serve integration tests.
+ * <p>
+ * If any of the conditions is set, {@code jet:run} leaves the application running in background
+ * and returns as soon as all the set conditions are met, so the subsequent goals, such as the integration tests,
+ * may proceed. The application is then stopped with {@code jet:stop}.
+ * </p>
+ */
+public class ReadinessConfig {
+
+    /**
+     * TCP port that accepts connections once the application is ready.
+     */
+    public int port;
+
+    /**
+     * Host to connect to the {@link #port} at. Default value is {@code localhost}.
+     */
+    public String host = "localhost";
+
+    /**
+     * HTTP(S) URL that responds with a 2xx status code once the application is ready,
+     * e.g. {@code http://localhost:8080/health}.
+     */
+    public String url;
+
+    /**
+     * Regular expression that matches a line of the application output printed once it is ready,
+     * e.g. {@code Started \w+ in}.
+     */
+    public String logPattern;
+
+    /**
+     * Time in seconds to wait for the application to become ready, after which the build fails
+     * and the application is stopped. Default value is 120.
+     */
+    public int timeout = 120;
+
+    /**
+     * Interval in milliseconds between the checks of the port and the URL. Default value is 100.
+     */
+    public int interval = 100;
+
+    boolean isEnabled() {
+        return (port > 0) || (url != null) || (logPattern != null);
+    }
+}
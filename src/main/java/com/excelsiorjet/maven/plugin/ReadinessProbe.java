@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URL;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Waits for the conditions of {@link ReadinessConfig} to be met.
+ * <p>
+ * The port and the URL are polled, while the lines of the application output
+ * are passed to {@link #onOutput} as they are printed.
+ * </p>
+ */
+class ReadinessProbe {
+
+    private final ReadinessConfig config;
+    private final Pattern logPattern;
+    private final URL url;
+
+    private volatile boolean logMatched;
+    private boolean portOpen;
+    private boolean urlAvailable;
+
+    ReadinessProbe(ReadinessConfig config) throws JetTaskFailureException {
+        this.config = config;
+        try {
+            this.logPattern = (config.logPattern != null) ? Pattern.compile(config.logPattern) : null;
+        } catch (PatternSyntaxException e) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.Readiness.BadLogPattern.Failure", config.logPattern,
+                    e.getDescription()));
+        }
+        try {
+            this.url = (config.url != null) ? new URL(config.url) : null;
+        } catch (MalformedURLException e) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.Readiness.BadUrl.Failure", config.url, e.getMessage()));
+        }
+    }
+
+    /**
+     * Checks a line of the application output against the log pattern.
+     */
+    void onOutput(String line) {
+        if ((logPattern != null) && !logMatched && logPattern.matcher(line).find()) {
+            logMatched = true;
+        }
+    }
+
+    /**
+     * Waits until all the configured conditions are met.
+     *
+     * @param startMillis time the application was started at
+     * @param running tells whether the application is still running
+     * @return time from the start of the application to its readiness in milliseconds
+     * @throws JetTaskFailureException if the application has exited or the timeout has expired
+     */
+    long await(long startMillis, BooleanSupplier running) throws JetTaskFailureException, InterruptedException {
+        long deadline = startMillis + config.timeout * 1000L;
+        while (true) {
+            if (isReady()) {
+                return System.currentTimeMillis() - startMillis;
+            }
+            if (!running.getAsBoolean()) {
+                throw new JetTaskFailureException(s("JetMavenPlugin.Readiness.Exited.Failure"));
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new JetTaskFailureException(s("JetMavenPlugin.Readiness.Timeout.Failure", config.timeout,
+                        pending()));
+            }
+            Thread.sleep(Math.max(10, config.interval));
+        }
+    }
+
+    private boolean isReady() {
+        // the conditions that have been met once are not checked again
+        if ((config.port > 0) && !portOpen) {
+            portOpen = isPortOpen();
+        }
+        if ((url != null) && !urlAvailable) {
+            urlAvailable = isUrlAvailable();
+        }
+        return ((config.port <= 0) || portOpen) && ((url == null) || urlAvailable) &&
+                ((logPattern == null) || logMatched);
+    }
+
+    private boolean isPortOpen() {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(config.host, config.port), connectTimeout());
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean isUrlAvailable() {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(connectTimeout());
+            connection.setReadTimeout(Math.max(1000, connectTimeout()));
+            connection.setInstanceFollowRedirects(true);
+            int code = connection.getResponseCode();
+            return (code >= 200) && (code < 300);
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private int connectTimeout() {
+        return Math.max(100, config.interval * 5);
+    }
+
+    /**
+     * @return the conditions not met yet, for the failure message
+     */
+    private String pending() {
+        StringBuilder pending = new StringBuilder();
+        if ((config.port > 0) && !portOpen) {
+            pending.append(config.host).append(':').append(config.port);
+        }
+        if ((url != null) && !urlAvailable) {
+            pending.append((pending.length() > 0) ? ", " : "").append(url);
+        }
+        if ((logPattern != null) && !logMatched) {
+            pending.append((pending.length() > 0) ? ", " : "").append(logPattern.pattern());
+        }
+        return pending.toString();
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.maven.plugin.ProcessTreeSampler.ProcessInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Time series of resource usage of the processes run by a task, such as the application during a Test Run.
+ * <p>
+ * Each point aggregates all processes of the task running at the moment: their resident set size,
+ * the sum of their peak resident set sizes ({@code VmHWM}), threads and open file descriptors,
+ * along with the CPU time and I/O bytes consumed by all processes of the task so far.
+ * Only Linux is supported, see {@link ProcessTreeSampler}.
+ * </p>
+ */
+class ResourceTelemetry {
+
+    static final String DIR_NAME = "telemetry";
+
+    private static final String[] COLUMNS = {
+            "offsetMillis", "processes", "cpuMillis", "cpuPercent", "rssKB", "hwmKB", "threads", "fds",
+            "readBytes", "writeBytes"
+    };
+
+    /**
+     * Aggregated resource usage at a moment.
+     */
+    static class Point {
+        long offsetMillis;
+        int processes;
+        long cpuMillis;
+        double cpuPercent;
+        long rssKB;
+        long hwmKB;
+        int threads;
+        int fds;
+        long readBytes;
+        long writeBytes;
+
+        Object[] values() {
+            return new Object[]{offsetMillis, processes, cpuMillis, Math.round(cpuPercent * 10) / 10.0, rssKB, hwmKB,
+                    threads, fds, readBytes, writeBytes};
+        }
+    }
+
+    private final long intervalMillis;
+    private final long startMillis;
+    private final List<Point> points = new ArrayList<>();
+    private final ProcessTreeSampler sampler;
+
+    private ResourceTelemetry(File scope, long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+        this.startMillis = System.currentTimeMillis();
+        this.sampler = new ProcessTreeSampler(scope, intervalMillis, this::sampled).start();
+    }
+
+    /**
+     * Starts sampling the processes that will be run by the current thread.
+     *
+     * @param scope directory where the processes run, {@code null} to sample all child processes of this JVM
+     * @param intervalMillis sampling interval
+     */
+    static ResourceTelemetry start(File scope, long intervalMillis) {
+        return new ResourceTelemetry(scope, intervalMillis);
+    }
+
+    /**
+     * Stops sampling.
+     */
+    void finish() {
+        sampler.close();
+    }
+
+    private synchronized void sampled(long millis, Collection<ProcessInfo> processes) {
+        Point point = new Point();
+        point.offsetMillis = millis - startMillis;
+        for (ProcessInfo p : processes) {
+            point.cpuMillis += p.cpuMillis;
+            point.readBytes += p.readBytes;
+            point.writeBytes += p.writeBytes;
+            if (p.endMillis == millis) {
+                point.processes++;
+                point.rssKB += p.rssKB;
+                point.hwmKB += p.peakRssKB;
+                point.threads += p.threads;
+                point.fds += p.fds;
+            }
+        }
+        if (!points.isEmpty()) {
+            Point previous = points.get(points.size() - 1);
+            long elapsed = point.offsetMillis - previous.offsetMillis;
+            if (elapsed > 0) {
+                point.cpuPercent = 100.0 * (point.cpuMillis - previous.cpuMillis) / elapsed;
+            }
+        }
+        points.add(point);
+    }
+
+    synchronized List<Point> getPoints() {
+        return new ArrayList<>(points);
+    }
+
+    /**
+     * Saves the time series to a new file in the directory.
+     *
+     * @param name name of the task
+     * @param format {@code csv} or {@code json}
+     * @return the created file
+     */
+    File save(File dir, String name, String format) throws IOException {
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date(startMillis));
+        File file = new File(dir, name + "-" + timestamp + "." + format);
+        List<Point> series = getPoints();
+        if ("json".equals(format)) {
+            Map<String, Object> root = new LinkedHashMap<>();
+            root.put("task", name);
+            root.put("processSampling", ProcessTreeSampler.isSupported());
+            root.put("intervalMillis", intervalMillis);
+            root.put("summary", summary(series));
+            List<Object> rows = new ArrayList<>();
+            for (Point point : series) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                Object[] values = point.values();
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    row.put(COLUMNS[i], values[i]);
+                }
+                rows.add(row);
+            }
+            root.put("series", rows);
+            Json.write(file, root);
+        } else {
+            StringBuilder csv = new StringBuilder(String.join(",", COLUMNS)).append('\n');
+            for (Point point : series) {
+                Object[] values = point.values();
+                for (int i = 0; i < values.length; i++) {
+                    csv.append((i > 0) ? "," : "").append(values[i]);
+                }
+                csv.append('\n');
+            }
+            dir.mkdirs();
+            Files.write(file.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    /**
+     * @return peak and average values of the gauges, and the totals of the counters
+     */
+    static Map<String, Object> summary(List<Point> series) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        Point last = series.isEmpty() ? new Point() : series.get(series.size() - 1);
+        summary.put("cpuMillis", last.cpuMillis);
+        summary.put("readBytes", last.readBytes);
+        summary.put("writeBytes", last.writeBytes);
+        summary.put("cpuPercent", gauge(series, p -> p.cpuPercent));
+        summary.put("rssKB", gauge(series, p -> p.rssKB));
+        summary.put("hwmKB", gauge(series, p -> p.hwmKB));
+        summary.put("threads", gauge(series, p -> p.threads));
+        summary.put("fds", gauge(series, p -> p.fds));
+        return summary;
+    }
+
+    private interface Gauge {
+        double of(Point point);
+    }
+
+    /**
+     * @return peak and average of the gauge over the points where the task had processes running
+     */
+    private static Map<String, Object> gauge(List<Point> series, Gauge gauge) {
+        double peak = 0;
+        double sum = 0;
+        int count = 0;
+        for (Point point : series) {
+            if (point.processes > 0) {
+                double value = gauge.of(point);
+                peak = Math.max(peak, value);
+                sum += value;
+                count++;
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("peak", Math.round(peak * 10) / 10.0);
+        result.put("average", (count > 0) ? Math.round(sum / count * 10) / 10.0 : 0.0);
+        return result;
+    }
+
+    /**
+     * Prints peak and average values.
+     */
+    void logSummary(File file) {
+        List<Point> series = getPoints();
+        Point last = series.isEmpty() ? new Point() : series.get(series.size() - 1);
+        logger.info(s("JetMavenPlugin.Telemetry.Summary.Info", file));
+        logger.info(String.format("  %-18s %12s %12s", "Metric", "peak", "average"));
+        logRow("CPU, %", series, p -> p.cpuPercent);
+        logRow("RSS, MB", series, p -> p.rssKB / 1024.0);
+        logRow("VmHWM, MB", series, p -> p.hwmKB / 1024.0);
+        logRow("threads", series, p -> p.threads);
+        logRow("open files", series, p -> p.fds);
+        logger.info(String.format(Locale.ROOT, "  %-18s %12.1f", "CPU time, s", last.cpuMillis / 1000.0));
+        logger.info(String.format(Locale.ROOT, "  %-18s %12.1f", "read, MB", last.readBytes / (1024.0 * 1024)));
+        logger.info(String.format(Locale.ROOT, "  %-18s %12.1f", "written, MB", last.writeBytes / (1024.0 * 1024)));
+    }
+
+    private static void logRow(String metric, List<Point> series, Gauge gauge) {
+        Map<String, Object> values = gauge(series, gauge);
+        logger.info(String.format(Locale.ROOT, "  %-18s %12.1f %12.1f", metric, values.get("peak"), values.get("average")));
+    }
+}
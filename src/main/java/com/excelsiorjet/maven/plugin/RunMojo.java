@@ -27,26 +27,53 @@ import com.excelsiorjet.api.cmd.CmdLineToolException;
 import com.excelsiorjet.api.tasks.JetProject;
 import com.excelsiorjet.api.tasks.JetTaskFailureException;
 import com.excelsiorjet.api.tasks.RunTask;
+import com.excelsiorjet.api.tasks.StopTask;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Execute;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.excelsiorjet.api.log.Log.logger;
 import static com.excelsiorjet.api.util.Txt.s;
 
 /**
  * Mojo for running executables generated with Excelsior JET.
+ * <p>
+ * If {@link #readiness} is configured, the goal returns as soon as the application is ready,
+ * leaving it running until {@link StopMojo} stops it, e.g. in the {@code post-integration-test} phase.
+ * </p>
  *
  * @author Nikita Lipsky
  */
-@Mojo(name = "run", defaultPhase = LifecyclePhase.PRE_INTEGRATION_TEST, requiresDependencyResolution = ResolutionScope.RUNTIME)
+@Mojo(name = "run", defaultPhase = LifecyclePhase.PRE_INTEGRATION_TEST, requiresDependencyResolution = ResolutionScope.RUNTIME,
+        threadSafe = true)
 public class RunMojo extends AbstractBuildMojo {
 
+    static final String READINESS_FILE_NAME = "readiness.json";
+
+    /**
+     * Conditions for the application to be considered ready, such as an open port,
+     * an available URL or a line printed by the application.
+     * The time it took the application to become ready is printed and saved to {@code readiness.json}
+     * in {@link #jetOutputDir}.
+     *
+     * @see ReadinessConfig#port
+     * @see ReadinessConfig#url
+     * @see ReadinessConfig#logPattern
+     * @see ReadinessConfig#timeout
+     */
+    @Parameter
+    protected ReadinessConfig readiness;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         init();
@@ -57,14 +84,81 @@ public class RunMojo extends AbstractBuildMojo {
         try {
             JetProject jetProject = getJetProject();
             ExcelsiorJet excelsiorJet = new ExcelsiorJet(jetHome);
-            new RunTask(excelsiorJet, jetProject).execute();
+            if ((readiness != null) && readiness.isEnabled()) {
+                runUntilReady(excelsiorJet, jetProject);
+                return;
+            }
+            ResourceTelemetry telemetry = startTelemetry();
+            try {
+                new RunTask(excelsiorJet, jetProject).execute();
+            } finally {
+                finishTelemetry(telemetry, "run");
+            }
         } catch (JetTaskFailureException | JetHomeException  e) {
             throw new MojoFailureException(e.getMessage());
         } catch (CmdLineToolException | IOException e) {
             logger.debug("JetTask execution error", e);
             logger.error(e.getMessage());
             throw new MojoExecutionException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs the application in background and waits for it to become ready.
+     *
+     * @return the thread running the application
+     */
+    protected Thread runUntilReady(ExcelsiorJet excelsiorJet, JetProject jetProject)
+            throws JetTaskFailureException, IOException, CmdLineToolException, InterruptedException
+    {
+        ReadinessProbe probe = new ReadinessProbe(readiness);
+        ResourceTelemetry telemetry = startTelemetry();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        long start = System.currentTimeMillis();
+        Thread app = new Thread(MavenLog.bound(() -> {
+            MavenLog.listen(probe::onOutput);
+            try {
+                new RunTask(excelsiorJet, jetProject).execute();
+            } catch (JetTaskFailureException | CmdLineToolException | IOException e) {
+                failure.set(e);
+            } finally {
+                finishTelemetry(telemetry, "run");
+            }
+        }), "JET run");
+        // the application outlives the goal, and is stopped by jet:stop
+        app.setDaemon(true);
+        app.start();
+        long readyMillis;
+        try {
+            readyMillis = probe.await(start, app::isAlive);
+        } catch (JetTaskFailureException e) {
+            if (app.isAlive()) {
+                new StopTask(excelsiorJet, jetProject).execute();
+            } else if (failure.get() != null) {
+                rethrow(failure.get());
+            }
+            throw e;
+        }
+        logger.info(s("JetMavenPlugin.Readiness.Ready.Info", readyMillis));
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("readyMillis", readyMillis);
+        report.put("port", (readiness.port > 0) ? readiness.port : null);
+        report.put("url", readiness.url);
+        report.put("logPattern", readiness.logPattern);
+        Json.write(new File(getJetOutputDir(), READINESS_FILE_NAME), report);
+        return app;
+    }
+
+    private static void rethrow(Exception e) throws JetTaskFailureException, IOException, CmdLineToolException {
+        if (e instanceof JetTaskFailureException) {
+            throw (JetTaskFailureException) e;
+        } else if (e instanceof CmdLineToolException) {
+            throw (CmdLineToolException) e;
         }
+        throw (IOException) e;
     }
 
 }
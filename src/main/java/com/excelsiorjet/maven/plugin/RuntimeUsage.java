@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Chooses the Excelsior JET runtime components, locales and Java SE components to detach
+ * from the classes and resources the application used during the Test Run.
+ * <p>
+ * The Test Run records them in the usage list ({@code .usg}). The application needs an optional component,
+ * a locale or a detachable Java SE component if it used any class or resource of the packages that make it up.
+ * The savings are estimated by the size of those classes and resources in the jars of the Excelsior JET runtime.
+ * </p>
+ */
+class RuntimeUsage {
+
+    static final String AUTO = "auto";
+
+    /**
+     * Optional runtime components and their packages. More specific components go first.
+     */
+    static final Map<String, String[]> COMPONENTS = new LinkedHashMap<>();
+
+    /**
+     * Java SE components that Java Runtime Slim-Down may detach and their packages.
+     */
+    static final Map<String, String[]> DETACHABLE = new LinkedHashMap<>();
+
+    /**
+     * Locale groups of the languages that are not in the {@code European} group.
+     */
+    private static final Map<String, String> LOCALE_GROUPS = new HashMap<>();
+
+    private static final String EUROPEAN = "European";
+
+    static {
+        COMPONENTS.put("javafx-webkit", new String[]{"javafx/scene/web/", "com/sun/webkit/", "com/sun/javafx/webkit/"});
+        COMPONENTS.put("javafx-swing", new String[]{"javafx/embed/swing/", "com/sun/javafx/embed/swing/"});
+        COMPONENTS.put("javafx-qtkit", new String[]{"com/sun/media/jfxmediaimpl/platform/osx/"});
+        COMPONENTS.put("javafx", new String[]{"javafx/", "com/sun/javafx/", "com/sun/prism/", "com/sun/glass/"});
+        COMPONENTS.put("nashorn", new String[]{"jdk/nashorn/"});
+        COMPONENTS.put("jce", new String[]{"com/sun/crypto/provider/"});
+        COMPONENTS.put("accessibility", new String[]{"com/sun/java/accessibility/"});
+        COMPONENTS.put("cldr", new String[]{"sun/util/resources/cldr/", "sun/text/resources/cldr/"});
+        COMPONENTS.put("dnsns", new String[]{"sun/net/spi/nameservice/dns/"});
+        COMPONENTS.put("zipfs", new String[]{"com/sun/nio/zipfs/", "jdk/nio/zipfs/"});
+
+        DETACHABLE.put("corba", new String[]{"org/omg/", "com/sun/corba/", "javax/rmi/CORBA/", "javax/activity/"});
+        DETACHABLE.put("management", new String[]{"java/lang/management/", "javax/management/", "sun/management/",
+                "com/sun/management/", "com/sun/jmx/"});
+        DETACHABLE.put("jax-ws", new String[]{"javax/xml/ws/", "javax/jws/", "javax/xml/soap/",
+                "com/sun/xml/internal/ws/", "com/sun/xml/internal/messaging/"});
+        DETACHABLE.put("xml", new String[]{"javax/xml/", "org/w3c/dom/", "org/xml/sax/", "com/sun/org/apache/",
+                "com/sun/xml/internal/"});
+        DETACHABLE.put("jndi", new String[]{"javax/naming/", "com/sun/jndi/"});
+        DETACHABLE.put("jdbc", new String[]{"java/sql/", "javax/sql/", "com/sun/rowset/"});
+        DETACHABLE.put("swing", new String[]{"javax/swing/", "com/sun/java/swing/"});
+        DETACHABLE.put("awt", new String[]{"java/awt/", "sun/awt/", "sun/java2d/", "sun/font/", "javax/imageio/"});
+        DETACHABLE.put("jsound", new String[]{"javax/sound/", "com/sun/media/sound/"});
+        DETACHABLE.put("rmi", new String[]{"java/rmi/", "sun/rmi/", "javax/rmi/"});
+
+        LOCALE_GROUPS.put("ar", "Arabic");
+        LOCALE_GROUPS.put("zh", "Chinese");
+        LOCALE_GROUPS.put("ja", "Japanese");
+        LOCALE_GROUPS.put("ko", "Korean");
+        LOCALE_GROUPS.put("th", "Thai");
+        LOCALE_GROUPS.put("vi", "Vietnamese");
+        LOCALE_GROUPS.put("iw", "Hebrew");
+        LOCALE_GROUPS.put("he", "Hebrew");
+        LOCALE_GROUPS.put("hi", "Hindi");
+        LOCALE_GROUPS.put("in", "Indonesian");
+        LOCALE_GROUPS.put("id", "Indonesian");
+        LOCALE_GROUPS.put("ms", "Malay");
+    }
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z_$][\\w$-]*(?:[./][A-Za-z_$][\\w$-]*)+");
+
+    /**
+     * Locale data of the Java runtime, e.g. {@code sun/text/resources/ja/FormatData_ja}.
+     */
+    private static final Pattern LOCALE_DATA =
+            Pattern.compile("sun/(?:text|util)/resources/(?:\\w+/)*[A-Za-z]+_([a-z]{2,3})(?:[_./].*)?");
+
+    private final NavigableSet<String> names;
+
+    RuntimeUsage(Collection<String> names) {
+        this.names = new TreeSet<>(names);
+    }
+
+    /**
+     * Reads the class and resource names from a usage list.
+     * Class names are taken both in the dotted and in the internal form.
+     */
+    static RuntimeUsage load(File usageList) throws IOException {
+        Set<String> names = new HashSet<>();
+        for (String line : Files.readAllLines(usageList.toPath(), StandardCharsets.ISO_8859_1)) {
+            Matcher m = NAME.matcher(line);
+            while (m.find()) {
+                names.add(m.group().replace('.', '/'));
+            }
+        }
+        return new RuntimeUsage(names);
+    }
+
+    /**
+     * Merges usage lists into the output file, that may be one of the lists.
+     * The result is the union of the lists: a line is taken if it names a class or resource
+     * not named by the lines taken before, lines naming nothing are taken once.
+     */
+    static void merge(List<File> usageLists, File output) throws IOException {
+        Set<String> names = new HashSet<>();
+        Set<String> others = new HashSet<>();
+        List<String> lines = new ArrayList<>();
+        for (File usageList : usageLists) {
+            for (String line : Files.readAllLines(usageList.toPath(), StandardCharsets.ISO_8859_1)) {
+                boolean named = false;
+                boolean added = false;
+                Matcher m = NAME.matcher(line);
+                while (m.find()) {
+                    named = true;
+                    added |= names.add(m.group().replace('.', '/'));
+                }
+                if (added || (!named && others.add(line))) {
+                    lines.add(line);
+                }
+            }
+        }
+        Files.write(output.toPath(), lines, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @return the class and resource names in the dotted form
+     */
+    Set<String> dottedNames() {
+        return names.stream().map(name -> name.replace('/', '.')).collect(Collectors.toSet());
+    }
+
+    private boolean uses(String[] prefixes) {
+        for (String prefix : prefixes) {
+            String first = names.ceiling(prefix);
+            if ((first != null) && first.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the optional runtime components used by the application
+     */
+    Set<String> usedComponents() {
+        Set<String> used = new LinkedHashSet<>();
+        COMPONENTS.forEach((component, prefixes) -> {
+            if (uses(prefixes)) {
+                used.add(component);
+            }
+        });
+        return used;
+    }
+
+    /**
+     * @return the detachable Java SE components the application did not use
+     */
+    Set<String> unusedDetachable() {
+        Set<String> unused = new LinkedHashSet<>();
+        DETACHABLE.forEach((component, prefixes) -> {
+            if (!uses(prefixes)) {
+                unused.add(component);
+            }
+        });
+        return unused;
+    }
+
+    /**
+     * @return the locale groups the application used, except for English that is always included
+     */
+    Set<String> usedLocales() {
+        Set<String> used = new TreeSet<>();
+        for (String name : names) {
+            String group = localeGroupOf(name);
+            if (group != null) {
+                used.add(group);
+            }
+        }
+        return used;
+    }
+
+    /**
+     * @return the locale group of the Java runtime locale data class or resource, {@code null} for other entries
+     */
+    static String localeGroupOf(String name) {
+        Matcher m = LOCALE_DATA.matcher(name);
+        if (!m.matches() || m.group(1).equals("en")) {
+            return null;
+        }
+        return LOCALE_GROUPS.getOrDefault(m.group(1), EUROPEAN);
+    }
+
+    /**
+     * Sums up the sizes of the classes and resources of the jars in the runtime directory by component.
+     *
+     * @return sizes by the names of {@link #COMPONENTS}, {@link #DETACHABLE} and locale groups
+     */
+    static Map<String, Long> runtimeSizes(File runtimeDir) throws IOException {
+        Map<String, Long> sizes = new HashMap<>();
+        List<File> jars = new ArrayList<>();
+        collectJars(runtimeDir, jars);
+        for (File jar : jars) {
+            try (ZipFile zip = new ZipFile(jar)) {
+                for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.isDirectory() || (entry.getSize() <= 0)) {
+                        continue;
+                    }
+                    String owner = ownerOf(entry.getName());
+                    if (owner != null) {
+                        sizes.merge(owner, entry.getSize(), Long::sum);
+                    }
+                }
+            }
+        }
+        return sizes;
+    }
+
+    private static String ownerOf(String entry) {
+        for (Map<String, String[]> components : Arrays.asList(COMPONENTS, DETACHABLE)) {
+            for (Map.Entry<String, String[]> e : components.entrySet()) {
+                for (String prefix : e.getValue()) {
+                    if (entry.startsWith(prefix)) {
+                        return e.getKey();
+                    }
+                }
+            }
+        }
+        return localeGroupOf(entry);
+    }
+
+    private static void collectJars(File dir, List<File> jars) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectJars(file, jars);
+            } else if (file.getName().endsWith(".jar")) {
+                jars.add(file);
+            }
+        }
+    }
+}
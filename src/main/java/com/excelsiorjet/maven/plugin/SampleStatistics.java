@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.util.Arrays;
+
+/**
+ * Descriptive statistics of a sample of measurements: mean, standard deviation, percentiles,
+ * and 95% confidence intervals of the mean and of the median.
+ * <p>
+ * The confidence interval of the mean relies on Student's t-distribution, so it assumes the measurements
+ * to be roughly normal. The confidence interval of the median is distribution-free (it is based on order
+ * statistics), so it is the one to trust for skewed measurements such as startup times with outliers.
+ * </p>
+ */
+class SampleStatistics {
+
+    /**
+     * 0.975 quantiles of Student's t-distribution for 1 to 30 degrees of freedom.
+     */
+    private static final double[] T_975 = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+
+    private static final double Z_975 = 1.959964;
+
+    private final double[] sorted;
+    private final double mean;
+    private final double stdDev;
+
+    SampleStatistics(double[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("Empty sample");
+        }
+        sorted = values.clone();
+        Arrays.sort(sorted);
+        double sum = 0;
+        for (double v : sorted) {
+            sum += v;
+        }
+        mean = sum / sorted.length;
+        double squares = 0;
+        for (double v : sorted) {
+            squares += (v - mean) * (v - mean);
+        }
+        stdDev = (sorted.length > 1) ? Math.sqrt(squares / (sorted.length - 1)) : 0;
+    }
+
+    int count() {
+        return sorted.length;
+    }
+
+    double mean() {
+        return mean;
+    }
+
+    /**
+     * @return sample standard deviation
+     */
+    double stdDev() {
+        return stdDev;
+    }
+
+    double min() {
+        return sorted[0];
+    }
+
+    double max() {
+        return sorted[sorted.length - 1];
+    }
+
+    /**
+     * @param p percentile from 0 to 100
+     * @return the percentile linearly interpolated between the closest ranks
+     */
+    double percentile(double p) {
+        double rank = p / 100 * (sorted.length - 1);
+        int lower = (int) Math.floor(rank);
+        int upper = (int) Math.ceil(rank);
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * (rank - lower);
+    }
+
+    /**
+     * @return bounds of the 95% confidence interval of the mean
+     */
+    double[] meanConfidenceInterval() {
+        int df = sorted.length - 1;
+        if (df == 0) {
+            return new double[]{mean, mean};
+        }
+        // Cornish-Fisher expansion is accurate to the third digit beyond the table
+        double t = (df <= T_975.length) ? T_975[df - 1] : Z_975 + (Z_975 * Z_975 * Z_975 + Z_975) / (4 * df);
+        double halfWidth = t * stdDev / Math.sqrt(sorted.length);
+        return new double[]{mean - halfWidth, mean + halfWidth};
+    }
+
+    /**
+     * @return bounds of the (at least) 95% confidence interval of the median, that is the whole sample range
+     *         for fewer than 6 measurements
+     */
+    double[] medianConfidenceInterval() {
+        int n = sorted.length;
+        double spread = Z_975 * Math.sqrt(n) / 2;
+        // 1-based ranks of the order statistics bounding the interval, by normal approximation of the binomial
+        int lower = (int) Math.floor(n / 2.0 - spread);
+        int upper = (int) Math.ceil(n / 2.0 + 1 + spread);
+        return new double[]{sorted[Math.max(1, lower) - 1], sorted[Math.min(n, upper) - 1]};
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.platform.Host;
+import com.excelsiorjet.api.tasks.config.dependencies.DependencySettings;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Attribution of the size of the application directory built by Excelsior JET to its origins.
+ * <p>
+ * The files of the application directory fall into the executables (the native binaries the application
+ * is compiled into), the Excelsior JET Runtime files (the {@code rt} subdirectory), which are attributed
+ * to the runtime components by their paths, the package files ({@code packageFilesDir} and {@code packageFiles}),
+ * and the dependency jars copied as is (e.g. ones with {@code pack} set to {@code none}).
+ * </p>
+ * <p>
+ * The compiler does not report the contribution of each class to the executable, so the size of the executables
+ * is estimated for the classpath elements packed into them, and for the Java packages within the elements,
+ * in proportion to the size of their class files and resources. The class files are weighted by the
+ * {@code optimize} setting of their element, as the classes compiled to native code take several times more space
+ * than the resources stored as is, and {@code auto-detect} compiles only the classes in use.
+ * The jars nested into WAR and Spring Boot applications are accounted as separate elements.
+ * The estimates are saved as {@code estimatedExecutableBytes} and {@code estimatedPackageExecutableBytes}.
+ * </p>
+ * <p>
+ * The totals are also saved to a properties file, and the report of the next build includes the changes
+ * against them.
+ * </p>
+ */
+class SizeReport {
+
+    static final String FILE_NAME = "size-report.json";
+
+    static final String STATE_FILE_NAME = "size-report.properties";
+
+    private static final String RUNTIME_DIR = "rt";
+
+    private static final String RESOURCES = "(resources)";
+
+    private static final String CORE_COMPONENT = "core";
+
+    private static final int LOGGED_ELEMENTS = 10;
+
+    /**
+     * Rough weights of a class file byte in the executable relative to a resource byte,
+     * for {@code optimize} set to {@code all} (or not set) and to {@code auto-detect}.
+     */
+    private static final int OPTIMIZE_ALL_WEIGHT = 4;
+    private static final int AUTO_DETECT_WEIGHT = 2;
+
+    /**
+     * Runtime components by the fragments of the paths of their files. More specific components go first.
+     */
+    private static final Map<String, String[]> COMPONENTS = new LinkedHashMap<>();
+
+    static {
+        COMPONENTS.put("javafx", new String[]{"jfx", "javafx", "glass", "prism", "decora", "gstreamer", "webkit"});
+        COMPONENTS.put("nashorn", new String[]{"nashorn"});
+        COMPONENTS.put("jce", new String[]{"sunjce", "sunec", "sunpkcs11", "sunmscapi", "jce", "crypto"});
+        COMPONENTS.put("cldr", new String[]{"cldr"});
+        COMPONENTS.put("locales", new String[]{"localedata", "locale"});
+        COMPONENTS.put("charsets", new String[]{"charsets"});
+        COMPONENTS.put("zipfs", new String[]{"zipfs"});
+        COMPONENTS.put("dnsns", new String[]{"dnsns"});
+        COMPONENTS.put("accessibility", new String[]{"access"});
+        COMPONENTS.put("awt", new String[]{"awt", "fontmanager", "freetype", "lcms", "mlib", "jpeg", "splashscreen"});
+        COMPONENTS.put("jdk-tools", new String[]{"tools.jar", "jdk.tools"});
+    }
+
+    /**
+     * A classpath element: the main artifact, a dependency or a jar nested into the main artifact.
+     */
+    static class Element {
+        final String id;
+        final DependencySettings settings;
+        long classBytes;
+        long resourceBytes;
+        /**
+         * Class file bytes by Java package, resources under {@link #RESOURCES}.
+         */
+        final Map<String, Long> packages = new TreeMap<>();
+        long estimatedExecutableBytes;
+        long fileBytes;
+
+        Element(String id, DependencySettings settings) {
+            this.id = id;
+            this.settings = settings;
+        }
+
+        boolean isPacked() {
+            return (settings == null) || !"none".equals(settings.pack);
+        }
+
+        /**
+         * @return the class file and resource bytes weighted by their expected contribution to the executable
+         */
+        long weightedBytes() {
+            return classBytes * classWeight() + resourceBytes;
+        }
+
+        long weightedBytes(String pkg) {
+            return packages.get(pkg) * (pkg.equals(RESOURCES) ? 1 : classWeight());
+        }
+
+        private int classWeight() {
+            return ((settings != null) && "auto-detect".equals(settings.optimize)) ?
+                    AUTO_DETECT_WEIGHT : OPTIMIZE_ALL_WEIGHT;
+        }
+
+        long totalBytes() {
+            return estimatedExecutableBytes + fileBytes;
+        }
+    }
+
+    private final Map<String, Long> executables = new TreeMap<>();
+    private final Map<String, Long> runtimeComponents = new TreeMap<>();
+    private final Map<String, Long> packageFiles = new TreeMap<>();
+    private final Map<String, Long> otherFiles = new TreeMap<>();
+    private final List<Element> elements = new ArrayList<>();
+
+    private SizeReport() {
+    }
+
+    /**
+     * @param appDir application directory
+     * @param classpath main artifact and dependencies by their ids
+     * @param settings dependency settings of the project
+     * @param packageFilePaths paths of the package files relative to the application directory
+     */
+    static SizeReport compute(File appDir, Map<String, File> classpath, List<DependencySettings> settings,
+                              Set<String> packageFilePaths) throws IOException
+    {
+        SizeReport report = new SizeReport();
+        Map<String, Element> byFileName = new HashMap<>();
+        for (Map.Entry<String, File> e : classpath.entrySet()) {
+            File file = e.getValue();
+            Element element = new Element(e.getKey(), AbstractJetMojo.dependencySettingsOf(e.getKey(), file, settings));
+            report.elements.add(element);
+            byFileName.put(file.getName(), element);
+            if (file.isFile()) {
+                report.scanArchive(element, file);
+            } else if (file.isDirectory()) {
+                scanDirectory(element, file);
+            }
+        }
+
+        Path root = appDir.toPath();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            String path = root.relativize(file).toString().replace(File.separatorChar, '/');
+            long size = Files.size(file);
+            Element element = byFileName.get(file.getFileName().toString());
+            if (path.startsWith(RUNTIME_DIR + "/")) {
+                report.runtimeComponents.merge(componentOf(path.substring(RUNTIME_DIR.length() + 1)), size, Long::sum);
+            } else if (packageFilePaths.contains(path)) {
+                report.packageFiles.put(path, size);
+            } else if (element != null) {
+                element.fileBytes += size;
+            } else if (isExecutable(file)) {
+                report.executables.put(path, size);
+            } else {
+                report.otherFiles.put(path, size);
+            }
+        }
+
+        long executableBytes = report.executables.values().stream().mapToLong(Long::longValue).sum();
+        long packedBytes = report.elements.stream().filter(Element::isPacked).mapToLong(Element::weightedBytes).sum();
+        if (packedBytes > 0) {
+            for (Element element : report.elements) {
+                if (element.isPacked()) {
+                    element.estimatedExecutableBytes = share(executableBytes, element.weightedBytes(), packedBytes);
+                }
+            }
+        }
+        return report;
+    }
+
+    private static long share(long total, long part, long whole) {
+        return Math.round((double) total * part / whole);
+    }
+
+    private void scanArchive(Element element, File file) throws IOException {
+        try (ZipFile zip = new ZipFile(file)) {
+            for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String name = entry.getName();
+                if (name.endsWith(".jar")) {
+                    Element nested = new Element(element.id + "!/" + name, null);
+                    elements.add(nested);
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        scanNestedArchive(nested, new ZipInputStream(new BufferedInputStream(in)));
+                    }
+                } else {
+                    add(element, name, entry.getSize());
+                }
+            }
+        } catch (java.util.zip.ZipException e) {
+            // not an archive
+        }
+    }
+
+    private static void scanNestedArchive(Element element, ZipInputStream zip) throws IOException {
+        byte[] buffer = new byte[8192];
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            long size = entry.getSize();
+            if (size < 0) {
+                size = 0;
+                for (int n; (n = zip.read(buffer)) > 0; ) {
+                    size += n;
+                }
+            }
+            add(element, entry.getName(), size);
+        }
+    }
+
+    private static void scanDirectory(Element element, File dir) throws IOException {
+        Path root = dir.toPath();
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path file : walk.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                add(element, root.relativize(file).toString().replace(File.separatorChar, '/'), Files.size(file));
+            }
+        }
+    }
+
+    private static void add(Element element, String name, long size) {
+        if (name.endsWith(".class") && !name.endsWith("module-info.class")) {
+            for (String dir : new String[]{"WEB-INF/classes/", "BOOT-INF/classes/"}) {
+                if (name.startsWith(dir)) {
+                    name = name.substring(dir.length());
+                }
+            }
+            int slash = name.lastIndexOf('/');
+            String pkg = (slash > 0) ? name.substring(0, slash).replace('/', '.') : "(default)";
+            element.classBytes += size;
+            element.packages.merge(pkg, size, Long::sum);
+        } else {
+            element.resourceBytes += size;
+            element.packages.merge(RESOURCES, size, Long::sum);
+        }
+    }
+
+    static String componentOf(String runtimePath) {
+        String path = runtimePath.toLowerCase(Locale.ROOT);
+        for (Map.Entry<String, String[]> component : COMPONENTS.entrySet()) {
+            for (String fragment : component.getValue()) {
+                if (path.contains(fragment)) {
+                    return component.getKey();
+                }
+            }
+        }
+        return CORE_COMPONENT;
+    }
+
+    private static boolean isExecutable(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (Host.isWindows()) {
+            return name.endsWith(".exe") || name.endsWith(".dll");
+        }
+        return name.endsWith(".so") || name.endsWith(".dylib") || (!name.contains(".") && Files.isExecutable(file));
+    }
+
+    private Map<String, Long> categories() {
+        Map<String, Long> categories = new LinkedHashMap<>();
+        categories.put("executables", sum(executables));
+        categories.put("runtime", sum(runtimeComponents));
+        categories.put("packageFiles", sum(packageFiles));
+        categories.put("dependencyFiles", elements.stream().mapToLong(el -> el.fileBytes).sum());
+        categories.put("other", sum(otherFiles));
+        return categories;
+    }
+
+    private static long sum(Map<String, Long> sizes) {
+        return sizes.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    long totalBytes() {
+        return categories().values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    List<Element> getElements() {
+        return Collections.unmodifiableList(elements);
+    }
+
+    Map<String, Long> getRuntimeComponents() {
+        return Collections.unmodifiableMap(runtimeComponents);
+    }
+
+    /**
+     * @return the totals compared with the next build
+     */
+    Properties state() {
+        Properties state = new Properties();
+        state.setProperty("total", String.valueOf(totalBytes()));
+        categories().forEach((name, size) -> state.setProperty("category." + name, String.valueOf(size)));
+        for (Element element : elements) {
+            state.setProperty("element." + element.id, String.valueOf(element.totalBytes()));
+        }
+        runtimeComponents.forEach((name, size) -> state.setProperty("component." + name, String.valueOf(size)));
+        packageFiles.forEach((name, size) -> state.setProperty("packageFile." + name, String.valueOf(size)));
+        return state;
+    }
+
+    /**
+     * @return changes of the totals against the previous state, the largest first
+     */
+    static List<Map<String, Object>> diff(Properties previous, Properties current) {
+        Set<String> keys = new TreeSet<>(previous.stringPropertyNames());
+        keys.addAll(current.stringPropertyNames());
+        List<Map<String, Object>> changes = new ArrayList<>();
+        for (String key : keys) {
+            long before = Long.parseLong(previous.getProperty(key, "0"));
+            long after = Long.parseLong(current.getProperty(key, "0"));
+            if (before != after) {
+                Map<String, Object> change = new LinkedHashMap<>();
+                change.put("name", key);
+                change.put("before", previous.containsKey(key) ? before : null);
+                change.put("after", current.containsKey(key) ? after : null);
+                change.put("delta", after - before);
+                changes.add(change);
+            }
+        }
+        changes.sort(Comparator.comparing(c -> -Math.abs((Long) c.get("delta"))));
+        return changes;
+    }
+
+    /**
+     * Saves the report with the changes against the state of the previous build, and updates the state.
+     *
+     * @return the changes against the previous build, {@code null} if there is no previous build
+     */
+    List<Map<String, Object>> save(File file, File stateFile, String module) throws IOException {
+        Properties previous = null;
+        if (stateFile.isFile()) {
+            previous = new Properties();
+            try (InputStream in = new FileInputStream(stateFile)) {
+                previous.load(in);
+            } catch (IllegalArgumentException e) {
+                previous = null;
+            }
+        }
+        Properties state = state();
+        List<Map<String, Object>> changes = (previous != null) ? diff(previous, state) : null;
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("module", module);
+        root.put("totalBytes", totalBytes());
+        root.put("categories", categories());
+        root.put("executables", executables);
+        List<Object> elementList = new ArrayList<>();
+        for (Element element : sorted(elements)) {
+            Map<String, Object> el = new LinkedHashMap<>();
+            el.put("id", element.id);
+            el.put("optimize", (element.settings != null) ? element.settings.optimize : null);
+            el.put("protect", (element.settings != null) ? element.settings.protect : null);
+            el.put("pack", (element.settings != null) ? element.settings.pack : null);
+            el.put("totalBytes", element.totalBytes());
+            el.put("estimatedExecutableBytes", element.estimatedExecutableBytes);
+            el.put("fileBytes", element.fileBytes);
+            el.put("classBytes", element.classBytes);
+            el.put("resourceBytes", element.resourceBytes);
+            Map<String, Long> packages = new LinkedHashMap<>();
+            element.packages.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .forEach(p -> packages.put(p.getKey(), element.isPacked() ? share(element.estimatedExecutableBytes,
+                            element.weightedBytes(p.getKey()), element.weightedBytes()) : 0));
+            el.put("estimatedPackageExecutableBytes", packages);
+            elementList.add(el);
+        }
+        root.put("classpath", elementList);
+        root.put("runtimeComponents", runtimeComponents);
+        root.put("packageFiles", packageFiles);
+        root.put("otherFiles", otherFiles);
+        root.put("previousTotalBytes", (previous != null) ? Long.valueOf(previous.getProperty("total", "0")) : null);
+        root.put("changes", changes);
+        Json.write(file, root);
+
+        try (OutputStream out = new FileOutputStream(stateFile)) {
+            state.store(out, "Excelsior JET application size by origin");
+        }
+        return changes;
+    }
+
+    private static List<Element> sorted(List<Element> elements) {
+        List<Element> sorted = new ArrayList<>(elements);
+        sorted.sort(Comparator.comparing(el -> -el.totalBytes()));
+        return sorted;
+    }
+
+    void logSummary(File file, List<Map<String, Object>> changes) {
+        logger.info(s("JetMavenPlugin.SizeReport.Summary.Info", file));
+        categories().forEach((name, size) -> logger.info(String.format(Locale.ROOT, "  %-40s %10.1f", name,
+                size / 1048576.0)));
+        logger.info(String.format(Locale.ROOT, "  %-40s %10.1f", "total", totalBytes() / 1048576.0));
+        logger.info(s("JetMavenPlugin.SizeReport.Elements.Info"));
+        for (Element element : sorted(elements).subList(0, Math.min(LOGGED_ELEMENTS, elements.size()))) {
+            logger.info(String.format(Locale.ROOT, "  %-40s %10.1f", element.id, element.totalBytes() / 1048576.0));
+        }
+        if (changes != null) {
+            long delta = changes.stream().filter(c -> c.get("name").equals("total"))
+                    .mapToLong(c -> (Long) c.get("delta")).sum();
+            logger.info(s("JetMavenPlugin.SizeReport.Changed.Info", String.format(Locale.ROOT, "%+.1f", delta / 1048576.0),
+                    changes.size()));
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.platform.Host;
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import com.excelsiorjet.api.util.Utils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Mojo for measuring the startup time of the executable built with Excelsior JET.
+ * <p>
+ * The executable is launched from {@link #jetAppDir} with {@link #runArgs} and {@link #jvmArgs}
+ * {@link #startupBenchRuns} times after {@link #startupBenchWarmupRuns} warm-up runs, and the statistics
+ * of the startup time, peak RSS and major page faults are saved to {@code startup-bench.json}
+ * in {@link #jetOutputDir} and printed as a table.
+ * The application must have been built before, e.g. with {@code jet:build}.
+ * </p>
+ */
+@Mojo(name = "startup-bench", defaultPhase = LifecyclePhase.INTEGRATION_TEST,
+        requiresDependencyResolution = ResolutionScope.RUNTIME, threadSafe = true)
+public class StartupBenchMojo extends AbstractBuildMojo {
+
+    static final String REPORT_FILE_NAME = "startup-bench.json";
+
+    /**
+     * Number of measured runs.
+     */
+    @Parameter(property = "jet.startupBench.runs", defaultValue = "20")
+    protected int startupBenchRuns;
+
+    /**
+     * Number of runs before the measured ones, which results are discarded.
+     */
+    @Parameter(property = "jet.startupBench.warmupRuns", defaultValue = "3")
+    protected int startupBenchWarmupRuns;
+
+    /**
+     * If set to {@code true}, each measured run is performed in a fresh copy of {@link #jetAppDir}
+     * to approximate the cold start, when the files of the application are not yet cached.
+     * Note that a fresh copy may still reside in the OS file cache, so a true cold start
+     * also requires dropping the caches, which takes administrative privileges.
+     */
+    @Parameter(property = "jet.startupBench.freshCopy", defaultValue = "false")
+    protected boolean startupBenchFreshCopy;
+
+    /**
+     * What a run lasts until: {@code exit} (until the application exits)
+     * or {@code firstLine} (until the application prints the first line to the standard output,
+     * then the application is killed). The latter suits server applications that report readiness.
+     */
+    @Parameter(property = "jet.startupBench.until", defaultValue = "exit")
+    protected String startupBenchUntil;
+
+    /**
+     * Maximum duration of a run in seconds.
+     */
+    @Parameter(property = "jet.startupBench.timeout", defaultValue = "60")
+    protected int startupBenchTimeout;
+
+    /**
+     * Path of the executable relative to {@link #jetAppDir}. By default, the executable named {@link #outputName}
+     * or the only executable in {@link #jetAppDir} (or in its {@code bin} subdirectory) is run.
+     */
+    @Parameter(property = "jet.startupBench.executable")
+    protected String startupBenchExecutable;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        init();
+        if (!isSupportedPackaging()) {
+            logger.warn(s("JetMavenPlugin.UnsupportedPackaging.Mojo.Warning", project.getPackaging(), project.getName()));
+            return;
+        }
+        try {
+            boolean untilFirstLine = checkStartupBenchSettings();
+            File executable = findExecutable(getJetAppDir());
+            String relativePath = getJetAppDir().toPath().relativize(executable.toPath()).toString();
+            Map<String, String> environment = new HashMap<>();
+            List<String> arguments = executableArguments(environment);
+
+            File copy = new File(getJetBuildDir(), "startup-bench-app");
+            List<String> command = new ArrayList<>();
+            command.add((startupBenchFreshCopy ? new File(copy, relativePath) : executable).getAbsolutePath());
+            command.addAll(arguments);
+            StartupBenchmark benchmark = new StartupBenchmark(command, environment, untilFirstLine,
+                    startupBenchTimeout * 1000L);
+
+            logger.info(s("JetMavenPlugin.StartupBench.Start.Info", executable, startupBenchWarmupRuns, startupBenchRuns));
+            List<StartupBenchmark.Run> runs = new ArrayList<>();
+            boolean failedRunsReported = false;
+            try {
+                for (int i = 0; i < startupBenchWarmupRuns + startupBenchRuns; i++) {
+                    File workDir = getJetAppDir();
+                    if (startupBenchFreshCopy) {
+                        StartupBenchmark.freshCopy(getJetAppDir(), copy);
+                        workDir = copy;
+                    }
+                    StartupBenchmark.Run run = benchmark.run(workDir);
+                    if ((run.exitCode != null) && (run.exitCode != 0) && !failedRunsReported) {
+                        logger.warn(s("JetMavenPlugin.StartupBench.NonZeroExitCode.Warning", run.exitCode));
+                        failedRunsReported = true;
+                    }
+                    if (i >= startupBenchWarmupRuns) {
+                        runs.add(run);
+                    }
+                }
+            } catch (TimeoutException e) {
+                throw new JetTaskFailureException(s("JetMavenPlugin.StartupBench.Timeout.Failure", startupBenchTimeout));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException(e.getMessage(), e);
+            } finally {
+                if (startupBenchFreshCopy) {
+                    FileUtils.deleteDirectory(copy);
+                }
+            }
+
+            File report = new File(getJetOutputDir(), REPORT_FILE_NAME);
+            Json.write(report, toJson(relativePath, command.subList(1, command.size()), environment, runs));
+            logSummary(report, runs);
+        } catch (JetTaskFailureException e) {
+            throw new MojoFailureException(e.getMessage());
+        } catch (IOException e) {
+            logger.debug("JetTask execution error", e);
+            logger.error(e.getMessage());
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return {@code true} if a run lasts until the first output line, {@code false} if until exit
+     */
+    protected boolean checkStartupBenchSettings() throws JetTaskFailureException {
+        boolean untilFirstLine = "firstLine".equals(startupBenchUntil);
+        if (!untilFirstLine && !"exit".equals(startupBenchUntil)) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.StartupBench.BadUntil.Failure", startupBenchUntil));
+        }
+        if (startupBenchRuns < 1) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.StartupBench.BadRuns.Failure", startupBenchRuns));
+        }
+        return untilFirstLine;
+    }
+
+    /**
+     * @param environment receives the environment variables to run the executable with
+     * @return command-line arguments to run the executable with, derived from {@link #runArgs} and {@link #jvmArgs}
+     */
+    protected List<String> executableArguments(Map<String, String> environment) {
+        List<String> arguments = new ArrayList<>();
+        if (multiApp) {
+            if (multiAppRunArgs != null) {
+                arguments.addAll(Arrays.asList(multiAppRunArgs));
+            } else {
+                if (jvmArgs != null) {
+                    arguments.addAll(Arrays.asList(jvmArgs));
+                }
+                arguments.add("-args");
+                if (runArgs != null) {
+                    arguments.addAll(Arrays.asList(runArgs));
+                }
+            }
+        } else {
+            if ((jvmArgs != null) && (jvmArgs.length > 0)) {
+                // Excelsior JET Runtime takes JVM options from the environment
+                environment.put("JETVMPROP", String.join(" ", jvmArgs));
+            }
+            if (runArgs != null) {
+                arguments.addAll(Arrays.asList(runArgs));
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * @param appDir application directory to look the executable up in
+     */
+    protected File findExecutable(File appDir) throws JetTaskFailureException {
+        File executable = null;
+        if (!Utils.isEmpty(startupBenchExecutable)) {
+            executable = new File(appDir, startupBenchExecutable);
+        } else if (!Utils.isEmpty(outputName)) {
+            String name = Host.isWindows() ? outputName + ".exe" : outputName;
+            executable = new File(appDir, name);
+            if (!executable.isFile()) {
+                // Tomcat applications
+                executable = new File(new File(appDir, "bin"), name);
+            }
+        } else {
+            List<File> candidates = new ArrayList<>();
+            for (File dir : new File[]{appDir, new File(appDir, "bin")}) {
+                File[] files = dir.listFiles(f -> f.isFile() && (Host.isWindows() ?
+                        f.getName().endsWith(".exe") : f.canExecute() && !f.getName().contains(".")));
+                if (files != null) {
+                    candidates.addAll(Arrays.asList(files));
+                }
+            }
+            if (candidates.size() == 1) {
+                executable = candidates.get(0);
+            } else if (candidates.size() > 1) {
+                throw new JetTaskFailureException(s("JetMavenPlugin.StartupBench.AmbiguousExecutable.Failure", appDir));
+            }
+        }
+        if ((executable == null) || !executable.isFile()) {
+            throw new JetTaskFailureException(s("JetMavenPlugin.StartupBench.ExecutableNotFound.Failure",
+                    (executable != null) ? executable : appDir));
+        }
+        return executable;
+    }
+
+    private Map<String, Object> toJson(String executable, List<String> arguments, Map<String, String> environment,
+                                       List<StartupBenchmark.Run> runs)
+    {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("module", project.getId());
+        root.put("executable", executable);
+        root.put("arguments", arguments);
+        root.put("environment", environment);
+        root.put("until", startupBenchUntil);
+        root.put("freshCopy", startupBenchFreshCopy);
+        root.put("warmupRuns", startupBenchWarmupRuns);
+        root.put("timeMillis", statistics(runs, r -> r.millis));
+        root.put("peakRssKB", statistics(runs, r -> r.peakRssKB));
+        root.put("majorFaults", statistics(runs, r -> r.majorFaults));
+        List<Object> details = new ArrayList<>();
+        for (StartupBenchmark.Run run : runs) {
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("timeMillis", round(run.millis));
+            r.put("peakRssKB", run.peakRssKB);
+            r.put("majorFaults", run.majorFaults);
+            r.put("exitCode", run.exitCode);
+            details.add(r);
+        }
+        root.put("runs", details);
+        return root;
+    }
+
+    /**
+     * @return statistics of the metric in JSON form, {@code null} if the metric is not available
+     */
+    private static Map<String, Object> statistics(List<StartupBenchmark.Run> runs,
+                                                  Function<StartupBenchmark.Run, Number> metric)
+    {
+        SampleStatistics stats = sample(runs, metric);
+        if (stats == null) {
+            return null;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", stats.count());
+        result.put("mean", round(stats.mean()));
+        result.put("stdDev", round(stats.stdDev()));
+        result.put("min", round(stats.min()));
+        result.put("p50", round(stats.percentile(50)));
+        result.put("p90", round(stats.percentile(90)));
+        result.put("p95", round(stats.percentile(95)));
+        result.put("p99", round(stats.percentile(99)));
+        result.put("max", round(stats.max()));
+        result.put("meanCI95", Arrays.asList(round(stats.meanConfidenceInterval()[0]),
+                round(stats.meanConfidenceInterval()[1])));
+        result.put("medianCI95", Arrays.asList(round(stats.medianConfidenceInterval()[0]),
+                round(stats.medianConfidenceInterval()[1])));
+        return result;
+    }
+
+    private static SampleStatistics sample(List<StartupBenchmark.Run> runs, Function<StartupBenchmark.Run, Number> metric) {
+        double[] values = new double[runs.size()];
+        for (int i = 0; i < values.length; i++) {
+            Number value = metric.apply(runs.get(i));
+            if (value == null) {
+                return null;
+            }
+            values[i] = value.doubleValue();
+        }
+        return new SampleStatistics(values);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private void logSummary(File report, List<StartupBenchmark.Run> runs) {
+        logger.info(s("JetMavenPlugin.StartupBench.Summary.Info", report));
+        logger.info(String.format("  %-16s %9s %9s %9s %9s %9s %9s %21s", "Metric", "mean", "stddev", "min", "p50",
+                "p95", "max", "95% CI of median"));
+        logRow("time, ms", sample(runs, r -> r.millis));
+        logRow("peak RSS, MB", sample(runs, r -> (r.peakRssKB != null) ? r.peakRssKB / 1024.0 : null));
+        logRow("major faults", sample(runs, r -> r.majorFaults));
+    }
+
+    private static void logRow(String metric, SampleStatistics stats) {
+        if (stats == null) {
+            return;
+        }
+        double[] ci = stats.medianConfidenceInterval();
+        logger.info(String.format(Locale.ROOT, "  %-16s %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f %10.1f - %-8.1f", metric,
+                stats.mean(), stats.stdDev(), stats.min(), stats.percentile(50), stats.percentile(95), stats.max(),
+                ci[0], ci[1]));
+    }
+}
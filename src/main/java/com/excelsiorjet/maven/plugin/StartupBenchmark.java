@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.platform.Host;
+import com.excelsiorjet.maven.plugin.packaging.FileStager;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Measures the startup time of a native executable over a series of runs.
+ * <p>
+ * A run lasts either until the process exits, or until it prints the first line to the standard output,
+ * in which case the process is killed then. The standard error and the rest of the output are discarded.
+ * </p>
+ * <p>
+ * On Linux, the peak resident set size and the number of major page faults of each run are also taken
+ * from {@code /proc}. The page faults of a run lasting until exit are accounted exactly when the process
+ * is reaped, so they may include the page faults of other processes started by the Maven JVM
+ * in the meantime (e.g. in a parallel reactor build). The peak RSS is sampled while the process runs,
+ * so for very short runs it may be somewhat underestimated.
+ * </p>
+ */
+class StartupBenchmark {
+
+    private static final long RSS_SAMPLING_INTERVAL_MILLIS = 2;
+
+    /**
+     * Measurements of a single run. {@code peakRssKB} and {@code majorFaults} are {@code null}
+     * if not available on the host OS.
+     */
+    static class Run {
+        double millis;
+        Long peakRssKB;
+        Long majorFaults;
+        Integer exitCode;
+    }
+
+    private final List<String> command;
+    private final Map<String, String> environment;
+    private final boolean untilFirstLine;
+    private final long timeoutMillis;
+
+    /**
+     * @param command executable followed by its arguments
+     * @param environment additional environment variables
+     * @param untilFirstLine whether to measure the time to the first output line instead of the time to exit
+     * @param timeoutMillis maximum duration of a run
+     */
+    StartupBenchmark(List<String> command, Map<String, String> environment, boolean untilFirstLine, long timeoutMillis) {
+        this.command = command;
+        this.environment = environment;
+        this.untilFirstLine = untilFirstLine;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Runs the executable once.
+     *
+     * @param workDir working directory of the process
+     * @throws TimeoutException if the run has not completed in time
+     */
+    Run run(File workDir) throws IOException, InterruptedException, TimeoutException {
+        File nullFile = new File(Host.isWindows() ? "NUL" : "/dev/null");
+        ProcessBuilder builder = new ProcessBuilder(command).directory(workDir)
+                .redirectError(ProcessBuilder.Redirect.to(nullFile))
+                .redirectInput(ProcessBuilder.Redirect.from(nullFile));
+        if (!untilFirstLine) {
+            builder.redirectOutput(ProcessBuilder.Redirect.to(nullFile));
+        }
+        builder.environment().putAll(environment);
+
+        Run run = new Run();
+        long childFaultsBefore = childMajorFaults();
+        long start = System.nanoTime();
+        Process process = builder.start();
+        RssSampler sampler = new RssSampler(pidOf(process));
+        try {
+            if (untilFirstLine) {
+                boolean printed = waitForFirstLine(process);
+                run.millis = (System.nanoTime() - start) / 1e6;
+                // the final sample is taken before the process is killed
+                sampler.close();
+                if (printed) {
+                    sampler.sample();
+                } else {
+                    run.exitCode = process.waitFor();
+                }
+                run.majorFaults = sampler.majorFaults;
+            } else {
+                if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new TimeoutException();
+                }
+                run.millis = (System.nanoTime() - start) / 1e6;
+                run.exitCode = process.exitValue();
+                sampler.close();
+                long childFaults = childMajorFaults();
+                run.majorFaults = ((childFaults >= 0) && (childFaultsBefore >= 0)) ? childFaults - childFaultsBefore
+                        : sampler.majorFaults;
+            }
+            run.peakRssKB = sampler.peakRssKB;
+            return run;
+        } finally {
+            sampler.close();
+            if (process.isAlive()) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the process printed a line, {@code false} if it exited without printing one
+     */
+    private boolean waitForFirstLine(Process process) throws InterruptedException, TimeoutException, IOException {
+        ExecutorService reader = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "JET startup benchmark output reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Future<Boolean> line = reader.submit(() -> {
+                BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                        StandardCharsets.UTF_8));
+                return in.readLine() != null;
+            });
+            return line.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            reader.shutdownNow();
+        }
+    }
+
+    /**
+     * Copies the application directory preserving permissions and symbolic links,
+     * so that the run does not benefit from the file system caches warmed up by the previous runs.
+     * Hard links would share the caches with the original files, so the files are cloned or copied.
+     */
+    static void freshCopy(File appDir, File copy) throws IOException {
+        if (copy.exists()) {
+            FileUtils.deleteDirectory(copy);
+        }
+        new FileStager(false, Runtime.getRuntime().availableProcessors()).stageTree(appDir.toPath(), copy.toPath());
+    }
+
+    /**
+     * @return process identifier, or -1 if it cannot be determined
+     */
+    static long pidOf(Process process) {
+        try {
+            // Java 9+
+            return (Long) Process.class.getMethod("pid").invoke(process);
+        } catch (ReflectiveOperationException e) {
+            try {
+                // java.lang.UNIXProcess of Java 8
+                java.lang.reflect.Field pid = process.getClass().getDeclaredField("pid");
+                pid.setAccessible(true);
+                return pid.getInt(process);
+            } catch (ReflectiveOperationException | RuntimeException ignore) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * @return major page faults of the reaped children of this JVM, or -1 if not available
+     */
+    private static long childMajorFaults() {
+        String[] stat = readStat("self");
+        // cmajflt is the 13th field of /proc/pid/stat, and the fields are counted here from the 3rd (state)
+        return (stat != null) ? Long.parseLong(stat[10]) : -1;
+    }
+
+    /**
+     * @return fields of {@code /proc/pid/stat} following the command name, or {@code null} if not available
+     */
+    private static String[] readStat(String pid) {
+        try {
+            String stat = new String(Files.readAllBytes(Paths.get("/proc", pid, "stat")), StandardCharsets.US_ASCII);
+            return stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Samples peak RSS and major page faults of a running process.
+     */
+    private static class RssSampler implements AutoCloseable {
+        private final String pid;
+        private final Thread thread;
+        private volatile boolean stopped;
+        volatile Long peakRssKB;
+        volatile Long majorFaults;
+
+        RssSampler(long pid) {
+            this.pid = String.valueOf(pid);
+            if ((pid < 0) || !ProcessTreeSampler.isSupported()) {
+                thread = null;
+                return;
+            }
+            thread = new Thread(() -> {
+                while (!stopped) {
+                    sample();
+                    try {
+                        Thread.sleep(RSS_SAMPLING_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            }, "JET startup benchmark sampler");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void sample() {
+            if (thread == null) {
+                return;
+            }
+            try {
+                for (String line : Files.readAllLines(Paths.get("/proc", pid, "status"))) {
+                    // VmHWM is the peak RSS so far
+                    if (line.startsWith("VmHWM:")) {
+                        long rss = Long.parseLong(line.replaceAll("[^0-9]", ""));
+                        peakRssKB = (peakRssKB == null) ? rss : Math.max(peakRssKB, rss);
+                    }
+                }
+            } catch (IOException | RuntimeException ignore) {
+                // the process has exited
+            }
+            String[] stat = readStat(pid);
+            if (stat != null) {
+                // majflt is the 12th field
+                majorFaults = Long.parseLong(stat[9]);
+            }
+        }
+
+        /**
+         * Stops sampling. No final sample is taken, as the identifier of an exited process may be reused.
+         */
+        @Override
+        public void close() throws InterruptedException {
+            if ((thread != null) && !stopped) {
+                stopped = true;
+                thread.interrupt();
+                thread.join();
+            }
+        }
+    }
+}
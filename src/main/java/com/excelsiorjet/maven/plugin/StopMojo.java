@@ -33,21 +33,62 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Execute;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
 import static com.excelsiorjet.api.log.Log.logger;
 import static com.excelsiorjet.api.util.Txt.s;
 
 /**
  * Mojo for stopping applications that were run by {@link TestRunMojo}, {@link RunMojo}, {@link ProfileMojo}.
+ * <p>
+ * If {@link #stopHaltTimeout} or {@link #stopKillTimeout} is set, the termination escalates:
+ * the application is requested to terminate according to the {@code terminationPolicy},
+ * then halted if it is still running after {@code stopHaltTimeout} seconds,
+ * then killed by the operating system if it is still running after {@code stopKillTimeout} more seconds.
+ * All instances of the application run by the current build are watched at once, and the time each
+ * took to exit and the stage that terminated it are printed and saved to {@code stop.json} in {@code jetOutputDir}.
+ * The escalation relies on the process information of Linux, on other systems the application
+ * is only requested to terminate.
+ * </p>
  *
  * @author Nikita Lipsky
  */
-@Mojo(name = "stop", defaultPhase = LifecyclePhase.POST_INTEGRATION_TEST, requiresDependencyResolution = ResolutionScope.RUNTIME)
+@Mojo(name = "stop", defaultPhase = LifecyclePhase.POST_INTEGRATION_TEST, requiresDependencyResolution = ResolutionScope.RUNTIME,
+        threadSafe = true)
 public class StopMojo extends AbstractJetMojo {
 
+    static final String REPORT_FILE_NAME = "stop.json";
+
+    private static final long POLL_MILLIS = 20;
+
+    /**
+     * Time in seconds to wait for the processes to exit once they are killed.
+     */
+    private static final int KILL_WAIT_SECONDS = 5;
+
+    /**
+     * Time in seconds to wait for the application to exit upon the {@code terminationPolicy} request,
+     * after which it is halted, that is {@code java.lang.Shutdown.halt()} is called within the application.
+     * The application is not halted if not set.
+     */
+    @Parameter(property = "jet.stop.haltTimeout", defaultValue = "0")
+    protected int stopHaltTimeout;
+
+    /**
+     * Time in seconds to wait for the application to exit upon the previous stage of the termination,
+     * after which its processes are killed by the operating system. The application is not killed if not set.
+     */
+    @Parameter(property = "jet.stop.killTimeout", defaultValue = "0")
+    protected int stopKillTimeout;
+
     @Override
-    public void execute() throws MojoFailureException {
+    public void execute() throws MojoExecutionException, MojoFailureException {
         init();
         if (!isSupportedPackaging()) {
             logger.warn(s("JetMavenPlugin.UnsupportedPackaging.Mojo.Warning", project.getPackaging(), project.getName()));
@@ -56,10 +97,130 @@ public class StopMojo extends AbstractJetMojo {
         try {
             JetProject jetProject = getJetProject();
             ExcelsiorJet excelsiorJet = new ExcelsiorJet(jetHome);
-            new StopTask(excelsiorJet, jetProject).execute();
+            if ((stopHaltTimeout > 0) || (stopKillTimeout > 0)) {
+                stopEscalating(excelsiorJet, jetProject);
+            } else {
+                new StopTask(excelsiorJet, jetProject).execute();
+            }
         } catch (JetTaskFailureException | JetHomeException  e) {
             throw new MojoFailureException(e.getMessage());
+        } catch (IOException e) {
+            logger.debug("JetTask execution error", e);
+            logger.error(e.getMessage());
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    private void stopEscalating(ExcelsiorJet excelsiorJet, JetProject jetProject)
+            throws JetTaskFailureException, IOException, InterruptedException
+    {
+        List<ProcessTreeSampler.ProcessInfo> running = findInstances();
+        if (running.isEmpty()) {
+            logger.warn(s("JetMavenPlugin.Stop.NoInstances.Warning"));
+            new StopTask(excelsiorJet, jetProject).execute();
+            return;
         }
+        List<Map<String, Object>> report = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        new StopTask(excelsiorJet, jetProject).execute();
+        running = await(running, (terminationPolicy != null) ? terminationPolicy : "default",
+                (stopHaltTimeout > 0) ? stopHaltTimeout : stopKillTimeout, start, report);
+        if (!running.isEmpty() && (stopHaltTimeout > 0) && !"halt".equals(terminationPolicy)) {
+            logger.info(s("JetMavenPlugin.Stop.Escalating.Info", running.size(), "halt"));
+            new StopTask(excelsiorJet, jetProject.terminationPolicy("halt")).execute();
+            running = await(running, "halt", (stopKillTimeout > 0) ? stopKillTimeout : stopHaltTimeout, start, report);
+        }
+        if (!running.isEmpty() && (stopKillTimeout > 0)) {
+            logger.info(s("JetMavenPlugin.Stop.Escalating.Info", running.size(), "kill"));
+            kill(running);
+            running = await(running, "kill", KILL_WAIT_SECONDS, start, report);
+        }
+        for (ProcessTreeSampler.ProcessInfo process : running) {
+            logger.warn(s("JetMavenPlugin.Stop.StillRunning.Warning", String.valueOf(process.pid), process.command));
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("pid", process.pid);
+            entry.put("command", process.command);
+            entry.put("stage", null);
+            entry.put("millis", null);
+            report.add(entry);
+        }
+        Json.write(new File(getJetOutputDir(), REPORT_FILE_NAME), report);
+    }
+
+    /**
+     * @return the root processes of the application instances run by this build
+     */
+    private List<ProcessTreeSampler.ProcessInfo> findInstances() {
+        if (!ProcessTreeSampler.isSupported()) {
+            return Collections.emptyList();
+        }
+        List<ProcessTreeSampler.ProcessInfo> processes =
+                new ProcessTreeSampler(getJetOutputDir(), POLL_MILLIS).snapshot();
+        Set<Integer> pids = processes.stream().map(p -> p.pid).collect(Collectors.toSet());
+        return processes.stream().filter(p -> !pids.contains(p.ppid)).collect(Collectors.toList());
+    }
+
+    /**
+     * Waits for the processes to exit, reporting the time each took to exit and the stage it exited at.
+     *
+     * @return the processes still running after the timeout
+     */
+    private static List<ProcessTreeSampler.ProcessInfo> await(List<ProcessTreeSampler.ProcessInfo> processes,
+                                                            String stage, int timeoutSeconds, long start,
+                                                            List<Map<String, Object>> report)
+            throws InterruptedException
+    {
+        List<ProcessTreeSampler.ProcessInfo> running = new ArrayList<>(processes);
+        long deadline = System.currentTimeMillis() + timeoutSeconds * 1000L;
+        while (true) {
+            long now = System.currentTimeMillis();
+            for (Iterator<ProcessTreeSampler.ProcessInfo> it = running.iterator(); it.hasNext(); ) {
+                ProcessTreeSampler.ProcessInfo process = it.next();
+                if (!ProcessTreeSampler.isRunning(process.pid)) {
+                    it.remove();
+                    logger.info(s("JetMavenPlugin.Stop.Stopped.Info", String.valueOf(process.pid), process.command,
+                            now - start, stage));
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("pid", process.pid);
+                    entry.put("command", process.command);
+                    entry.put("stage", stage);
+                    entry.put("millis", now - start);
+                    report.add(entry);
+                }
+            }
+            if (running.isEmpty() || (now >= deadline)) {
+                return running;
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Kills the given processes along with their descendants.
+     */
+    private void kill(List<ProcessTreeSampler.ProcessInfo> instances) throws IOException, InterruptedException {
+        Set<Integer> pids = new LinkedHashSet<>();
+        instances.forEach(p -> pids.add(p.pid));
+        List<ProcessTreeSampler.ProcessInfo> processes =
+                new ProcessTreeSampler(getJetOutputDir(), POLL_MILLIS).snapshot();
+        // the snapshot is in pid order, and a child may have a lower pid than its parent after pid wraparound,
+        // so the descendants are collected until no more are found
+        boolean added;
+        do {
+            added = false;
+            for (ProcessTreeSampler.ProcessInfo process : processes) {
+                if (pids.contains(process.ppid)) {
+                    added |= pids.add(process.pid);
+                }
+            }
+        } while (added);
+        List<String> command = new ArrayList<>(Arrays.asList("kill", "-KILL"));
+        pids.forEach(pid -> command.add(String.valueOf(pid)));
+        // some of the processes may have exited meanwhile, so the errors are not reported
+        new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(new File("/dev/null")).start().waitFor();
     }
 
 }
@@ -26,7 +26,6 @@ import com.excelsiorjet.api.cmd.CmdLineToolException;
 import com.excelsiorjet.api.JetHomeException;
 import com.excelsiorjet.api.tasks.JetProject;
 import com.excelsiorjet.api.tasks.JetTaskFailureException;
-import com.excelsiorjet.api.tasks.TestRunTask;
 import com.excelsiorjet.api.util.Txt;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -47,7 +46,8 @@ import static com.excelsiorjet.api.util.Txt.s;
  *
  * @author Nikita Lipsky
  */
-@Mojo(name = "jet-testrun", defaultPhase = LifecyclePhase.PACKAGE, requiresDependencyResolution = ResolutionScope.RUNTIME)
+@Mojo(name = "jet-testrun", defaultPhase = LifecyclePhase.PACKAGE, requiresDependencyResolution = ResolutionScope.RUNTIME,
+        threadSafe = true)
 public class TestRunMojo extends AbstractJetMojo {
 
     @Override
@@ -60,7 +60,12 @@ public class TestRunMojo extends AbstractJetMojo {
         try {
             ExcelsiorJet excelsiorJet = new ExcelsiorJet(jetHome);
             JetProject jetProject = getJetProject();
-            new TestRunTask(excelsiorJet, jetProject).execute();
+            ResourceTelemetry telemetry = startTelemetry();
+            try {
+                testRun(excelsiorJet, jetProject);
+            } finally {
+                finishTelemetry(telemetry, "testrun");
+            }
         } catch (JetTaskFailureException | JetHomeException e) {
             throw new MojoFailureException(e.getMessage());
         } catch (IOException | CmdLineToolException e) {
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.JetHomeException;
+import com.excelsiorjet.api.cmd.CmdLineToolException;
+import com.excelsiorjet.api.tasks.JetBuildTask;
+import com.excelsiorjet.api.tasks.JetProject;
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import com.excelsiorjet.api.tasks.config.runtime.RuntimeConfig;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Mojo searching for the optimization settings that suit the application best.
+ * <p>
+ * Each combination of the settings listed in {@link #tuningSpace} is built into its own subdirectory
+ * of {@code tuning} in {@link #jetOutputDir}, with up to {@link #tuningParallelism} builds at a time
+ * (that are also subject to {@code maxParallelCompiles} and {@code compileMemory}).
+ * Once all the variants are built, they are benchmarked one by one, so that the measurements do not interfere,
+ * the same way {@code jet:compare} measures the executable: the startup, and if {@code compareWorkload} is set,
+ * the throughput and the peak RSS under the workload. The on-disk size of each variant is measured as well.
+ * </p>
+ * <p>
+ * The variants ranked by the {@link #tuningObjective} are saved to {@code tuning.json},
+ * and the settings of the best one are saved to {@code tuning-best.xml} in the form of the plugin configuration.
+ * </p>
+ */
+@Mojo(name = "tune", defaultPhase = LifecyclePhase.INTEGRATION_TEST,
+        requiresDependencyResolution = ResolutionScope.RUNTIME, threadSafe = true)
+public class TuneMojo extends CompareMojo {
+
+    static final String TUNING_DIR = "tuning";
+
+    static final String REPORT_FILE_NAME = "tuning.json";
+
+    static final String BEST_FILE_NAME = "tuning-best.xml";
+
+    /**
+     * Values of the optimization settings to try.
+     *
+     * @see TuningSpace#optimizationPresets
+     * @see TuningSpace#inlineExpansions
+     * @see TuningSpace#stackAllocations
+     * @see TuningSpace#globalOptimizers
+     * @see TuningSpace#compilerOptions
+     */
+    @Parameter
+    protected TuningSpace tuningSpace;
+
+    /**
+     * Maximum number of the variants built at a time.
+     */
+    @Parameter(property = "jet.tuning.parallelism", defaultValue = "2")
+    protected int tuningParallelism;
+
+    /**
+     * Maximum number of the variants, that protects from a search space taking days to build.
+     */
+    @Parameter(property = "jet.tuning.maxVariants", defaultValue = "16")
+    protected int tuningMaxVariants;
+
+    /**
+     * What the variants are ranked by: {@code throughput} under the workload, {@code startup} time,
+     * {@code rss} (peak RSS under the workload, or at startup if there is no workload) or on-disk {@code size}.
+     * By default, it is {@code throughput} if {@code compareWorkload} is set, and {@code startup} otherwise.
+     */
+    @Parameter(property = "jet.tuning.objective")
+    protected String tuningObjective;
+
+    /**
+     * Outcome of a variant.
+     */
+    private static class Outcome {
+        final TuningVariant variant;
+        final File dir;
+        JetProject jetProject;
+        Variant measurements;
+        String error;
+
+        Outcome(TuningVariant variant, File dir) {
+            this.variant = variant;
+            this.dir = dir;
+        }
+
+        File appDir() {
+            return new File(dir, "app");
+        }
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        init();
+        if (!isSupportedPackaging()) {
+            logger.warn(s("JetMavenPlugin.UnsupportedPackaging.Mojo.Warning", project.getPackaging(), project.getName()));
+            return;
+        }
+        try {
+            boolean untilFirstLine = checkStartupBenchSettings();
+            boolean hasWorkload = (compareWorkload != null) && (compareWorkload.length > 0);
+            String objective = (tuningObjective != null) ? tuningObjective : hasWorkload ? "throughput" : "startup";
+            if (!Arrays.asList("throughput", "startup", "rss", "size").contains(objective) ||
+                    (objective.equals("throughput") && !hasWorkload))
+            {
+                throw new JetTaskFailureException(s("JetMavenPlugin.Tuning.BadObjective.Failure", objective));
+            }
+            TuningVariant baseline = new TuningVariant("baseline", optimizationPreset, inlineExpansion,
+                    stackAllocation, globalOptimizer, compilerOptions);
+            List<TuningVariant> variants = (tuningSpace != null) ? tuningSpace.variants(baseline) :
+                    Collections.singletonList(baseline);
+            if (variants.size() > tuningMaxVariants) {
+                throw new JetTaskFailureException(s("JetMavenPlugin.Tuning.TooManyVariants.Failure", variants.size(),
+                        tuningMaxVariants));
+            }
+            File tuningDir = new File(getJetOutputDir(), TUNING_DIR);
+            List<Outcome> outcomes = new ArrayList<>();
+            RuntimeConfig runtime = resolveRuntimeConfiguration();
+            for (TuningVariant variant : variants) {
+                Outcome outcome = new Outcome(variant, new File(tuningDir, variant.id));
+                outcome.jetProject = variant.apply(getJetProject().runtimeConfiguration(runtime))
+                        .jetOutputDir(outcome.dir)
+                        .jetBuildDir(new File(outcome.dir, "build"))
+                        .jetAppDir(outcome.appDir())
+                        .excelsiorJetPackaging("none");
+                outcomes.add(outcome);
+            }
+
+            ExcelsiorJet excelsiorJet = new ExcelsiorJet(jetHome);
+            build(excelsiorJet, outcomes);
+            for (Outcome outcome : outcomes) {
+                if (outcome.error != null) {
+                    continue;
+                }
+                logger.info(s("JetMavenPlugin.Tuning.Benchmark.Info", outcome.variant.id, outcome.variant));
+                try {
+                    File executable = findExecutable(outcome.appDir());
+                    Map<String, String> environment = new HashMap<>();
+                    List<String> command = new ArrayList<>();
+                    command.add(executable.getAbsolutePath());
+                    command.addAll(executableArguments(environment));
+                    Variant measurements = new Variant(outcome.variant.id, outcome.variant.id, command);
+                    measurements.sizeBytes.put("application", sizeOf(outcome.appDir()));
+                    measure(measurements, environment, outcome.appDir(), untilFirstLine);
+                    outcome.measurements = measurements;
+                } catch (JetTaskFailureException | IOException e) {
+                    outcome.error = e.getMessage();
+                    logger.warn(s("JetMavenPlugin.Tuning.Failed.Warning", outcome.variant.id, e.getMessage()));
+                }
+            }
+
+            List<Outcome> ranked = new ArrayList<>(outcomes);
+            ranked.sort(Comparator.comparing((Outcome o) -> score(o, objective),
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+            Outcome best = ranked.get(0);
+            if (score(best, objective) == null) {
+                throw new JetTaskFailureException(s("JetMavenPlugin.Tuning.NoResults.Failure"));
+            }
+            File report = new File(getJetOutputDir(), REPORT_FILE_NAME);
+            File bestFile = new File(getJetOutputDir(), BEST_FILE_NAME);
+            Json.write(report, toJson(ranked, objective));
+            Files.write(bestFile.toPath(), best.variant.toPluginConfiguration(), StandardCharsets.UTF_8);
+            logSummary(ranked, objective, report, bestFile);
+        } catch (JetTaskFailureException | JetHomeException e) {
+            throw new MojoFailureException(e.getMessage());
+        } catch (IOException e) {
+            logger.debug("JetTask execution error", e);
+            logger.error(e.getMessage());
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Builds the variants in parallel. The build failures are recorded in the outcomes.
+     */
+    private void build(ExcelsiorJet excelsiorJet, List<Outcome> outcomes)
+            throws InterruptedException, MojoExecutionException
+    {
+        int parallelism = Math.max(1, Math.min(tuningParallelism, outcomes.size()));
+        logger.info(s("JetMavenPlugin.Tuning.Start.Info", outcomes.size(), parallelism));
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            Map<Outcome, Future<?>> futures = new LinkedHashMap<>();
+            for (Outcome outcome : outcomes) {
+                futures.put(outcome, executor.submit(MavenLog.bound("[" + outcome.variant.id + "] ", () -> {
+                    try (JetCompileScheduler.Permit ignored = acquireCompilePermit(outcome.variant.globalOptimizer)) {
+                        new JetBuildTask(excelsiorJet, outcome.jetProject, false).execute();
+                    }
+                    return null;
+                })));
+            }
+            for (Map.Entry<Outcome, Future<?>> e : futures.entrySet()) {
+                try {
+                    e.getValue().get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    if (!(cause instanceof JetTaskFailureException) && !(cause instanceof CmdLineToolException)) {
+                        logger.debug("JetTask execution error", cause);
+                    }
+                    e.getKey().error = cause.getMessage();
+                    logger.warn(s("JetMavenPlugin.Tuning.Failed.Warning", e.getKey().variant.id, cause.getMessage()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the objective metric of the variant, lower is better, or {@code null} if it is not measured
+     */
+    private static Double score(Outcome outcome, String objective) {
+        Variant m = outcome.measurements;
+        if (m == null) {
+            return null;
+        }
+        switch (objective) {
+            case "throughput":
+                return ((m.workload != null) && (m.workload.throughput != null)) ? -m.workload.throughput : null;
+            case "startup":
+                return median(m.startup, r -> r.millis);
+            case "rss":
+                if ((m.workload != null) && (m.workload.peakRssKB != null)) {
+                    return m.workload.peakRssKB.doubleValue();
+                }
+                return median(m.startup, r -> r.peakRssKB);
+            default:
+                return (double) m.totalSizeBytes();
+        }
+    }
+
+    private Map<String, Object> toJson(List<Outcome> ranked, String objective) {
+        List<Object> variants = new ArrayList<>();
+        int rank = 0;
+        for (Outcome outcome : ranked) {
+            Map<String, Object> v = new LinkedHashMap<>();
+            boolean measured = score(outcome, objective) != null;
+            v.put("rank", measured ? ++rank : null);
+            v.put("id", outcome.variant.id);
+            v.put("settings", outcome.variant.toJson());
+            v.put("error", outcome.error);
+            Variant m = outcome.measurements;
+            if (m != null) {
+                v.put("startupMillis", median(m.startup, r -> r.millis));
+                v.put("startupPeakRssKB", median(m.startup, r -> r.peakRssKB));
+                if (m.workload != null) {
+                    v.put("timeToSteadyStateMillis", m.workload.timeToSteadyStateMillis);
+                    v.put("iterationsPerSecond", m.workload.throughput);
+                    v.put("peakRssKB", m.workload.peakRssKB);
+                }
+                v.put("sizeBytes", m.totalSizeBytes());
+            }
+            variants.add(v);
+        }
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("module", project.getId());
+        root.put("objective", objective);
+        root.put("workload", (compareWorkload != null) ? Arrays.asList(compareWorkload) : null);
+        root.put("best", ranked.get(0).variant.id);
+        root.put("variants", variants);
+        return root;
+    }
+
+    private void logSummary(List<Outcome> ranked, String objective, File report, File bestFile) {
+        logger.info(s("JetMavenPlugin.Tuning.Summary.Info", objective, report, bestFile));
+        logger.info(String.format("  %-4s %-11s %12s %12s %12s %10s  %s", "#", "Variant", "startup, ms",
+                "runs/s", "peak RSS, MB", "size, MB", "Settings"));
+        int rank = 0;
+        for (Outcome outcome : ranked) {
+            Variant m = outcome.measurements;
+            String position = (score(outcome, objective) != null) ? String.valueOf(++rank) : "-";
+            if (m == null) {
+                logger.info(String.format("  %-4s %-11s %12s %12s %12s %10s  %s", position, outcome.variant.id,
+                        "failed", "", "", "", outcome.variant));
+                continue;
+            }
+            Double startup = median(m.startup, r -> r.millis);
+            Double throughput = (m.workload != null) ? m.workload.throughput : null;
+            Long rssKB = ((m.workload != null) && (m.workload.peakRssKB != null)) ? m.workload.peakRssKB : null;
+            logger.info(String.format(Locale.ROOT, "  %-4s %-11s %12s %12s %12s %10.1f  %s", position,
+                    outcome.variant.id, format(startup), format(throughput),
+                    format((rssKB != null) ? rssKB / 1024.0 : null), m.totalSizeBytes() / (1024.0 * 1024),
+                    outcome.variant));
+        }
+    }
+
+    private static String format(Double value) {
+        return (value != null) ? String.format(Locale.ROOT, "%.1f", value) : "n/a";
+    }
+}
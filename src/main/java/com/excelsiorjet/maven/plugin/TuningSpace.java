@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Values of the optimization settings tried by {@code jet:tune}.
+ * <p>
+ * Every combination of the listed values is a variant built and benchmarked by the goal.
+ * The settings without listed values keep the values of the plugin configuration.
+ * The variant with the settings of the plugin configuration is always tried, as the baseline.
+ * </p>
+ */
+public class TuningSpace {
+
+    /**
+     * Values of {@code <optimizationPreset>} to try: {@code typical}, {@code smart}.
+     */
+    public List<String> optimizationPresets;
+
+    /**
+     * Values of {@code <inlineExpansion>} to try, e.g. {@code aggressive}, {@code medium}, {@code low}.
+     */
+    public List<String> inlineExpansions;
+
+    /**
+     * Values of {@code <stackAllocation>} to try.
+     */
+    public List<Boolean> stackAllocations;
+
+    /**
+     * Values of {@code <globalOptimizer>} to try. The Global Optimizer requires the Test Run profile.
+     */
+    public List<Boolean> globalOptimizers;
+
+    /**
+     * Alternative {@code <compilerOptions>} to try, each a whitespace-separated list of options,
+     * an empty one for no options.
+     */
+    public List<String> compilerOptions;
+
+    /**
+     * @param baseline the variant with the settings of the plugin configuration
+     * @return the baseline followed by the other combinations of the listed values
+     */
+    List<TuningVariant> variants(TuningVariant baseline) {
+        List<TuningVariant> variants = new ArrayList<>();
+        variants.add(baseline);
+        for (String preset : valuesOf(optimizationPresets, baseline.optimizationPreset)) {
+            for (String inline : valuesOf(inlineExpansions, baseline.inlineExpansion)) {
+                for (boolean stack : valuesOf(stackAllocations, baseline.stackAllocation)) {
+                    for (boolean global : valuesOf(globalOptimizers, baseline.globalOptimizer)) {
+                        for (String options : valuesOf(compilerOptions, String.join(" ", baseline.compilerOptions))) {
+                            TuningVariant variant = new TuningVariant(String.format("variant-%02d", variants.size()),
+                                    preset, inline, stack, global, TuningVariant.splitOptions(options));
+                            if (variants.stream().noneMatch(variant::hasSameSettings)) {
+                                variants.add(variant);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return variants;
+    }
+
+    private static <T> List<T> valuesOf(List<T> values, T current) {
+        return ((values != null) && !values.isEmpty()) ? values : Collections.singletonList(current);
+    }
+}
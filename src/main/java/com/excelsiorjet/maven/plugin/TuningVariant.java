@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.tasks.JetProject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A combination of the optimization settings built and benchmarked by {@code jet:tune}.
+ *
+ * @see TuningSpace
+ */
+class TuningVariant {
+
+    final String id;
+    final String optimizationPreset;
+    final String inlineExpansion;
+    final boolean stackAllocation;
+    final boolean globalOptimizer;
+    final String[] compilerOptions;
+
+    TuningVariant(String id, String optimizationPreset, String inlineExpansion, boolean stackAllocation,
+                  boolean globalOptimizer, String[] compilerOptions)
+    {
+        this.id = id;
+        this.optimizationPreset = optimizationPreset;
+        this.inlineExpansion = inlineExpansion;
+        this.stackAllocation = stackAllocation;
+        this.globalOptimizer = globalOptimizer;
+        this.compilerOptions = (compilerOptions != null) ? compilerOptions : new String[0];
+    }
+
+    static String[] splitOptions(String options) {
+        return ((options == null) || options.trim().isEmpty()) ? new String[0] : options.trim().split("\\s+");
+    }
+
+    boolean hasSameSettings(TuningVariant other) {
+        return optimizationPreset.equals(other.optimizationPreset) &&
+                String.valueOf(inlineExpansion).equals(String.valueOf(other.inlineExpansion)) &&
+                (stackAllocation == other.stackAllocation) && (globalOptimizer == other.globalOptimizer) &&
+                Arrays.equals(compilerOptions, other.compilerOptions);
+    }
+
+    /**
+     * Applies the settings to the project.
+     */
+    JetProject apply(JetProject project) {
+        return project.optimizationPreset(optimizationPreset)
+                .inlineExpansion(inlineExpansion)
+                .stackAllocation(stackAllocation)
+                .globalOptimizer(globalOptimizer)
+                .compilerOptions(compilerOptions);
+    }
+
+    Map<String, Object> toJson() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("optimizationPreset", optimizationPreset);
+        settings.put("inlineExpansion", inlineExpansion);
+        settings.put("stackAllocation", stackAllocation);
+        settings.put("globalOptimizer", globalOptimizer);
+        settings.put("compilerOptions", Arrays.asList(compilerOptions));
+        return settings;
+    }
+
+    /**
+     * @return the settings as the plugin configuration elements
+     */
+    List<String> toPluginConfiguration() {
+        List<String> lines = new ArrayList<>();
+        lines.add("<optimizationPreset>" + optimizationPreset + "</optimizationPreset>");
+        if (inlineExpansion != null) {
+            lines.add("<inlineExpansion>" + inlineExpansion + "</inlineExpansion>");
+        }
+        lines.add("<stackAllocation>" + stackAllocation + "</stackAllocation>");
+        lines.add("<globalOptimizer>" + globalOptimizer + "</globalOptimizer>");
+        if (compilerOptions.length > 0) {
+            lines.add("<compilerOptions>");
+            for (String option : compilerOptions) {
+                lines.add("    <compilerOption>" + option.replace("&", "&amp;").replace("<", "&lt;") +
+                        "</compilerOption>");
+            }
+            lines.add("</compilerOptions>");
+        }
+        return lines;
+    }
+
+    @Override
+    public String toString() {
+        return "optimizationPreset=" + optimizationPreset +
+                ", inlineExpansion=" + ((inlineExpansion != null) ? inlineExpansion : "default") +
+                ", stackAllocation=" + stackAllocation +
+                ", globalOptimizer=" + globalOptimizer +
+                ", compilerOptions=" + Arrays.toString(compilerOptions);
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.JetHomeException;
+import com.excelsiorjet.api.cmd.CmdLineToolException;
+import com.excelsiorjet.api.tasks.JetBuildTask;
+import com.excelsiorjet.api.tasks.JetProject;
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import com.excelsiorjet.api.tasks.RunTask;
+import com.excelsiorjet.api.tasks.StopTask;
+import com.excelsiorjet.api.tasks.config.ApplicationType;
+import com.excelsiorjet.maven.plugin.packaging.FileStager;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Mojo for the edit-build-run development loop.
+ * <p>
+ * The goal builds the application with Excelsior JET, runs it the way {@link RunMojo} does, and watches
+ * the compiled classes ({@code target/classes}), the resource directories and {@link #jetResourcesDir} for changes.
+ * Upon a change, the running application is stopped according to the {@code terminationPolicy},
+ * the changed classes and resources are put into the main jar (or war) in place, and the application
+ * is rebuilt and restarted. Recompile the sources in your IDE or with {@code mvn compile} in another terminal,
+ * the POM is not reloaded and the dependencies are not re-resolved.
+ * </p>
+ * <p>
+ * To make the rebuilds fast, the Excelsior JET project database is reused between them,
+ * no package is created and the startup profile is not collected. Also consider disabling
+ * the Global Optimizer during development with {@code -DglobalOptimizer=false}.
+ * Filtered resources and include/exclude patterns of the resources are not supported, run
+ * {@code mvn process-resources} in another terminal to update such resources.
+ * </p>
+ * <p>
+ * The goal runs until Maven is interrupted. The timings of each rebuild are printed.
+ * </p>
+ */
+@Mojo(name = "watch", requiresDependencyResolution = ResolutionScope.RUNTIME, threadSafe = true)
+public class WatchMojo extends AbstractBuildMojo {
+
+    /**
+     * Quiet interval in milliseconds that ends a burst of changes and starts the rebuild.
+     */
+    @Parameter(property = "jet.watch.debounce", defaultValue = "500")
+    protected long watchDebounce;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        init();
+        if (!isSupportedPackaging()) {
+            logger.warn(s("JetMavenPlugin.UnsupportedPackaging.Mojo.Warning", project.getPackaging(), project.getName()));
+            return;
+        }
+        try {
+            JetProject jetProject = getJetProject()
+                    .excelsiorJetPackaging("none")
+                    .profileStartup(false);
+            ExcelsiorJet excelsiorJet = new ExcelsiorJet(jetHome);
+            // jet:build must not consider the results of the development builds up-to-date
+            new File(getJetBuildDir(), BuildFingerprint.FILE_NAME).delete();
+            Path classesDir = Paths.get(project.getBuild().getOutputDirectory()).toAbsolutePath().normalize();
+            List<Path> roots = new ArrayList<>();
+            roots.add(classesDir);
+            for (Resource resource : project.getResources()) {
+                roots.add(Paths.get(resource.getDirectory()));
+            }
+            roots.add(jetResourcesDir.toPath());
+            try (DirectoryWatcher watcher = new DirectoryWatcher(roots)) {
+                watch(excelsiorJet, jetProject, watcher, classesDir);
+            }
+        } catch (JetTaskFailureException | JetHomeException  e) {
+            throw new MojoFailureException(e.getMessage());
+        } catch (IOException e) {
+            logger.debug("JetTask execution error", e);
+            logger.error(e.getMessage());
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void watch(ExcelsiorJet excelsiorJet, JetProject jetProject, DirectoryWatcher watcher, Path classesDir)
+            throws JetTaskFailureException, IOException, InterruptedException, MojoExecutionException
+    {
+        Set<Path> changed = Collections.emptySet();
+        Thread app = null;
+        try {
+            for (int iteration = 1; ; iteration++) {
+                long start = System.currentTimeMillis();
+                if ((app != null) && app.isAlive()) {
+                    // the executable cannot be replaced while it runs on some platforms
+                    new StopTask(excelsiorJet, jetProject).execute();
+                    app.join();
+                }
+                long stopped = System.currentTimeMillis();
+                Set<Path> classes = syncResources(changed, classesDir, watcher);
+                int entries = updateArchive(getMainArtifact(), archivePrefix(getAppType()), classesDir, classes);
+                long updated = System.currentTimeMillis();
+                boolean built = build(excelsiorJet, jetProject);
+                long compiled = System.currentTimeMillis();
+                if (built) {
+                    app = run(excelsiorJet, jetProject);
+                }
+                logger.info(s(built ? "JetMavenPlugin.Watch.Iteration.Info" : "JetMavenPlugin.Watch.BuildFailed.Info",
+                        iteration, changed.size(), entries, stopped - start, updated - stopped, compiled - updated,
+                        compiled - start));
+                changed = watcher.await(watchDebounce);
+                logger.info(s("JetMavenPlugin.Watch.Changed.Info", changed.size()));
+            }
+        } finally {
+            if ((app != null) && app.isAlive()) {
+                new StopTask(excelsiorJet, jetProject).execute();
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if the build failed, the failure is logged and the changes are waited for
+     */
+    private boolean build(ExcelsiorJet excelsiorJet, JetProject jetProject) throws MojoExecutionException {
+        try (JetCompileScheduler.Permit ignored = acquireCompilePermit()) {
+            new JetBuildTask(excelsiorJet, jetProject, false).execute();
+            return true;
+        } catch (JetTaskFailureException | CmdLineToolException | IOException e) {
+            logger.debug("JetTask execution error", e);
+            logger.error(e.getMessage());
+            return false;
+        }
+    }
+
+    private Thread run(ExcelsiorJet excelsiorJet, JetProject jetProject) {
+        Thread app = new Thread(MavenLog.bound(() -> {
+            try {
+                new RunTask(excelsiorJet, jetProject).execute();
+                logger.info(s("JetMavenPlugin.Watch.Exited.Info"));
+            } catch (JetTaskFailureException | CmdLineToolException | IOException e) {
+                logger.debug("JetTask execution error", e);
+                logger.warn(s("JetMavenPlugin.Watch.RunFailed.Warning", e.getMessage()));
+            }
+        }), "JET watch run");
+        app.setDaemon(true);
+        app.start();
+        return app;
+    }
+
+    /**
+     * Copies the changed unfiltered resources into the classes directory, as Maven resources plugin would.
+     *
+     * @return the changed files and directories of the classes directory including the copied resources
+     */
+    private Set<Path> syncResources(Set<Path> changed, Path classesDir, DirectoryWatcher watcher) throws IOException {
+        Set<Path> classes = new TreeSet<>();
+        // resources are never linked, as the compiler and other plugins may rewrite the copies in place
+        FileStager stager = new FileStager(false, 1);
+        for (Path path : changed) {
+            if (path.startsWith(classesDir)) {
+                classes.add(path);
+            }
+        }
+        for (Resource resource : project.getResources()) {
+            Path dir = Paths.get(resource.getDirectory()).toAbsolutePath().normalize();
+            Path target = (resource.getTargetPath() != null) ? classesDir.resolve(resource.getTargetPath()) : classesDir;
+            for (Path path : changed) {
+                if (!path.startsWith(dir) || path.startsWith(classesDir)) {
+                    continue;
+                }
+                if (resource.isFiltering()) {
+                    logger.warn(s("JetMavenPlugin.Watch.FilteredResource.Warning", path));
+                    continue;
+                }
+                Path copy = target.resolve(dir.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    // a directory is reported as a whole when it is created, or when the events were lost
+                    try (Stream<Path> files = Files.walk(path)) {
+                        for (Path file : files.collect(Collectors.toList())) {
+                            Path fileCopy = copy.resolve(path.relativize(file).toString());
+                            if (Files.isDirectory(file)) {
+                                Files.createDirectories(fileCopy);
+                            } else if (Files.isRegularFile(file)) {
+                                stager.stage(file, fileCopy);
+                                watcher.ignore(fileCopy, Files.getLastModifiedTime(fileCopy).toMillis());
+                            }
+                        }
+                    }
+                } else if (Files.isRegularFile(path)) {
+                    stager.stage(path, copy);
+                    watcher.ignore(copy, Files.getLastModifiedTime(copy).toMillis());
+                } else if (Files.isDirectory(copy)) {
+                    FileUtils.deleteDirectory(copy.toFile());
+                } else {
+                    Files.deleteIfExists(copy);
+                }
+                classes.add(copy);
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * @return location of the classes directory within the main artifact of the given application type
+     */
+    static String archivePrefix(ApplicationType appType) {
+        switch (appType) {
+            case TOMCAT:
+                return "WEB-INF/classes/";
+            case SPRING_BOOT:
+                return "BOOT-INF/classes/";
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Replaces the entries of the archive that correspond to the changed files of the classes directory,
+     * and removes the entries of the deleted ones. The other entries are copied without recompression.
+     * <p>
+     * If the classes directory itself is reported as changed (for instance, when the watcher lost events),
+     * the archive is fully resynchronized with it: all its files are replaced, and the entries of the classes
+     * directory that have no file any more are removed. {@code META-INF/} is left intact if the classes directory
+     * is the archive root, as it is generated by the packaging.
+     * </p>
+     *
+     * @param prefix location of the classes directory within the archive
+     * @param changed changed, created and deleted files and directories
+     * @return number of the replaced, added and removed entries
+     */
+    static int updateArchive(File archive, String prefix, Path classesDir, Collection<Path> changed)
+            throws IOException
+    {
+        Map<String, Path> updates = new TreeMap<>();
+        Set<String> removed = new HashSet<>();
+        boolean resync = false;
+        for (Path path : changed) {
+            if (!path.startsWith(classesDir)) {
+                continue;
+            }
+            if (path.equals(classesDir)) {
+                resync = true;
+            } else if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                        updates.put(entryName(prefix, classesDir, file), file);
+                    }
+                }
+            } else if (Files.isRegularFile(path)) {
+                updates.put(entryName(prefix, classesDir, path), path);
+            } else {
+                removed.add(entryName(prefix, classesDir, path));
+            }
+        }
+        if (resync && Files.isDirectory(classesDir)) {
+            try (Stream<Path> files = Files.walk(classesDir)) {
+                for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                    updates.put(entryName(prefix, classesDir, file), file);
+                }
+            }
+        }
+        if (!resync && updates.isEmpty() && removed.isEmpty()) {
+            return 0;
+        }
+        int count = updates.size();
+        File tmp = new File(archive.getPath() + ".tmp");
+        try (ZipFile zip = new ZipFile(archive);
+             ZipArchiveOutputStream out = new ZipArchiveOutputStream(tmp))
+        {
+            for (ZipArchiveEntry entry : Collections.list(zip.getEntriesInPhysicalOrder())) {
+                String name = entry.getName();
+                if (updates.containsKey(name)) {
+                    continue;
+                }
+                if (isRemoved(name, removed) || (resync && isStale(name, prefix, classesDir))) {
+                    count++;
+                    continue;
+                }
+                out.addRawArchiveEntry(entry, zip.getRawInputStream(entry));
+            }
+            for (Map.Entry<String, Path> update : updates.entrySet()) {
+                ZipArchiveEntry entry = new ZipArchiveEntry(update.getKey());
+                entry.setTime(Files.getLastModifiedTime(update.getValue()).toMillis());
+                out.putArchiveEntry(entry);
+                Files.copy(update.getValue(), out);
+                out.closeArchiveEntry();
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        Files.move(tmp.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return count;
+    }
+
+    private static String entryName(String prefix, Path classesDir, Path file) {
+        return prefix + classesDir.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * @return {@code true} if the entry belongs to the classes directory, but has no file there
+     */
+    private static boolean isStale(String name, String prefix, Path classesDir) {
+        if (!name.startsWith(prefix) || (prefix.isEmpty() && name.startsWith("META-INF/"))) {
+            return false;
+        }
+        // the files are all replaced, so only the entries without a file or a directory remain here
+        String path = name.substring(prefix.length());
+        return !path.isEmpty() && !Files.isDirectory(classesDir.resolve(path));
+    }
+
+    private static boolean isRemoved(String name, Set<String> removed) {
+        if (removed.contains(name)) {
+            return true;
+        }
+        // a deleted directory removes all entries within
+        for (int slash = name.indexOf('/'); slash >= 0; slash = name.indexOf('/', slash + 1)) {
+            if (removed.contains(name.substring(0, slash))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Measures a long-running application under a workload: the application is started in background,
+ * and once it is ready, the workload command (e.g. an HTTP load generator) is run against it a number of times.
+ * <p>
+ * The durations of the workload iterations show the warm-up of the application.
+ * The steady state is reached at the first iteration, starting from which all the iterations are not slower
+ * than the median of the last half of the iterations by more than the given tolerance.
+ * The throughput is the number of steady state iterations per second.
+ * </p>
+ * <p>
+ * On Linux, the peak RSS of the application processes is sampled as well, so the application must be run
+ * in a directory that no other processes started by the build run in.
+ * </p>
+ */
+class WorkloadBenchmark {
+
+    private static final long SAMPLING_INTERVAL_MILLIS = 100;
+
+    private static final long STOP_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * Measurements of the application under the workload.
+     */
+    static class Result {
+        long readyMillis;
+        /**
+         * Start times of the workload iterations since the application start.
+         */
+        final List<Long> iterationStartMillis = new ArrayList<>();
+        final List<Double> iterationMillis = new ArrayList<>();
+        /**
+         * Index of the first steady state iteration, -1 if the steady state has not been reached.
+         */
+        int steadyIteration = -1;
+        Long timeToSteadyStateMillis;
+        Double throughput;
+        Long peakRssKB;
+    }
+
+    private final List<String> workload;
+    private final File workloadDir;
+    private final int iterations;
+    private final double tolerance;
+    private final ReadinessConfig readiness;
+    private final long timeoutMillis;
+
+    /**
+     * @param workload workload command: executable followed by its arguments
+     * @param workloadDir working directory of the workload command
+     * @param iterations number of workload runs
+     * @param tolerance relative slowdown of an iteration against the steady state, e.g. 0.05
+     * @param readiness conditions for the application to be considered ready
+     * @param timeoutMillis maximum duration of a workload iteration
+     */
+    WorkloadBenchmark(List<String> workload, File workloadDir, int iterations, double tolerance,
+                      ReadinessConfig readiness, long timeoutMillis)
+    {
+        this.workload = workload;
+        this.workloadDir = workloadDir;
+        this.iterations = iterations;
+        this.tolerance = tolerance;
+        this.readiness = readiness;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Runs the application, measures it under the workload and stops it.
+     *
+     * @param command application executable followed by its arguments
+     * @param environment additional environment variables of the application
+     * @param workDir working directory of the application
+     * @param log file receiving the output of the application and of the workload
+     * @throws TimeoutException if a workload iteration has not completed in time
+     */
+    Result run(List<String> command, Map<String, String> environment, File workDir, File log)
+            throws IOException, InterruptedException, TimeoutException, JetTaskFailureException
+    {
+        ReadinessProbe probe = new ReadinessProbe(readiness);
+        Result result = new Result();
+        ProcessBuilder builder = new ProcessBuilder(command).directory(workDir).redirectErrorStream(true);
+        builder.environment().putAll(environment);
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(log), StandardCharsets.UTF_8), true);
+             ProcessTreeSampler sampler = new ProcessTreeSampler(workDir, SAMPLING_INTERVAL_MILLIS).start())
+        {
+            long start = System.currentTimeMillis();
+            Process app = builder.start();
+            Thread reader = new Thread(() -> {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(app.getInputStream(),
+                        StandardCharsets.UTF_8)))
+                {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        probe.onOutput(line);
+                        out.println(line);
+                    }
+                } catch (IOException ignore) {
+                    // the application has been stopped
+                }
+            }, "JET workload benchmark output reader");
+            reader.setDaemon(true);
+            reader.start();
+            try {
+                result.readyMillis = probe.await(start, app::isAlive);
+                File workloadLog = new File(log.getParentFile(), log.getName() + ".workload");
+                for (int i = 0; i < iterations; i++) {
+                    long iterationStart = System.nanoTime();
+                    result.iterationStartMillis.add(System.currentTimeMillis() - start);
+                    Process process = new ProcessBuilder(workload).directory(workloadDir).redirectErrorStream(true)
+                            .redirectOutput(ProcessBuilder.Redirect.appendTo(workloadLog))
+                            .start();
+                    if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                        process.destroyForcibly();
+                        throw new TimeoutException();
+                    }
+                    result.iterationMillis.add((System.nanoTime() - iterationStart) / 1e6);
+                    if (process.exitValue() != 0) {
+                        throw new IOException("Workload command " + workload.get(0) + " failed with exit code " +
+                                process.exitValue() + ", see " + workloadLog);
+                    }
+                }
+            } finally {
+                stop(app);
+                reader.join(STOP_TIMEOUT_MILLIS);
+            }
+            sampler.close();
+            if (ProcessTreeSampler.isSupported()) {
+                result.peakRssKB = sampler.getProcesses().stream().mapToLong(p -> p.peakRssKB).sum();
+            }
+        }
+        double[] millis = result.iterationMillis.stream().mapToDouble(Double::doubleValue).toArray();
+        result.steadyIteration = steadyState(millis, tolerance);
+        if (result.steadyIteration >= 0) {
+            result.timeToSteadyStateMillis = result.iterationStartMillis.get(result.steadyIteration);
+            double[] steady = Arrays.copyOfRange(millis, result.steadyIteration, millis.length);
+            result.throughput = steady.length * 1000 / Arrays.stream(steady).sum();
+        }
+        return result;
+    }
+
+    private static void stop(Process app) throws InterruptedException {
+        app.destroy();
+        if (!app.waitFor(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            app.destroyForcibly().waitFor();
+        }
+    }
+
+    /**
+     * @param millis durations of the workload iterations
+     * @param tolerance relative slowdown of an iteration against the steady state
+     * @return index of the first steady state iteration, -1 if the steady state has not been reached
+     */
+    static int steadyState(double[] millis, double tolerance) {
+        if (millis.length == 0) {
+            return -1;
+        }
+        double reference = new SampleStatistics(Arrays.copyOfRange(millis, millis.length / 2, millis.length))
+                .percentile(50);
+        int first = millis.length;
+        while ((first > 0) && (millis[first - 1] <= reference * (1 + tolerance))) {
+            first--;
+        }
+        return (first < millis.length) ? first : -1;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin.cache;
+
+import com.excelsiorjet.api.util.Utils;
+import com.excelsiorjet.maven.plugin.Digests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Content-addressed cache of Excelsior JET build results.
+ * <p>
+ * The cache never fails the build: if a backend is unavailable or an entry is corrupted,
+ * a warning is issued and the build proceeds as if the entry was missing.
+ * </p>
+ *
+ * @see BuildCacheConfig
+ */
+public class BuildCache {
+
+    private final List<CacheStore> stores = new ArrayList<>();
+    private final boolean push;
+    private final File workDir;
+
+    /**
+     * @param workDir directory for temporary files
+     */
+    public BuildCache(BuildCacheConfig config, File workDir) {
+        if (config.directory != null) {
+            stores.add(new DirectoryCacheStore(config.directory, config.maxSize * 1024 * 1024));
+        }
+        if (!Utils.isEmpty(config.url)) {
+            stores.add(new HttpCacheStore(config.url, config.timeout));
+        }
+        this.push = config.push;
+        this.workDir = workDir;
+    }
+
+    /**
+     * Restores build results from the cache.
+     *
+     * @param key cache key
+     * @param appDir application directory to restore
+     * @param packageArchive package archive to restore, {@code null} if the packaging type does not produce one
+     * @return {@code true} if the cache contained the build results and they were restored
+     */
+    public boolean restore(String key, File appDir, File packageArchive) {
+        File entry = new File(workDir, key + DirectoryCacheStore.ENTRY_EXT);
+        try {
+            Files.createDirectories(workDir.toPath());
+            for (int i = 0; i < stores.size(); i++) {
+                CacheStore store = stores.get(i);
+                String checksum = get(store, key, entry);
+                if (checksum == null) {
+                    continue;
+                }
+                if (!checksum.equals(Digests.sha256(entry))) {
+                    logger.warn(s("JetMavenPlugin.BuildCache.CorruptedEntry.Warning", key));
+                    remove(store, key);
+                    continue;
+                }
+                CacheEntry.unpack(entry, appDir, packageArchive);
+                // populate the faster stores that missed the entry, e.g. the local directory in front of HTTP
+                for (int j = 0; j < i; j++) {
+                    put(stores.get(j), key, entry, checksum);
+                }
+                logger.info(s("JetMavenPlugin.BuildCache.Hit.Info", key));
+                return true;
+            }
+        } catch (IOException e) {
+            logger.warn(s("JetMavenPlugin.BuildCache.RestoreFailed.Warning", e.getMessage()), e);
+        } finally {
+            entry.delete();
+        }
+        logger.info(s("JetMavenPlugin.BuildCache.Miss.Info", key));
+        return false;
+    }
+
+    /**
+     * Stores build results in the cache, unless the cache is configured not to accept them.
+     */
+    public void store(String key, File appDir, File packageArchive) {
+        if (!push) {
+            return;
+        }
+        File entry = new File(workDir, key + DirectoryCacheStore.ENTRY_EXT);
+        try {
+            Files.createDirectories(workDir.toPath());
+            CacheEntry.pack(appDir, packageArchive, entry);
+            String checksum = Digests.sha256(entry);
+            for (CacheStore store : stores) {
+                put(store, key, entry, checksum);
+            }
+            logger.info(s("JetMavenPlugin.BuildCache.Stored.Info", key, entry.length() / 1024));
+        } catch (IOException e) {
+            logger.warn(s("JetMavenPlugin.BuildCache.StoreFailed.Warning", e.getMessage()), e);
+        } finally {
+            entry.delete();
+        }
+    }
+
+    private static String get(CacheStore store, String key, File entry) {
+        try {
+            return store.get(key, entry);
+        } catch (IOException e) {
+            logger.warn(s("JetMavenPlugin.BuildCache.RestoreFailed.Warning", e.getMessage()), e);
+            return null;
+        }
+    }
+
+    private static void put(CacheStore store, String key, File entry, String checksum) {
+        try {
+            store.put(key, entry, checksum);
+        } catch (IOException e) {
+            logger.warn(s("JetMavenPlugin.BuildCache.StoreFailed.Warning", e.getMessage()), e);
+        }
+    }
+
+    private static void remove(CacheStore store, String key) {
+        try {
+            store.remove(key);
+        } catch (IOException ignore) {
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin.cache;
+
+import com.excelsiorjet.api.util.Utils;
+
+import java.io.File;
+
+/**
+ * Configuration parameters of the shared build cache.
+ * <p>
+ * The build cache stores the results of Excelsior JET builds (the contents of {@code jetAppDir}
+ * and the zip or tar.gz archive) keyed by the fingerprint of all build inputs,
+ * so a build already performed on one machine is a mere download for everybody else.
+ * </p>
+ * <p>
+ * The cache may reside in a {@link #directory} (e.g. a network share), on an HTTP server
+ * that supports {@code GET} and {@code PUT} requests ({@link #url}), or both.
+ * In the latter case, the directory serves as a local cache in front of the HTTP server.
+ * </p>
+ */
+public class BuildCacheConfig {
+
+    /**
+     * Build cache directory. It may be a local directory or a directory shared between several machines.
+     * The directory cache is limited by {@link #maxSize}, least recently used entries are evicted first.
+     */
+    public File directory;
+
+    /**
+     * Base URL of the HTTP build cache. Cache entries are retrieved with {@code GET <url>/<key>.tar.gz}
+     * and uploaded with {@code PUT <url>/<key>.tar.gz}, their SHA-256 checksums reside at {@code <url>/<key>.sha256}.
+     */
+    public String url;
+
+    /**
+     * Maximum size of the {@link #directory} build cache in megabytes. Default value is 10240.
+     */
+    public long maxSize = 10240;
+
+    /**
+     * If set to {@code false}, the build cache is only used for retrieving build results,
+     * but the results of local builds are not uploaded to it.
+     * You may want to let only CI builds populate a shared cache. Default value is {@code true}.
+     */
+    public boolean push = true;
+
+    /**
+     * Connect and read timeout for the HTTP build cache in seconds. Default value is 60.
+     */
+    public int timeout = 60;
+
+    public boolean isEnabled() {
+        return (directory != null) || !Utils.isEmpty(url);
+    }
+}
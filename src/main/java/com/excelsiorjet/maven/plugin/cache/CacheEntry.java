@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin.cache;
+
+import com.excelsiorjet.maven.plugin.FileModes;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * Packs build results into a build cache entry and unpacks them back.
+ * <p>
+ * An entry is a tar.gz archive with the contents of the application directory under {@code app/}
+ * and the package archive, if any, under {@code package/}.
+ * POSIX file permissions and symbolic links are preserved, as the application directory contains
+ * executables and may contain links to shared libraries.
+ * </p>
+ */
+class CacheEntry {
+
+    private static final String APP_PREFIX = "app/";
+    private static final String PACKAGE_PREFIX = "package/";
+
+    static void pack(File appDir, File packageArchive, File entry) throws IOException {
+        GzipParameters gzip = new GzipParameters();
+        gzip.setCompressionLevel(Deflater.BEST_SPEED);
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(
+                new BufferedOutputStream(new FileOutputStream(entry)), gzip)))
+        {
+            tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            Path root = appDir.toPath();
+            List<Path> paths;
+            try (Stream<Path> walk = Files.walk(root)) {
+                paths = walk.filter(p -> !p.equals(root)).sorted().collect(Collectors.toList());
+            }
+            for (Path path : paths) {
+                String name = APP_PREFIX + root.relativize(path).toString().replace(File.separatorChar, '/');
+                addEntry(tar, path, name);
+            }
+            if ((packageArchive != null) && packageArchive.isFile()) {
+                addEntry(tar, packageArchive.toPath(), PACKAGE_PREFIX + packageArchive.getName());
+            }
+        }
+    }
+
+    private static void addEntry(TarArchiveOutputStream tar, Path path, String name) throws IOException {
+        TarArchiveEntry entry;
+        if (Files.isSymbolicLink(path)) {
+            entry = new TarArchiveEntry(name, TarArchiveEntry.LF_SYMLINK);
+            entry.setLinkName(Files.readSymbolicLink(path).toString().replace(File.separatorChar, '/'));
+        } else if (Files.isDirectory(path)) {
+            entry = new TarArchiveEntry(name + "/");
+        } else {
+            entry = new TarArchiveEntry(name);
+            entry.setSize(Files.size(path));
+        }
+        entry.setMode((entry.getMode() & ~0777) | FileModes.modeOf(path));
+        entry.setModTime(Files.getLastModifiedTime(path, LinkOption.NOFOLLOW_LINKS).toMillis());
+        tar.putArchiveEntry(entry);
+        // isFile() is also true for symbolic links
+        if (entry.isFile() && !entry.isSymbolicLink()) {
+            Files.copy(path, tar);
+        }
+        tar.closeArchiveEntry();
+    }
+
+    /**
+     * Unpacks a cache entry replacing the current contents of the application directory.
+     * <p>
+     * As entries may come from a shared cache, symbolic links pointing outside the application directory
+     * are rejected, and no file is written through a symbolic link leading out of it.
+     * </p>
+     *
+     * @param packageArchive where to place the package archive, {@code null} if it is not needed
+     */
+    static void unpack(File entry, File appDir, File packageArchive) throws IOException {
+        if (appDir.exists()) {
+            FileUtils.cleanDirectory(appDir);
+        }
+        Path root = appDir.toPath().toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        Path realRoot = root.toRealPath();
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(new GzipCompressorInputStream(
+                new BufferedInputStream(new FileInputStream(entry)))))
+        {
+            TarArchiveEntry e;
+            while ((e = tar.getNextTarEntry()) != null) {
+                String name = e.getName();
+                Path target;
+                if (name.startsWith(APP_PREFIX)) {
+                    target = root.resolve(name.substring(APP_PREFIX.length())).normalize();
+                    if (!target.startsWith(root) || !isInside(target, realRoot)) {
+                        throw new IOException("Illegal build cache entry " + name);
+                    }
+                } else if (name.startsWith(PACKAGE_PREFIX) && (packageArchive != null)) {
+                    target = packageArchive.toPath().toAbsolutePath();
+                } else {
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                if (e.isSymbolicLink()) {
+                    Path link = Paths.get(e.getLinkName());
+                    if (link.isAbsolute() || !target.getParent().resolve(link).normalize().startsWith(root)) {
+                        throw new IOException("Illegal build cache entry " + name + " -> " + e.getLinkName());
+                    }
+                    Files.deleteIfExists(target);
+                    Files.createSymbolicLink(target, link);
+                    if (!isInside(target, realRoot)) {
+                        // the link is lexically inside, but goes through other links leading out
+                        Files.delete(target);
+                        throw new IOException("Illegal build cache entry " + name + " -> " + e.getLinkName());
+                    }
+                    continue;
+                } else if (e.isDirectory()) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.copy(tar, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                FileModes.setMode(target, e.getMode());
+                Files.setLastModifiedTime(target, FileTime.fromMillis(e.getModTime().getTime()));
+            }
+        }
+    }
+
+    /**
+     * Checks that the real path of the nearest existing ancestor of the path (or of the path itself)
+     * is inside the directory, that is, no symbolic link already unpacked leads the path out of it.
+     */
+    private static boolean isInside(Path path, Path realRoot) throws IOException {
+        Path existing = path;
+        while (!Files.exists(existing)) {
+            existing = existing.getParent();
+        }
+        return existing.toRealPath().startsWith(realRoot);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin.cache;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Storage backend of the build cache.
+ */
+interface CacheStore {
+
+    /**
+     * Retrieves a cache entry.
+     *
+     * @param key cache key
+     * @param target file to save the entry to
+     * @return the SHA-256 checksum recorded for the entry when it was stored, or {@code null} if there is no such entry
+     */
+    String get(String key, File target) throws IOException;
+
+    /**
+     * Stores a cache entry.
+     *
+     * @param key cache key
+     * @param entry the entry file
+     * @param checksum SHA-256 checksum of the entry file
+     */
+    void put(String key, File entry, String checksum) throws IOException;
+
+    /**
+     * Removes a corrupted entry, if the backend supports removal.
+     */
+    void remove(String key) throws IOException;
+}
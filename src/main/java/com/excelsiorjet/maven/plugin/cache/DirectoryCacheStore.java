@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin.cache;
+
+import com.excelsiorjet.maven.plugin.packaging.FileStager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Build cache residing in a local or shared directory.
+ * <p>
+ * Each entry is stored as {@code <key>.tar.gz} along with its checksum in {@code <key>.sha256}.
+ * Entries are written to temporary files first and then atomically renamed,
+ * so concurrent builds sharing the directory never see partially written entries.
+ * The modification time of an entry is updated on every retrieval, and the least recently used
+ * entries are evicted once the total size of the cache exceeds the limit.
+ * Entries are cloned rather than copied where the file system allows it. They are never hard linked,
+ * as linked entries would share the modification time the eviction order is based on.
+ * </p>
+ */
+class DirectoryCacheStore implements CacheStore {
+
+    static final String ENTRY_EXT = ".tar.gz";
+    static final String CHECKSUM_EXT = ".sha256";
+
+    private final File dir;
+    private final long maxSizeBytes;
+    private final FileStager stager = new FileStager(false, 1);
+
+    DirectoryCacheStore(File dir, long maxSizeBytes) {
+        this.dir = dir;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    @Override
+    public String get(String key, File target) throws IOException {
+        File entry = new File(dir, key + ENTRY_EXT);
+        File checksum = new File(dir, key + CHECKSUM_EXT);
+        if (!entry.isFile() || !checksum.isFile()) {
+            return null;
+        }
+        try {
+            stager.stage(entry.toPath(), target.toPath());
+            String sum = new String(Files.readAllBytes(checksum.toPath()), StandardCharsets.US_ASCII).trim();
+            entry.setLastModified(System.currentTimeMillis());
+            return sum;
+        } catch (NoSuchFileException e) {
+            // evicted by a concurrent build
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, File entry, String checksum) throws IOException {
+        Files.createDirectories(dir.toPath());
+        Path tmpChecksum = Files.createTempFile(dir.toPath(), key, ".tmp");
+        Path tmpEntry = Files.createTempFile(dir.toPath(), key, ".tmp");
+        try {
+            Files.write(tmpChecksum, checksum.getBytes(StandardCharsets.US_ASCII));
+            stager.stage(entry.toPath(), tmpEntry);
+            // checksum goes first: an entry without checksum is treated as absent, not as corrupted
+            move(tmpChecksum, new File(dir, key + CHECKSUM_EXT).toPath());
+            move(tmpEntry, new File(dir, key + ENTRY_EXT).toPath());
+        } finally {
+            Files.deleteIfExists(tmpChecksum);
+            Files.deleteIfExists(tmpEntry);
+        }
+        evict();
+    }
+
+    @Override
+    public void remove(String key) throws IOException {
+        Files.deleteIfExists(new File(dir, key + ENTRY_EXT).toPath());
+        Files.deleteIfExists(new File(dir, key + CHECKSUM_EXT).toPath());
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the cache fits the size limit.
+     */
+    void evict() throws IOException {
+        File[] entries = dir.listFiles((d, name) -> name.endsWith(ENTRY_EXT));
+        if (entries == null) {
+            return;
+        }
+        long total = Arrays.stream(entries).mapToLong(File::length).sum();
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+        for (File entry : entries) {
+            if (total <= maxSizeBytes) {
+                break;
+            }
+            total -= entry.length();
+            String name = entry.getName();
+            remove(name.substring(0, name.length() - ENTRY_EXT.length()));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin.cache;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Build cache residing on an HTTP server that supports {@code GET}, {@code PUT} and, optionally, {@code DELETE}
+ * (e.g. nginx with the WebDAV module, or any generic artifact repository).
+ */
+class HttpCacheStore implements CacheStore {
+
+    private final String baseUrl;
+    private final int timeoutMillis;
+
+    HttpCacheStore(String baseUrl, int timeoutSeconds) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.timeoutMillis = timeoutSeconds * 1000;
+    }
+
+    @Override
+    public String get(String key, File target) throws IOException {
+        HttpURLConnection checksum = open(key + DirectoryCacheStore.CHECKSUM_EXT, "GET");
+        String sum;
+        try {
+            if (!isFound(checksum)) {
+                return null;
+            }
+            try (InputStream in = checksum.getInputStream()) {
+                sum = new String(readAll(in), StandardCharsets.US_ASCII).trim();
+            }
+        } finally {
+            checksum.disconnect();
+        }
+        HttpURLConnection entry = open(key + DirectoryCacheStore.ENTRY_EXT, "GET");
+        try {
+            if (!isFound(entry)) {
+                return null;
+            }
+            try (InputStream in = entry.getInputStream()) {
+                Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            entry.disconnect();
+        }
+        return sum;
+    }
+
+    @Override
+    public void put(String key, File entry, String checksum) throws IOException {
+        // the entry goes first: a checksum without entry is a miss, an entry without checksum is never read
+        upload(key + DirectoryCacheStore.ENTRY_EXT, entry.length(), new FileInputStream(entry));
+        byte[] sum = checksum.getBytes(StandardCharsets.US_ASCII);
+        upload(key + DirectoryCacheStore.CHECKSUM_EXT, sum.length, new ByteArrayInputStream(sum));
+    }
+
+    @Override
+    public void remove(String key) throws IOException {
+        for (String name : new String[]{key + DirectoryCacheStore.CHECKSUM_EXT, key + DirectoryCacheStore.ENTRY_EXT}) {
+            HttpURLConnection conn = open(name, "DELETE");
+            try {
+                // not all servers permit deletion, and the plugin does not require it
+                conn.getResponseCode();
+            } finally {
+                conn.disconnect();
+            }
+        }
+    }
+
+    private void upload(String name, long length, InputStream content) throws IOException {
+        HttpURLConnection conn = open(name, "PUT");
+        try (InputStream in = content) {
+            conn.setDoOutput(true);
+            conn.setFixedLengthStreamingMode(length);
+            conn.setRequestProperty("Content-Type", "application/octet-stream");
+            try (OutputStream out = conn.getOutputStream()) {
+                byte[] buf = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    out.write(buf, 0, n);
+                }
+            }
+            int code = conn.getResponseCode();
+            if (code / 100 != 2) {
+                throw new IOException("PUT " + conn.getURL() + ": HTTP " + code + " " + conn.getResponseMessage());
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(String name, String method) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + name).openConnection();
+        conn.setRequestMethod(method);
+        conn.setConnectTimeout(timeoutMillis);
+        conn.setReadTimeout(timeoutMillis);
+        conn.setUseCaches(false);
+        return conn;
+    }
+
+    private static boolean isFound(HttpURLConnection conn) throws IOException {
+        int code = conn.getResponseCode();
+        if (code == HttpURLConnection.HTTP_NOT_FOUND) {
+            return false;
+        } else if (code / 100 != 2) {
+            throw new IOException("GET " + conn.getURL() + ": HTTP " + code + " " + conn.getResponseMessage());
+        }
+        return true;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin.delta;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Binary diff in the format of bsdiff 4 ({@code BSDIFF40}), so the patches can be applied with
+ * the standard {@code bspatch} utility as well as with {@link #patch(byte[], byte[])}.
+ * <p>
+ * This is a port of the original algorithm by Colin Percival: the old file is indexed with a suffix array
+ * (Larsson-Sadakane qsufsort), and the new file is covered with approximate matches against the old one,
+ * producing a control block, a block of bytewise differences for the matched regions, and a block of
+ * extra bytes for the unmatched ones, each compressed with bzip2. Memory usage is about ten times the
+ * size of the old file.
+ * </p>
+ */
+class BsDiff {
+
+    private static final byte[] MAGIC = "BSDIFF40".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * @return patch that transforms {@code oldData} into {@code newData}
+     */
+    static byte[] diff(byte[] oldData, byte[] newData) throws IOException {
+        int[] index = suffixArray(oldData);
+
+        ByteArrayOutputStream ctrlBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream diffBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream extraBytes = new ByteArrayOutputStream();
+        try (OutputStream ctrl = new BZip2CompressorOutputStream(ctrlBytes);
+             OutputStream diff = new BufferedOutputStream(new BZip2CompressorOutputStream(diffBytes));
+             OutputStream extra = new BufferedOutputStream(new BZip2CompressorOutputStream(extraBytes)))
+        {
+            int oldSize = oldData.length;
+            int newSize = newData.length;
+            int scan = 0, len = 0, pos = 0;
+            int lastScan = 0, lastPos = 0, lastOffset = 0;
+            int[] found = new int[1];
+            byte[] buf = new byte[8];
+            while (scan < newSize) {
+                int oldScore = 0;
+                int scsc = scan += len;
+                for (; scan < newSize; scan++) {
+                    len = search(index, oldData, newData, scan, 0, oldSize, found);
+                    pos = found[0];
+                    for (; scsc < scan + len; scsc++) {
+                        if ((scsc + lastOffset < oldSize) && (oldData[scsc + lastOffset] == newData[scsc])) {
+                            oldScore++;
+                        }
+                    }
+                    if (((len == oldScore) && (len != 0)) || (len > oldScore + 8)) {
+                        break;
+                    }
+                    if ((scan + lastOffset < oldSize) && (oldData[scan + lastOffset] == newData[scan])) {
+                        oldScore--;
+                    }
+                }
+
+                if ((len != oldScore) || (scan == newSize)) {
+                    int s = 0, sf = 0, lenf = 0;
+                    for (int i = 0; (lastScan + i < scan) && (lastPos + i < oldSize); ) {
+                        if (oldData[lastPos + i] == newData[lastScan + i]) {
+                            s++;
+                        }
+                        i++;
+                        if (s * 2 - i > sf * 2 - lenf) {
+                            sf = s;
+                            lenf = i;
+                        }
+                    }
+
+                    int lenb = 0;
+                    if (scan < newSize) {
+                        s = 0;
+                        int sb = 0;
+                        for (int i = 1; (scan >= lastScan + i) && (pos >= i); i++) {
+                            if (oldData[pos - i] == newData[scan - i]) {
+                                s++;
+                            }
+                            if (s * 2 - i > sb * 2 - lenb) {
+                                sb = s;
+                                lenb = i;
+                            }
+                        }
+                    }
+
+                    if (lastScan + lenf > scan - lenb) {
+                        int overlap = (lastScan + lenf) - (scan - lenb);
+                        s = 0;
+                        int ss = 0, lens = 0;
+                        for (int i = 0; i < overlap; i++) {
+                            if (newData[lastScan + lenf - overlap + i] == oldData[lastPos + lenf - overlap + i]) {
+                                s++;
+                            }
+                            if (newData[scan - lenb + i] == oldData[pos - lenb + i]) {
+                                s--;
+                            }
+                            if (s > ss) {
+                                ss = s;
+                                lens = i + 1;
+                            }
+                        }
+                        lenf += lens - overlap;
+                        lenb -= lens;
+                    }
+
+                    for (int i = 0; i < lenf; i++) {
+                        diff.write(newData[lastScan + i] - oldData[lastPos + i]);
+                    }
+                    int extraLen = (scan - lenb) - (lastScan + lenf);
+                    extra.write(newData, lastScan + lenf, extraLen);
+
+                    writeOffset(ctrl, buf, lenf);
+                    writeOffset(ctrl, buf, extraLen);
+                    writeOffset(ctrl, buf, (pos - lenb) - (lastPos + lenf));
+
+                    lastScan = scan - lenb;
+                    lastPos = pos - lenb;
+                    lastOffset = pos - scan;
+                }
+            }
+        }
+
+        ByteArrayOutputStream patch = new ByteArrayOutputStream(
+                HEADER_SIZE + ctrlBytes.size() + diffBytes.size() + extraBytes.size());
+        byte[] buf = new byte[8];
+        patch.write(MAGIC);
+        writeOffset(patch, buf, ctrlBytes.size());
+        writeOffset(patch, buf, diffBytes.size());
+        writeOffset(patch, buf, newData.length);
+        ctrlBytes.writeTo(patch);
+        diffBytes.writeTo(patch);
+        extraBytes.writeTo(patch);
+        return patch.toByteArray();
+    }
+
+    /**
+     * Applies a patch produced by {@link #diff(byte[], byte[])} or by {@code bsdiff}.
+     */
+    static byte[] patch(byte[] oldData, byte[] patch) throws IOException {
+        if ((patch.length < HEADER_SIZE) || !Arrays.equals(MAGIC, Arrays.copyOf(patch, MAGIC.length))) {
+            throw new IOException("Corrupted patch");
+        }
+        long ctrlLen = readOffset(patch, 8);
+        long diffLen = readOffset(patch, 16);
+        long newSize = readOffset(patch, 24);
+        if ((ctrlLen < 0) || (diffLen < 0) || (newSize < 0) || (newSize > Integer.MAX_VALUE) ||
+                (HEADER_SIZE + ctrlLen + diffLen > patch.length))
+        {
+            throw new IOException("Corrupted patch");
+        }
+        byte[] newData = new byte[(int) newSize];
+        try (DataInputStream ctrl = bzip2(patch, HEADER_SIZE, ctrlLen);
+             DataInputStream diff = bzip2(patch, HEADER_SIZE + ctrlLen, diffLen);
+             DataInputStream extra = bzip2(patch, HEADER_SIZE + ctrlLen + diffLen,
+                     patch.length - HEADER_SIZE - ctrlLen - diffLen))
+        {
+            byte[] buf = new byte[8];
+            int oldPos = 0;
+            int newPos = 0;
+            while (newPos < newSize) {
+                long[] c = new long[3];
+                for (int i = 0; i < 3; i++) {
+                    ctrl.readFully(buf);
+                    c[i] = readOffset(buf, 0);
+                }
+                if ((c[0] < 0) || (c[1] < 0) || (newPos + c[0] + c[1] > newSize)) {
+                    throw new IOException("Corrupted patch");
+                }
+                diff.readFully(newData, newPos, (int) c[0]);
+                for (int i = 0; i < c[0]; i++) {
+                    if ((oldPos + i >= 0) && (oldPos + i < oldData.length)) {
+                        newData[newPos + i] += oldData[oldPos + i];
+                    }
+                }
+                newPos += c[0];
+                oldPos += c[0];
+                extra.readFully(newData, newPos, (int) c[1]);
+                newPos += c[1];
+                oldPos += c[2];
+            }
+        }
+        return newData;
+    }
+
+    private static DataInputStream bzip2(byte[] data, long offset, long length) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new BZip2CompressorInputStream(
+                new ByteArrayInputStream(data, (int) offset, (int) length))));
+    }
+
+    /**
+     * Writes a 64-bit integer in the bsdiff sign-magnitude little-endian format.
+     */
+    private static void writeOffset(OutputStream out, byte[] buf, long x) throws IOException {
+        long y = Math.abs(x);
+        for (int i = 0; i < 8; i++) {
+            buf[i] = (byte) (y >>> (8 * i));
+        }
+        if (x < 0) {
+            buf[7] |= 0x80;
+        }
+        out.write(buf);
+    }
+
+    private static long readOffset(byte[] buf, int off) {
+        long y = buf[off + 7] & 0x7F;
+        for (int i = 6; i >= 0; i--) {
+            y = (y << 8) | (buf[off + i] & 0xFF);
+        }
+        return ((buf[off + 7] & 0x80) != 0) ? -y : y;
+    }
+
+    /**
+     * Suffix array of the data, with the empty suffix at index 0.
+     */
+    static int[] suffixArray(byte[] old) {
+        int oldSize = old.length;
+        int[] I = new int[oldSize + 1];
+        int[] V = new int[oldSize + 1];
+        int[] buckets = new int[256];
+        for (byte b : old) {
+            buckets[b & 0xFF]++;
+        }
+        for (int i = 1; i < 256; i++) {
+            buckets[i] += buckets[i - 1];
+        }
+        for (int i = 255; i > 0; i--) {
+            buckets[i] = buckets[i - 1];
+        }
+        buckets[0] = 0;
+
+        for (int i = 0; i < oldSize; i++) {
+            I[++buckets[old[i] & 0xFF]] = i;
+        }
+        I[0] = oldSize;
+        for (int i = 0; i < oldSize; i++) {
+            V[i] = buckets[old[i] & 0xFF];
+        }
+        V[oldSize] = 0;
+        for (int i = 1; i < 256; i++) {
+            if (buckets[i] == buckets[i - 1] + 1) {
+                I[buckets[i]] = -1;
+            }
+        }
+        I[0] = -1;
+
+        for (int h = 1; I[0] != -(oldSize + 1); h += h) {
+            int len = 0;
+            int i = 0;
+            while (i < oldSize + 1) {
+                if (I[i] < 0) {
+                    len -= I[i];
+                    i -= I[i];
+                } else {
+                    if (len != 0) {
+                        I[i - len] = -len;
+                    }
+                    len = V[I[i]] + 1 - i;
+                    split(I, V, i, len, h);
+                    i += len;
+                    len = 0;
+                }
+            }
+            if (len != 0) {
+                I[i - len] = -len;
+            }
+        }
+
+        for (int i = 0; i < oldSize + 1; i++) {
+            I[V[i]] = i;
+        }
+        return I;
+    }
+
+    private static void split(int[] I, int[] V, int start, int len, int h) {
+        if (len < 16) {
+            int j;
+            for (int k = start; k < start + len; k += j) {
+                j = 1;
+                int x = V[I[k] + h];
+                for (int i = 1; k + i < start + len; i++) {
+                    if (V[I[k + i] + h] < x) {
+                        x = V[I[k + i] + h];
+                        j = 0;
+                    }
+                    if (V[I[k + i] + h] == x) {
+                        int tmp = I[k + j];
+                        I[k + j] = I[k + i];
+                        I[k + i] = tmp;
+                        j++;
+                    }
+                }
+                for (int i = 0; i < j; i++) {
+                    V[I[k + i]] = k + j - 1;
+                }
+                if (j == 1) {
+                    I[k] = -1;
+                }
+            }
+            return;
+        }
+
+        int x = V[I[start + len / 2] + h];
+        int jj = 0, kk = 0;
+        for (int i = start; i < start + len; i++) {
+            if (V[I[i] + h] < x) {
+                jj++;
+            }
+            if (V[I[i] + h] == x) {
+                kk++;
+            }
+        }
+        jj += start;
+        kk += jj;
+
+        int i = start, j = 0, k = 0;
+        while (i < jj) {
+            if (V[I[i] + h] < x) {
+                i++;
+            } else if (V[I[i] + h] == x) {
+                int tmp = I[i];
+                I[i] = I[jj + j];
+                I[jj + j] = tmp;
+                j++;
+            } else {
+                int tmp = I[i];
+                I[i] = I[kk + k];
+                I[kk + k] = tmp;
+                k++;
+            }
+        }
+        while (jj + j < kk) {
+            if (V[I[jj + j] + h] == x) {
+                j++;
+            } else {
+                int tmp = I[jj + j];
+                I[jj + j] = I[kk + k];
+                I[kk + k] = tmp;
+                k++;
+            }
+        }
+
+        if (jj > start) {
+            split(I, V, start, jj - start, h);
+        }
+        for (i = 0; i < kk - jj; i++) {
+            V[I[jj + i]] = kk - 1;
+        }
+        if (jj == kk - 1) {
+            I[jj] = -1;
+        }
+        if (start + len > kk) {
+            split(I, V, kk, start + len - kk, h);
+        }
+    }
+
+    private static int matchLength(byte[] old, int oldStart, byte[] data, int newStart) {
+        int i = 0;
+        while ((oldStart + i < old.length) && (newStart + i < data.length) && (old[oldStart + i] == data[newStart + i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int search(int[] I, byte[] old, byte[] data, int newStart, int st, int en, int[] pos) {
+        while (en - st >= 2) {
+            int x = st + (en - st) / 2;
+            if (compare(old, I[x], data, newStart) < 0) {
+                st = x;
+            } else {
+                en = x;
+            }
+        }
+        int x = matchLength(old, I[st], data, newStart);
+        int y = matchLength(old, I[en], data, newStart);
+        if (x > y) {
+            pos[0] = I[st];
+            return x;
+        } else {
+            pos[0] = I[en];
+            return y;
+        }
+    }
+
+    /**
+     * Compares the suffix of {@code old} with the suffix of {@code data} up to the length of the shorter one,
+     * as {@code memcmp} does.
+     */
+    private static int compare(byte[] old, int oldStart, byte[] data, int newStart) {
+        int n = Math.min(old.length - oldStart, data.length - newStart);
+        for (int i = 0; i < n; i++) {
+            int a = old[oldStart + i] & 0xFF;
+            int b = data[newStart + i] & 0xFF;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin.delta;
+
+import com.excelsiorjet.api.util.Utils;
+
+import java.io.File;
+
+/**
+ * Configuration parameters of the binary delta package.
+ * <p>
+ * A delta package transforms the application of a previous release (the baseline) into the application
+ * being built. It contains a manifest listing unchanged, patched, added and removed files with their
+ * SHA-256 checksums, bsdiff patches for the changed files, the added files as is, and the
+ * {@code apply-delta.sh} script that applies the delta to an installed application.
+ * </p>
+ * <p>
+ * The baseline is either a {@link #baseline} file or directory, or a {@link #baselineArtifact}
+ * resolved from the local Maven repository.
+ * </p>
+ */
+public class DeltaPackageConfig {
+
+    /**
+     * Package of the previous release: zip or tar.gz archive created by the {@code zip} or {@code tar-gz}
+     * packaging, or a directory with the unpacked application.
+     */
+    public File baseline;
+
+    /**
+     * Coordinates of the previous release package in the local Maven repository in the form
+     * {@code groupId:artifactId:version[:type[:classifier]]}, where type is {@code zip} (default) or {@code tar.gz}.
+     * Ignored if {@link #baseline} is set.
+     */
+    public String baselineArtifact;
+
+    /**
+     * Maximum size of a changed file in megabytes to be shipped as a patch.
+     * Larger files are shipped as is, as creating a patch takes about ten times the file size of memory.
+     * Default value is 256.
+     */
+    public long maxPatchedFileSize = 256;
+
+    public boolean isEnabled() {
+        return (baseline != null) || !Utils.isEmpty(baselineArtifact);
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin.delta;
+
+import com.excelsiorjet.maven.plugin.Digests;
+import com.excelsiorjet.maven.plugin.FileModes;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Creates a delta package that transforms the application of a previous release into the current one.
+ * <p>
+ * The delta package is a zip archive with the following entries:
+ * </p>
+ * <ul>
+ * <li>{@code delta-manifest.txt} - one line per file of either release: {@code op mode old-sha256 new-sha256 path},
+ *     where {@code op} is {@code U} (unchanged), {@code P} (patched), {@code A} (added or replaced),
+ *     {@code L} (symbolic link added or changed) or {@code D} (removed), {@code mode} is the octal
+ *     permission bits of the new file, and absent values are denoted with {@code -}.
+ *     The checksum of a symbolic link is that of its target path.</li>
+ * <li>{@code patches/<path>} - bsdiff patches of the patched files</li>
+ * <li>{@code files/<path>} - contents of the added files and targets of the added links</li>
+ * <li>{@code apply-delta.sh} - script applying the delta to an installed application</li>
+ * </ul>
+ * <p>
+ * A changed file is shipped as a patch only if the patch is smaller than the file itself,
+ * so the delta is never much larger than the changed files.
+ * </p>
+ */
+public class DeltaPackager {
+
+    static final String MANIFEST = "delta-manifest.txt";
+    static final String PATCHES = "patches/";
+    static final String FILES = "files/";
+    public static final String APPLY_SCRIPT = "apply-delta.sh";
+
+    private static final String ABSENT = "-";
+
+    /**
+     * Statistics of a created delta package.
+     */
+    public static class Summary {
+        public int unchanged;
+        public int patched;
+        public int added;
+        public int removed;
+        public long size;
+    }
+
+    private final long maxPatchedFileSize;
+
+    /**
+     * @param maxPatchedFileSize maximum size of a changed file in bytes to be shipped as a patch
+     */
+    public DeltaPackager(long maxPatchedFileSize) {
+        this.maxPatchedFileSize = maxPatchedFileSize;
+    }
+
+    /**
+     * Creates the delta package, replacing it if it exists.
+     *
+     * @param baseline zip or tar.gz package of the previous release, or a directory with its application
+     * @param appDir application directory of the current release
+     * @param workDir directory for temporary files
+     * @param delta delta package to create
+     */
+    public Summary create(File baseline, File appDir, File workDir, File delta) throws IOException {
+        File unpacked = null;
+        Path baselineRoot;
+        if (baseline.isDirectory()) {
+            baselineRoot = baseline.toPath();
+        } else {
+            unpacked = new File(workDir, "delta-baseline");
+            unpack(baseline, unpacked);
+            baselineRoot = unpacked.toPath();
+        }
+        Files.deleteIfExists(delta.toPath());
+        boolean success = false;
+        try {
+            Summary summary = create(baselineRoot, appDir.toPath(), delta);
+            success = true;
+            return summary;
+        } finally {
+            if (unpacked != null) {
+                FileUtils.deleteDirectory(unpacked);
+            }
+            if (!success) {
+                Files.deleteIfExists(delta.toPath());
+            }
+        }
+    }
+
+    private Summary create(Path oldRoot, Path newRoot, File delta) throws IOException {
+        Map<String, Path> oldFiles = list(oldRoot);
+        Map<String, Path> newFiles = list(newRoot);
+        Summary summary = new Summary();
+        StringBuilder manifest = new StringBuilder();
+        delta.getAbsoluteFile().getParentFile().mkdirs();
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(delta)) {
+            for (Map.Entry<String, Path> e : newFiles.entrySet()) {
+                String name = e.getKey();
+                Path newFile = e.getValue();
+                Path oldFile = oldFiles.get(name);
+                String oldSum = (oldFile != null) ? checksum(oldFile) : ABSENT;
+                String newSum = checksum(newFile);
+                String mode = String.format("%04o", FileModes.modeOf(newFile));
+                boolean sameType = (oldFile != null) && (Files.isSymbolicLink(oldFile) == Files.isSymbolicLink(newFile));
+                String op;
+                if (sameType && oldSum.equals(newSum)) {
+                    op = "U";
+                    summary.unchanged++;
+                } else if (Files.isSymbolicLink(newFile)) {
+                    op = "L";
+                    addEntry(zip, FILES + name, linkTarget(newFile).getBytes(StandardCharsets.UTF_8), true);
+                    summary.added++;
+                } else {
+                    byte[] patch = sameType ? diff(oldFile, newFile) : null;
+                    if (patch != null) {
+                        op = "P";
+                        // bzip2 compressed already
+                        addEntry(zip, PATCHES + name, patch, false);
+                        summary.patched++;
+                    } else {
+                        op = "A";
+                        addEntry(zip, FILES + name, Files.readAllBytes(newFile), true);
+                        summary.added++;
+                    }
+                }
+                manifest.append(op).append(' ').append(mode).append(' ').append(oldSum).append(' ')
+                        .append(newSum).append(' ').append(name).append('\n');
+            }
+            for (Map.Entry<String, Path> e : oldFiles.entrySet()) {
+                if (!newFiles.containsKey(e.getKey())) {
+                    manifest.append("D ").append(ABSENT).append(' ').append(checksum(e.getValue())).append(' ')
+                            .append(ABSENT).append(' ').append(e.getKey()).append('\n');
+                    summary.removed++;
+                }
+            }
+            addEntry(zip, MANIFEST, manifest.toString().getBytes(StandardCharsets.UTF_8), true);
+            ZipArchiveEntry script = new ZipArchiveEntry(APPLY_SCRIPT);
+            script.setUnixMode(0100755);
+            putEntry(zip, script, applyScript(), true);
+            zip.finish();
+        }
+        summary.size = delta.length();
+        return summary;
+    }
+
+    /**
+     * @return bsdiff patch, or {@code null} if the file is too large to be patched or the patch is not smaller than it
+     */
+    private byte[] diff(Path oldFile, Path newFile) throws IOException {
+        if ((Files.size(oldFile) > maxPatchedFileSize) || (Files.size(newFile) > maxPatchedFileSize)) {
+            return null;
+        }
+        byte[] oldData = Files.readAllBytes(oldFile);
+        byte[] newData = Files.readAllBytes(newFile);
+        byte[] patch = BsDiff.diff(oldData, newData);
+        if (patch.length >= newData.length) {
+            return null;
+        }
+        // a corrupted patch would only be detected on the target machines otherwise
+        if (!Arrays.equals(BsDiff.patch(oldData, patch), newData)) {
+            throw new IOException("Binary diff self-check failed for " + newFile);
+        }
+        return patch;
+    }
+
+    /**
+     * @return contents of the script that applies delta packages
+     */
+    public static byte[] applyScript() throws IOException {
+        try (InputStream in = DeltaPackager.class.getResourceAsStream(APPLY_SCRIPT)) {
+            return IOUtil.toByteArray(in);
+        }
+    }
+
+    private static void addEntry(ZipArchiveOutputStream zip, String name, byte[] data, boolean deflate)
+            throws IOException
+    {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setUnixMode(0100644);
+        putEntry(zip, entry, data, deflate);
+    }
+
+    private static void putEntry(ZipArchiveOutputStream zip, ZipArchiveEntry entry, byte[] data, boolean deflate)
+            throws IOException
+    {
+        if (deflate) {
+            entry.setMethod(ZipArchiveEntry.DEFLATED);
+        } else {
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            entry.setMethod(ZipArchiveEntry.STORED);
+            entry.setSize(data.length);
+            entry.setCrc(crc.getValue());
+        }
+        zip.putArchiveEntry(entry);
+        zip.write(data);
+        zip.closeArchiveEntry();
+    }
+
+    /**
+     * @return regular files and symbolic links under the directory, keyed by their relative paths
+     */
+    private static Map<String, Path> list(Path root) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            return walk.filter(p -> Files.isSymbolicLink(p) || Files.isRegularFile(p))
+                    .collect(Collectors.toMap(p -> root.relativize(p).toString().replace(File.separatorChar, '/'),
+                            p -> p, (a, b) -> a, TreeMap::new));
+        }
+    }
+
+    private static String linkTarget(Path link) throws IOException {
+        return Files.readSymbolicLink(link).toString().replace(File.separatorChar, '/');
+    }
+
+    static String checksum(Path path) throws IOException {
+        if (Files.isSymbolicLink(path)) {
+            return Digests.sha256(linkTarget(path));
+        }
+        return Digests.sha256(path.toFile());
+    }
+
+    /**
+     * Unpacks a zip or tar.gz package preserving permissions, symbolic and hard links.
+     */
+    static void unpack(File archive, File dir) throws IOException {
+        if (dir.exists()) {
+            FileUtils.deleteDirectory(dir);
+        }
+        Path root = dir.toPath().toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        if (archive.getName().endsWith(".zip")) {
+            try (ZipFile zip = new ZipFile(archive)) {
+                for (ZipArchiveEntry e : Collections.list(zip.getEntries())) {
+                    Path target = resolve(root, e.getName());
+                    if (e.isDirectory()) {
+                        Files.createDirectories(target);
+                        continue;
+                    }
+                    Files.createDirectories(target.getParent());
+                    try (InputStream in = zip.getInputStream(e)) {
+                        if (e.isUnixSymlink()) {
+                            Files.createSymbolicLink(target, Paths.get(IOUtil.toString(in, "UTF-8")));
+                            continue;
+                        }
+                        Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    if (e.getUnixMode() != 0) {
+                        FileModes.setMode(target, e.getUnixMode());
+                    }
+                }
+            }
+        } else {
+            try (TarArchiveInputStream tar = new TarArchiveInputStream(new GzipCompressorInputStream(
+                    new BufferedInputStream(new FileInputStream(archive)))))
+            {
+                TarArchiveEntry e;
+                while ((e = tar.getNextTarEntry()) != null) {
+                    Path target = resolve(root, e.getName());
+                    if (e.isDirectory()) {
+                        Files.createDirectories(target);
+                        continue;
+                    }
+                    Files.createDirectories(target.getParent());
+                    if (e.isSymbolicLink()) {
+                        Files.createSymbolicLink(target, Paths.get(e.getLinkName()));
+                        continue;
+                    } else if (e.isLink()) {
+                        Files.createLink(target, resolve(root, e.getLinkName()));
+                        continue;
+                    }
+                    Files.copy(tar, target, StandardCopyOption.REPLACE_EXISTING);
+                    FileModes.setMode(target, e.getMode());
+                }
+            }
+        }
+    }
+
+    private static Path resolve(Path root, String name) throws IOException {
+        Path target = root.resolve(name).normalize();
+        if (!target.startsWith(root)) {
+            throw new IOException("Illegal package entry " + name);
+        }
+        return target;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin.packaging;
+
+import com.excelsiorjet.maven.plugin.Digests;
+import com.excelsiorjet.maven.plugin.FileModes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Replaces identical files of an application directory with hard links to a single copy.
+ * <p>
+ * Files are identified by their SHA-256 checksum and permissions, as hard links share permissions
+ * (and modification time) as well. If a store directory is given, it keeps one hard link per distinct file
+ * content named {@code <sha256>-<mode>}, so identical files of all application directories deduplicated
+ * against the same store on the host, e.g. the Excelsior JET runtime files of several services, share
+ * a single copy on disk and in the page cache. Store entries no longer linked from any application
+ * directory are removed on subsequent runs.
+ * </p>
+ * <p>
+ * Files smaller than {@link #MIN_SIZE} are left alone: those are usually configuration files that an
+ * application may edit in place, and hard linked files must never be modified in place.
+ * If hard links are not supported or the store resides on another file system, the files are kept as is.
+ * Copy-on-write clones are not used instead: Java has no API for them, and the files are already written,
+ * so running {@code cp} for each of them would cost more than the disk space it saves
+ * (see {@link FileStager}, that clones files only instead of copying them).
+ * </p>
+ */
+public class Deduplicator {
+
+    static final long MIN_SIZE = 16 * 1024;
+
+    private static final String TMP_EXT = ".tmp";
+
+    /**
+     * Statistics of a deduplication run.
+     */
+    public static class Summary {
+        public int linked;
+        public long savedBytes;
+    }
+
+    private final Path store;
+
+    /**
+     * @param store content-addressed store shared between application directories, {@code null} to deduplicate
+     *              files within the application directory only
+     */
+    public Deduplicator(File store) {
+        this.store = (store != null) ? store.toPath().toAbsolutePath() : null;
+    }
+
+    /**
+     * Deduplicates the files of the directory.
+     */
+    public Summary deduplicate(File dir) throws IOException {
+        Map<String, List<Path>> byContent = new TreeMap<>();
+        try (Stream<Path> walk = Files.walk(dir.toPath())) {
+            for (Path path : walk.filter(p -> Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS))
+                    .sorted().collect(Collectors.toList()))
+            {
+                if (Files.size(path) >= MIN_SIZE) {
+                    String key = Digests.sha256(path.toFile()) + "-" + Integer.toOctalString(FileModes.modeOf(path));
+                    byContent.computeIfAbsent(key, k -> new ArrayList<>()).add(path);
+                }
+            }
+        }
+        Summary summary = new Summary();
+        boolean useStore = store != null;
+        for (Map.Entry<String, List<Path>> e : byContent.entrySet()) {
+            List<Path> files = e.getValue();
+            Path original = null;
+            if (useStore) {
+                try {
+                    original = storeEntry(e.getKey(), files.get(0));
+                } catch (IOException | UnsupportedOperationException ex) {
+                    logger.warn(s("JetMavenPlugin.Deduplication.StoreUnavailable.Warning", store, ex.toString()));
+                    useStore = false;
+                }
+            }
+            if (original == null) {
+                original = files.get(0);
+            }
+            for (Path file : files) {
+                if (!Files.isSameFile(file, original)) {
+                    long size = Files.size(file);
+                    if (!link(file, original)) {
+                        break;
+                    }
+                    summary.linked++;
+                    summary.savedBytes += size;
+                }
+            }
+        }
+        if (useStore) {
+            prune();
+        }
+        return summary;
+    }
+
+    /**
+     * @return the store entry for the content, added from the file if absent
+     */
+    private Path storeEntry(String key, Path file) throws IOException {
+        Path entry = store.resolve(key.substring(0, 2)).resolve(key);
+        if (Files.isRegularFile(entry)) {
+            // a hard linked file modified in place would have corrupted the entry
+            if (!Files.isSameFile(entry, file) && !key.startsWith(Digests.sha256(entry.toFile()))) {
+                Files.deleteIfExists(entry);
+            } else {
+                return entry;
+            }
+        }
+        Files.createDirectories(entry.getParent());
+        Path tmp = entry.resolveSibling(key + "." + UUID.randomUUID() + TMP_EXT);
+        Files.createLink(tmp, file);
+        Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return entry;
+    }
+
+    /**
+     * Atomically replaces the file with a hard link to the original.
+     *
+     * @return {@code false} if hard links are not supported
+     */
+    private static boolean link(Path file, Path original) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + TMP_EXT);
+        try {
+            Files.createLink(tmp, original);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            return false;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /**
+     * Removes the store entries that are not linked from anywhere else.
+     */
+    private void prune() throws IOException {
+        try (Stream<Path> walk = Files.walk(store, 2)) {
+            for (Path entry : walk.filter(p -> Files.isRegularFile(p) && !p.toString().endsWith(TMP_EXT))
+                    .collect(Collectors.toList()))
+            {
+                try {
+                    if (((Integer) Files.getAttribute(entry, "unix:nlink")) == 1) {
+                        Files.deleteIfExists(entry);
+                    }
+                } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                    // link count is not available, so the store is never pruned
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2019 Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET Maven Plugin.
+ *
+ *  Excelsior JET Maven Plugin is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET Maven Plugin is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET Maven Plugin.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.maven.plugin.packaging;
+
+import com.excelsiorjet.maven.plugin.Digests;
+import com.excelsiorjet.maven.plugin.FileModes;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Stages files and directory trees into build directories as cheaply as the file system allows.
+ * <p>
+ * A file is staged with, in the order of preference:
+ * </p>
+ * <ul>
+ *     <li>a hard link, if allowed: the target shares the contents, permissions and modification time
+ *     with the source, so neither of them may be modified in place afterwards</li>
+ *     <li>a copy-on-write clone (reflink) on the file systems supporting {@code FICLONE} on Linux
+ *     (Btrfs, XFS) and on APFS. Java has no API for it, so {@code cp --reflink=always} or {@code cp -c}
+ *     is run, and only for the files of at least {@link #MIN_CLONE_SIZE} that take longer to copy
+ *     than to start a process. Unlike {@link Deduplicator}, that would spawn {@code cp} for every file
+ *     already written just to save space, the stager clones instead of copying, so each clone saves a copy</li>
+ *     <li>a copy with {@link FileChannel#transferTo}, that lets the kernel copy the data
+ *     without passing it through the Java heap</li>
+ * </ul>
+ * <p>
+ * Once linking fails, e.g. because the target resides on another file system, the stager does not try it again.
+ * Clones are only attempted within a file system, and whether a file system supports them is probed
+ * with the first clone and remembered for the lifetime of the JVM, so a file system without clones
+ * costs a single {@code cp} run. Symbolic links are recreated, permissions and modification times are preserved.
+ * </p>
+ * <p>
+ * A file is not staged again if the target is a hard link to the source, or has the same size, permissions
+ * and SHA-256 checksum. The modification time alone is not trusted, as tools restoring timestamps
+ * (e.g. reproducible builds) may leave different contents with the same size and time.
+ * If only the modification time differs, it is updated in the target.
+ * Directory trees are walked in parallel, each directory and file is staged by a separate fork/join task.
+ * </p>
+ */
+public class FileStager {
+
+    static final long MIN_CLONE_SIZE = 1024 * 1024;
+
+    /**
+     * How a file is staged.
+     */
+    public enum Method {
+        SKIPPED, LINKED, CLONED, COPIED
+    }
+
+    /**
+     * Statistics of a staging run.
+     */
+    public static class Summary {
+        public int skipped;
+        public int linked;
+        public int cloned;
+        public int copied;
+        public long stagedBytes;
+
+        synchronized void add(Method method, long size) {
+            switch (method) {
+                case SKIPPED:
+                    skipped++;
+                    return;
+                case LINKED:
+                    linked++;
+                    break;
+                case CLONED:
+                    cloned++;
+                    break;
+                default:
+                    copied++;
+            }
+            stagedBytes += size;
+        }
+    }
+
+    private static final String OS = System.getProperty("os.name", "");
+
+    private static final boolean CLONES_POSSIBLE = OS.startsWith("Linux") || OS.startsWith("Mac");
+
+    /**
+     * Whether the file systems support clones, by the first clone attempted on them.
+     */
+    private static final Map<FileStore, Boolean> CLONES_SUPPORTED = new ConcurrentHashMap<>();
+
+    private final boolean allowLinks;
+    private final int threads;
+    private volatile boolean linksFailed;
+
+    /**
+     * @param allowLinks whether the files may be staged with hard links
+     * @param threads number of threads walking directory trees
+     */
+    public FileStager(boolean allowLinks, int threads) {
+        this.allowLinks = allowLinks;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Stages a file or a symbolic link, replacing the target.
+     */
+    public Method stage(Path source, Path target) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (attrs.isSymbolicLink()) {
+            Path link = Files.readSymbolicLink(source);
+            if (Files.isSymbolicLink(target) && Files.readSymbolicLink(target).equals(link)) {
+                return Method.SKIPPED;
+            }
+            delete(target);
+            Files.createDirectories(target.getParent());
+            Files.createSymbolicLink(target, link);
+            return Method.COPIED;
+        }
+        if (isUnchanged(source, attrs, target)) {
+            return Method.SKIPPED;
+        }
+        // the target is never written in place, as it may be a hard link to the source of a previous staging
+        delete(target);
+        Files.createDirectories(target.getParent());
+        if (allowLinks && !linksFailed) {
+            try {
+                Files.createLink(target, source);
+                return Method.LINKED;
+            } catch (IOException | UnsupportedOperationException e) {
+                linksFailed = true;
+            }
+        }
+        if ((attrs.size() >= MIN_CLONE_SIZE) && CLONES_POSSIBLE) {
+            FileStore store = Files.getFileStore(target.getParent());
+            if (store.equals(Files.getFileStore(source)) && CLONES_SUPPORTED.getOrDefault(store, true)) {
+                boolean cloned = cloneFile(source, target);
+                CLONES_SUPPORTED.putIfAbsent(store, cloned);
+                if (cloned) {
+                    return Method.CLONED;
+                }
+                Files.deleteIfExists(target);
+            }
+        }
+        copyFile(source, target, attrs.size());
+        Files.setLastModifiedTime(target, attrs.lastModifiedTime());
+        FileModes.setMode(target, FileModes.modeOf(source));
+        return Method.COPIED;
+    }
+
+    /**
+     * Makes the target directory a copy of the source directory: stages its files and symbolic links,
+     * and removes the files and directories of the target missing in the source.
+     */
+    public Summary stageTree(Path sourceDir, Path targetDir) throws IOException {
+        Summary summary = new Summary();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new DirectoryTask(sourceDir, targetDir, summary));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+        return summary;
+    }
+
+    private class DirectoryTask extends RecursiveAction {
+        private final Path source;
+        private final Path target;
+        private final Summary summary;
+
+        DirectoryTask(Path source, Path target, Summary summary) {
+            this.source = source;
+            this.target = target;
+            this.summary = summary;
+        }
+
+        @Override
+        protected void compute() {
+            List<RecursiveAction> tasks = new ArrayList<>();
+            try {
+                if (Files.isSymbolicLink(target) || (Files.exists(target) && !Files.isDirectory(target))) {
+                    Files.delete(target);
+                }
+                Files.createDirectories(target);
+                Set<String> names = new HashSet<>();
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(source)) {
+                    for (Path entry : entries) {
+                        String name = entry.getFileName().toString();
+                        names.add(name);
+                        Path entryTarget = target.resolve(name);
+                        if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                            tasks.add(new DirectoryTask(entry, entryTarget, summary));
+                        } else {
+                            tasks.add(new FileTask(entry, entryTarget, summary));
+                        }
+                    }
+                }
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(target)) {
+                    for (Path entry : entries) {
+                        if (!names.contains(entry.getFileName().toString())) {
+                            delete(entry);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    private class FileTask extends RecursiveAction {
+        private final Path source;
+        private final Path target;
+        private final Summary summary;
+
+        FileTask(Path source, Path target, Summary summary) {
+            this.source = source;
+            this.target = target;
+            this.summary = summary;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                long size = Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).size();
+                summary.add(stage(source, target), size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static boolean isUnchanged(Path source, BasicFileAttributes attrs, Path target) throws IOException {
+        BasicFileAttributes targetAttrs;
+        try {
+            targetAttrs = Files.readAttributes(target, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (!targetAttrs.isRegularFile() || (targetAttrs.size() != attrs.size()) ||
+                (FileModes.modeOf(source) != FileModes.modeOf(target)))
+        {
+            return false;
+        }
+        if (Files.isSameFile(source, target)) {
+            return true;
+        }
+        if (!Digests.sha256(source.toFile()).equals(Digests.sha256(target.toFile()))) {
+            return false;
+        }
+        if (!targetAttrs.lastModifiedTime().equals(attrs.lastModifiedTime())) {
+            Files.setLastModifiedTime(target, attrs.lastModifiedTime());
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code false} if the file system does not support clones
+     */
+    private static boolean cloneFile(Path source, Path target) throws IOException {
+        List<String> command = OS.startsWith("Mac") ?
+                Arrays.asList("cp", "-c", "-p", source.toString(), target.toString()) :
+                Arrays.asList("cp", "--reflink=always", "--preserve=mode,timestamps", "--",
+                        source.toString(), target.toString());
+        Process process;
+        try {
+            process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(new File("/dev/null")))
+                    .start();
+        } catch (IOException e) {
+            // no cp in the path
+            return false;
+        }
+        try {
+            return process.waitFor() == 0;
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static void copyFile(Path source, Path target, long size) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))
+        {
+            long position = 0;
+            while (position < size) {
+                long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0) {
+                    // the source is truncated while being copied
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            FileUtils.deleteDirectory(path.toFile());
+        } else {
+            Files.deleteIfExists(path);
+        }
+    }
+}
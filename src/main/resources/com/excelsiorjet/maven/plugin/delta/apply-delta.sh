@@ -0,0 +1,87 @@
+#!/bin/sh
+#
+# Applies a delta package created by Excelsior JET Maven plugin to an installed application.
+#
+# Usage: apply-delta.sh <delta.zip> <app-dir>
+#
+# The application is updated in a copy that replaces the original only when all files
+# match the checksums of the new release, so a failed update leaves the application intact.
+# Files that are not part of the previous release (logs, local settings) are kept.
+#
+# Requires unzip, bspatch, and sha256sum or shasum.
+#
+set -eu
+
+if [ $# -ne 2 ]; then
+    echo "Usage: $0 <delta.zip> <app-dir>" >&2
+    exit 2
+fi
+delta=$1
+app=${2%/}
+if [ ! -d "$app" ]; then
+    echo "$app is not a directory" >&2
+    exit 1
+fi
+
+if command -v sha256sum >/dev/null 2>&1; then
+    sha256() { sha256sum | cut -d ' ' -f 1; }
+else
+    sha256() { shasum -a 256 | cut -d ' ' -f 1; }
+fi
+
+# checksum of a file, or of the target of a symbolic link, "-" if absent
+checksum() {
+    if [ -L "$1" ]; then
+        printf '%s' "$(readlink "$1")" | sha256
+    elif [ -f "$1" ]; then
+        sha256 < "$1"
+    else
+        echo -
+    fi
+}
+
+work=$(mktemp -d "${TMPDIR:-/tmp}/jet-delta.XXXXXX")
+new="$app.delta-new"
+trap 'rm -rf "$work" "$new"' EXIT
+
+unzip -q "$delta" -d "$work"
+rm -rf "$new"
+cp -PpR "$app" "$new"
+
+while read -r op mode old sum path; do
+    case $op in
+        ''|'#'*) continue ;;
+    esac
+    target="$new/$path"
+    if [ "$old" != - ] && [ "$(checksum "$target")" != "$old" ]; then
+        echo "$path differs from the previous release, the delta cannot be applied" >&2
+        exit 1
+    fi
+    case $op in
+        U) ;;
+        P) bspatch "$target" "$target.delta-tmp" "$work/patches/$path"
+           mv -f "$target.delta-tmp" "$target" ;;
+        A) mkdir -p "$(dirname "$target")"
+           rm -f "$target"
+           cp "$work/files/$path" "$target" ;;
+        L) mkdir -p "$(dirname "$target")"
+           rm -f "$target"
+           ln -s "$(cat "$work/files/$path")" "$target" ;;
+        D) rm -f "$target" ;;
+        *) echo "Unknown delta operation $op" >&2
+           exit 1 ;;
+    esac
+    if [ "$op" != D ] && [ "$op" != L ]; then
+        chmod "$mode" "$target"
+    fi
+    if [ "$(checksum "$target")" != "$sum" ]; then
+        echo "Failed to update $path: checksum mismatch" >&2
+        exit 1
+    fi
+done < "$work/delta-manifest.txt"
+
+rm -rf "$app.delta-old"
+mv "$app" "$app.delta-old"
+mv "$new" "$app"
+rm -rf "$app.delta-old"
+echo "Updated $app"
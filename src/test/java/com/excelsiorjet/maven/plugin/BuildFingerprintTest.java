@@ -0,0 +1,121 @@
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.tasks.config.runtime.RuntimeConfig;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class BuildFingerprintTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("fingerprint").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(dir, name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private BuildFingerprint fingerprint(BuildFingerprint previous, File jar, File resources, RuntimeConfig runtime)
+            throws IOException
+    {
+        return BuildFingerprint.basedOn(previous)
+                .add("mainArtifact", jar)
+                .add("resources", resources)
+                .add("runtime", runtime)
+                .add("args", new String[]{"-Xmx1g"});
+    }
+
+    @Test
+    public void testUnchangedInputs() throws IOException {
+        File jar = write("app.jar", "classes");
+        write("res/a.txt", "a");
+        RuntimeConfig runtime = new RuntimeConfig();
+        runtime.components = new String[]{"jce"};
+        BuildFingerprint first = fingerprint(null, jar, new File(dir, "res"), runtime);
+        BuildFingerprint second = fingerprint(first, jar, new File(dir, "res"), runtime);
+        assertTrue(second.changedComponents(first).isEmpty());
+        assertEquals(first.getHash(), second.getHash());
+    }
+
+    @Test
+    public void testChangedComponentsAreReported() throws IOException {
+        File jar = write("app.jar", "classes");
+        write("res/a.txt", "a");
+        RuntimeConfig runtime = new RuntimeConfig();
+        BuildFingerprint first = fingerprint(null, jar, new File(dir, "res"), runtime);
+
+        write("res/sub/b.txt", "b");
+        runtime.locales = new String[]{"Japanese"};
+        BuildFingerprint second = fingerprint(first, jar, new File(dir, "res"), runtime);
+        assertEquals(Arrays.asList("resources", "runtime"), second.changedComponents(first));
+        assertNotEquals(first.getHash(), second.getHash());
+    }
+
+    @Test
+    public void testContentMattersNotTimestamp() throws IOException {
+        File jar = write("app.jar", "classes");
+        BuildFingerprint first = new BuildFingerprint().add("jar", jar);
+        assertTrue(jar.setLastModified(jar.lastModified() - 10000));
+        BuildFingerprint second = BuildFingerprint.basedOn(first).add("jar", jar);
+        assertTrue(second.changedComponents(first).isEmpty());
+
+        write("app.jar", "changed");
+        BuildFingerprint third = BuildFingerprint.basedOn(second).add("jar", jar);
+        assertEquals(Collections.singletonList("jar"), third.changedComponents(second));
+    }
+
+    @Test
+    public void testExcludedFilesAreSeparateComponent() throws IOException {
+        write("res/a.txt", "a");
+        File profile = write("res/app.startup", "profile");
+        BuildFingerprint first = new BuildFingerprint()
+                .exclude(Collections.singletonList(profile))
+                .add("profiles", Collections.singletonList(profile))
+                .add("resources", new File(dir, "res"));
+
+        // the build updates the profile, while a resource is edited
+        write("res/app.startup", "updated");
+        write("res/a.txt", "edited");
+        first.add("profiles", Collections.singletonList(profile));
+        BuildFingerprint second = BuildFingerprint.basedOn(first)
+                .exclude(Collections.singletonList(profile))
+                .add("profiles", Collections.singletonList(profile))
+                .add("resources", new File(dir, "res"));
+        assertEquals(Collections.singletonList("resources"), second.changedComponents(first));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        File jar = write("app.jar", "classes");
+        BuildFingerprint saved = fingerprint(null, jar, new File(dir, "missing"), new RuntimeConfig());
+        File file = new File(dir, "build/" + BuildFingerprint.FILE_NAME);
+        saved.save(file);
+        BuildFingerprint loaded = BuildFingerprint.load(file);
+        assertNotNull(loaded);
+        assertEquals(saved.getComponents(), loaded.getComponents());
+        assertTrue(fingerprint(loaded, jar, new File(dir, "missing"), new RuntimeConfig())
+                .changedComponents(loaded).isEmpty());
+        assertNull(BuildFingerprint.load(new File(dir, "nonexistent")));
+    }
+}
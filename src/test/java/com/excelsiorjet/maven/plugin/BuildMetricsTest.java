@@ -0,0 +1,91 @@
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.maven.plugin.ProcessTreeSampler.ProcessInfo;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class BuildMetricsTest {
+
+    private static ProcessInfo process(int pid, int ppid, String command, String exe, long start, long end,
+                                       long cpu, long rss)
+    {
+        ProcessInfo p = new ProcessInfo(pid, ppid, command, exe, start);
+        p.endMillis = end;
+        p.cpuMillis = cpu;
+        p.peakRssKB = rss;
+        return p;
+    }
+
+    @Test
+    public void testStages() {
+        File scope = new File("/build/target/jet");
+        List<ProcessInfo> processes = Arrays.asList(
+                process(10, 1, "jc", "/opt/jet/bin/jc", 1000, 5000, 12000, 4000000),
+                // linker started by the compiler belongs to the compilation
+                process(11, 10, "ld", "/usr/bin/ld", 4000, 4500, 400, 300000),
+                process(12, 1, "app", "/build/target/jet/build/app", 5200, 6000, 700, 90000),
+                process(13, 1, "xpack", "/opt/jet/bin/xpack", 6100, 7000, 800, 50000)
+        );
+        List<BuildMetrics.Stage> stages = BuildMetrics.computeStages(processes, 0, 8000, scope, t -> t / 10);
+        assertEquals(Arrays.asList("prepare", "compile", "startupProfiling", "xpack", "package"),
+                stages.stream().map(st -> st.name).collect(Collectors.toList()));
+
+        BuildMetrics.Stage prepare = stages.get(0);
+        assertEquals(1000, prepare.wallMillis());
+        assertEquals(100, prepare.cpuMillis);
+        assertNull(prepare.peakRssKB);
+        assertTrue(prepare.inferred);
+
+        BuildMetrics.Stage compile = stages.get(1);
+        assertEquals(4000, compile.wallMillis());
+        assertEquals(12400, compile.cpuMillis);
+        assertEquals(4000000, (long) compile.peakRssKB);
+        assertEquals(2, compile.processes);
+        assertFalse(compile.inferred);
+
+        assertTrue(stages.get(2).inferred);
+        assertFalse(stages.get(3).inferred);
+        assertEquals(1000, stages.get(4).wallMillis());
+        assertTrue(stages.get(4).inferred);
+    }
+
+    @Test
+    public void testNoProcesses() {
+        List<BuildMetrics.Stage> stages = BuildMetrics.computeStages(Arrays.asList(), 0, 500, new File("."), t -> 0);
+        assertEquals(1, stages.size());
+        assertEquals("build", stages.get(0).name);
+        assertEquals(500, stages.get(0).wallMillis());
+        assertFalse(stages.get(0).inferred);
+    }
+
+    @Test
+    public void testSamplerTracksProcessesInScope() throws Exception {
+        assumeTrue(ProcessTreeSampler.isSupported());
+        File dir = Files.createTempDirectory("sampler").toFile();
+        File other = Files.createTempDirectory("sampler").toFile();
+        try {
+            ProcessTreeSampler sampler = new ProcessTreeSampler(dir, 20).start();
+            Process ours = new ProcessBuilder("sleep", "0.5").directory(dir).start();
+            Process foreign = new ProcessBuilder("sleep", "0.5").directory(other).start();
+            ours.waitFor();
+            foreign.waitFor();
+            sampler.close();
+            List<ProcessInfo> processes = sampler.getProcesses();
+            assertEquals(1, processes.size());
+            assertEquals("sleep", processes.get(0).command);
+            assertTrue(processes.get(0).wallMillis() > 0);
+        } finally {
+            FileUtils.deleteDirectory(dir);
+            FileUtils.deleteDirectory(other);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.excelsiorjet.maven.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Minimal class files and jars for the tests of the analyzers based on {@link BytecodeScanner}.
+ */
+class ClassFiles {
+
+    /**
+     * @param access access flags of the class
+     * @param references {@code C:} class references, {@code S:} string constants and other descriptors
+     */
+    static byte[] classFile(String name, int access, String... references) throws IOException {
+        ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(pool);
+        int count = 1;
+        out.writeByte(1);
+        out.writeUTF(name);
+        out.writeByte(7);
+        out.writeShort(count);
+        out.writeByte(1);
+        out.writeUTF("java/lang/Object");
+        out.writeByte(7);
+        out.writeShort(count + 2);
+        count += 4;
+        // a long constant takes two entries
+        out.writeByte(5);
+        out.writeLong(42);
+        count += 2;
+        for (String reference : references) {
+            out.writeByte(1);
+            out.writeUTF(reference.substring(reference.indexOf(':') + 1));
+            if (reference.startsWith("C:") || reference.startsWith("S:")) {
+                out.writeByte(reference.startsWith("C:") ? 7 : 8);
+                out.writeShort(count);
+                count++;
+            }
+            count++;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream cls = new DataOutputStream(bytes);
+        cls.writeInt(0xCAFEBABE);
+        cls.writeShort(0);
+        cls.writeShort(52);
+        cls.writeShort(count);
+        cls.write(pool.toByteArray());
+        cls.writeShort(access);
+        cls.writeShort(2);
+        cls.writeShort(4);
+        cls.writeShort(0);
+        cls.writeShort(0);
+        cls.writeShort(0);
+        cls.writeShort(0);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param references {@code C:} class references, {@code S:} string constants and other descriptors
+     */
+    static byte[] classFile(String name, String... references) throws IOException {
+        return classFile(name, 0x21, references);
+    }
+
+    /**
+     * @param stored whether the entries are stored rather than deflated
+     */
+    static byte[] jar(Map<String, byte[]> entries, boolean stored) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                ZipEntry entry = new ZipEntry(e.getKey());
+                if (stored) {
+                    CRC32 crc = new CRC32();
+                    crc.update(e.getValue());
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(e.getValue().length);
+                    entry.setCrc(crc.getValue());
+                }
+                zip.putNextEntry(entry);
+                zip.write(e.getValue());
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
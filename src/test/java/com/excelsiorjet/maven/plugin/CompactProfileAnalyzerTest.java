@@ -0,0 +1,96 @@
+package com.excelsiorjet.maven.plugin;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+
+import static com.excelsiorjet.maven.plugin.ClassFiles.classFile;
+import static com.excelsiorjet.maven.plugin.ClassFiles.jar;
+import static org.junit.Assert.*;
+
+public class CompactProfileAnalyzerTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("compact").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testLevels() {
+        assertEquals(0, CompactProfileAnalyzer.levelOf("java.lang.String"));
+        assertEquals(0, CompactProfileAnalyzer.levelOf("java.util.concurrent.atomic.AtomicLong"));
+        assertEquals(0, CompactProfileAnalyzer.levelOf("java.util.Map$Entry"));
+        assertEquals(1, CompactProfileAnalyzer.levelOf("java.sql.Connection"));
+        assertEquals(1, CompactProfileAnalyzer.levelOf("org.w3c.dom.Document"));
+        assertEquals(2, CompactProfileAnalyzer.levelOf("javax.naming.directory.InitialDirContext"));
+        assertEquals(3, CompactProfileAnalyzer.levelOf("java.awt.Frame"));
+        assertEquals(3, CompactProfileAnalyzer.levelOf("javax.swing.text.html.HTMLEditorKit"));
+        assertEquals(3, CompactProfileAnalyzer.levelOf("org.w3c.dom.css.CSSRule"));
+        assertEquals(-1, CompactProfileAnalyzer.levelOf("javax.inject.Inject"));
+        assertEquals(-1, CompactProfileAnalyzer.levelOf("com.example.Main"));
+    }
+
+    @Test
+    public void testAnalyze() throws IOException {
+        Map<String, byte[]> lib = new LinkedHashMap<>();
+        lib.put("lib/Util.class", classFile("lib/Util", "C:javax/annotation/PostConstruct", "C:java/util/List"));
+        // JSR-250 annotations shipped with the application are not taken from Java SE
+        lib.put("javax/annotation/PostConstruct.class", classFile("javax/annotation/PostConstruct"));
+        Map<String, byte[]> main = new LinkedHashMap<>();
+        main.put("app/Main.class", classFile("app/Main",
+                "C:java/lang/String",
+                "D:(Ljava/sql/Connection;Ljava/util/List<Ljava/lang/String;>;)V",
+                "S:javax.naming.InitialContext",
+                "S:not a class name"));
+        main.put("app/Main.txt", "text".getBytes("UTF-8"));
+        main.put("BOOT-INF/lib/lib.jar", jar(lib, true));
+        File mainJar = new File(dir, "main.jar");
+        Files.write(mainJar.toPath(), jar(main, false));
+        File classes = new File(dir, "classes/app");
+        classes.mkdirs();
+        Files.write(new File(classes, "Other.class").toPath(), classFile("app/Other", "C:[Ljava/sql/Date;"));
+
+        CompactProfileAnalyzer.Result result = new CompactProfileAnalyzer(2)
+                .analyze(Arrays.asList(mainJar, classes.getParentFile()));
+        assertEquals("compact3", result.profile());
+        assertEquals(2, result.jars);
+        assertEquals(4, result.classes);
+        List<String> targets = new ArrayList<>();
+        result.references.forEach(r -> targets.add(r.target));
+        assertEquals(Arrays.asList("java.lang.Object", "java.lang.String", "java.sql.Connection", "java.sql.Date",
+                "java.util.List", "javax.naming.InitialContext"), targets);
+        List<CompactProfileAnalyzer.Reference> blockers = result.blockers();
+        assertEquals(1, blockers.size());
+        assertEquals("javax.naming.InitialContext", blockers.get(0).target);
+        assertEquals("app.Main", blockers.get(0).from);
+        assertTrue(blockers.get(0).reflective);
+    }
+
+    @Test
+    public void testFullAndCompact1() throws IOException {
+        File jar = new File(dir, "ui.jar");
+        Files.write(jar.toPath(), jar(Collections.singletonMap("ui/Window.class",
+                classFile("ui/Window", "C:java/awt/Frame")), false));
+        CompactProfileAnalyzer.Result result = new CompactProfileAnalyzer(1).analyze(Collections.singletonList(jar));
+        assertEquals("full", result.profile());
+        assertEquals("ui.Window", result.blockers().get(0).from);
+
+        Files.write(jar.toPath(), jar(Collections.singletonMap("cli/Main.class",
+                classFile("cli/Main", "C:java/util/HashMap")), true));
+        result = new CompactProfileAnalyzer(1).analyze(Collections.singletonList(jar));
+        assertEquals("compact1", result.profile());
+        assertTrue(result.blockers().isEmpty());
+    }
+}
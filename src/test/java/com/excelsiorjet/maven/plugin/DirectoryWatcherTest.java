@@ -0,0 +1,79 @@
+package com.excelsiorjet.maven.plugin;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DirectoryWatcherTest {
+
+    private static final long DEBOUNCE = 300;
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("watch").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test(timeout = 30000)
+    public void testBurst() throws Exception {
+        Path classes = new File(dir, "classes").toPath();
+        Files.createDirectories(classes.resolve("app"));
+        Path pending = new File(dir, "jetresources").toPath();
+        try (DirectoryWatcher watcher = new DirectoryWatcher(Arrays.asList(classes, pending))) {
+            Thread writer = new Thread(() -> {
+                try {
+                    Files.write(classes.resolve("app/Main.class"), new byte[]{1});
+                    Thread.sleep(DEBOUNCE / 3);
+                    Files.createDirectories(classes.resolve("app/util"));
+                    Files.write(classes.resolve("app/util/Util.class"), new byte[]{2});
+                } catch (IOException | InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            writer.start();
+            Set<Path> changed = watcher.await(DEBOUNCE);
+            writer.join();
+            assertTrue(changed.contains(classes.resolve("app/Main.class").toAbsolutePath()));
+            assertTrue(changed.contains(classes.resolve("app/util").toAbsolutePath()));
+
+            // the files written into the new directory are reported as well
+            Files.write(classes.resolve("app/util/Util.class"), new byte[]{3});
+            changed = watcher.await(DEBOUNCE);
+            assertTrue(changed.contains(classes.resolve("app/util/Util.class").toAbsolutePath()));
+
+            Files.createDirectories(pending);
+            changed = watcher.await(DEBOUNCE);
+            assertTrue(changed.contains(pending.toAbsolutePath()));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testIgnore() throws Exception {
+        Path root = dir.toPath();
+        Path own = root.resolve("own.txt");
+        Files.write(own, new byte[]{1});
+        try (DirectoryWatcher watcher = new DirectoryWatcher(Collections.singletonList(root))) {
+            Files.write(own, new byte[]{2});
+            watcher.ignore(own, Files.getLastModifiedTime(own).toMillis());
+            Files.write(root.resolve("other.txt"), new byte[]{3});
+            Set<Path> changed = watcher.await(DEBOUNCE);
+            assertFalse(changed.contains(own.toAbsolutePath()));
+            assertTrue(changed.contains(root.resolve("other.txt").toAbsolutePath()));
+        }
+    }
+}
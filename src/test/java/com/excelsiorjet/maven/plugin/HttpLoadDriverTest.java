@@ -0,0 +1,145 @@
+package com.excelsiorjet.maven.plugin;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HttpLoadDriverTest {
+
+    private static HttpServer server(AtomicInteger posted) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        byte[] body = new byte[10000];
+        server.createContext("/fixed", exchange -> {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/chunked", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body, 0, 3000);
+                out.flush();
+                out.write(body, 0, 5000);
+            }
+        });
+        server.createContext("/post", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] request = new byte[100];
+                int n = in.read(request);
+                if ("hello".equals(new String(request, 0, Math.max(0, n), StandardCharsets.UTF_8))) {
+                    posted.incrementAndGet();
+                }
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.createContext("/error", exchange -> {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        return server;
+    }
+
+    private static HttpLoadDriver.Request request(HttpServer server, String method, String path, String body) {
+        URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + path);
+        return new HttpLoadDriver.Request(method, uri, Collections.emptyMap(),
+                (body != null) ? body.getBytes(StandardCharsets.UTF_8) : null, 1);
+    }
+
+    @Test(timeout = 30000)
+    public void testClosedLoad() throws Exception {
+        AtomicInteger posted = new AtomicInteger();
+        HttpServer server = server(posted);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.start();
+        try {
+            HttpLoadDriver.Result result = new HttpLoadDriver(Arrays.asList(
+                    request(server, "GET", "/fixed", null),
+                    request(server, "GET", "/chunked", null),
+                    request(server, "POST", "/post", "hello"),
+                    request(server, "GET", "/error", null)),
+                    server.getAddress(), 4, 1500, 0).run();
+            assertTrue(result.requests > 20);
+            assertTrue(posted.get() > 0);
+            assertEquals(result.errors, (long) result.errorKinds.get("HTTP 500"));
+            assertTrue(result.errorRate() > 0.1 && result.errorRate() < 0.4);
+            assertEquals(result.requests - result.errors, result.latencies.length);
+            assertTrue(result.latencyMillis(0.5) <= result.latencyMillis(0.99));
+            assertTrue(result.latencyMillis(0.99) <= result.latencyMillis(0.999));
+            assertEquals(2, result.perSecond.length);
+            assertEquals(1000, result.timeToPeakMillis());
+        } finally {
+            server.stop(0);
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testRate() throws Exception {
+        HttpServer server = server(new AtomicInteger());
+        server.start();
+        try {
+            HttpLoadDriver.Result result = new HttpLoadDriver(
+                    Collections.singletonList(request(server, "GET", "/fixed", null)),
+                    server.getAddress(), 2, 1000, 50).run();
+            assertTrue(result.requests >= 40 && result.requests <= 51);
+            assertEquals(0, result.errors);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testConnectionRefused() throws Exception {
+        InetSocketAddress address;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            address = new InetSocketAddress(socket.getInetAddress(), socket.getLocalPort());
+        }
+        HttpLoadDriver.Request request = new HttpLoadDriver.Request("GET",
+                URI.create("http://localhost:" + address.getPort() + "/"), Collections.emptyMap(), null, 1);
+        HttpLoadDriver.Result result = new HttpLoadDriver(Collections.singletonList(request), address, 2, 300, 0).run();
+        assertEquals(0, result.requests);
+        assertFalse(result.errorKinds.isEmpty());
+    }
+
+    @Test
+    public void testParserAcrossReads() throws Exception {
+        String response = "HTTP/1.1 100 Continue\r\n\r\n" +
+                "HTTP/1.1 404 Not Found\r\nTransfer-Encoding: chunked\r\nConnection: close\r\n\r\n" +
+                "5;ext=1\r\nhello\r\n3\r\nabc\r\n0\r\nX-Trailer: 1\r\n\r\n";
+        byte[] bytes = response.getBytes(StandardCharsets.ISO_8859_1);
+        HttpLoadDriver.ResponseParser parser = new HttpLoadDriver.ResponseParser();
+        parser.reset(false);
+        for (int i = 0; i < bytes.length; i++) {
+            boolean done = parser.feed(ByteBuffer.wrap(bytes, i, 1));
+            assertEquals(i == bytes.length - 1, done);
+        }
+        assertEquals(404, parser.status);
+        assertTrue(parser.close);
+
+        parser.reset(false);
+        assertFalse(parser.feed(ByteBuffer.wrap("HTTP/1.0 200 OK\r\n\r\nbody".getBytes(StandardCharsets.ISO_8859_1))));
+        assertTrue(parser.eof());
+
+        parser.reset(true);
+        assertTrue(parser.feed(ByteBuffer.wrap("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\n"
+                .getBytes(StandardCharsets.ISO_8859_1))));
+    }
+}
@@ -0,0 +1,86 @@
+package com.excelsiorjet.maven.plugin;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class JetCompileSchedulerTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Before
+    public void setUp() {
+        MavenLog.bind(new SystemStreamLog(), "");
+    }
+
+    private Future<JetCompileScheduler.Permit> acquire(JetCompileScheduler scheduler, int maxParallel, long memory) {
+        return executor.submit(() -> scheduler.acquire(maxParallel, memory));
+    }
+
+    private static void assertBlocked(Future<?> future) throws Exception {
+        try {
+            future.get(200, TimeUnit.MILLISECONDS);
+            fail("compilation must wait");
+        } catch (TimeoutException expected) {
+        }
+    }
+
+    @Test
+    public void testParallelLimit() throws Exception {
+        JetCompileScheduler scheduler = new JetCompileScheduler(() -> Long.MAX_VALUE);
+        JetCompileScheduler.Permit first = scheduler.acquire(2, 100);
+        JetCompileScheduler.Permit second = scheduler.acquire(2, 100);
+        Future<JetCompileScheduler.Permit> third = acquire(scheduler, 2, 100);
+        assertBlocked(third);
+        first.close();
+        third.get(5, TimeUnit.SECONDS).close();
+        second.close();
+    }
+
+    @Test
+    public void testMemoryLimit() throws Exception {
+        JetCompileScheduler scheduler = new JetCompileScheduler(() -> 5000);
+        JetCompileScheduler.Permit first = scheduler.acquire(8, 4000);
+        Future<JetCompileScheduler.Permit> big = acquire(scheduler, 8, 4000);
+        assertBlocked(big);
+        // a smaller compilation that would fit still waits for the earlier request
+        Future<JetCompileScheduler.Permit> small = acquire(scheduler, 8, 500);
+        assertBlocked(small);
+        first.close();
+        JetCompileScheduler.Permit second = big.get(5, TimeUnit.SECONDS);
+        small.get(5, TimeUnit.SECONDS).close();
+        second.close();
+    }
+
+    @Test
+    public void testOneCompilationAlwaysAdmitted() throws Exception {
+        JetCompileScheduler scheduler = new JetCompileScheduler(() -> 1000);
+        JetCompileScheduler.Permit permit = scheduler.acquire(1, 8000);
+        permit.close();
+        // double close must not break accounting
+        permit.close();
+        scheduler.acquire(1, 8000).close();
+    }
+
+    @Test
+    public void testMemoryBudgetSampledWhenIdle() throws Exception {
+        AtomicLong available = new AtomicLong(1000);
+        JetCompileScheduler scheduler = new JetCompileScheduler(available::get);
+        available.set(5000);
+        // the budget is sampled again when the first compilation is admitted
+        JetCompileScheduler.Permit first = scheduler.acquire(8, 2000);
+        available.set(1000);
+        // but not while compilations run, as their memory is reserved already
+        JetCompileScheduler.Permit second = scheduler.acquire(8, 2000);
+        second.close();
+        first.close();
+        JetCompileScheduler.Permit third = scheduler.acquire(8, 2000);
+        assertBlocked(acquire(scheduler, 8, 2000));
+        third.close();
+    }
+}
@@ -0,0 +1,42 @@
+package com.excelsiorjet.maven.plugin;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ProcessTreeSamplerTest {
+
+    @Test
+    public void testSnapshotAndIsRunning() throws Exception {
+        assumeTrue(ProcessTreeSampler.isSupported());
+        File dir = Files.createTempDirectory("sampler").toFile();
+        Process other = new ProcessBuilder("sleep", "10").start();
+        Process process = new ProcessBuilder("sleep", "10").directory(dir).start();
+        try {
+            // the working directory is set once the child executes the command
+            List<ProcessTreeSampler.ProcessInfo> processes;
+            long deadline = System.currentTimeMillis() + 5000;
+            do {
+                Thread.sleep(20);
+                processes = new ProcessTreeSampler(dir, 20).snapshot();
+            } while (processes.isEmpty() && (System.currentTimeMillis() < deadline));
+            assertEquals(1, processes.size());
+            int pid = processes.get(0).pid;
+            assertTrue(ProcessTreeSampler.isRunning(pid));
+
+            process.destroy();
+            process.waitFor();
+            assertFalse(ProcessTreeSampler.isRunning(pid));
+        } finally {
+            process.destroy();
+            other.destroy();
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.excelsiorjet.maven.plugin;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ProfileFingerprintTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("fingerprint").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private static byte[] zip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(e.getKey()));
+                zip.write(e.getValue());
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private File jar(String name, Map<String, byte[]> entries) throws IOException {
+        File file = new File(dir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(zip(entries));
+        }
+        return file;
+    }
+
+    private static Map<String, byte[]> classes(String... namesAndContents) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndContents.length; i += 2) {
+            entries.put(namesAndContents[i], namesAndContents[i + 1].getBytes());
+        }
+        return entries;
+    }
+
+    @Test
+    public void testUnchanged() throws IOException {
+        Map<String, File> classpath = new LinkedHashMap<>();
+        classpath.put("main", jar("app.jar", classes("a/Main.class", "main", "a/Util.class", "util")));
+        classpath.put("lib", jar("lib.jar", classes("b/Lib.class", "lib", "META-INF/MANIFEST.MF", "manifest")));
+        ProfileFingerprint fingerprint = ProfileFingerprint.compute(classpath, Collections.emptyList());
+        assertEquals(3, fingerprint.getClasses().size());
+
+        File file = new File(dir, "app.jprof" + ProfileFingerprint.SUFFIX);
+        fingerprint.save(file);
+        ProfileFingerprint saved = ProfileFingerprint.load(file);
+        ProfileFingerprint.Match match = saved.match(ProfileFingerprint.compute(classpath, Collections.emptyList()));
+        assertEquals(1.0, match.coverage, 1e-9);
+        assertEquals(0, match.changed + match.removed + match.added);
+    }
+
+    @Test
+    public void testChangedRemovedAdded() throws IOException {
+        Map<String, File> classpath = new LinkedHashMap<>();
+        classpath.put("main", jar("app.jar", classes("a/Main.class", "main", "a/Old.class", "old")));
+        classpath.put("lib", jar("lib.jar", classes("b/Lib.class", "0123456789")));
+        ProfileFingerprint before = ProfileFingerprint.compute(classpath, Collections.emptyList());
+
+        classpath.put("main", jar("app.jar", classes("a/Main.class", "MAIN", "a/New.class", "new")));
+        ProfileFingerprint after = ProfileFingerprint.compute(classpath, Collections.singletonList(before));
+        ProfileFingerprint.Match match = before.match(after);
+        assertEquals(1, match.changed);
+        assertEquals(1, match.removed);
+        assertEquals(1, match.added);
+        // 10 bytes unchanged out of 4 + 3 + 3 + 10
+        assertEquals(0.5, match.coverage, 1e-9);
+        // the unchanged dependency does not hide the changes of the main artifact
+        assertEquals(0.0, match.coverageOf(ProfileFingerprint.MAIN_ELEMENT), 1e-9);
+        assertEquals(1.0, match.coverageOf("lib"), 1e-9);
+        assertEquals(1.0, match.coverageOf("unknown"), 1e-9);
+    }
+
+    @Test
+    public void testUnchangedJarsAreReused() throws IOException {
+        Map<String, File> classpath = new LinkedHashMap<>();
+        classpath.put("lib", jar("lib.jar", classes("b/Lib.class", "lib")));
+        ProfileFingerprint before = ProfileFingerprint.compute(classpath, Collections.emptyList());
+        // same content under another name, e.g. after a version bump without changes
+        Map<String, File> renamed = Collections.singletonMap("lib2", classpath.get("lib"));
+        ProfileFingerprint after = ProfileFingerprint.compute(renamed, Collections.singletonList(before));
+        assertEquals("lib2", after.getClasses().get("b/Lib.class").element);
+        assertEquals(1.0, before.match(after).coverage, 1e-9);
+    }
+
+    @Test
+    public void testNestedJarsAndClassDirectories() throws IOException {
+        Map<String, byte[]> war = classes("WEB-INF/classes/a/Servlet.class", "servlet");
+        war.put("WEB-INF/lib/lib.jar", zip(classes("b/Lib.class", "lib")));
+        Map<String, File> classpath = new LinkedHashMap<>();
+        classpath.put("main", jar("app.war", war));
+        File classes = new File(dir, "classes/c");
+        classes.mkdirs();
+        Files.write(new File(classes, "Module.class").toPath(), "module".getBytes());
+        classpath.put("module", classes.getParentFile());
+        ProfileFingerprint fingerprint = ProfileFingerprint.compute(classpath, Collections.emptyList());
+        assertEquals(new HashSet<>(Arrays.asList("a/Servlet.class", "b/Lib.class", "c/Module.class")),
+                fingerprint.getClasses().keySet());
+        assertEquals(6, fingerprint.getClasses().get("c/Module.class").size);
+    }
+
+    @Test
+    public void testShadowedClassDirectories() throws IOException {
+        File first = new File(dir, "first/c");
+        File second = new File(dir, "second/c");
+        first.mkdirs();
+        second.mkdirs();
+        Files.write(new File(first, "Module.class").toPath(), "first".getBytes());
+        Files.write(new File(second, "Module.class").toPath(), "second".getBytes());
+        Map<String, File> classpath = new LinkedHashMap<>();
+        classpath.put("first", first.getParentFile());
+        classpath.put("second", second.getParentFile());
+        ProfileFingerprint before = ProfileFingerprint.compute(classpath, Collections.emptyList());
+        assertEquals("first", before.getClasses().get("c/Module.class").element);
+
+        // the shadowed class still changes the hash of its own element
+        Files.write(new File(second, "Module.class").toPath(), "changed".getBytes());
+        ProfileFingerprint after = ProfileFingerprint.compute(classpath, Collections.emptyList());
+        assertEquals(before.getElements().get("first"), after.getElements().get("first"));
+        assertNotEquals(before.getElements().get("second"), after.getElements().get("second"));
+    }
+
+    @Test
+    public void testMissingFingerprint() throws IOException {
+        assertNull(ProfileFingerprint.load(new File(dir, "none" + ProfileFingerprint.SUFFIX)));
+    }
+}
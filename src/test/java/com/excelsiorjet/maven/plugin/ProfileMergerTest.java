@@ -0,0 +1,196 @@
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+public class ProfileMergerTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long NOW = 1000 * DAY;
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("profiles").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private File profile(String name, String content, int ageDays) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), content.getBytes("UTF-8"));
+        assertTrue(file.setLastModified(NOW - ageDays * DAY));
+        return file;
+    }
+
+    @Test
+    public void testWeightsAndDecay() throws IOException {
+        profile("fresh.jprof", "a", 0);
+        profile("old.jprof", "b", 14);
+        profile("heavy.jprof", "c", 14);
+        profile("expired.jprof", "d", 40);
+        profile("notes.txt", "e", 0);
+        Map<String, Double> weights = new HashMap<>();
+        weights.put("heavy.jprof", 4.0);
+        List<ProfileMerger.Input> inputs = new ProfileMerger(14, 30).collect(dir, weights, NOW);
+
+        assertEquals(3, inputs.size());
+        assertEquals("heavy.jprof", inputs.get(0).file.getName());
+        assertEquals(2.0, inputs.get(0).effectiveWeight, 1e-6);
+        assertEquals("fresh.jprof", inputs.get(1).file.getName());
+        assertEquals(1.0, inputs.get(1).effectiveWeight, 1e-6);
+        assertEquals("old.jprof", inputs.get(2).file.getName());
+        assertEquals(0.5, inputs.get(2).effectiveWeight, 1e-6);
+        assertEquals(14, inputs.get(2).ageDays, 1e-6);
+        assertEquals(0.5 / 3.5, inputs.get(2).share, 1e-6);
+    }
+
+    @Test
+    public void testNoDecay() throws IOException {
+        profile("a.jprof", "a", 100);
+        profile("b.jprof", "b", 0);
+        List<ProfileMerger.Input> inputs = new ProfileMerger(0, 0).collect(dir, Collections.emptyMap(), NOW);
+        assertEquals(2, inputs.size());
+        assertEquals("a.jprof", inputs.get(0).file.getName());
+        assertEquals(0.5, inputs.get(0).share, 1e-6);
+    }
+
+    @Test
+    public void testNormalize() {
+        List<ProfileMerger.Input> inputs = new ArrayList<>();
+        String[] names = {"batch", "api", "reports", "disabled"};
+        double[] weights = {1, 2, 1, 0};
+        for (int i = 0; i < names.length; i++) {
+            ProfileMerger.Input input = new ProfileMerger.Input(new File(names[i]), 0, weights[i]);
+            input.effectiveWeight = input.weight;
+            inputs.add(input);
+        }
+        inputs = ProfileMerger.normalize(inputs);
+        assertEquals(3, inputs.size());
+        assertEquals("api", inputs.get(0).file.getName());
+        assertEquals(0.5, inputs.get(0).share, 1e-6);
+        // equally weighted inputs keep their order
+        assertEquals("batch", inputs.get(1).file.getName());
+        assertEquals("reports", inputs.get(2).file.getName());
+        assertEquals(0.25, inputs.get(2).share, 1e-6);
+    }
+
+    @Test
+    public void testSingleProfileWithoutCommand() throws Exception {
+        profile("a.jprof", "a", 0);
+        ProfileMerger merger = new ProfileMerger(14, 0);
+        List<ProfileMerger.Input> inputs = merger.collect(dir, Collections.emptyMap(), NOW);
+        File output = new File(dir, "out/app.jprof");
+        merger.merge(inputs, output, null, dir);
+        assertEquals("a", new String(Files.readAllBytes(output.toPath()), "UTF-8"));
+    }
+
+    @Test(expected = JetTaskFailureException.class)
+    public void testMergeCommandRequired() throws Exception {
+        profile("a.jprof", "a", 0);
+        profile("b.jprof", "b", 0);
+        ProfileMerger merger = new ProfileMerger(14, 0);
+        List<ProfileMerger.Input> inputs = merger.collect(dir, Collections.singletonMap("b.jprof", 2.0), NOW);
+        merger.merge(inputs, new File(dir, "out/app.jprof"), null, dir);
+    }
+
+    @Test
+    public void testUsageListsMergedWithoutCommand() throws Exception {
+        profile("a.usg", "java.lang.String\n", 0);
+        profile("b.usg", "java.lang.Integer\n", 0);
+        List<ProfileMerger.Input> inputs = new ArrayList<>();
+        for (String name : new String[]{"a.usg", "b.usg"}) {
+            ProfileMerger.Input input = new ProfileMerger.Input(new File(dir, name), 0, 1);
+            input.effectiveWeight = input.weight;
+            inputs.add(input);
+        }
+        File output = new File(dir, "out/app.usg");
+        new ProfileMerger(0, 0).merge(ProfileMerger.normalize(inputs), output, null, dir);
+        assertEquals(Arrays.asList("java.lang.String", "java.lang.Integer"), Files.readAllLines(output.toPath()));
+    }
+
+    @Test
+    public void testScenarioUsageLists() throws Exception {
+        // usage lists of two profiling scenarios, naming classes in both forms, with resources and comments
+        File batch = new File(dir, "scenarios/batch/profiles/app.usg");
+        File api = new File(dir, "scenarios/api/profiles/app.usg");
+        batch.getParentFile().mkdirs();
+        api.getParentFile().mkdirs();
+        Files.write(batch.toPath(), Arrays.asList(
+                "# classes and resources loaded during the Test Run",
+                "java.lang.Object",
+                "java.lang.String",
+                "java/util/HashMap$Node",
+                "com.acme.batch.Job",
+                "sun.util.resources.de.CalendarData_de",
+                "META-INF/services/java.sql.Driver"));
+        Files.write(api.toPath(), Arrays.asList(
+                "# classes and resources loaded during the Test Run",
+                "java.lang.Object",
+                "java/lang/String",
+                "java.util.HashMap$Node",
+                "com.acme.api.Controller",
+                "jdk.nashorn.api.scripting.NashornScriptEngine",
+                "META-INF/services/java.sql.Driver"));
+        List<ProfileMerger.Input> inputs = new ArrayList<>();
+        for (File file : new File[]{batch, api}) {
+            ProfileMerger.Input input = new ProfileMerger.Input(file, 0, 1);
+            input.effectiveWeight = input.weight;
+            inputs.add(input);
+        }
+        File output = new File(dir, "out/app.usg");
+        new ProfileMerger(0, 0).merge(ProfileMerger.normalize(inputs), output, null, dir);
+        assertEquals(Arrays.asList(
+                "# classes and resources loaded during the Test Run",
+                "java.lang.Object",
+                "java.lang.String",
+                "java/util/HashMap$Node",
+                "com.acme.batch.Job",
+                "sun.util.resources.de.CalendarData_de",
+                "META-INF/services/java.sql.Driver",
+                "com.acme.api.Controller",
+                "jdk.nashorn.api.scripting.NashornScriptEngine"), Files.readAllLines(output.toPath()));
+        RuntimeUsage usage = RuntimeUsage.load(output);
+        assertEquals(Collections.singleton("nashorn"), usage.usedComponents());
+        assertEquals(Collections.singleton("European"), usage.usedLocales());
+        assertTrue(usage.dottedNames().containsAll(Arrays.asList("com.acme.batch.Job", "com.acme.api.Controller")));
+    }
+
+    @Test
+    public void testMergeCommand() throws Exception {
+        assumeFalse(System.getProperty("os.name").startsWith("Windows"));
+        profile("a.jprof", "a", 0);
+        profile("b.jprof", "b", 7);
+        ProfileMerger merger = new ProfileMerger(7, 0);
+        List<ProfileMerger.Input> inputs = merger.collect(dir, Collections.emptyMap(), NOW);
+        File output = new File(dir, "a.jprof");
+        merger.merge(inputs, output, Arrays.asList("sh", "-c", "cat \"$@\" > {output}; echo {weights} >> {output}",
+                "merge", "{inputs}"), dir);
+        assertEquals("ab0.666667,0.333333\n", new String(Files.readAllBytes(output.toPath()), "UTF-8"));
+        assertFalse(new File(dir, "a.jprof.merging").exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailedMergeCommand() throws Exception {
+        assumeFalse(System.getProperty("os.name").startsWith("Windows"));
+        profile("a.jprof", "a", 0);
+        ProfileMerger merger = new ProfileMerger(7, 0);
+        merger.merge(merger.collect(dir, Collections.emptyMap(), NOW), new File(dir, "out.jprof"),
+                Arrays.asList("false", "{output}"), dir);
+    }
+}
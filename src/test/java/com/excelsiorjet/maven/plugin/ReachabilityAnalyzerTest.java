@@ -0,0 +1,142 @@
+package com.excelsiorjet.maven.plugin;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static com.excelsiorjet.maven.plugin.ClassFiles.classFile;
+import static org.junit.Assert.*;
+
+public class ReachabilityAnalyzerTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("reachability").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private static byte[] text(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private File jar(String name, Map<String, byte[]> entries) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), ClassFiles.jar(entries, false));
+        return file;
+    }
+
+    private static Map<String, ReachabilityAnalyzer.Element> byId(ReachabilityAnalyzer.Result result) {
+        Map<String, ReachabilityAnalyzer.Element> elements = new HashMap<>();
+        result.elements.forEach(e -> elements.put(e.id, e));
+        return elements;
+    }
+
+    @Test
+    public void testMainClass() throws IOException {
+        Map<String, byte[]> main = new LinkedHashMap<>();
+        main.put("META-INF/MANIFEST.MF", text("Manifest-Version: 1.0\r\nMain-Class: app.Main\r\n\r\n"));
+        main.put("app/Main.class", classFile("app/Main", "C:lib/a/A", "S:lib.r.Reflective"));
+        main.put("app/Unused.class", classFile("app/Unused", "C:lib/u/U"));
+        main.put("META-INF/services/java.sql.Driver", text("# JDBC driver\ndrv.Driver\n"));
+        Map<String, byte[]> a = new LinkedHashMap<>();
+        a.put("lib/a/A.class", classFile("lib/a/A", "D:(Llib/a/B;)V"));
+        a.put("lib/a/B.class", classFile("lib/a/B"));
+        a.put("lib/a/Dead.class", classFile("lib/a/Dead"));
+
+        Map<String, File> classpath = new LinkedHashMap<>();
+        classpath.put("main", jar("main.jar", main));
+        classpath.put("org.lib:a:jar", jar("a.jar", a));
+        classpath.put("org.lib:r:jar", jar("r.jar",
+                Collections.singletonMap("lib/r/Reflective.class", classFile("lib/r/Reflective"))));
+        classpath.put("org.lib:u:jar", jar("u.jar", Collections.singletonMap("lib/u/U.class", classFile("lib/u/U"))));
+        classpath.put("org.drv:drv:jar", jar("drv.jar",
+                Collections.singletonMap("drv/Driver.class", classFile("drv/Driver"))));
+        classpath.put("org.dyn:dyn:jar", jar("dyn.jar",
+                Collections.singletonMap("dyn/Plugin.class", classFile("dyn/Plugin"))));
+        classpath.put("org.kept:kept:jar", jar("kept.jar",
+                Collections.singletonMap("kept/K.class", classFile("kept/K"))));
+        classpath.put("org.res:res:jar", jar("res.jar",
+                Collections.singletonMap("res/messages.properties", text("hello=Hello"))));
+
+        ReachabilityAnalyzer.Result result = new ReachabilityAnalyzer(2, Collections.emptyList(),
+                Collections.singletonList("org.kept:kept"), Arrays.asList("dyn.Plugin", "dyn.plugin.properties"))
+                .analyze(classpath);
+        assertEquals(10, result.classes);
+        assertEquals(7, result.reachableClasses);
+        List<String> unreachable = new ArrayList<>();
+        result.unreachable().forEach(e -> unreachable.add(e.id));
+        assertEquals(Collections.singletonList("org.lib:u:jar"), unreachable);
+
+        Map<String, ReachabilityAnalyzer.Element> elements = byId(result);
+        assertEquals(Collections.singletonList("app.Unused"), elements.get("main").unreachableClasses);
+        assertEquals(2, elements.get("org.lib:a:jar").reachableClasses);
+        assertEquals(Collections.singletonList("lib.a.Dead"), elements.get("org.lib:a:jar").unreachableClasses);
+        assertTrue(elements.get("org.dyn:dyn:jar").keptByTestRun);
+        assertFalse(elements.get("org.lib:a:jar").keptByTestRun);
+        assertFalse(elements.get("org.res:res:jar").isUnreachable());
+    }
+
+    @Test
+    public void testWebAndSpringEntryPoints() throws IOException {
+        Map<String, byte[]> lib = new LinkedHashMap<>();
+        lib.put("web/MyServlet.class", classFile("web/MyServlet"));
+        lib.put("auto/Conf.class", classFile("auto/Conf"));
+        lib.put("META-INF/spring.factories", text(
+                "org.springframework.boot.autoconfigure.EnableAutoConfiguration=\\\n  auto.Conf,\\\n  auto.Missing\n"));
+        lib.put("svc/Api.class", classFile("svc/Api"));
+        lib.put("svc/Impl.class", classFile("svc/Impl", "C:svc/Api"));
+        lib.put("svc/Unused.class", classFile("svc/Unused"));
+        lib.put("META-INF/services/svc.Api", text("svc.Impl\n"));
+        Map<String, byte[]> main = new LinkedHashMap<>();
+        main.put("WEB-INF/web.xml", text("<web-app><servlet><servlet-name>s</servlet-name>\n" +
+                "<servlet-class> web.MyServlet </servlet-class></servlet></web-app>"));
+        main.put("WEB-INF/classes/app/MyService.class", classFile("app/MyService", 0x2601,
+                "D:Lorg/springframework/stereotype/Service;"));
+        main.put("WEB-INF/classes/app/Svc.class", classFile("app/Svc", "D:Lapp/MyService;", "C:svc/Api"));
+        main.put("WEB-INF/lib/lib.jar", ClassFiles.jar(lib, false));
+        main.put("WEB-INF/lib/keep.jar",
+                ClassFiles.jar(Collections.singletonMap("keep/sub/K.class", classFile("keep/sub/K")), false));
+
+        Map<String, File> classpath = new LinkedHashMap<>();
+        classpath.put("main", jar("main.war", main));
+        ReachabilityAnalyzer.Result result = new ReachabilityAnalyzer(1, Collections.emptyList(),
+                Collections.singletonList("keep.**"), Collections.emptyList()).analyze(classpath);
+        assertEquals(Collections.singletonList("svc.Unused"), result.elements.get(0).unreachableClasses);
+    }
+
+    @Test
+    public void testLibraryWithoutEntryPoints() throws IOException {
+        Map<String, File> classpath = new LinkedHashMap<>();
+        classpath.put("main", jar("main.jar", Collections.singletonMap("api/Api.class", classFile("api/Api",
+                "C:impl/Impl"))));
+        classpath.put("org.impl:impl:jar", jar("impl.jar", Collections.singletonMap("impl/Impl.class",
+                classFile("impl/Impl"))));
+        classpath.put("org.other:other:jar", jar("other.jar", Collections.singletonMap("other/Other.class",
+                classFile("other/Other"))));
+        ReachabilityAnalyzer.Result result = new ReachabilityAnalyzer(1, Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyList()).analyze(classpath);
+        assertEquals(1, result.unreachable().size());
+        assertEquals("org.other:other:jar", result.unreachable().get(0).id);
+
+        // an explicit entry point replaces the whole main artifact, which is never reported as unreachable
+        classpath.put("org.other:other:jar", jar("other.jar", Collections.singletonMap("other/Main.class",
+                classFile("other/Main"))));
+        result = new ReachabilityAnalyzer(1, Collections.singletonList("other.Main"),
+                Collections.emptyList(), Collections.emptyList()).analyze(classpath);
+        assertEquals(1, result.unreachable().size());
+        assertEquals("org.impl:impl:jar", result.unreachable().get(0).id);
+        assertEquals(Collections.singletonList("api.Api"), result.elements.get(0).unreachableClasses);
+    }
+}
@@ -0,0 +1,86 @@
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ReadinessProbeTest {
+
+    private static ReadinessConfig config() {
+        ReadinessConfig config = new ReadinessConfig();
+        config.interval = 20;
+        config.timeout = 10;
+        return config;
+    }
+
+    @Test
+    public void testPortAndLog() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            ReadinessConfig config = config();
+            config.port = server.getLocalPort();
+            config.logPattern = "Started \\w+ in";
+            ReadinessProbe probe = new ReadinessProbe(config);
+            long start = System.currentTimeMillis();
+            new Thread(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ignore) {
+                }
+                probe.onOutput("Starting App");
+                probe.onOutput("Started App in 0.05 seconds");
+            }).start();
+            long ready = probe.await(start, () -> true);
+            assertTrue(ready >= 200);
+        }
+    }
+
+    @Test
+    public void testUrl() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        AtomicInteger requests = new AtomicInteger();
+        server.createContext("/health", exchange -> {
+            int code = (requests.incrementAndGet() < 3) ? 503 : 204;
+            exchange.sendResponseHeaders(code, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            ReadinessConfig config = config();
+            config.url = "http://localhost:" + server.getAddress().getPort() + "/health";
+            new ReadinessProbe(config).await(System.currentTimeMillis(), () -> true);
+            assertEquals(3, requests.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testFailures() throws Exception {
+        ReadinessConfig config = config();
+        config.logPattern = "ready";
+        ReadinessProbe probe = new ReadinessProbe(config);
+        try {
+            probe.await(System.currentTimeMillis(), () -> false);
+            fail();
+        } catch (JetTaskFailureException expected) {
+        }
+        config.timeout = 0;
+        try {
+            new ReadinessProbe(config).await(System.currentTimeMillis(), () -> true);
+            fail();
+        } catch (JetTaskFailureException expected) {
+        }
+        config.logPattern = "(";
+        try {
+            new ReadinessProbe(config);
+            fail();
+        } catch (JetTaskFailureException expected) {
+        }
+    }
+}
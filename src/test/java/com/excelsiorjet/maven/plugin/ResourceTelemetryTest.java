@@ -0,0 +1,67 @@
+package com.excelsiorjet.maven.plugin;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ResourceTelemetryTest {
+
+    private static ResourceTelemetry.Point point(long offset, int processes, long cpu, long rss, int threads) {
+        ResourceTelemetry.Point p = new ResourceTelemetry.Point();
+        p.offsetMillis = offset;
+        p.processes = processes;
+        p.cpuMillis = cpu;
+        p.rssKB = rss;
+        p.hwmKB = rss;
+        p.threads = threads;
+        return p;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSummary() {
+        List<ResourceTelemetry.Point> series = Arrays.asList(
+                point(0, 0, 0, 0, 0),
+                point(100, 1, 50, 1000, 4),
+                point(200, 1, 150, 3000, 8),
+                point(300, 0, 150, 0, 0));
+        Map<String, Object> summary = ResourceTelemetry.summary(series);
+        assertEquals(150L, summary.get("cpuMillis"));
+        Map<String, Object> rss = (Map<String, Object>) summary.get("rssKB");
+        assertEquals(3000.0, rss.get("peak"));
+        // points without running processes do not count
+        assertEquals(2000.0, rss.get("average"));
+        assertEquals(6.0, ((Map<String, Object>) summary.get("threads")).get("average"));
+    }
+
+    @Test
+    public void testSampling() throws Exception {
+        assumeTrue(ProcessTreeSampler.isSupported());
+        File dir = Files.createTempDirectory("telemetry").toFile();
+        try {
+            ResourceTelemetry telemetry = ResourceTelemetry.start(null, 20);
+            new ProcessBuilder("sleep", "0.5").start().waitFor();
+            telemetry.finish();
+            List<ResourceTelemetry.Point> points = telemetry.getPoints();
+            assertTrue(points.size() > 5);
+            assertTrue(points.stream().anyMatch(p -> (p.processes == 1) && (p.rssKB > 0) && (p.threads > 0) && (p.fds > 0)));
+
+            File csv = telemetry.save(dir, "run", "csv");
+            List<String> lines = Files.readAllLines(csv.toPath());
+            assertTrue(lines.get(0).startsWith("offsetMillis,processes,cpuMillis"));
+            assertEquals(points.size() + 1, lines.size());
+            File json = telemetry.save(dir, "run", "json");
+            assertTrue(new String(Files.readAllBytes(json.toPath()), "UTF-8").contains("\"summary\""));
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+}
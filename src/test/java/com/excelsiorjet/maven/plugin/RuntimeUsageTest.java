@@ -0,0 +1,105 @@
+package com.excelsiorjet.maven.plugin;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class RuntimeUsageTest {
+
+    @Test
+    public void testUsage() throws IOException {
+        File dir = Files.createTempDirectory("usage").toFile();
+        try {
+            File usg = new File(dir, "app.usg");
+            Files.write(usg.toPath(), Arrays.asList(
+                    "java.lang.String",
+                    "javax/swing/JFrame",
+                    "java.awt.Frame",
+                    "jdk.nashorn.api.scripting.NashornScriptEngine",
+                    "sun.text.resources.ja.FormatData_ja",
+                    "sun/util/resources/de/CalendarData_de.class",
+                    "sun.util.resources.en.CalendarData_en"
+            ));
+            RuntimeUsage usage = RuntimeUsage.load(usg);
+            assertEquals(Collections.singleton("nashorn"), usage.usedComponents());
+            assertEquals(new TreeSet<>(Arrays.asList("European", "Japanese")), usage.usedLocales());
+            Set<String> unused = usage.unusedDetachable();
+            assertFalse(unused.contains("swing"));
+            assertFalse(unused.contains("awt"));
+            assertTrue(unused.contains("corba"));
+            assertTrue(unused.contains("jdbc"));
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+        File dir = Files.createTempDirectory("usage").toFile();
+        try {
+            File batch = new File(dir, "batch/app.usg");
+            File api = new File(dir, "api/app.usg");
+            batch.getParentFile().mkdirs();
+            api.getParentFile().mkdirs();
+            Files.write(batch.toPath(), Arrays.asList("# usage list", "java.lang.String", "java.sql.Connection"));
+            Files.write(api.toPath(), Arrays.asList("# usage list", "java/lang/String", "javax.swing.JFrame"));
+            RuntimeUsage.merge(Arrays.asList(batch, api), batch);
+            assertEquals(Arrays.asList("# usage list", "java.lang.String", "java.sql.Connection", "javax.swing.JFrame"),
+                    Files.readAllLines(batch.toPath()));
+            Set<String> unused = RuntimeUsage.load(batch).unusedDetachable();
+            assertFalse(unused.contains("jdbc"));
+            assertFalse(unused.contains("swing"));
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void testLocaleGroups() {
+        assertEquals("Chinese", RuntimeUsage.localeGroupOf("sun/text/resources/zh/FormatData_zh_TW.class"));
+        assertEquals("Hebrew", RuntimeUsage.localeGroupOf("sun/util/resources/iw/LocaleNames_iw"));
+        assertEquals("European", RuntimeUsage.localeGroupOf("sun/text/resources/cldr/fr/FormatData_fr.class"));
+        assertNull(RuntimeUsage.localeGroupOf("sun/util/resources/en/LocaleNames_en"));
+        assertNull(RuntimeUsage.localeGroupOf("sun/util/resources/LocaleNames"));
+    }
+
+    @Test
+    public void testRuntimeSizes() throws IOException {
+        File dir = Files.createTempDirectory("runtime").toFile();
+        try {
+            File ext = new File(dir, "lib/ext");
+            ext.mkdirs();
+            try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(new File(ext, "rt.jar")))) {
+                entry(zip, "org/omg/CORBA/ORB.class", 100);
+                entry(zip, "com/sun/corba/se/Impl.class", 50);
+                entry(zip, "javafx/scene/web/WebView.class", 70);
+                entry(zip, "javafx/scene/Node.class", 30);
+                entry(zip, "sun/text/resources/ja/FormatData_ja.class", 20);
+                entry(zip, "java/lang/String.class", 1000);
+            }
+            Map<String, Long> sizes = RuntimeUsage.runtimeSizes(dir);
+            assertEquals(150, (long) sizes.get("corba"));
+            assertEquals(70, (long) sizes.get("javafx-webkit"));
+            assertEquals(30, (long) sizes.get("javafx"));
+            assertEquals(20, (long) sizes.get("Japanese"));
+            assertEquals(4, sizes.size());
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    private static void entry(ZipOutputStream zip, String name, int size) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(new byte[size]);
+        zip.closeEntry();
+    }
+}
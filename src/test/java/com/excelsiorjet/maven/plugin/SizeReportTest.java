@@ -0,0 +1,110 @@
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.tasks.config.dependencies.DependencySettings;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class SizeReportTest {
+
+    private static void jar(File file, Map<String, Integer> entries) throws IOException {
+        file.getParentFile().mkdirs();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            for (Map.Entry<String, Integer> e : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(e.getKey()));
+                out.write(new byte[e.getValue()]);
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static void file(File dir, String path, int size) throws IOException {
+        File file = new File(dir, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), new byte[size]);
+    }
+
+    @Test
+    public void testAttribution() throws Exception {
+        File dir = Files.createTempDirectory("size-report").toFile();
+        try {
+            Map<String, Integer> mainEntries = new LinkedHashMap<>();
+            mainEntries.put("com/acme/App.class", 1000);
+            mainEntries.put("com/acme/util/Util.class", 1000);
+            mainEntries.put("app.properties", 1000);
+            jar(new File(dir, "main.jar"), mainEntries);
+            jar(new File(dir, "lib.jar"), Collections.singletonMap("org/lib/Lib.class", 5000));
+            jar(new File(dir, "plain-1.0.jar"), Collections.singletonMap("org/plain/Plain.class", 100));
+
+            File appDir = new File(dir, "app");
+            file(appDir, "app", 19000);
+            assertTrue(new File(appDir, "app").setExecutable(true));
+            file(appDir, "rt/bin/libjetrt.so", 700);
+            file(appDir, "rt/lib/ext/nashorn.jar", 300);
+            file(appDir, "conf/app.conf", 50);
+            file(appDir, "lib/plain-1.0.jar", 400);
+            file(appDir, "README", 5);
+
+            Map<String, File> classpath = new LinkedHashMap<>();
+            classpath.put("main", new File(dir, "main.jar"));
+            classpath.put("org.lib:lib:jar", new File(dir, "lib.jar"));
+            classpath.put("org.plain:plain:jar", new File(dir, "plain-1.0.jar"));
+            DependencySettings plain = new DependencySettings();
+            plain.groupId = "org.plain";
+            plain.pack = "none";
+            DependencySettings lib = new DependencySettings();
+            lib.groupId = "org.lib";
+            lib.optimize = "auto-detect";
+            List<DependencySettings> settings = Arrays.asList(plain, lib);
+            SizeReport report = SizeReport.compute(appDir, classpath, settings,
+                    Collections.singleton("conf/app.conf"));
+
+            List<SizeReport.Element> elements = report.getElements();
+            assertEquals(3, elements.size());
+            // 19000 bytes of the executable are shared by 2000 class bytes weighted 4 and 1000 resource bytes
+            // of main.jar, and 5000 class bytes of lib.jar weighted 2 for auto-detect
+            assertEquals(9000, elements.get(0).estimatedExecutableBytes);
+            assertEquals(2000, elements.get(0).classBytes);
+            assertEquals(Long.valueOf(1000), elements.get(0).packages.get("com.acme.util"));
+            assertEquals(10000, elements.get(1).estimatedExecutableBytes);
+            assertEquals(0, elements.get(2).estimatedExecutableBytes);
+            assertEquals(400, elements.get(2).fileBytes);
+            assertEquals(Long.valueOf(700), report.getRuntimeComponents().get("core"));
+            assertEquals(Long.valueOf(300), report.getRuntimeComponents().get("nashorn"));
+            assertEquals(19000 + 1000 + 50 + 400 + 5, report.totalBytes());
+
+            File json = new File(dir, "size-report.json");
+            File state = new File(dir, "size-report.properties");
+            assertNull(report.save(json, state, "g:a:1"));
+            assertTrue(json.isFile());
+
+            file(appDir, "app", 20000);
+            List<Map<String, Object>> changes = SizeReport.compute(appDir, classpath,
+                    settings, Collections.singleton("conf/app.conf")).save(json, state, "g:a:1");
+            assertEquals(1000L, changes.get(0).get("delta"));
+            Set<String> changed = new HashSet<>();
+            changes.forEach(c -> changed.add((String) c.get("name")));
+            assertEquals(new HashSet<>(Arrays.asList("total", "category.executables", "element.main",
+                    "element.org.lib:lib:jar")), changed);
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void testRuntimeComponents() {
+        assertEquals("javafx", SizeReport.componentOf("lib/jfxrt.jar"));
+        assertEquals("cldr", SizeReport.componentOf("lib/ext/cldrdata.jar"));
+        assertEquals("locales", SizeReport.componentOf("lib/ext/localedata.jar"));
+        assertEquals("core", SizeReport.componentOf("bin/libjetrt.so"));
+    }
+}
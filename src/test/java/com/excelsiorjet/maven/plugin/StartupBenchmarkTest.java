@@ -0,0 +1,93 @@
+package com.excelsiorjet.maven.plugin;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class StartupBenchmarkTest {
+
+    private static final double EPS = 1e-9;
+
+    @Test
+    public void testStatistics() {
+        SampleStatistics stats = new SampleStatistics(new double[]{5, 1, 4, 2, 3});
+        assertEquals(5, stats.count());
+        assertEquals(3, stats.mean(), EPS);
+        assertEquals(Math.sqrt(2.5), stats.stdDev(), EPS);
+        assertEquals(1, stats.min(), EPS);
+        assertEquals(5, stats.max(), EPS);
+        assertEquals(3, stats.percentile(50), EPS);
+        assertEquals(4.6, stats.percentile(90), EPS);
+        double[] ci = stats.meanConfidenceInterval();
+        assertEquals(3 - 2.776 * Math.sqrt(2.5) / Math.sqrt(5), ci[0], EPS);
+        assertEquals(3 + 2.776 * Math.sqrt(2.5) / Math.sqrt(5), ci[1], EPS);
+        assertArrayEquals(new double[]{1, 5}, stats.medianConfidenceInterval(), EPS);
+
+        double[] values = new double[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i + 1;
+        }
+        double[] median = new SampleStatistics(values).medianConfidenceInterval();
+        // the exact 95% interval for 100 measurements is between the 40th and 61st order statistics
+        assertTrue(median[0] <= 40 && median[0] >= 38);
+        assertTrue(median[1] >= 61 && median[1] <= 63);
+
+        SampleStatistics single = new SampleStatistics(new double[]{7});
+        assertEquals(0, single.stdDev(), EPS);
+        assertArrayEquals(new double[]{7, 7}, single.meanConfidenceInterval(), EPS);
+    }
+
+    @Test
+    public void testRuns() throws Exception {
+        assumeTrue(new File("/bin/sh").exists());
+        File dir = Files.createTempDirectory("bench").toFile();
+        try {
+            File app = new File(dir, "app");
+            app.mkdirs();
+            File script = new File(app, "start");
+            Files.write(script.toPath(), "#!/bin/sh\necho \"ready $JETVMPROP $1\"\nsleep 5\n".getBytes(StandardCharsets.US_ASCII));
+            script.setExecutable(true);
+
+            StartupBenchmark firstLine = new StartupBenchmark(Arrays.asList(script.getAbsolutePath(), "x"),
+                    Collections.singletonMap("JETVMPROP", "-Dp=1"), true, 10000);
+            StartupBenchmark.Run run = firstLine.run(app);
+            assertTrue(run.millis < 4000);
+            assertNull(run.exitCode);
+            if (ProcessTreeSampler.isSupported()) {
+                assertNotNull(run.peakRssKB);
+                assertTrue(run.peakRssKB > 0);
+                assertNotNull(run.majorFaults);
+            }
+
+            StartupBenchmark exit = new StartupBenchmark(Arrays.asList(script.getAbsolutePath()),
+                    Collections.emptyMap(), false, 500);
+            try {
+                exit.run(app);
+                fail("timeout expected");
+            } catch (TimeoutException expected) {
+            }
+
+            Files.write(script.toPath(), "#!/bin/sh\nexit 3\n".getBytes(StandardCharsets.US_ASCII));
+            File copy = new File(dir, "copy");
+            StartupBenchmark.freshCopy(app, copy);
+            assertTrue(new File(copy, "start").canExecute());
+            run = new StartupBenchmark(Arrays.asList(new File(copy, "start").getAbsolutePath()),
+                    Collections.emptyMap(), false, 10000).run(copy);
+            assertEquals(Integer.valueOf(3), run.exitCode);
+            if (ProcessTreeSampler.isSupported()) {
+                assertNotNull(run.majorFaults);
+            }
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.excelsiorjet.maven.plugin;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TuningSpaceTest {
+
+    private static TuningVariant baseline() {
+        return new TuningVariant("baseline", "typical", null, true, false, new String[0]);
+    }
+
+    @Test
+    public void testVariants() {
+        TuningSpace space = new TuningSpace();
+        space.optimizationPresets = Arrays.asList("typical", "smart");
+        space.inlineExpansions = Arrays.asList("aggressive", "low");
+        space.compilerOptions = Arrays.asList("", "-genstackalloc- -inline-");
+        List<TuningVariant> variants = space.variants(baseline());
+        // the baseline has no inlineExpansion set, so it differs from all the combinations
+        assertEquals(9, variants.size());
+        assertEquals("baseline", variants.get(0).id);
+        assertEquals("variant-01", variants.get(1).id);
+        assertEquals("variant-08", variants.get(8).id);
+        TuningVariant last = variants.get(8);
+        assertEquals("smart", last.optimizationPreset);
+        assertEquals("low", last.inlineExpansion);
+        assertTrue(last.stackAllocation);
+        assertArrayEquals(new String[]{"-genstackalloc-", "-inline-"}, last.compilerOptions);
+    }
+
+    @Test
+    public void testBaselineNotRepeated() {
+        TuningSpace space = new TuningSpace();
+        space.globalOptimizers = Arrays.asList(false, true);
+        List<TuningVariant> variants = space.variants(baseline());
+        assertEquals(2, variants.size());
+        assertFalse(variants.get(0).globalOptimizer);
+        assertTrue(variants.get(1).globalOptimizer);
+        assertEquals("variant-01", variants.get(1).id);
+
+        assertEquals(1, new TuningSpace().variants(baseline()).size());
+    }
+
+    @Test
+    public void testPluginConfiguration() {
+        TuningVariant variant = new TuningVariant("variant-01", "smart", "medium", false, true,
+                new String[]{"-a+", "x=<y>"});
+        assertEquals(Arrays.asList(
+                "<optimizationPreset>smart</optimizationPreset>",
+                "<inlineExpansion>medium</inlineExpansion>",
+                "<stackAllocation>false</stackAllocation>",
+                "<globalOptimizer>true</globalOptimizer>",
+                "<compilerOptions>",
+                "    <compilerOption>-a+</compilerOption>",
+                "    <compilerOption>x=&lt;y></compilerOption>",
+                "</compilerOptions>"), variant.toPluginConfiguration());
+    }
+}
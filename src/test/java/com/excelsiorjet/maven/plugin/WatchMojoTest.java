@@ -0,0 +1,151 @@
+package com.excelsiorjet.maven.plugin;
+
+import com.excelsiorjet.api.tasks.config.ApplicationType;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class WatchMojoTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("watch").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private static Map<String, String> read(File archive) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        try (ZipFile zip = new ZipFile(archive)) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                try (InputStream in = zip.getInputStream(entry)) {
+                    entries.put(entry.getName(), new String(IOUtil.toByteArray(in), "UTF-8"));
+                }
+            }
+        }
+        return entries;
+    }
+
+    @Test
+    public void testUpdateArchive() throws IOException {
+        File war = new File(dir, "app.war");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(war))) {
+            zip.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zip.write("Manifest-Version: 1.0\n".getBytes("UTF-8"));
+            for (String name : Arrays.asList("WEB-INF/classes/app/Main.class", "WEB-INF/classes/app/old/Old.class",
+                    "WEB-INF/classes/app/Gone.class")) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write("old".getBytes("UTF-8"));
+            }
+            // nested jars must stay stored
+            byte[] lib = "lib".getBytes("UTF-8");
+            ZipEntry stored = new ZipEntry("WEB-INF/lib/lib.jar");
+            CRC32 crc = new CRC32();
+            crc.update(lib);
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(lib.length);
+            stored.setCrc(crc.getValue());
+            zip.putNextEntry(stored);
+            zip.write(lib);
+        }
+        Path classes = new File(dir, "classes").toPath();
+        Files.createDirectories(classes.resolve("app/added"));
+        Files.write(classes.resolve("app/Main.class"), "new".getBytes("UTF-8"));
+        Files.write(classes.resolve("app/added/New.class"), "added".getBytes("UTF-8"));
+
+        int count = WatchMojo.updateArchive(war, "WEB-INF/classes/", classes, Arrays.asList(
+                classes.resolve("app/Main.class"), classes.resolve("app/added"), classes.resolve("app/old"),
+                classes.resolve("app/Gone.class"), dir.toPath().resolve("elsewhere.txt")));
+        assertEquals(4, count);
+        Map<String, String> expected = new TreeMap<>();
+        expected.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n");
+        expected.put("WEB-INF/classes/app/Main.class", "new");
+        expected.put("WEB-INF/classes/app/added/New.class", "added");
+        expected.put("WEB-INF/lib/lib.jar", "lib");
+        assertEquals(expected, read(war));
+        try (ZipFile zip = new ZipFile(war)) {
+            assertEquals(ZipEntry.STORED, zip.getEntry("WEB-INF/lib/lib.jar").getMethod());
+        }
+        assertFalse(new File(dir, "app.war.tmp").exists());
+    }
+
+    private void write(File archive, String... entries) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(entries[i]));
+                zip.write(entries[i + 1].getBytes("UTF-8"));
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateSpringBootArchive() throws IOException {
+        File jar = new File(dir, "app.jar");
+        write(jar, "META-INF/MANIFEST.MF", "Main-Class: org.springframework.boot.loader.JarLauncher\n",
+                "org/springframework/boot/loader/JarLauncher.class", "loader",
+                "BOOT-INF/classes/app/Main.class", "old",
+                "BOOT-INF/classes/application.properties", "old",
+                "BOOT-INF/lib/lib.jar", "lib");
+        Path classes = new File(dir, "classes").toPath();
+        Files.createDirectories(classes.resolve("app"));
+        Files.write(classes.resolve("app/Main.class"), "new".getBytes("UTF-8"));
+
+        String prefix = WatchMojo.archivePrefix(ApplicationType.SPRING_BOOT);
+        assertEquals("BOOT-INF/classes/", prefix);
+        assertEquals(2, WatchMojo.updateArchive(jar, prefix, classes, Arrays.asList(
+                classes.resolve("app/Main.class"), classes.resolve("application.properties"))));
+        Map<String, String> expected = new TreeMap<>();
+        expected.put("META-INF/MANIFEST.MF", "Main-Class: org.springframework.boot.loader.JarLauncher\n");
+        expected.put("org/springframework/boot/loader/JarLauncher.class", "loader");
+        expected.put("BOOT-INF/classes/app/Main.class", "new");
+        expected.put("BOOT-INF/lib/lib.jar", "lib");
+        assertEquals(expected, read(jar));
+    }
+
+    @Test
+    public void testResyncArchive() throws IOException {
+        // lost watcher events report the classes directory itself
+        File jar = new File(dir, "app.jar");
+        write(jar, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n",
+                "app/", "",
+                "app/Main.class", "old",
+                "app/Same.class", "same",
+                "app/gone/", "",
+                "app/gone/Gone.class", "old");
+        Path classes = new File(dir, "classes").toPath();
+        Files.createDirectories(classes.resolve("app/added"));
+        Files.write(classes.resolve("app/Main.class"), "new".getBytes("UTF-8"));
+        Files.write(classes.resolve("app/Same.class"), "same".getBytes("UTF-8"));
+        Files.write(classes.resolve("app/added/New.class"), "added".getBytes("UTF-8"));
+
+        assertEquals(5, WatchMojo.updateArchive(jar, "", classes, Collections.singletonList(classes)));
+        Map<String, String> expected = new TreeMap<>();
+        expected.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n");
+        expected.put("app/", "");
+        expected.put("app/Main.class", "new");
+        expected.put("app/Same.class", "same");
+        expected.put("app/added/New.class", "added");
+        assertEquals(expected, read(jar));
+    }
+}
@@ -0,0 +1,52 @@
+package com.excelsiorjet.maven.plugin;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class WorkloadBenchmarkTest {
+
+    @Test
+    public void testSteadyState() {
+        assertEquals(3, WorkloadBenchmark.steadyState(new double[]{500, 200, 120, 100, 102, 99, 101, 100}, 0.05));
+        // a slow iteration after the warm-up postpones the steady state
+        assertEquals(5, WorkloadBenchmark.steadyState(new double[]{500, 100, 100, 100, 130, 100, 101, 100}, 0.05));
+        assertEquals(0, WorkloadBenchmark.steadyState(new double[]{100}, 0.05));
+        assertEquals(-1, WorkloadBenchmark.steadyState(new double[]{100, 100, 100, 200}, 0.05));
+        assertEquals(-1, WorkloadBenchmark.steadyState(new double[0], 0.05));
+    }
+
+    @Test(timeout = 60000)
+    public void testRun() throws Exception {
+        assumeTrue(ProcessTreeSampler.isSupported());
+        File dir = Files.createTempDirectory("workload-bench").toFile();
+        try {
+            ReadinessConfig readiness = new ReadinessConfig();
+            readiness.logPattern = "ready";
+            WorkloadBenchmark benchmark = new WorkloadBenchmark(Arrays.asList("sh", "-c", "sleep 0.1"), dir, 4,
+                    0.5, readiness, 10000);
+            File workDir = new File(dir, "app");
+            workDir.mkdir();
+            WorkloadBenchmark.Result result = benchmark.run(
+                    Arrays.asList("sh", "-c", "sleep 0.2; echo ready; exec sleep 30"),
+                    Collections.emptyMap(), workDir, new File(dir, "app.log"));
+            assertTrue(result.readyMillis >= 200);
+            assertEquals(4, result.iterationMillis.size());
+            assertTrue(result.iterationMillis.get(0) >= 100);
+            assertTrue(result.steadyIteration >= 0);
+            assertTrue(result.timeToSteadyStateMillis >= result.readyMillis);
+            assertTrue(result.throughput > 0 && result.throughput <= 10);
+            assertTrue(result.peakRssKB > 0);
+            assertTrue(FileUtils.fileRead(new File(dir, "app.log")).contains("ready"));
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+}
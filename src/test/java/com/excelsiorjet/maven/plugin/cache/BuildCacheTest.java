@@ -0,0 +1,217 @@
+package com.excelsiorjet.maven.plugin.cache;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class BuildCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("cache").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(dir, name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        write("app/bin/app", "executable");
+        write("app/rt/lib.so", "library");
+        File zip = write("app.zip", "package");
+        BuildCacheConfig config = new BuildCacheConfig();
+        config.directory = new File(dir, "cache");
+        BuildCache cache = new BuildCache(config, new File(dir, "tmp"));
+        assertFalse(cache.restore("key", new File(dir, "app"), zip));
+        cache.store("key", new File(dir, "app"), zip);
+
+        File appDir = new File(dir, "restored");
+        write("restored/stale", "stale");
+        File restoredZip = new File(dir, "restored.zip");
+        assertTrue(cache.restore("key", appDir, restoredZip));
+        assertEquals("executable", read(new File(appDir, "bin/app")));
+        assertEquals("library", read(new File(appDir, "rt/lib.so")));
+        assertEquals("package", read(restoredZip));
+        assertFalse(new File(appDir, "stale").exists());
+    }
+
+    @Test
+    public void testCorruptedEntryIsMiss() throws IOException {
+        write("app/bin/app", "executable");
+        BuildCacheConfig config = new BuildCacheConfig();
+        config.directory = new File(dir, "cache");
+        BuildCache cache = new BuildCache(config, new File(dir, "tmp"));
+        cache.store("key", new File(dir, "app"), null);
+        write("cache/key.sha256", "0000");
+        assertFalse(cache.restore("key", new File(dir, "restored"), null));
+        assertFalse(new File(dir, "cache/key.tar.gz").exists());
+    }
+
+    /**
+     * Creates a cache entry of the given entries: names ending with {@code /} are directories,
+     * names with {@code " -> "} are symbolic links, others are files.
+     */
+    private File entry(String... names) throws IOException {
+        File entry = new File(dir, "entry.tar.gz");
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(
+                new GzipCompressorOutputStream(new FileOutputStream(entry))))
+        {
+            for (String name : names) {
+                TarArchiveEntry e;
+                byte[] content = new byte[0];
+                if (name.contains(" -> ")) {
+                    e = new TarArchiveEntry(name.substring(0, name.indexOf(" -> ")), TarArchiveEntry.LF_SYMLINK);
+                    e.setLinkName(name.substring(name.indexOf(" -> ") + 4));
+                } else {
+                    e = new TarArchiveEntry(name);
+                    content = name.getBytes(StandardCharsets.UTF_8);
+                    if (!name.endsWith("/")) {
+                        e.setSize(content.length);
+                    }
+                }
+                tar.putArchiveEntry(e);
+                if (e.isFile() && !e.isSymbolicLink()) {
+                    tar.write(content);
+                }
+                tar.closeArchiveEntry();
+            }
+        }
+        return entry;
+    }
+
+    private void assertRejected(String... names) throws IOException {
+        File appDir = new File(dir, "restored");
+        try {
+            CacheEntry.unpack(entry(names), appDir, null);
+            fail("Unpacked " + String.join(", ", names));
+        } catch (IOException expected) {
+        }
+        assertFalse(new File(dir, "outside/passwd").exists());
+    }
+
+    @Test
+    public void testSymbolicLinksOutsideAreRejected() throws IOException {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        File outside = new File(dir, "outside");
+        outside.mkdirs();
+        assertRejected("app/x -> " + outside.getAbsolutePath(), "app/x/passwd");
+        assertRejected("app/x -> ../outside", "app/x/passwd");
+        assertRejected("app/sub/", "app/sub/x -> ../../outside", "app/sub/x/passwd");
+        // lexically inside, but c leads to the directory itself, so a leads to its parent
+        assertRejected("app/c -> .", "app/a -> c/..", "app/a/outside/passwd");
+
+        // links inside the directory are preserved
+        File appDir = new File(dir, "restored");
+        CacheEntry.unpack(entry("app/lib/", "app/lib/a.so", "app/bin/a.so -> ../lib/a.so"), appDir, null);
+        assertEquals("app/lib/a.so", read(new File(appDir, "bin/a.so")));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws IOException {
+        File entry = write("entry", "0123456789");
+        DirectoryCacheStore store = new DirectoryCacheStore(new File(dir, "cache"), 25);
+        store.put("a", entry, "sum");
+        store.put("b", entry, "sum");
+        assertTrue(new File(dir, "cache/a.tar.gz").setLastModified(System.currentTimeMillis() - 20000));
+        assertTrue(new File(dir, "cache/b.tar.gz").setLastModified(System.currentTimeMillis() - 10000));
+        // a is used, so b becomes the least recently used entry
+        assertEquals("sum", store.get("a", new File(dir, "got")));
+        store.put("c", entry, "sum");
+        assertTrue(new File(dir, "cache/a.tar.gz").exists());
+        assertFalse(new File(dir, "cache/b.tar.gz").exists());
+        assertFalse(new File(dir, "cache/b.sha256").exists());
+        assertTrue(new File(dir, "cache/c.tar.gz").exists());
+    }
+
+    @Test
+    public void testHttpStore() throws IOException {
+        Map<String, byte[]> files = new ConcurrentHashMap<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            switch (exchange.getRequestMethod()) {
+                case "PUT":
+                    try (InputStream in = exchange.getRequestBody()) {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        byte[] buf = new byte[4096];
+                        int n;
+                        while ((n = in.read(buf)) > 0) {
+                            out.write(buf, 0, n);
+                        }
+                        files.put(path, out.toByteArray());
+                    }
+                    exchange.sendResponseHeaders(201, -1);
+                    break;
+                case "GET":
+                    byte[] content = files.get(path);
+                    if (content == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                    } else {
+                        exchange.sendResponseHeaders(200, content.length);
+                        try (OutputStream out = exchange.getResponseBody()) {
+                            out.write(content);
+                        }
+                    }
+                    break;
+                default:
+                    exchange.sendResponseHeaders(405, -1);
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            write("app/bin/app", "executable");
+            BuildCacheConfig config = new BuildCacheConfig();
+            config.url = "http://127.0.0.1:" + server.getAddress().getPort() + "/cache";
+            config.directory = new File(dir, "local");
+            BuildCache cache = new BuildCache(config, new File(dir, "tmp"));
+            cache.store("key", new File(dir, "app"), null);
+            assertTrue(files.containsKey("/cache/key.tar.gz"));
+
+            // a fresh local cache is populated from the remote one
+            FileUtils.deleteDirectory(new File(dir, "local"));
+            File appDir = new File(dir, "restored");
+            assertTrue(cache.restore("key", appDir, null));
+            assertEquals("executable", read(new File(appDir, "bin/app")));
+            assertTrue(new File(dir, "local/key.tar.gz").exists());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.excelsiorjet.maven.plugin.delta;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class DeltaPackagerTest {
+
+    private File dir;
+    private File oldApp;
+    private File newApp;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("delta").toFile();
+        oldApp = new File(dir, "old");
+        newApp = new File(dir, "new");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private static byte[] randomBytes(Random random, int size) {
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        return data;
+    }
+
+    /**
+     * @return copy of the data with a few bytes changed and a few inserted, as after a recompilation
+     */
+    private static byte[] mutate(Random random, byte[] data) {
+        byte[] result = Arrays.copyOf(data, data.length + 100);
+        for (int i = 0; i < 50; i++) {
+            result[random.nextInt(data.length)] ^= 1;
+        }
+        int at = data.length / 3;
+        System.arraycopy(data, at, result, at + 100, data.length - at);
+        return result;
+    }
+
+    private static void write(File root, String name, byte[] data) throws IOException {
+        File file = new File(root, name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), data);
+    }
+
+    @Test
+    public void testDiffRoundTrip() throws IOException {
+        Random random = new Random(1);
+        byte[] old = randomBytes(random, 200000);
+        byte[] changed = mutate(random, old);
+        byte[] patch = BsDiff.diff(old, changed);
+        assertTrue(patch.length < changed.length / 10);
+        assertArrayEquals(changed, BsDiff.patch(old, patch));
+
+        assertArrayEquals(old, BsDiff.patch(new byte[0], BsDiff.diff(new byte[0], old)));
+        assertArrayEquals(new byte[0], BsDiff.patch(old, BsDiff.diff(old, new byte[0])));
+        byte[] text = "abracadabra abracadabra".getBytes(StandardCharsets.US_ASCII);
+        byte[] text2 = "abracadabra cadabra abra".getBytes(StandardCharsets.US_ASCII);
+        assertArrayEquals(text2, BsDiff.patch(text, BsDiff.diff(text, text2)));
+    }
+
+    @Test
+    public void testSuffixArray() {
+        byte[] data = {3, (byte) 0xFF, 1, 3, (byte) 0xFF, 0, 1, 3};
+        int[] index = BsDiff.suffixArray(data);
+        assertEquals(data.length, index[0]);
+        for (int i = 1; i < index.length - 1; i++) {
+            String a = suffix(data, index[i]);
+            String b = suffix(data, index[i + 1]);
+            assertTrue(a + " < " + b, a.compareTo(b) < 0);
+        }
+    }
+
+    private static void zip(File root, File archive) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            for (String name : FileUtils.getFileNames(root, null, null, false)) {
+                zip.putNextEntry(new ZipEntry(name.replace(File.separatorChar, '/')));
+                Files.copy(new File(root, name).toPath(), zip);
+            }
+        }
+    }
+
+    private static String suffix(byte[] data, int from) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < data.length; i++) {
+            sb.append((char) (data[i] & 0xFF));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testDeltaPackage() throws IOException {
+        Random random = new Random(2);
+        byte[] exe = randomBytes(random, 100000);
+        write(oldApp, "bin/app", exe);
+        write(oldApp, "rt/lib/unchanged.so", randomBytes(random, 1000));
+        write(oldApp, "rt/removed.txt", "removed".getBytes(StandardCharsets.US_ASCII));
+        write(oldApp, "rt/small.txt", "small".getBytes(StandardCharsets.US_ASCII));
+        FileUtils.copyDirectoryStructure(oldApp, newApp);
+        write(newApp, "bin/app", mutate(random, exe));
+        new File(newApp, "rt/removed.txt").delete();
+        write(newApp, "rt/small.txt", "tiny".getBytes(StandardCharsets.US_ASCII));
+        write(newApp, "rt/added.bin", randomBytes(random, 500));
+
+        File baseline = new File(dir, "old.zip");
+        zip(oldApp, baseline);
+        File delta = new File(dir, "app-delta.zip");
+        DeltaPackager.Summary summary = new DeltaPackager(1024 * 1024).create(baseline, newApp, dir, delta);
+        assertEquals(1, summary.unchanged);
+        assertEquals(1, summary.patched);
+        assertEquals(2, summary.added);
+        assertEquals(1, summary.removed);
+        assertTrue(summary.size < 10000);
+        assertFalse(new File(dir, "delta-baseline").exists());
+
+        Map<String, String[]> manifest = new TreeMap<>();
+        try (ZipFile zip = new ZipFile(delta)) {
+            String text = IOUtil.toString(zip.getInputStream(zip.getEntry(DeltaPackager.MANIFEST)), "UTF-8");
+            for (String line : text.split("\n")) {
+                String[] fields = line.split(" ", 5);
+                manifest.put(fields[4], fields);
+            }
+            assertEquals("U", manifest.get("rt/lib/unchanged.so")[0]);
+            assertEquals("P", manifest.get("bin/app")[0]);
+            assertEquals("A", manifest.get("rt/small.txt")[0]);
+            assertEquals("A", manifest.get("rt/added.bin")[0]);
+            assertEquals("-", manifest.get("rt/added.bin")[2]);
+            assertEquals("D", manifest.get("rt/removed.txt")[0]);
+            assertEquals("-", manifest.get("rt/removed.txt")[3]);
+            assertNotNull(zip.getEntry(DeltaPackager.APPLY_SCRIPT));
+
+            // apply the delta to the old application
+            for (String[] fields : manifest.values()) {
+                File target = new File(oldApp, fields[4]);
+                if (!fields[2].equals("-")) {
+                    assertEquals(fields[2], DeltaPackager.checksum(target.toPath()));
+                }
+                switch (fields[0]) {
+                    case "P":
+                        byte[] patch = IOUtil.toByteArray(zip.getInputStream(zip.getEntry(DeltaPackager.PATCHES + fields[4])));
+                        Files.write(target.toPath(), BsDiff.patch(Files.readAllBytes(target.toPath()), patch));
+                        break;
+                    case "A":
+                        ZipEntry entry = zip.getEntry(DeltaPackager.FILES + fields[4]);
+                        Files.write(target.toPath(), IOUtil.toByteArray(zip.getInputStream(entry)));
+                        break;
+                    case "D":
+                        target.delete();
+                        break;
+                }
+            }
+        }
+        for (String name : new String[]{"bin/app", "rt/lib/unchanged.so", "rt/small.txt", "rt/added.bin"}) {
+            assertArrayEquals(name, Files.readAllBytes(new File(newApp, name).toPath()),
+                    Files.readAllBytes(new File(oldApp, name).toPath()));
+        }
+        assertFalse(new File(oldApp, "rt/removed.txt").exists());
+    }
+}
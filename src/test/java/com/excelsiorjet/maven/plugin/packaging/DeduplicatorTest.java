@@ -0,0 +1,105 @@
+package com.excelsiorjet.maven.plugin.packaging;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class DeduplicatorTest {
+
+    private File dir;
+    private File store;
+    private byte[] runtime;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("dedup").toFile();
+        store = new File(dir, "store");
+        runtime = new byte[(int) Deduplicator.MIN_SIZE * 2];
+        new Random(3).nextBytes(runtime);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private File createApp(String name) throws IOException {
+        File app = new File(dir, name);
+        write(app, "rt/bin/jvm.so", runtime);
+        write(app, "rt/lib/copy.so", runtime);
+        write(app, "bin/app", runtime);
+        new File(app, "bin/app").setExecutable(true);
+        write(app, "app.properties", new byte[]{1, 2, 3});
+        write(app, "rt/small.cfg", new byte[]{1, 2, 3});
+        return app;
+    }
+
+    private static void write(File root, String name, byte[] data) throws IOException {
+        File file = new File(root, name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), data);
+    }
+
+    private static Path path(File app, String name) {
+        return new File(app, name).toPath();
+    }
+
+    private static int linkCount(Path path) throws IOException {
+        return (Integer) Files.getAttribute(path, "unix:nlink");
+    }
+
+    @Test
+    public void testWithinDirectory() throws IOException {
+        File app = createApp("app");
+        Deduplicator.Summary summary = new Deduplicator(null).deduplicate(app);
+        assertEquals(1, summary.linked);
+        assertEquals(runtime.length, summary.savedBytes);
+        assertTrue(Files.isSameFile(path(app, "rt/bin/jvm.so"), path(app, "rt/lib/copy.so")));
+        // different permissions
+        assertFalse(Files.isSameFile(path(app, "rt/bin/jvm.so"), path(app, "bin/app")));
+        assertTrue(new File(app, "bin/app").canExecute());
+        // too small
+        assertFalse(Files.isSameFile(path(app, "app.properties"), path(app, "rt/small.cfg")));
+        assertArrayEquals(runtime, Files.readAllBytes(path(app, "rt/lib/copy.so")));
+        assertEquals(0, new Deduplicator(null).deduplicate(app).linked);
+    }
+
+    @Test
+    public void testAcrossDirectories() throws IOException {
+        File app1 = createApp("app1");
+        File app2 = createApp("app2");
+        new Deduplicator(store).deduplicate(app1);
+        Deduplicator.Summary summary = new Deduplicator(store).deduplicate(app2);
+        assertEquals(3, summary.linked);
+        assertTrue(Files.isSameFile(path(app1, "rt/bin/jvm.so"), path(app2, "rt/lib/copy.so")));
+        assertTrue(Files.isSameFile(path(app1, "bin/app"), path(app2, "bin/app")));
+        assertFalse(Files.isSameFile(path(app1, "app.properties"), path(app2, "app.properties")));
+
+        boolean nlinkSupported;
+        try {
+            linkCount(path(app1, "bin/app"));
+            nlinkSupported = true;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            nlinkSupported = false;
+        }
+        assumeTrue(nlinkSupported);
+        assertEquals(5, linkCount(path(app1, "rt/bin/jvm.so")));
+        // unused store entries are pruned
+        FileUtils.deleteDirectory(app1);
+        FileUtils.deleteDirectory(app2);
+        new Deduplicator(store).deduplicate(createApp("app3"));
+        assertEquals(3, linkCount(path(new File(dir, "app3"), "rt/bin/jvm.so")));
+        assertEquals(2, linkCount(path(new File(dir, "app3"), "bin/app")));
+        assertEquals(2, Files.walk(store.toPath()).filter(Files::isRegularFile).count());
+    }
+}
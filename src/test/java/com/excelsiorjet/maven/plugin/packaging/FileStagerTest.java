@@ -0,0 +1,122 @@
+package com.excelsiorjet.maven.plugin.packaging;
+
+import com.excelsiorjet.maven.plugin.FileModes;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class FileStagerTest {
+
+    private Path dir;
+    private Path source;
+    private Path target;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("staging");
+        source = dir.resolve("source");
+        target = dir.resolve("target");
+        byte[] large = new byte[(int) FileStager.MIN_CLONE_SIZE + 1];
+        new Random(5).nextBytes(large);
+        write(source.resolve("lib/large.jar"), large);
+        write(source.resolve("lib/small.jar"), new byte[]{1, 2, 3});
+        write(source.resolve("bin/app"), new byte[]{4, 5});
+        FileModes.setMode(source.resolve("bin/app"), 0755);
+        write(source.resolve("conf/deep/app.conf"), new byte[]{6});
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    private static void write(Path path, byte[] data) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, data);
+    }
+
+    private static int linkCount(Path path) throws IOException {
+        return (Integer) Files.getAttribute(path, "unix:nlink");
+    }
+
+    private void assertStaged(String name) throws IOException {
+        Path from = source.resolve(name);
+        Path to = target.resolve(name);
+        assertArrayEquals(Files.readAllBytes(from), Files.readAllBytes(to));
+        assertEquals(Files.getLastModifiedTime(from), Files.getLastModifiedTime(to));
+        assertEquals(FileModes.modeOf(from), FileModes.modeOf(to));
+    }
+
+    @Test
+    public void testStageTree() throws IOException {
+        write(target.resolve("stale.jar"), new byte[]{7});
+        write(target.resolve("stale/dir/file"), new byte[]{8});
+        write(target.resolve("lib"), new byte[]{9});
+
+        FileStager.Summary summary = new FileStager(false, 4).stageTree(source, target);
+        assertEquals(0, summary.skipped);
+        assertEquals(0, summary.linked);
+        assertEquals(4, summary.cloned + summary.copied);
+        for (String name : new String[]{"lib/large.jar", "lib/small.jar", "bin/app", "conf/deep/app.conf"}) {
+            assertStaged(name);
+        }
+        assertFalse(Files.exists(target.resolve("stale.jar")));
+        assertFalse(Files.exists(target.resolve("stale")));
+
+        summary = new FileStager(false, 4).stageTree(source, target);
+        assertEquals(4, summary.skipped);
+        assertEquals(0, summary.stagedBytes);
+
+        // rebuilt with the same contents
+        Files.setLastModifiedTime(source.resolve("lib/small.jar"), FileTime.fromMillis(1_000_000_000_000L));
+        write(source.resolve("conf/deep/app.conf"), new byte[]{10});
+        summary = new FileStager(false, 1).stageTree(source, target);
+        assertEquals(3, summary.skipped);
+        assertEquals(1, summary.cloned + summary.copied);
+        assertEquals(1, summary.stagedBytes);
+        assertStaged("lib/small.jar");
+        assertStaged("conf/deep/app.conf");
+
+        // changed contents with the same size and modification time, e.g. restored timestamps
+        FileTime time = Files.getLastModifiedTime(source.resolve("lib/small.jar"));
+        write(source.resolve("lib/small.jar"), new byte[]{3, 2, 1});
+        Files.setLastModifiedTime(source.resolve("lib/small.jar"), time);
+        summary = new FileStager(false, 1).stageTree(source, target);
+        assertEquals(3, summary.skipped);
+        assertEquals(1, summary.cloned + summary.copied);
+        assertStaged("lib/small.jar");
+    }
+
+    @Test
+    public void testLinks() throws IOException {
+        assumeTrue(Files.getFileStore(dir).supportsFileAttributeView("unix"));
+        Files.createSymbolicLink(source.resolve("lib/current.jar"), Paths.get("large.jar"));
+
+        FileStager.Summary summary = new FileStager(true, 2).stageTree(source, target);
+        assertEquals(4, summary.linked);
+        assertEquals(2, linkCount(source.resolve("lib/large.jar")));
+        assertTrue(Files.isSymbolicLink(target.resolve("lib/current.jar")));
+        assertEquals(Paths.get("large.jar"), Files.readSymbolicLink(target.resolve("lib/current.jar")));
+
+        // a replaced source is staged again without touching the previous one through the link
+        Path small = source.resolve("lib/small.jar");
+        Files.move(small, dir.resolve("old.jar"));
+        write(small, new byte[]{11, 12});
+        assertEquals(FileStager.Method.COPIED, new FileStager(false, 1).stage(small, target.resolve("lib/small.jar")));
+        assertStaged("lib/small.jar");
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(dir.resolve("old.jar")));
+        assertEquals(1, linkCount(target.resolve("lib/small.jar")));
+    }
+}